@@ -56,11 +56,15 @@
 #include <vector>
 #include <signal.h>
 #include <dlfcn.h>
+#include <errno.h>
+#include <stddef.h>
 #ifdef LINUX
 #include <sys/types.h>
 #include <sys/sysinfo.h>
 #include <sys/mman.h>
 #include <sys/syscall.h>
+#include <sys/epoll.h>
+#include <sys/eventfd.h>
 #include <fcntl.h>
 #include <unistd.h>
 #ifndef __USE_GNU
@@ -97,6 +101,7 @@
 #include "org_voltdb_jni_ExecutionEngine.h" // the header file output by javah
 #include "org_voltcore_utils_DBBPool.h" //Utility method for DBBContainer
 #include "org_voltdb_utils_PosixAdvise.h" //Utility method for invoking madvise/fadvise
+#include "org_voltcore_network_Epoll.h" //epoll based network selection
 
 #include "boost/shared_ptr.hpp"
 #include "boost/scoped_array.hpp"
@@ -1373,6 +1378,149 @@ SHAREDLIB_JNIEXPORT jlong JNICALL Java_org_voltdb_utils_PosixAdvise_fallocate
 #endif
 }
 
+/*
+ * Class:     org_voltcore_network_Epoll
+ * Method:    create
+ * Signature: ()I
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltcore_network_Epoll_create
+  (JNIEnv *, jclass) {
+#ifdef LINUX
+    int fd = epoll_create1(EPOLL_CLOEXEC);
+    return fd < 0 ? -errno : fd;
+#else
+    return -ENOSYS;
+#endif
+}
+
+/*
+ * Class:     org_voltcore_network_Epoll
+ * Method:    ctl
+ * Signature: (IIII)I
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltcore_network_Epoll_ctl
+  (JNIEnv *, jclass, jint epfd, jint op, jint fd, jint events) {
+#ifdef LINUX
+    struct epoll_event ev;
+    ev.events = static_cast<uint32_t>(events);
+    // the whole union is cleared so the java side can read data.fd back out of data.u64
+    ev.data.u64 = 0;
+    ev.data.fd = fd;
+    return epoll_ctl(epfd, op, fd, &ev) < 0 ? -errno : 0;
+#else
+    return -ENOSYS;
+#endif
+}
+
+/*
+ * Class:     org_voltcore_network_Epoll
+ * Method:    wait
+ * Signature: (ILjava/nio/ByteBuffer;II)I
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltcore_network_Epoll_wait
+  (JNIEnv *env, jclass, jint epfd, jobject events, jint maxEvents, jint timeout) {
+#ifdef LINUX
+    struct epoll_event *ev = reinterpret_cast<struct epoll_event*>(env->GetDirectBufferAddress(events));
+    if (ev == NULL) {
+        return -EINVAL;
+    }
+    int ready = epoll_wait(epfd, ev, maxEvents, timeout);
+    return ready < 0 ? -errno : ready;
+#else
+    return -ENOSYS;
+#endif
+}
+
+/*
+ * Class:     org_voltcore_network_Epoll
+ * Method:    eventFd
+ * Signature: ()I
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltcore_network_Epoll_eventFd
+  (JNIEnv *, jclass) {
+#ifdef LINUX
+    int fd = eventfd(0, EFD_NONBLOCK | EFD_CLOEXEC);
+    return fd < 0 ? -errno : fd;
+#else
+    return -ENOSYS;
+#endif
+}
+
+/*
+ * Class:     org_voltcore_network_Epoll
+ * Method:    eventFdWrite
+ * Signature: (I)I
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltcore_network_Epoll_eventFdWrite
+  (JNIEnv *, jclass, jint fd) {
+#ifdef LINUX
+    return eventfd_write(fd, 1) < 0 ? -errno : 0;
+#else
+    return -ENOSYS;
+#endif
+}
+
+/*
+ * Class:     org_voltcore_network_Epoll
+ * Method:    eventFdRead
+ * Signature: (I)I
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltcore_network_Epoll_eventFdRead
+  (JNIEnv *, jclass, jint fd) {
+#ifdef LINUX
+    eventfd_t value;
+    // EAGAIN just means another reader already reset the counter
+    if (eventfd_read(fd, &value) < 0 && errno != EAGAIN) {
+        return -errno;
+    }
+    return 0;
+#else
+    return -ENOSYS;
+#endif
+}
+
+/*
+ * Class:     org_voltcore_network_Epoll
+ * Method:    close
+ * Signature: (I)I
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltcore_network_Epoll_close
+  (JNIEnv *, jclass, jint fd) {
+#ifdef LINUX
+    return ::close(fd) < 0 ? -errno : 0;
+#else
+    return -ENOSYS;
+#endif
+}
+
+/*
+ * Class:     org_voltcore_network_Epoll
+ * Method:    eventSize
+ * Signature: ()I
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltcore_network_Epoll_eventSize
+  (JNIEnv *, jclass) {
+#ifdef LINUX
+    return sizeof(struct epoll_event);
+#else
+    return -ENOSYS;
+#endif
+}
+
+/*
+ * Class:     org_voltcore_network_Epoll
+ * Method:    dataOffset
+ * Signature: ()I
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltcore_network_Epoll_dataOffset
+  (JNIEnv *, jclass) {
+#ifdef LINUX
+    return offsetof(struct epoll_event, data);
+#else
+    return -ENOSYS;
+#endif
+}
+
 SHAREDLIB_JNIEXPORT jlong JNICALL
 Java_org_voltdb_jni_ExecutionEngine_nativeApplyBinaryLog (
     JNIEnv *env, jobject obj, jlong engine_ptr,
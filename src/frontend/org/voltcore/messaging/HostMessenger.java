@@ -133,6 +133,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         private static final String COORDINATOR_IP = "coordinatorip";
         private static final String GROUP = "group";
         private static final String LOCAL_SITES_COUNT = "localSitesCount";
+        private static final String EPOLL_TRANSPORT = "epollTransport";
 
         public InetSocketAddress coordinatorIp;
         public String zkInterface = "127.0.0.1:7181";
@@ -146,6 +147,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         public JoinAcceptor acceptor = null;
         public String group = AbstractTopology.PLACEMENT_GROUP_DEFAULT;
         public int localSitesCount;
+        public boolean epollTransport = false;
         public final boolean startPause;
 
         public Config(String coordIp, int coordPort, boolean paused) {
@@ -236,6 +238,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 js.keySymbolValuePair(NETWORK_THREADS, networkThreads);
                 js.key(ACCEPTOR).value(acceptor);
                 js.keySymbolValuePair(LOCAL_SITES_COUNT, localSitesCount);
+                js.keySymbolValuePair(EPOLL_TRANSPORT, epollTransport);
                 js.endObject();
 
                 return js.toString();
@@ -367,7 +370,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
     public HostMessenger(Config config, HostWatcher hostWatcher) {
         m_config = config;
         m_hostWatcher = hostWatcher;
-        m_network = new VoltNetworkPool(m_config.networkThreads, 0, m_config.coreBindIds, "Server");
+        m_network = new VoltNetworkPool(m_config.networkThreads, 0, m_config.coreBindIds, "Server", m_config.epollTransport);
         m_acceptor = config.acceptor;
         //This ref is updated after the mesh decision is made.
         m_paused.set(m_config.startPause);
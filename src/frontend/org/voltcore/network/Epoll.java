@@ -0,0 +1,180 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.network;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Thin wrapper around the Linux epoll and eventfd system calls. The natives live in
+ * the VoltDB shared library so this is only usable by a server that has loaded it,
+ * everywhere else {@link #isAvailable()} returns false and {@link VoltNetwork} sticks
+ * with the NIO selector.
+ *
+ * The file descriptor of a channel is read from the private fields
+ * sun.nio.ch.SocketChannelImpl.fd and java.io.FileDescriptor.fd. JDK 17 and later don't
+ * allow that unless the JVM is started with
+ * <pre>
+ * --add-opens java.base/sun.nio.ch=ALL-UNNAMED --add-opens java.base/java.io=ALL-UNNAMED
+ * </pre>
+ * (e.g. in VOLTDB_OPTS), without them the transport is reported as unavailable.
+ */
+final class Epoll {
+    static final int EPOLLIN = 0x001;
+    static final int EPOLLOUT = 0x004;
+    static final int EPOLLERR = 0x008;
+    static final int EPOLLHUP = 0x010;
+    static final int EPOLLRDHUP = 0x2000;
+    static final int EPOLLET = 1 << 31;
+
+    static final int EPOLL_CTL_ADD = 1;
+    static final int EPOLL_CTL_DEL = 2;
+    static final int EPOLL_CTL_MOD = 3;
+
+    static final int EINTR = 4;
+
+    // JVM options that let the channel file descriptors be read on JDK 17 and later
+    static final String ADD_OPENS =
+            "--add-opens java.base/sun.nio.ch=ALL-UNNAMED --add-opens java.base/java.io=ALL-UNNAMED";
+
+    // SocketChannelImpl.fd and FileDescriptor.fd, null when the JDK doesn't let them be opened up
+    private static final Field s_channelFd;
+    private static final Field s_descriptorFd;
+    static {
+        Field channelFd = null;
+        Field descriptorFd = null;
+        try {
+            channelFd = Class.forName("sun.nio.ch.SocketChannelImpl").getDeclaredField("fd");
+            channelFd.setAccessible(true);
+            descriptorFd = FileDescriptor.class.getDeclaredField("fd");
+            descriptorFd.setAccessible(true);
+        } catch (Exception e) {
+            channelFd = null;
+            descriptorFd = null;
+        }
+        s_channelFd = channelFd;
+        s_descriptorFd = descriptorFd;
+    }
+
+    private static volatile boolean s_available = false;
+    // layout of struct epoll_event, filled in once the natives are known to work
+    private static int s_eventSize;
+    private static int s_dataOffset;
+
+    private Epoll() {}
+
+    /**
+     * Check whether the private fields holding the file descriptor of a channel could be opened up,
+     * see {@link #ADD_OPENS}
+     */
+    static boolean canReadChannelFds() {
+        return s_channelFd != null;
+    }
+
+    /**
+     * Check whether the native library is loaded, the kernel supports epoll, and the
+     * file descriptors of socket channels can be read. The check is retried until it succeeds so it can be made before and after
+     * the shared library is loaded.
+     */
+    static boolean isAvailable() {
+        if (!s_available && s_channelFd != null && System.getProperty("os.name").equalsIgnoreCase("linux")) {
+            try {
+                final int fd = create();
+                if (fd >= 0) {
+                    close(fd);
+                    s_eventSize = eventSize();
+                    s_dataOffset = dataOffset();
+                    s_available = true;
+                }
+            } catch (UnsatisfiedLinkError e) {
+                // not loaded
+            }
+        }
+        return s_available;
+    }
+
+    /**
+     * Allocate a buffer the kernel can fill with up to maxEvents ready events
+     */
+    static ByteBuffer allocateEvents(int maxEvents) {
+        return ByteBuffer.allocateDirect(maxEvents * s_eventSize).order(ByteOrder.nativeOrder());
+    }
+
+    static int readyEvents(ByteBuffer events, int index) {
+        return events.getInt(index * s_eventSize);
+    }
+
+    static int readyFd(ByteBuffer events, int index) {
+        return events.getInt(index * s_eventSize + s_dataOffset);
+    }
+
+    /**
+     * Translate NIO interest ops into edge triggered epoll events
+     */
+    static int toEpollEvents(int interestOps) {
+        int events = EPOLLET | EPOLLRDHUP;
+        if ((interestOps & SelectionKey.OP_READ) != 0) {
+            events |= EPOLLIN;
+        }
+        if ((interestOps & SelectionKey.OP_WRITE) != 0) {
+            events |= EPOLLOUT;
+        }
+        return events;
+    }
+
+    /**
+     * Translate ready epoll events into NIO ready ops. Hang ups and errors are
+     * reported as readable and writable so the port finds out on its next I/O
+     */
+    static int toReadyOps(int events) {
+        int readyOps = 0;
+        if ((events & (EPOLLIN | EPOLLRDHUP | EPOLLHUP | EPOLLERR)) != 0) {
+            readyOps |= SelectionKey.OP_READ;
+        }
+        if ((events & (EPOLLOUT | EPOLLHUP | EPOLLERR)) != 0) {
+            readyOps |= SelectionKey.OP_WRITE;
+        }
+        return readyOps;
+    }
+
+    static int fd(SocketChannel channel) throws IOException {
+        try {
+            return s_descriptorFd.getInt(s_channelFd.get(channel));
+        } catch (IllegalAccessException | IllegalArgumentException e) {
+            throw new IOException("Unable to get the file descriptor of " + channel, e);
+        }
+    }
+
+    /*
+     * All natives return a negated errno on failure
+     */
+    static native int create();
+    static native int ctl(int epfd, int op, int fd, int events);
+    static native int wait(int epfd, ByteBuffer events, int maxEvents, int timeoutMillis);
+    static native int eventFd();
+    static native int eventFdWrite(int fd);
+    static native int eventFdRead(int fd);
+    static native int close(int fd);
+    private static native int eventSize();
+    private static native int dataOffset();
+}
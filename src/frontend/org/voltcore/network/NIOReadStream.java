@@ -54,6 +54,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.EstTime;
 
 import com.google_voltpatches.common.collect.ImmutableList;
 
@@ -228,12 +229,60 @@ public class NIOReadStream {
             if (bytesRead > 0) {
                 m_bytesRead += bytesRead;
                 m_totalAvailable += bytesRead;
+                m_lastReadTime = EstTime.currentTimeMillis();
+                final int held = getBufferedCapacity();
+                if (held > m_bufferHighWater) {
+                    m_bufferHighWater = held;
+                }
             }
         }
 
         return bytesRead;
     }
 
+    /**
+     * Capacity of the pool buffers held by this stream
+     */
+    int getBufferedCapacity() {
+        int held = m_poolBBContainer == null ? 0 : m_poolBBContainer.b().capacity();
+        for (BBContainer c : m_readBBContainers) {
+            held += c.b().capacity();
+        }
+        return held;
+    }
+
+    /**
+     * If nothing has been read for idleMillis, move a partially filled read buffer into the
+     * smallest buffer that fits its contents so idle connections don't each pin a full sized buffer.
+     * @return the number of buffer bytes given back to the pool
+     */
+    int reclaim(NetworkDBBPool pool, long now, long idleMillis) {
+        if (m_poolBBContainer == null || now - m_lastReadTime < idleMillis) {
+            return 0;
+        }
+        final ByteBuffer current = m_poolBBContainer.b();
+        final int capacity = current.capacity();
+        if (current.position() == 0) {
+            m_poolBBContainer.discard();
+            m_poolBBContainer = null;
+            return capacity;
+        }
+        // Leave room for at least one more byte, a full buffer would never be read into
+        final BBContainer compacted = pool.acquire(current.position() + 1);
+        final ByteBuffer target = compacted.b();
+        if (target.capacity() >= capacity) {
+            compacted.discard();
+            return 0;
+        }
+        target.clear();
+        final ByteBuffer data = current.duplicate();
+        data.flip();
+        target.put(data);
+        m_poolBBContainer.discard();
+        m_poolBBContainer = compacted;
+        return capacity - target.capacity();
+    }
+
     void shutdown() {
         for (BBContainer c : m_readBBContainers) {
             c.discard();
@@ -250,6 +299,19 @@ public class NIOReadStream {
     protected int m_totalAvailable = 0;
     private long m_bytesRead = 0;
     private long m_lastBytesRead = 0;
+    private long m_lastReadTime = EstTime.currentTimeMillis();
+    private int m_bufferHighWater = 0;
+
+    /**
+     * Most pool buffer capacity held by this stream, since the last interval when interval is true
+     */
+    long getBufferHighWater(boolean interval) {
+        final int highWater = m_bufferHighWater;
+        if (interval) {
+            m_bufferHighWater = getBufferedCapacity();
+        }
+        return highWater;
+    }
 
     long getBytesRead(boolean interval) {
         if (interval) {
@@ -17,69 +17,160 @@
 
 package org.voltcore.network;
 
+import java.nio.ByteBuffer;
 import java.util.Deque;
-
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.logging.Level;
+import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.RateLimitedLogger;
 
+/**
+ * Pool of direct buffers used by the network for reads and serialized writes. Buffers come
+ * in size classes, each a quarter of the next, from the allocation size down to
+ * NETWORK_DBB_MIN_SIZE. Full sized buffers are handed out by {@link #acquire()}, the smaller
+ * classes are used to compact the partially filled read buffers of idle connections.
+ *
+ * The direct memory allocated by all pools together can be capped with NETWORK_DBB_MAX_BYTES.
+ * Past the cap buffers are allocated on the heap so direct memory stays bounded under
+ * connection storms.
+ */
 public class NetworkDBBPool {
+    private static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
-    private final Deque<BBContainer> m_buffers = new ConcurrentLinkedDeque<BBContainer>();
     private static final int LIMIT = Integer.getInteger("NETWORK_DBB_LIMIT", 512);
     private static final int SIZE = Integer.getInteger("NETWORK_DBB_SIZE", (1024 * 32));
+    private static final int MIN_SIZE = Integer.getInteger("NETWORK_DBB_MIN_SIZE", 1024 * 2);
+    static final long MAX_DIRECT_BYTES = Long.getLong("NETWORK_DBB_MAX_BYTES", 0);
+
+    /** Direct memory currently allocated by all network pools, pooled or in use */
+    private static final AtomicLong s_directBytes = new AtomicLong();
+    /** Allocations that fell back to the heap because of the cap */
+    private static final AtomicLong s_heapAllocations = new AtomicLong();
+
+    private final Deque<BBContainer> m_buffers[];
+    private final int m_classSizes[];
 
     private final int m_numBuffers;
-    private final int m_allocationSize;
     public NetworkDBBPool(int numBuffers) {
-        m_numBuffers = numBuffers;
-        m_allocationSize = SIZE;
+        this(numBuffers, SIZE);
     }
 
+    @SuppressWarnings("unchecked")
     NetworkDBBPool(int numBuffers, int allocSize) {
         m_numBuffers = numBuffers;
-        m_allocationSize = allocSize;
+        int classes = 1;
+        for (int size = allocSize / 4; size >= MIN_SIZE; size /= 4) {
+            classes++;
+        }
+        m_classSizes = new int[classes];
+        m_buffers = new Deque[classes];
+        for (int ii = classes - 1, size = allocSize; ii >= 0; ii--, size /= 4) {
+            m_classSizes[ii] = size;
+            m_buffers[ii] = new ConcurrentLinkedDeque<BBContainer>();
+        }
     }
 
     public NetworkDBBPool() {
-        m_numBuffers = LIMIT;
-        m_allocationSize = SIZE;
+        this(LIMIT, SIZE);
     }
 
+    /**
+     * Acquire a buffer of the full allocation size
+     */
     BBContainer acquire() {
-       final BBContainer cont = m_buffers.poll();
+        return acquireClass(m_classSizes.length - 1);
+    }
+
+    /**
+     * Acquire a buffer from the smallest size class that holds at least minSize bytes,
+     * or a full sized buffer if none of the classes do
+     */
+    BBContainer acquire(int minSize) {
+        int sizeClass = 0;
+        while (sizeClass < m_classSizes.length - 1 && m_classSizes[sizeClass] < minSize) {
+            sizeClass++;
+        }
+        return acquireClass(sizeClass);
+    }
+
+    private BBContainer acquireClass(int sizeClass) {
+        final Deque<BBContainer> buffers = m_buffers[sizeClass];
+        BBContainer cont = buffers.poll();
         if (cont == null) {
-           final BBContainer originContainer = DBBPool.allocateDirect(m_allocationSize);
-           return new BBContainer(originContainer.b()) {
-                @Override
-                public void discard() {
-                    checkDoubleFree();
-                    //If we had to allocate over the desired limit, start discarding
-                    if (m_buffers.size() > m_numBuffers) {
-                        originContainer.discard();
-                        return;
-                    }
-                    m_buffers.push(originContainer);
+            cont = allocate(m_classSizes[sizeClass]);
+            if (cont == null) {
+                return DBBPool.wrapBB(ByteBuffer.allocate(m_classSizes[sizeClass]));
+            }
+        }
+        final BBContainer origin = cont;
+        return new BBContainer(origin.b()) {
+            @Override
+            public void discard() {
+                checkDoubleFree();
+                //If we had to allocate over the desired limit, start discarding
+                if (buffers.size() > m_numBuffers) {
+                    origin.discard();
+                    return;
                 }
-           };
-       }
-       return new BBContainer(cont.b()) {
-           @Override
-           public void discard() {
-               checkDoubleFree();
-               if (m_buffers.size() > m_numBuffers) {
-                   cont.discard();
-                   return;
-               }
-               m_buffers.push(cont);
-           }
-       };
+                buffers.push(origin);
+            }
+        };
+    }
+
+    /**
+     * Allocate a direct buffer that releases its accounting when it is freed,
+     * returns null if that would go over the cap
+     */
+    private static BBContainer allocate(final int size) {
+        final long allocated = s_directBytes.addAndGet(size);
+        if (MAX_DIRECT_BYTES > 0 && allocated > MAX_DIRECT_BYTES) {
+            s_directBytes.addAndGet(-size);
+            s_heapAllocations.incrementAndGet();
+            RateLimitedLogger.tryLogForMessage(
+                    System.currentTimeMillis(),
+                    1, TimeUnit.MINUTES,
+                    networkLog,
+                    Level.WARN,
+                    "Network buffers reached the direct memory cap of %d bytes, allocating on the heap",
+                    MAX_DIRECT_BYTES);
+            return null;
+        }
+        final BBContainer cont = DBBPool.allocateDirect(size);
+        return new BBContainer(cont.b()) {
+            @Override
+            public void discard() {
+                checkDoubleFree();
+                s_directBytes.addAndGet(-size);
+                cont.discard();
+            }
+        };
+    }
+
+    /**
+     * Direct memory allocated by all network pools
+     */
+    public static long getDirectBytes() {
+        return s_directBytes.get();
+    }
+
+    /**
+     * Number of buffers allocated on the heap because the direct memory cap was reached
+     */
+    public static long getHeapAllocations() {
+        return s_heapAllocations.get();
     }
 
     void clear() {
-        BBContainer cont = null;
-        while ((cont = m_buffers.poll()) != null) {
-            cont.discard();
+        for (Deque<BBContainer> buffers : m_buffers) {
+            BBContainer cont = null;
+            while ((cont = buffers.poll()) != null) {
+                cont.discard();
+            }
         }
     }
 
@@ -101,6 +101,7 @@ public class PicoNIOWriteStream extends NIOWriteStreamBase {
             }
 
             rc = channel.write(buffer);
+            m_writeCalls++;
 
             //Discard the buffer back to a pool if no data remains
             if (!buffer.hasRemaining()) {
@@ -386,6 +386,7 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
             final long read = m_readStream.getBytesRead(interval);
             final long writeInfo[] = m_writeStream.getBytesAndMessagesWritten(interval);
             final long messagesRead = m_messagesRead;
+            final long readBufferHighWater = m_readStream.getBufferHighWater(interval);
             retval.put(
                     m_ih.connectionId(),
                     Pair.of(
@@ -394,7 +395,9 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1]}));
+                                    writeInfo[1],
+                                    writeInfo[2],
+                                    readBufferHighWater}));
             retval.put(
                     -1L,
                     Pair.of(
@@ -403,7 +406,9 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    writeInfo[2],
+                                    readBufferHighWater }));
             return retval;
     }
 
@@ -19,7 +19,6 @@ package org.voltcore.network;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SelectionKey;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -71,7 +70,7 @@ public class TLSDecryptionAdapter {
         return m_sslEngine.getSession().getApplicationBufferSize();
     }
 
-    TLSNIOWriteStream getWriteStream(SelectionKey key) {
+    TLSNIOWriteStream getWriteStream() {
         return new TLSNIOWriteStream(
                 m_connection,
                 m_inputHandler.offBackPressure(),
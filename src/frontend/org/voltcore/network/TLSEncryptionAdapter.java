@@ -43,6 +43,11 @@ import io.netty_voltpatches.buffer.ByteBuf;
 public class TLSEncryptionAdapter {
     private static final VoltLogger s_networkLog = new VoltLogger("NETWORK");
 
+    /**
+     * Most frames an encrypt task wraps before it yields its cipher thread to other connections
+     */
+    static final int ENCRYPT_BATCH_FRAMES = Math.max(1, Integer.getInteger("TLS_ENCRYPT_BATCH_FRAMES", 8));
+
     private final ConcurrentLinkedDeque<ExecutionException> m_exceptions = new ConcurrentLinkedDeque<>();
     private final ConcurrentLinkedDeque<EncryptFrame> m_encrypted;
     private final FlexibleSemaphore m_inFlight = new FlexibleSemaphore(1);
@@ -279,54 +284,67 @@ public class TLSEncryptionAdapter {
             return ImmutableList.copyOf(m_q).iterator();
         }
 
+        /**
+         * A single SSLEngine has to wrap its records one at a time and in order, so the frames
+         * of one connection cannot be encrypted concurrently. Instead each task wraps up to
+         * {@link #ENCRYPT_BATCH_FRAMES} frames back to back, which saves a cipher thread hand off
+         * per 16k record, and the chunks of a large message are handed to the write stream as they
+         * are encrypted so the socket writes overlap the encryption of the rest of the message.
+         */
         @Override
         public void run() {
-            EncryptFrame frame = m_q.peek();
-            if (frame == null) return;
+            for (int batched = 1; ; ++batched) {
+                EncryptFrame frame = m_q.peek();
+                if (frame == null) return;
 
-            ByteBuffer src = frame.frame.nioBuffer();
-            ByteBuf encr = m_ce.allocator().ioBuffer(packetBufferSize()).writerIndex(packetBufferSize());
-            ByteBuffer dest = encr.nioBuffer();
+                ByteBuffer src = frame.frame.nioBuffer();
+                ByteBuf encr = m_ce.allocator().ioBuffer(packetBufferSize()).writerIndex(packetBufferSize());
+                ByteBuffer dest = encr.nioBuffer();
 
-            try {
-                m_encrypter.tlswrap(src, dest);
-            } catch (TLSException e) {
-                m_inFlight.release();
-                encr.release();
-                m_exceptions.offer(new ExecutionException("failed to encrypt frame", e));
-                s_networkLog.error("failed to encrypt frame", e);
-                m_connection.enableWriteSelection();
-                return;
-            }
-            assert !src.hasRemaining() : "encryption wrap did not consume the whole source buffer";
-            int delta = dest.limit() - frame.frame.readableBytes();
-            encr.writerIndex(dest.limit());
-
-            if (!m_isShutdown) {
-                m_encrypted.offer(frame.encrypted(delta, encr));
-                /*
-                 * All interactions with write stream must be protected
-                 * with a lock to ensure that interests ops are consistent with
-                 * the state of writes queued to the stream. This prevent
-                 * lost queued writes where the write is queued
-                 * but the write interest op is not set.
-                 */
-                if (frame.isLast()) {
+                try {
+                    m_encrypter.tlswrap(src, dest);
+                } catch (TLSException e) {
+                    m_inFlight.release();
+                    encr.release();
+                    m_exceptions.offer(new ExecutionException("failed to encrypt frame", e));
+                    s_networkLog.error("failed to encrypt frame", e);
                     m_connection.enableWriteSelection();
+                    return;
                 }
-            } else {
-                encr.release();
-                return;
-            }
-            synchronized(this) {
-                m_q.poll();
-                if (frame.isLast()) {
-                    frame.bb.release();
+                assert !src.hasRemaining() : "encryption wrap did not consume the whole source buffer";
+                int delta = dest.limit() - frame.frame.readableBytes();
+                encr.writerIndex(dest.limit());
+
+                if (!m_isShutdown) {
+                    m_encrypted.offer(frame.encrypted(delta, encr));
+                    /*
+                     * All interactions with write stream must be protected
+                     * with a lock to ensure that interests ops are consistent with
+                     * the state of writes queued to the stream. This prevent
+                     * lost queued writes where the write is queued
+                     * but the write interest op is not set.
+                     */
+                    if (frame.isLast() || frame.chunkno % ENCRYPT_BATCH_FRAMES == 0) {
+                        m_connection.enableWriteSelection();
+                    }
+                } else {
+                    encr.release();
+                    return;
                 }
-                m_inFlight.release();
-                coalesceEncryptFrames();
-                if (m_q.peek() != null && !m_isShutdown) {
-                    submitSelf();
+                synchronized(this) {
+                    m_q.poll();
+                    if (frame.isLast()) {
+                        frame.bb.release();
+                    }
+                    m_inFlight.release();
+                    coalesceEncryptFrames();
+                    if (m_q.peek() == null || m_isShutdown) {
+                        return;
+                    }
+                    if (batched == ENCRYPT_BATCH_FRAMES) {
+                        submitSelf();
+                        return;
+                    }
                 }
             }
         }
@@ -19,9 +19,7 @@ package org.voltcore.network;
 
 import java.io.IOException;
 import java.nio.channels.GatheringByteChannel;
-import java.util.ArrayList;
 import java.util.Deque;
-import java.util.List;
 import java.util.concurrent.ConcurrentLinkedDeque;
 
 import javax.net.ssl.SSLEngine;
@@ -73,9 +71,6 @@ public class TLSNIOWriteStream extends VoltNIOWriteStream {
         m_queuedBytes += queued;
     }
 
-    private final List<EncryptFrame> m_partial = new ArrayList<>();
-    private volatile int m_partialSize = 0;
-
     static final class EncryptLedger {
         final int delta;
         final int bytes;
@@ -86,46 +81,24 @@ public class TLSNIOWriteStream extends VoltNIOWriteStream {
         }
     }
     /**
-     * Gather all the frames that comprise a whole Volt Message
+     * Move encrypted frames to the output buffer. The gateway encrypts frames in order, so
+     * the chunks of a large message are written as soon as they are encrypted instead of
+     * waiting for the whole message. A message is counted once its last chunk is added.
      */
-    private EncryptLedger addFramesForCompleteMessage() {
-        boolean added = false;
+    private EncryptLedger addEncryptedFrames() {
         EncryptFrame frame = null;
         int bytes = 0;
         int delta = 0;
 
-        while (!added && (frame = m_encrypted.poll()) != null) {
-            if (!frame.isLast()) {
-                synchronized(m_partial) {
-                    m_partial.add(frame);
-                    ++m_partialSize;
-                }
-                continue;
-            }
-
-            final int partialSize = m_partialSize;
-            if (partialSize > 0) {
-                assert frame.chunks == partialSize + 1
-                        : "partial frame buildup has wrong number of preceding pieces";
-
-                synchronized(m_partial) {
-                    for (EncryptFrame frm: m_partial) {
-                        m_outbuf.addComponent(true, frm.frame);
-                        bytes += frm.frame.readableBytes();
-                        delta += frm.delta;
-                    }
-                    m_partial.clear();
-                    m_partialSize = 0;
-                }
-            }
+        while ((frame = m_encrypted.poll()) != null) {
             m_outbuf.addComponent(true, frame.frame);
             bytes += frame.frame.readableBytes();
             delta += frame.delta;
-
-            m_messagesInOutBuf += frame.msgs;
-            added = true;
+            if (frame.isLast()) {
+                m_messagesInOutBuf += frame.msgs;
+            }
         }
-        return added ? new EncryptLedger(delta, bytes) : null;
+        return bytes > 0 ? new EncryptLedger(delta, bytes) : null;
     }
 
     @Override
@@ -133,7 +106,6 @@ public class TLSNIOWriteStream extends VoltNIOWriteStream {
         return m_queuedWrites.isEmpty()
             && m_tlsEncryptAdapter.isEmpty()
             && m_encrypted.isEmpty()
-            && m_partialSize == 0
             && !m_outbuf.isReadable();
     }
 
@@ -148,12 +120,12 @@ public class TLSNIOWriteStream extends VoltNIOWriteStream {
             do {
                 m_tlsEncryptAdapter.checkForGatewayExceptions();
                 EncryptLedger queued = null;
-                // add to output buffer frames that contain whole messages
-                while ((queued=addFramesForCompleteMessage()) != null) {
+                if ((queued = addEncryptedFrames()) != null) {
                     delta += queued.delta;
                 }
 
                 rc = m_outbuf.readBytes(channel, m_outbuf.readableBytes());
+                m_writeCalls++;
                 m_outbuf.discardReadComponents();
                 written += rc;
 
@@ -202,7 +174,6 @@ public class TLSNIOWriteStream extends VoltNIOWriteStream {
     public synchronized int getOutstandingMessageCount() {
         return m_encrypted.size()
              + m_queuedWrites.size()
-             + m_partialSize
              + m_outbuf.numComponents();
     }
 
@@ -221,11 +192,6 @@ public class TLSNIOWriteStream extends VoltNIOWriteStream {
             frame.frame.release();
         }
 
-        for (EncryptFrame ef: m_partial) {
-            ef.frame.release();
-        }
-        m_partial.clear();
-
         m_outbuf.release();
 
         // we have to use ledger because we have no idea how much encrypt delta
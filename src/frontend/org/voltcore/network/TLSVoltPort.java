@@ -20,7 +20,6 @@ package org.voltcore.network;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -42,12 +41,11 @@ public class TLSVoltPort extends VoltPort  {
     }
 
     @Override
-    protected void setKey(SelectionKey key) {
-        m_selectionKey = key;
-        m_channel = (SocketChannel)key.channel();
+    protected void setChannel(SocketChannel channel, int interestOps) {
+        m_channel = channel;
         m_readStream = new NIOReadStream();
-        m_writeStream = m_tlsDecryptAdapter.getWriteStream(key);
-        m_interestOps = key.interestOps();
+        m_writeStream = m_tlsDecryptAdapter.getWriteStream();
+        m_interestOps = interestOps;
     }
 
     @Override
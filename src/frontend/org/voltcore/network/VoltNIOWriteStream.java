@@ -23,6 +23,7 @@ import java.nio.channels.GatheringByteChannel;
 import java.util.ArrayDeque;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 
@@ -64,6 +65,20 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
 
     protected final int m_maxQueuedWritesBeforeBackpressure = 100;
 
+    /**
+     * Most serialized buffers handed to the channel in one gathering write
+     */
+    static final int MAX_GATHERED_BUFFERS = Integer.getInteger("NETWORK_MAX_GATHERED_BUFFERS", 16);
+
+    /**
+     * Number of buffers offered to the channel by the next write. It doubles while the channel
+     * accepts everything it is offered and shrinks to what the channel actually took once it
+     * starts accepting partial writes, so the gather follows the throughput of the connection.
+     */
+    private int m_gatherWidth = 1;
+    private final ByteBuffer[] m_gatherBuffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
+    private final BBContainer[] m_gatherContainers = new BBContainer[MAX_GATHERED_BUFFERS];
+
     private final Runnable m_offBackPressureCallback;
     private final Runnable m_onBackPressureCallback;
 
@@ -309,10 +324,10 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
     }
 
     /**
-     * Does the work of queueing addititional buffers that have been serialized
-     * and choosing between gathering and regular writes to the channel. Also splits up very large
-     * writes of HeapByteBuffers into many smaller writes so Java doesn't allocate a monster DirectByteBuffer
-     * that will never be freed
+     * Does the work of handing the serialized buffers to the channel. The partially written
+     * buffer and as many queued buffers as the current gather width allows are written with a
+     * single gathering write. Buffers the channel didn't take at all are returned to the head
+     * of the queue unflipped so more data can still be serialized into the last one.
      * @param channel
      * @return
      * @throws IOException
@@ -330,29 +345,71 @@ public class VoltNIOWriteStream extends NIOWriteStreamBase implements WriteStrea
                     return bytesWritten;
                 }
 
-                ByteBuffer buffer = null;
-                if (m_currentWriteBuffer == null) {
-                    m_currentWriteBuffer = m_queuedBuffers.poll();
-                    buffer = m_currentWriteBuffer.b();
+                int count = 0;
+                long offered = 0;
+                if (m_currentWriteBuffer != null) {
+                    m_gatherContainers[count] = m_currentWriteBuffer;
+                    m_gatherBuffers[count] = m_currentWriteBuffer.b();
+                    offered += m_gatherBuffers[count].remaining();
+                    count++;
+                    m_currentWriteBuffer = null;
+                }
+                while (count < m_gatherWidth && !m_queuedBuffers.isEmpty()) {
+                    final BBContainer cont = m_queuedBuffers.poll();
+                    final ByteBuffer buffer = cont.b();
                     buffer.flip();
-                } else {
-                    buffer = m_currentWriteBuffer.b();
+                    m_gatherContainers[count] = cont;
+                    m_gatherBuffers[count] = buffer;
+                    offered += buffer.remaining();
+                    count++;
                 }
 
-                rc = channel.write(buffer);
+                rc = 0;
+                try {
+                    rc = count == 1 ? channel.write(m_gatherBuffers[0]) : channel.write(m_gatherBuffers, 0, count);
+                    m_writeCalls++;
+                } finally {
+                    // Discard the buffers written out back to a pool and requeue the rest
+                    int fullyWritten = 0;
+                    while (fullyWritten < count && !m_gatherBuffers[fullyWritten].hasRemaining()) {
+                        m_gatherContainers[fullyWritten].discard();
+                        m_messagesWritten++;
+                        fullyWritten++;
+                    }
+                    for (int ii = count - 1; ii > fullyWritten; ii--) {
+                        // untouched, undo the flip
+                        final ByteBuffer buffer = m_gatherBuffers[ii];
+                        buffer.position(buffer.limit());
+                        buffer.limit(buffer.capacity());
+                        m_queuedBuffers.offerFirst(m_gatherContainers[ii]);
+                    }
+                    if (fullyWritten < count) {
+                        m_currentWriteBuffer = m_gatherContainers[fullyWritten];
+                    }
+                    for (int ii = 0; ii < count; ii++) {
+                        m_gatherContainers[ii] = null;
+                        m_gatherBuffers[ii] = null;
+                    }
+
+                    if (rc >= offered) {
+                        if (count == m_gatherWidth) {
+                            m_gatherWidth = Math.min(MAX_GATHERED_BUFFERS, m_gatherWidth * 2);
+                        }
+                    } else {
+                        m_gatherWidth = Math.max(1, fullyWritten + 1);
+                    }
+                }
 
-                //Discard the buffer back to a pool if no data remains
-                if (buffer.hasRemaining()) {
+                if (rc > 0) {
+                    bytesWritten += rc;
+                }
+                if (m_currentWriteBuffer != null) {
+                    // The channel is full, don't spin on it
                     if (!m_hadBackPressure) {
                         backpressureStarted();
                     }
-                } else {
-                    m_currentWriteBuffer.discard();
-                    m_currentWriteBuffer = null;
-                    m_messagesWritten++;
+                    break;
                 }
-                bytesWritten += rc;
-
             } while (rc > 0);
         } finally {
             //We might fail after writing few bytes. make sure the ones that are written accounted for.
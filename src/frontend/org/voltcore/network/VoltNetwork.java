@@ -63,6 +63,7 @@ package org.voltcore.network;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedByInterruptException;
@@ -71,6 +72,8 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -79,14 +82,18 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.SSLEngine;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.VoltNetworkPool.IOStatsIntf;
+import org.voltcore.utils.EstTime;
 import org.voltcore.utils.LatencyWatchdog;
 import org.voltcore.utils.Pair;
+import org.voltcore.utils.QueueWaiter;
 
 import com.google_voltpatches.common.util.concurrent.SettableFuture;
 
@@ -110,6 +117,35 @@ class VoltNetwork implements Runnable, IOStatsIntf
 
     private final NinjaKeySet m_ninjaSelectedKeys;
 
+    /**
+     * Connections that haven't read anything for this long have their partially filled read
+     * buffer compacted into a smaller one from the pool, 0 disables this
+     */
+    static final long READ_BUFFER_IDLE_MILLIS = Long.getLong("NETWORK_READ_BUFFER_IDLE_MS", 10 * 1000);
+    private static final long READ_BUFFER_RECLAIM_INTERVAL =
+            READ_BUFFER_IDLE_MILLIS > 0 ? Math.min(1000, READ_BUFFER_IDLE_MILLIS) : 0;
+    private long m_lastReadBufferReclaim = EstTime.currentTimeMillis();
+
+    // How the network thread waits for readiness, see QUEUE_WAIT_NETWORK
+    private final QueueWaiter m_waiter = new QueueWaiter(QueueWaiter.Component.NETWORK);
+
+    /**
+     * Most ready events returned by one epoll_wait
+     */
+    static final int MAX_EPOLL_EVENTS = Integer.getInteger("NETWORK_MAX_EPOLL_EVENTS", 1024);
+
+    /*
+     * State used instead of m_selector when the network selects with epoll. Ports are
+     * registered edge triggered and are looked up by file descriptor, interest ops are
+     * only pushed to the kernel when they change or when a port left input unread.
+     * The eventfd is registered level triggered and is how other threads wake the network.
+     */
+    private final int m_epollFd;
+    private final int m_wakeupFd;
+    private final ByteBuffer m_epollEvents;
+    private VoltPort m_portsByFd[];
+    private final AtomicBoolean m_wakeupPending = new AtomicBoolean(false);
+
     /**
      * Start this VoltNetwork's thread;
      */
@@ -123,17 +159,50 @@ class VoltNetwork implements Runnable, IOStatsIntf
      * and runOnce should be called periodically
      **/
     VoltNetwork(int networkId, String coreBindId, String networkName) {
+        this(networkId, coreBindId, networkName, false);
+    }
+
+    /**
+     * @param useEpoll select with edge triggered epoll instead of a NIO selector. The caller
+     * is expected to have checked {@link Epoll#isAvailable()}
+     */
+    VoltNetwork(int networkId, String coreBindId, String networkName, boolean useEpoll) {
         m_thread = new Thread(this, "Volt " + networkName + " Network - " + networkId);
         networkThreadName = new String("Volt " + networkName + " Network - " + networkId);
         m_thread.setDaemon(true);
         m_coreBindId = coreBindId;
-        try {
-            m_selector = Selector.open();
-        } catch (IOException ex) {
-            m_logger.fatal(null, ex);
-            throw new RuntimeException(ex);
+        if (useEpoll) {
+            m_selector = null;
+            m_ninjaSelectedKeys = null;
+            m_epollFd = Epoll.create();
+            if (m_epollFd < 0) {
+                throw new RuntimeException("Unable to create epoll instance, errno " + -m_epollFd);
+            }
+            m_wakeupFd = Epoll.eventFd();
+            if (m_wakeupFd < 0) {
+                Epoll.close(m_epollFd);
+                throw new RuntimeException("Unable to create eventfd, errno " + -m_wakeupFd);
+            }
+            final int rc = Epoll.ctl(m_epollFd, Epoll.EPOLL_CTL_ADD, m_wakeupFd, Epoll.EPOLLIN);
+            if (rc < 0) {
+                Epoll.close(m_wakeupFd);
+                Epoll.close(m_epollFd);
+                throw new RuntimeException("Unable to register eventfd with epoll, errno " + -rc);
+            }
+            m_epollEvents = Epoll.allocateEvents(MAX_EPOLL_EVENTS);
+            m_portsByFd = new VoltPort[1024];
+        } else {
+            try {
+                m_selector = Selector.open();
+            } catch (IOException ex) {
+                m_logger.fatal(null, ex);
+                throw new RuntimeException(ex);
+            }
+            m_ninjaSelectedKeys = NinjaKeySet.instrumentSelector(m_selector);
+            m_epollFd = -1;
+            m_wakeupFd = -1;
+            m_epollEvents = null;
         }
-        m_ninjaSelectedKeys = NinjaKeySet.instrumentSelector(m_selector);
     }
 
     VoltNetwork( Selector s) {
@@ -142,13 +211,37 @@ class VoltNetwork implements Runnable, IOStatsIntf
         m_coreBindId = null;
         networkThreadName = new String("Test Selector Thread");
         m_ninjaSelectedKeys = NinjaKeySet.instrumentSelector(m_selector);
+        m_epollFd = -1;
+        m_wakeupFd = -1;
+        m_epollEvents = null;
+    }
+
+    boolean usesEpoll() {
+        return m_epollFd >= 0;
+    }
+
+    /**
+     * Wake the network thread so it runs queued tasks
+     */
+    private void wakeup() {
+        if (m_epollFd >= 0) {
+            // One pending wakeup is enough, the network thread clears the flag before it drains the task queue
+            if (m_wakeupPending.compareAndSet(false, true)) {
+                final int rc = Epoll.eventFdWrite(m_wakeupFd);
+                if (rc < 0) {
+                    networkLog.warn("Failed to wake " + networkThreadName + ", errno " + -rc);
+                }
+            }
+        } else {
+            m_selector.wakeup();
+        }
     }
 
     /** Instruct the network to stop after the current loop */
     void shutdown() throws InterruptedException {
         m_shouldStop = true;
         if (m_thread != null) {
-            m_selector.wakeup();
+            wakeup();
             m_thread.join();
         }
     }
@@ -201,6 +294,18 @@ class VoltNetwork implements Runnable, IOStatsIntf
                     port.resolveHostname(dns == ReverseDNSPolicy.SYNCHRONOUS);
                 }
 
+                if (m_epollFd >= 0) {
+                    try {
+                        port.setChannel(channel, interestOps);
+                        registerWithEpoll(port, interestOps);
+                        port.registered();
+                        return port;
+                    } finally {
+                        m_ports.add(port);
+                        m_numPorts.incrementAndGet();
+                    }
+                }
+
                 try {
                     SelectionKey key = channel.register (m_selector, interestOps, null);
 
@@ -225,7 +330,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
 
         FutureTask<Connection> ft = new FutureTask<Connection>(registerTask);
         m_tasks.offer(ft);
-        m_selector.wakeup();
+        wakeup();
 
         try {
             return ft.get();
@@ -250,8 +355,12 @@ class VoltNetwork implements Runnable, IOStatsIntf
                         port.unregistering();
                     } finally {
                         try {
-                            selectionKey.attach(null);
-                            selectionKey.cancel();
+                            if (m_epollFd >= 0) {
+                                unregisterFromEpoll(port);
+                            } else {
+                                selectionKey.attach(null);
+                                selectionKey.cancel();
+                            }
                         } finally {
                             m_ports.remove(port);
                             m_numPorts.decrementAndGet();
@@ -271,7 +380,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
     Future<?> unregisterChannel (Connection c) {
         FutureTask<Object> ft = new FutureTask<Object>(getUnregisterRunnable(c), null);
         m_tasks.offer(ft);
-        m_selector.wakeup();
+        wakeup();
         return ft;
     }
 
@@ -296,7 +405,32 @@ class VoltNetwork implements Runnable, IOStatsIntf
                 }
             });
         }
-        m_selector.wakeup();
+        wakeup();
+    }
+
+    private void registerWithEpoll(VoltPort port, int interestOps) throws IOException {
+        final int fd = Epoll.fd(port.m_channel);
+        if (fd >= m_portsByFd.length) {
+            m_portsByFd = Arrays.copyOf(m_portsByFd, Math.max(fd + 1, m_portsByFd.length * 2));
+        }
+        final int rc = Epoll.ctl(m_epollFd, Epoll.EPOLL_CTL_ADD, fd, Epoll.toEpollEvents(interestOps));
+        if (rc < 0) {
+            throw new IOException("Unable to register " + port + " with epoll, errno " + -rc);
+        }
+        port.m_epollFd = fd;
+        port.m_epollInterestOps = interestOps;
+        m_portsByFd[fd] = port;
+    }
+
+    private void unregisterFromEpoll(VoltPort port) {
+        final int fd = port.m_epollFd;
+        // The descriptor may already have been closed and reused by a newer port
+        if (fd >= 0 && m_portsByFd[fd] == port) {
+            m_portsByFd[fd] = null;
+            // Closing the channel removes it from the epoll set, so a failure here is harmless
+            Epoll.ctl(m_epollFd, Epoll.EPOLL_CTL_DEL, fd, 0);
+        }
+        port.m_epollFd = -1;
     }
 
     @Override
@@ -313,7 +447,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
                     while (m_shouldStop == false) {
                         LatencyWatchdog.pet();
 
-                        final int readyKeys = m_selector.select();
+                        final int readyKeys = waitForReadiness();
 
                         /*
                          * Run the task queue immediately after selection to catch
@@ -325,7 +459,9 @@ class VoltNetwork implements Runnable, IOStatsIntf
                         }
 
                         if (readyKeys > 0) {
-                            if (NinjaKeySet.supported) {
+                            if (m_epollFd >= 0) {
+                                invokeEpollCallbacks(readyKeys, r);
+                            } else if (NinjaKeySet.supported) {
                                 optimizedInvokeCallbacks(r);
                             } else {
                                 invokeCallbacks(r);
@@ -340,6 +476,10 @@ class VoltNetwork implements Runnable, IOStatsIntf
                         while ((task = m_tasks.poll()) != null) {
                             task.run();
                         }
+
+                        if (READ_BUFFER_RECLAIM_INTERVAL > 0) {
+                            reclaimIdleReadBuffers();
+                        }
                     }
                 } catch (Throwable ex) {
                     ex.printStackTrace();
@@ -359,6 +499,20 @@ class VoltNetwork implements Runnable, IOStatsIntf
     }
 
     private void p_shutdown() {
+        if (m_epollFd >= 0) {
+            for (VoltPort port : new ArrayList<VoltPort>(m_ports)) {
+                try {
+                    getUnregisterRunnable(port).run();
+                } catch (Throwable e) {
+                    networkLog.error("Exception unregistering port " + port, e);
+                }
+            }
+            m_pool.clear();
+            Epoll.close(m_wakeupFd);
+            Epoll.close(m_epollFd);
+            return;
+        }
+
         Set<SelectionKey> keys = m_selector.keys();
 
         for (SelectionKey key : keys) {
@@ -391,7 +545,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
             if (port.isDead()) {
                 getUnregisterRunnable(port).run();
                 try {
-                    port.m_selectionKey.channel().close();
+                    port.m_channel.close();
                 } catch (IOException e) {}
             } else {
                 resumeSelection(port);
@@ -404,6 +558,10 @@ class VoltNetwork implements Runnable, IOStatsIntf
     }
 
     private void resumeSelection( VoltPort port) {
+        if (m_epollFd >= 0) {
+            resumeEpollSelection(port);
+            return;
+        }
         SelectionKey key = port.getKey();
 
         if (key.isValid()) {
@@ -414,10 +572,107 @@ class VoltNetwork implements Runnable, IOStatsIntf
         }
     }
 
+    /**
+     * Edge triggered epoll only needs to hear about interest changes. A port that still
+     * has unread input gets re-armed as well since the kernel checks readiness again on
+     * modification, otherwise that input wouldn't be reported until more arrives.
+     */
+    private void resumeEpollSelection(VoltPort port) {
+        if (port.m_epollFd < 0) {
+            return;
+        }
+        final int interestOps = port.interestOps();
+        final boolean rearm = port.m_inputPending && (interestOps & SelectionKey.OP_READ) != 0;
+        if (interestOps == port.m_epollInterestOps && !rearm) {
+            return;
+        }
+        port.m_inputPending = false;
+        final int rc = Epoll.ctl(m_epollFd, Epoll.EPOLL_CTL_MOD, port.m_epollFd, Epoll.toEpollEvents(interestOps));
+        if (rc < 0) {
+            networkLog.debug("Failed to modify epoll interests of " + port + ", errno " + -rc);
+            unregisterFromEpoll(port);
+            m_ports.remove(port);
+            m_numPorts.decrementAndGet();
+        } else {
+            port.m_epollInterestOps = interestOps;
+        }
+    }
+
+    /*
+     * Poll without blocking for as long as the waiter wants to spin, then block. A spin
+     * also ends when tasks are queued, and after the reclaim interval so idle read buffers
+     * still get reclaimed when the network never blocks.
+     */
+    private int waitForReadiness() throws IOException {
+        if (!m_waiter.spins()) {
+            return blockForReadiness();
+        }
+        final long start = m_waiter.beginWait();
+        do {
+            final int ready = m_epollFd >= 0 ? epollWait(0) : m_selector.selectNow();
+            if (ready > 0 || !m_tasks.isEmpty() || m_shouldStop) {
+                m_waiter.endWait(start, false);
+                return ready;
+            }
+            if (READ_BUFFER_RECLAIM_INTERVAL > 0
+                    && System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(READ_BUFFER_RECLAIM_INTERVAL)) {
+                m_waiter.endWait(start, false);
+                return 0;
+            }
+        } while (m_waiter.spin(start));
+        final int ready = blockForReadiness();
+        m_waiter.endWait(start, true);
+        return ready;
+    }
+
+    // Time out periodically to reclaim idle read buffers, select(0) blocks indefinitely
+    private int blockForReadiness() throws IOException {
+        if (m_epollFd >= 0) {
+            return epollWait(READ_BUFFER_RECLAIM_INTERVAL > 0 ? (int)READ_BUFFER_RECLAIM_INTERVAL : -1);
+        }
+        return m_selector.select(READ_BUFFER_RECLAIM_INTERVAL);
+    }
+
+    private int epollWait(int timeoutMillis) throws IOException {
+        final int ready = Epoll.wait(m_epollFd, m_epollEvents, MAX_EPOLL_EVENTS, timeoutMillis);
+        if (ready < 0) {
+            if (-ready == Epoll.EINTR) {
+                return 0;
+            }
+            throw new IOException("epoll_wait failed, errno " + -ready);
+        }
+        return ready;
+    }
+
     private void callPort(final VoltPort port) {
+        callPort(port, 0);
+    }
+
+    private void reclaimIdleReadBuffers() {
+        final long now = EstTime.currentTimeMillis();
+        if (now - m_lastReadBufferReclaim < READ_BUFFER_RECLAIM_INTERVAL) {
+            return;
+        }
+        m_lastReadBufferReclaim = now;
+        long reclaimed = 0;
+        for (VoltPort port : m_ports) {
+            if (!port.isRunning() && port.m_readStream != null) {
+                reclaimed += port.m_readStream.reclaim(m_pool, now, READ_BUFFER_IDLE_MILLIS);
+            }
+        }
+        if (reclaimed > 0 && networkLog.isDebugEnabled()) {
+            networkLog.debug(networkThreadName + " reclaimed " + reclaimed + " bytes of idle read buffers");
+        }
+    }
+
+    private void callPort(final VoltPort port, final int readyOps) {
         try {
-            port.lockForHandlingWork();
-            port.getKey().interestOps(0);
+            if (m_epollFd >= 0) {
+                port.lockForHandlingWork(readyOps);
+            } else {
+                port.lockForHandlingWork();
+                port.getKey().interestOps(0);
+            }
             port.run();
         } catch (CancelledKeyException e) {
             port.m_running = false;
@@ -498,6 +753,37 @@ class VoltNetwork implements Runnable, IOStatsIntf
         m_ninjaSelectedKeys.clear();
     }
 
+    /** Run the ports whose descriptors epoll reported ready */
+    protected void invokeEpollCallbacks(int readyCount, ThreadLocalRandom r) {
+        final int startIndex = r.nextInt(readyCount);
+        for (int ii = startIndex; ii < readyCount; ii++) {
+            invokeEpollCallback(ii);
+        }
+        for (int ii = 0; ii < startIndex; ii++) {
+            invokeEpollCallback(ii);
+        }
+    }
+
+    private void invokeEpollCallback(int index) {
+        final int fd = Epoll.readyFd(m_epollEvents, index);
+        if (fd == m_wakeupFd) {
+            // Only clear the flag once the counter is drained, clearing it first could let another
+            // thread's write be drained here while the flag stays set and suppresses all later wakeups.
+            // Tasks queued by threads that saw the flag set are run after the callbacks.
+            Epoll.eventFdRead(m_wakeupFd);
+            m_wakeupPending.set(false);
+            return;
+        }
+        final VoltPort port = fd < m_portsByFd.length ? m_portsByFd[fd] : null;
+        if (port == null) {
+            return;
+        }
+        final int readyOps = Epoll.toReadyOps(Epoll.readyEvents(m_epollEvents, index)) & port.interestOps();
+        if (readyOps != 0) {
+            callPort(port, readyOps);
+        }
+    }
+
     private Map<Long, Pair<String, long[]>> getIOStatsImpl(boolean interval) {
         final HashMap<Long, Pair<String, long[]>> retval =
                 new HashMap<Long, Pair<String, long[]>>();
@@ -505,14 +791,19 @@ class VoltNetwork implements Runnable, IOStatsIntf
         long totalMessagesRead = 0;
         long totalWritten = 0;
         long totalMessagesWritten = 0;
+        long totalWriteCalls = 0;
+        long totalReadBufferHighWater = 0;
         for (VoltPort p : m_ports) {
             final long read = p.readStream().getBytesRead(interval);
             final long writeInfo[] = p.writeStream().getBytesAndMessagesWritten(interval);
             final long messagesRead = p.getMessagesRead(interval);
+            final long readBufferHighWater = p.readStream().getBufferHighWater(interval);
             totalRead += read;
             totalMessagesRead += messagesRead;
             totalWritten += writeInfo[0];
             totalMessagesWritten += writeInfo[1];
+            totalWriteCalls += writeInfo[2];
+            totalReadBufferHighWater += readBufferHighWater;
             retval.put(
                     p.connectionId(),
                     Pair.of(
@@ -521,7 +812,9 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    writeInfo[2],
+                                    readBufferHighWater }));
         }
         retval.put(
                 -1L,
@@ -531,7 +824,9 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                 totalRead,
                                 totalMessagesRead,
                                 totalWritten,
-                                totalMessagesWritten }));
+                                totalMessagesWritten,
+                                totalWriteCalls,
+                                totalReadBufferHighWater }));
         return retval;
     }
 
@@ -547,7 +842,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
         FutureTask<Map<Long, Pair<String, long[]>>> ft = new FutureTask<Map<Long, Pair<String, long[]>>>(task);
 
         m_tasks.offer(ft);
-        m_selector.wakeup();
+        wakeup();
 
         return ft;
     }
@@ -558,7 +853,7 @@ class VoltNetwork implements Runnable, IOStatsIntf
 
     void queueTask(Runnable r) {
         m_tasks.offer(r);
-        m_selector.wakeup();
+        wakeup();
     }
 
     int numPorts() {
@@ -56,22 +56,44 @@ public class VoltNetworkPool {
     }
 
     public VoltNetworkPool(int numThreads, int startThreadId, Queue<String> coreBindIds, String poolName) {
+        this(numThreads, startThreadId, coreBindIds, poolName, false);
+    }
+
+    /**
+     * @param useEpoll select with edge triggered epoll when it is available, falls back to
+     * a NIO selector when it isn't
+     */
+    public VoltNetworkPool(int numThreads, int startThreadId, Queue<String> coreBindIds, String poolName, boolean useEpoll) {
         m_poolName = poolName;
         if (numThreads < 1) {
             throw new IllegalArgumentException("Must specify a positive number of threads");
         }
+        if (useEpoll) {
+            if (Epoll.isAvailable()) {
+                m_logger.info("Using epoll network transport for " + poolName + " network");
+            } else if (!Epoll.canReadChannelFds()) {
+                m_logger.warn("The epoll network transport can't read the file descriptors of socket channels"
+                        + " on this JVM, start it with " + Epoll.ADD_OPENS + ". Using NIO for "
+                        + poolName + " network");
+                useEpoll = false;
+            } else {
+                m_logger.warn("The epoll network transport is not available on this platform, using NIO for "
+                        + poolName + " network");
+                useEpoll = false;
+            }
+        }
         if (coreBindIds == null || coreBindIds.isEmpty()) {
             m_networks = new VoltNetwork[numThreads];
             for (int ii = 0; ii < numThreads; ii++) {
                 // Adding startThreadId avoids unnecessary polling for non-Server VoltNetworkPools
-                m_networks[ii] = new VoltNetwork(ii+startThreadId, null, poolName);
+                m_networks[ii] = new VoltNetwork(ii+startThreadId, null, poolName, useEpoll);
             }
         } else {
             final int coreBindIdsSize = coreBindIds.size();
             m_networks = new VoltNetwork[coreBindIdsSize];
             for (int ii = 0; ii < coreBindIdsSize; ii++) {
                 // Adding startThreadId avoids unnecessary polling for non-Server VoltNetworkPools
-                m_networks[ii] = new VoltNetwork(ii+startThreadId, coreBindIds.poll(), poolName);
+                m_networks[ii] = new VoltNetwork(ii+startThreadId, coreBindIds.poll(), poolName, useEpoll);
             }
         }
     }
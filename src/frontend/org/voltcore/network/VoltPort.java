@@ -69,6 +69,16 @@ public class VoltPort implements Connection
     /** The channel this port wraps */
     protected SocketChannel m_channel;
 
+    /** File descriptor of the channel and the interest ops armed with epoll, when the network uses epoll */
+    int m_epollFd = -1;
+    int m_epollInterestOps = 0;
+
+    /**
+     * True when the last run may have left input in the socket because the handler didn't read
+     * it all. Epoll is edge triggered so it won't report that input again unless it is re-armed.
+     */
+    boolean m_inputPending = false;
+
     protected final InputHandler m_handler;
 
     protected NIOReadStream m_readStream;
@@ -137,14 +147,22 @@ public class VoltPort implements Connection
 
     protected void setKey (SelectionKey key) {
         m_selectionKey = key;
-        m_channel = (SocketChannel)key.channel();
+        setChannel((SocketChannel)key.channel(), key.interestOps());
+    }
+
+    /**
+     * Set up the streams for a channel. Used directly when the network selects with epoll
+     * and there is no selection key.
+     */
+    protected void setChannel(SocketChannel channel, int interestOps) {
+        m_channel = channel;
         m_readStream = new NIOReadStream();
         m_writeStream = new VoltNIOWriteStream(
                 this,
                 m_handler.offBackPressure(),
                 m_handler.onBackPressure(),
                 m_handler.writestreamMonitor());
-        m_interestOps = key.interestOps();
+        m_interestOps = interestOps;
     }
 
     /**
@@ -152,11 +170,15 @@ public class VoltPort implements Connection
      * the selector set until the executor service has had a chance to handle all the I/O.
      */
     void lockForHandlingWork() {
+        lockForHandlingWork(m_selectionKey.readyOps());
+    }
+
+    void lockForHandlingWork(int readyOps) {
         synchronized(m_lock) {
             assert m_running == false;
             m_running = true;
-            m_readyOps = 0;
-            m_readyOps = m_selectionKey.readyOps();      // runnable.run() doesn't accept parameters
+            m_readyOps = readyOps;      // runnable.run() doesn't accept parameters
+            m_inputPending = (readyOps & SelectionKey.OP_READ) != 0;
         }
     }
 
@@ -203,6 +225,7 @@ public class VoltPort implements Connection
 
         // read from network, copy data into read buffers, which from thread local memory pool
         final int read = m_readStream.read(m_channel, maxBytes, m_pool);
+        m_inputPending = read >= maxBytes;
 
         if (read == -1) {
             disableReadSelection();
@@ -1103,26 +1103,6 @@ public class CoreUtils {
     public static final long QUEUE_SPIN_MICROSECONDS =
             TimeUnit.MICROSECONDS.toNanos(Integer.getInteger("QUEUE_SPIN_MICROS", 0));
 
-    /*
-     * Spin polling a blocking queue before blocking. Default behavior is not to spin.
-     */
-    public static <T> T queueSpinTake(BlockingQueue<T> queue) throws InterruptedException {
-        if (QUEUE_SPIN_MICROSECONDS > 0) {
-            T retval = null;
-            long nanos = -1;
-            for (;;) {
-                if ((retval = queue.poll()) != null) return retval;
-                if (nanos == -1) {
-                    nanos = System.nanoTime();
-                } else if (System.nanoTime() - nanos > QUEUE_SPIN_MICROSECONDS) {
-                    return queue.take();
-                }
-            }
-        } else {
-            return queue.take();
-        }
-    }
-
     /*
      * This method manages the whitelist of all acceptable Throwables (and Exceptions) that
      * will not cause the Server harm if they occur while invoking the initializer of a stored
@@ -0,0 +1,241 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Open addressing hash map with primitive long keys, so transaction ids and handles used
+ * as keys aren't boxed on every lookup. Collisions are resolved by linear probing and
+ * removal shifts the following entries back instead of leaving tombstones. Null values
+ * are not allowed, get returns null for a missing key.
+ *
+ * Not thread safe.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] m_keys;
+    private Object[] m_values;
+    private int m_mask;
+    private int m_size = 0;
+    private int m_resizeAt;
+
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        // keep the table at most half full
+        final int wanted = Math.max(MIN_CAPACITY, expectedSize * 2);
+        return Integer.highestOneBit(wanted - 1) << 1;
+    }
+
+    private void allocate(int capacity) {
+        m_keys = new long[capacity];
+        m_values = new Object[capacity];
+        m_mask = capacity - 1;
+        m_resizeAt = capacity / 2;
+    }
+
+    private int slot(long key) {
+        // murmur3 finalizer, txn ids differ mostly in their high bits
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int)key & m_mask;
+    }
+
+    private int indexOf(long key) {
+        for (int index = slot(key); m_values[index] != null; index = (index + 1) & m_mask) {
+            if (m_keys[index] == key) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : (V)m_values[index];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return the value previously mapped to the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("LongObjectHashMap doesn't allow null values");
+        }
+        int index = slot(key);
+        for (; m_values[index] != null; index = (index + 1) & m_mask) {
+            if (m_keys[index] == key) {
+                final V previous = (V)m_values[index];
+                m_values[index] = value;
+                return previous;
+            }
+        }
+        m_keys[index] = key;
+        m_values[index] = value;
+        if (++m_size > m_resizeAt) {
+            rehash(m_keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @return the value that was mapped to the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        final V previous = (V)m_values[index];
+        m_size--;
+        // Shift back entries of the probe sequence that follows the removed slot
+        int next = (index + 1) & m_mask;
+        while (m_values[next] != null) {
+            final int home = slot(m_keys[next]);
+            // move the entry unless its home slot lies cyclically in (index, next]
+            if (index <= next ? (home <= index || home > next) : (home <= index && home > next)) {
+                m_keys[index] = m_keys[next];
+                m_values[index] = m_values[next];
+                index = next;
+            }
+            next = (next + 1) & m_mask;
+        }
+        m_values[index] = null;
+        return previous;
+    }
+
+    private void rehash(int capacity) {
+        final long[] keys = m_keys;
+        final Object[] values = m_values;
+        allocate(capacity);
+        for (int ii = 0; ii < keys.length; ii++) {
+            if (values[ii] != null) {
+                int index = slot(keys[ii]);
+                while (m_values[index] != null) {
+                    index = (index + 1) & m_mask;
+                }
+                m_keys[index] = keys[ii];
+                m_values[index] = values[ii];
+            }
+        }
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(m_values, null);
+        m_size = 0;
+    }
+
+    /**
+     * @return a copy of the keys, in no particular order
+     */
+    public long[] keys() {
+        final long[] keys = new long[m_size];
+        int count = 0;
+        for (int ii = 0; ii < m_values.length; ii++) {
+            if (m_values[ii] != null) {
+                keys[count++] = m_keys[ii];
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Values in no particular order. The map must not be modified while iterating.
+     */
+    public Iterable<V> values() {
+        return new Iterable<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<V>() {
+                    private int m_next = advance(0);
+
+                    private int advance(int from) {
+                        while (from < m_values.length && m_values[from] == null) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return m_next < m_values.length;
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    public V next() {
+                        if (m_next >= m_values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        final V value = (V)m_values[m_next];
+                        m_next = advance(m_next + 1);
+                        return value;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("{");
+        for (int ii = 0; ii < m_values.length; ii++) {
+            if (m_values[ii] != null) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(m_keys[ii]).append('=').append(m_values[ii]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
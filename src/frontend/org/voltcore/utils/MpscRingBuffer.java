@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, array backed, multiple producer single consumer queue. Slots carry a sequence
+ * number so producers claim a slot with one CAS and publish it with an ordered write, and
+ * nothing is allocated per element. {@link #offer(Object)} returns false when the queue is
+ * full rather than blocking.
+ *
+ * {@link #poll()} may only be called by the consumer
+ * thread. {@link #peek()}, {@link #size()} and {@link #isEmpty()} can be called from any
+ * thread but only give a snapshot.
+ */
+public class MpscRingBuffer<E> {
+
+    private final Object[] m_elements;
+    private final AtomicLongArray m_sequences;
+    private final int m_mask;
+    private final AtomicLong m_tail = new AtomicLong();
+    private volatile long m_head = 0;
+
+    /**
+     * @param capacity rounded up to the next power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid ring buffer capacity " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        m_elements = new Object[size];
+        m_sequences = new AtomicLongArray(size);
+        for (int ii = 0; ii < size; ii++) {
+            m_sequences.set(ii, ii);
+        }
+        m_mask = size - 1;
+    }
+
+    public int capacity() {
+        return m_elements.length;
+    }
+
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long tail = m_tail.get();
+        for (;;) {
+            final int index = (int)tail & m_mask;
+            final long delta = m_sequences.get(index) - tail;
+            if (delta == 0) {
+                if (m_tail.compareAndSet(tail, tail + 1)) {
+                    m_elements[index] = element;
+                    // publishes the element to the consumer, a volatile write so a consumer
+                    // that parks after checking for elements is seen by the producer afterwards
+                    m_sequences.set(index, tail + 1);
+                    return true;
+                }
+                tail = m_tail.get();
+            } else if (delta < 0) {
+                // the consumer hasn't released this slot yet, full
+                return false;
+            } else {
+                // another producer claimed the slot
+                tail = m_tail.get();
+            }
+        }
+    }
+
+    /**
+     * Returns null when empty, or when the producer that claimed the next slot hasn't
+     * published into it yet
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final long head = m_head;
+        final int index = (int)head & m_mask;
+        if (m_sequences.get(index) != head + 1) {
+            return null;
+        }
+        final E element = (E)m_elements[index];
+        m_elements[index] = null;
+        m_sequences.lazySet(index, head + m_elements.length);
+        m_head = head + 1;
+        return element;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final long head = m_head;
+        final int index = (int)head & m_mask;
+        if (m_sequences.get(index) != head + 1) {
+            return null;
+        }
+        return (E)m_elements[index];
+    }
+
+    public int size() {
+        final long head = m_head;
+        final long size = m_tail.get() - head;
+        return (int)Math.max(0, Math.min(size, m_elements.length));
+    }
+
+    public boolean isEmpty() {
+        return m_tail.get() == m_head;
+    }
+}
@@ -0,0 +1,50 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+/**
+ * How a consumer waits on an empty queue. All strategies first spin for the
+ * configured spin time, see {@link QueueWaiter}.
+ */
+public enum QueueWaitStrategy {
+    /** Keep spinning, lowest latency but the consumer never gives up its core */
+    SPIN,
+    /** Yield the processor between polls */
+    YIELD,
+    /** Park until a producer unparks the consumer */
+    PARK,
+    /** Park, but first spin for about as long as the consumer has recently been waiting,
+     *  up to the configured spin time */
+    ADAPTIVE;
+
+    /**
+     * Read a strategy from a system property, falling back to the default for
+     * a missing or unrecognized value
+     */
+    public static QueueWaitStrategy fromProperty(String property, QueueWaitStrategy defaultStrategy) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return defaultStrategy;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultStrategy;
+        }
+    }
+}
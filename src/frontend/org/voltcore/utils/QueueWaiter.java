@@ -0,0 +1,269 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waits on an empty queue the way the consuming thread's component is configured to.
+ * Each component reads its strategy from QUEUE_WAIT_&lt;COMPONENT&gt; (spin, yield, park
+ * or adaptive) and how long to spin before yielding or parking from
+ * QUEUE_SPIN_MICROS_&lt;COMPONENT&gt;. Only sites fall back to the global QUEUE_SPIN_MICROS,
+ * which used to apply to the site queue alone, the other components park without spinning
+ * unless configured otherwise. That lets latency critical sites spin while background
+ * threads park.
+ *
+ * A waiter keeps per consumer state for the adaptive strategy and must only be used by
+ * one thread. The spin and park counts are kept per component for CpuStats.
+ */
+public class QueueWaiter {
+
+    // Longest an adaptive waiter spins when no spin time is configured
+    static final long DEFAULT_ADAPTIVE_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public enum Component {
+        SITE("SITE_TASKER_WAIT", true),
+        NETWORK(null, false),
+        MP_INITIATOR(null, false),
+        EXPORT(null, false);
+
+        private final QueueWaitStrategy m_strategy;
+        private final long m_spinNanos;
+        private final AtomicLong m_spinWakeups = new AtomicLong();
+        private final AtomicLong m_parks = new AtomicLong();
+
+        Component(String legacyProperty, boolean usesGlobalSpin) {
+            QueueWaitStrategy strategy = QueueWaitStrategy.PARK;
+            if (legacyProperty != null) {
+                strategy = QueueWaitStrategy.fromProperty(legacyProperty, strategy);
+            }
+            m_strategy = QueueWaitStrategy.fromProperty("QUEUE_WAIT_" + name(), strategy);
+            m_spinNanos = spinNanos(m_strategy, Integer.getInteger("QUEUE_SPIN_MICROS_" + name()),
+                    usesGlobalSpin ? CoreUtils.QUEUE_SPIN_MICROSECONDS : 0);
+        }
+
+        public QueueWaitStrategy getStrategy() {
+            return m_strategy;
+        }
+
+        // waits that ended while the consumer was still spinning or yielding
+        public long getSpinWakeups() {
+            return m_spinWakeups.get();
+        }
+
+        // waits that ended up blocking the consumer
+        public long getParks() {
+            return m_parks.get();
+        }
+    }
+
+    /*
+     * A component's own spin setting wins, otherwise it gets the default it was given.
+     * Adaptive waiters need some limit to adapt within.
+     */
+    static long spinNanos(QueueWaitStrategy strategy, Integer componentSpinMicros, long defaultSpinNanos) {
+        if (componentSpinMicros != null) {
+            return TimeUnit.MICROSECONDS.toNanos(componentSpinMicros);
+        } else if (strategy == QueueWaitStrategy.ADAPTIVE && defaultSpinNanos == 0) {
+            return DEFAULT_ADAPTIVE_SPIN_NANOS;
+        }
+        return defaultSpinNanos;
+    }
+
+    private final Component m_component;
+    private final QueueWaitStrategy m_strategy;
+    private final long m_maxSpinNanos;
+    // how long to spin on this wait, only changes for the adaptive strategy
+    private long m_spinNanos;
+    // moving average of how long this consumer has waited for something to arrive
+    private long m_avgWaitNanos = 0;
+
+    public QueueWaiter(Component component) {
+        this(component, component.m_strategy, component.m_spinNanos);
+    }
+
+    public QueueWaiter(Component component, QueueWaitStrategy strategy) {
+        this(component, strategy, component.m_spinNanos);
+    }
+
+    public QueueWaiter(Component component, QueueWaitStrategy strategy, long spinNanos) {
+        m_component = component;
+        m_strategy = strategy;
+        m_maxSpinNanos = spinNanos;
+        m_spinNanos = spinNanos;
+    }
+
+    public QueueWaitStrategy getStrategy() {
+        return m_strategy;
+    }
+
+    // true if this waiter ever polls before blocking
+    public boolean spins() {
+        return m_strategy == QueueWaitStrategy.SPIN || m_strategy == QueueWaitStrategy.YIELD || m_maxSpinNanos > 0;
+    }
+
+    public long beginWait() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Call between polls of an empty queue.
+     * @return true to poll again, false when the consumer should block
+     */
+    public boolean spin(long startNanos) {
+        switch (m_strategy) {
+        case SPIN:
+            return true;
+        case YIELD:
+            if (m_spinNanos == 0 || System.nanoTime() - startNanos >= m_spinNanos) {
+                Thread.yield();
+            }
+            return true;
+        default:
+            return m_spinNanos > 0 && System.nanoTime() - startNanos < m_spinNanos;
+        }
+    }
+
+    /**
+     * Call once the wait is over
+     * @param parked whether the consumer had to block
+     */
+    public void endWait(long startNanos, boolean parked) {
+        if (parked) {
+            m_component.m_parks.incrementAndGet();
+        } else {
+            m_component.m_spinWakeups.incrementAndGet();
+        }
+        if (m_strategy == QueueWaitStrategy.ADAPTIVE) {
+            adapt(System.nanoTime() - startNanos);
+        }
+    }
+
+    /*
+     * Spin for about twice the recent wait while work is arriving faster than the spin
+     * limit, and go straight to parking once the queue has gone quiet.
+     */
+    private void adapt(long waitNanos) {
+        m_avgWaitNanos += (waitNanos - m_avgWaitNanos) >> 3;
+        final long spin = m_avgWaitNanos * 2;
+        m_spinNanos = spin <= m_maxSpinNanos ? Math.max(spin, Math.min(1000, m_maxSpinNanos)) : 0;
+    }
+
+    // Current spin time, for tests
+    long getSpinNanos() {
+        return m_spinNanos;
+    }
+
+    /**
+     * Take from a blocking queue, polling as the strategy says before blocking in take()
+     */
+    public <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+        T item = queue.poll();
+        if (item != null) {
+            return item;
+        }
+        final long start = beginWait();
+        if ((item = spinPoll(queue, start)) != null) {
+            return item;
+        }
+        item = queue.take();
+        endWait(start, true);
+        return item;
+    }
+
+    // Poll while the strategy wants to spin, null once the consumer should block
+    private <T> T spinPoll(Queue<T> queue, long start) throws InterruptedException {
+        T item;
+        while (spin(start)) {
+            if ((item = queue.poll()) != null) {
+                endWait(start, false);
+                return item;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Work queue for a single threaded executor, whose thread then waits for work as
+     * the component is configured to
+     */
+    public static class SingleConsumerQueue<E> extends LinkedTransferQueue<E> {
+        private static final long serialVersionUID = 1L;
+        private final transient QueueWaiter m_waiter;
+
+        public SingleConsumerQueue(Component component) {
+            m_waiter = new QueueWaiter(component);
+        }
+
+        @Override
+        public E take() throws InterruptedException {
+            E item = poll();
+            if (item != null) {
+                return item;
+            }
+            final long start = m_waiter.beginWait();
+            if ((item = m_waiter.spinPoll(this, start)) != null) {
+                return item;
+            }
+            item = super.take();
+            m_waiter.endWait(start, true);
+            return item;
+        }
+    }
+
+    /**
+     * Work queue for a thread pool, each of whose threads waits for work with its own
+     * waiter, as the component is configured to
+     */
+    public static class SharedQueue<E> extends LinkedTransferQueue<E> {
+        private static final long serialVersionUID = 1L;
+        private final transient ThreadLocal<QueueWaiter> m_waiters;
+
+        public SharedQueue(final Component component) {
+            m_waiters = new ThreadLocal<QueueWaiter>() {
+                @Override
+                protected QueueWaiter initialValue() {
+                    return new QueueWaiter(component);
+                }
+            };
+        }
+
+        @Override
+        public E take() throws InterruptedException {
+            E item = poll();
+            if (item != null) {
+                return item;
+            }
+            final QueueWaiter waiter = m_waiters.get();
+            final long start = waiter.beginWait();
+            if ((item = waiter.spinPoll(this, start)) != null) {
+                return item;
+            }
+            item = super.take();
+            waiter.endWait(start, true);
+            return item;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Arrays;
+
+/**
+ * Sorted map keyed by a pair of primitive longs, ordered by the first then the second key.
+ * Entries are kept in parallel sorted arrays and found with a binary search. It suits small
+ * maps whose keys mostly arrive in increasing order, like transaction ids, where inserts
+ * land at the end and nothing is allocated per entry. Null values are not allowed.
+ *
+ * Entries can be visited in key order by index, from 0 to size() - 1. Indexes shift when
+ * the map is modified.
+ *
+ * Not thread safe.
+ */
+public class SortedLongPairMap<V> {
+
+    private long[] m_firstKeys;
+    private long[] m_secondKeys;
+    private Object[] m_values;
+    private int m_size = 0;
+
+    public SortedLongPairMap() {
+        this(16);
+    }
+
+    public SortedLongPairMap(int initialCapacity) {
+        final int capacity = Math.max(1, initialCapacity);
+        m_firstKeys = new long[capacity];
+        m_secondKeys = new long[capacity];
+        m_values = new Object[capacity];
+    }
+
+    /**
+     * @return the index of the key pair, or (-(insertion point) - 1) if it isn't in the map
+     */
+    private int search(long first, long second) {
+        // Most lookups are for recent keys, check the end before searching
+        if (m_size == 0 || compare(first, second, m_size - 1) > 0) {
+            return -m_size - 1;
+        }
+        int low = 0;
+        int high = m_size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = compare(first, second, mid);
+            if (cmp > 0) {
+                low = mid + 1;
+            } else if (cmp < 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
+    }
+
+    private int compare(long first, long second, int index) {
+        if (first != m_firstKeys[index]) {
+            return first < m_firstKeys[index] ? -1 : 1;
+        }
+        if (second != m_secondKeys[index]) {
+            return second < m_secondKeys[index] ? -1 : 1;
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long first, long second) {
+        final int index = search(first, second);
+        return index < 0 ? null : (V)m_values[index];
+    }
+
+    public boolean containsKey(long first, long second) {
+        return search(first, second) >= 0;
+    }
+
+    /**
+     * @return the value previously mapped to the key pair or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long first, long second, V value) {
+        if (value == null) {
+            throw new NullPointerException("SortedLongPairMap doesn't allow null values");
+        }
+        int index = search(first, second);
+        if (index >= 0) {
+            final V previous = (V)m_values[index];
+            m_values[index] = value;
+            return previous;
+        }
+        index = -index - 1;
+        if (m_size == m_values.length) {
+            final int capacity = m_values.length * 2;
+            m_firstKeys = Arrays.copyOf(m_firstKeys, capacity);
+            m_secondKeys = Arrays.copyOf(m_secondKeys, capacity);
+            m_values = Arrays.copyOf(m_values, capacity);
+        }
+        final int moved = m_size - index;
+        if (moved > 0) {
+            System.arraycopy(m_firstKeys, index, m_firstKeys, index + 1, moved);
+            System.arraycopy(m_secondKeys, index, m_secondKeys, index + 1, moved);
+            System.arraycopy(m_values, index, m_values, index + 1, moved);
+        }
+        m_firstKeys[index] = first;
+        m_secondKeys[index] = second;
+        m_values[index] = value;
+        m_size++;
+        return null;
+    }
+
+    /**
+     * @return the value that was mapped to the key pair or null
+     */
+    public V remove(long first, long second) {
+        final int index = search(first, second);
+        return index < 0 ? null : removeAt(index);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V removeAt(int index) {
+        if (index < 0 || index >= m_size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + m_size);
+        }
+        final V previous = (V)m_values[index];
+        final int moved = m_size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(m_firstKeys, index + 1, m_firstKeys, index, moved);
+            System.arraycopy(m_secondKeys, index + 1, m_secondKeys, index, moved);
+            System.arraycopy(m_values, index + 1, m_values, index, moved);
+        }
+        m_values[--m_size] = null;
+        return previous;
+    }
+
+    public long firstKeyAt(int index) {
+        checkIndex(index);
+        return m_firstKeys[index];
+    }
+
+    public long secondKeyAt(int index) {
+        checkIndex(index);
+        return m_secondKeys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int index) {
+        checkIndex(index);
+        return (V)m_values[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= m_size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + m_size);
+        }
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(m_values, 0, m_size, null);
+        m_size = 0;
+    }
+}
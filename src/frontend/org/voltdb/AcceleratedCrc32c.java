@@ -0,0 +1,161 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+import org.apache.hadoop_voltpatches.util.PureJavaCrc32C;
+
+/**
+ * CRC32C of ints and byte buffers. When the JVM has java.util.zip.CRC32C (Java 9 and up)
+ * it is used, the JIT compiles it to the CPU's crc32 instructions. Otherwise the table
+ * driven PureJavaCrc32C does the work. Both produce the same value, so nodes running on
+ * different JVMs agree.
+ *
+ * Unlike HybridCrc32 every byte of a large buffer is part of the checksum, rather than
+ * the low byte of a separate CRC32 of it.
+ */
+public class AcceleratedCrc32c {
+
+    // ()Checksum and (Checksum, ByteBuffer)void, null without java.util.zip.CRC32C
+    private static final MethodHandle s_newCrc32c;
+    private static final MethodHandle s_updateBuffer;
+    static {
+        MethodHandle newCrc32c = null;
+        MethodHandle updateBuffer = null;
+        try {
+            Class<?> cls = Class.forName("java.util.zip.CRC32C");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            newCrc32c = lookup.findConstructor(cls, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Checksum.class));
+            updateBuffer = lookup.findVirtual(Checksum.class, "update",
+                    MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+            newCrc32c = null;
+            updateBuffer = null;
+        }
+        s_newCrc32c = newCrc32c;
+        s_updateBuffer = updateBuffer;
+    }
+
+    private final Checksum m_hardware;
+    private final SoftwareCrc32c m_software;
+
+    public AcceleratedCrc32c() {
+        Checksum hardware = null;
+        if (s_newCrc32c != null) {
+            try {
+                hardware = (Checksum) s_newCrc32c.invokeExact();
+            } catch (Throwable t) {
+                hardware = null;
+            }
+        }
+        m_hardware = hardware;
+        m_software = hardware == null ? new SoftwareCrc32c() : null;
+    }
+
+    public static boolean isAccelerated() {
+        return s_newCrc32c != null;
+    }
+
+    public void reset() {
+        if (m_hardware != null) {
+            m_hardware.reset();
+        } else {
+            m_software.reset();
+        }
+    }
+
+    public int getValue() {
+        return (int) (m_hardware != null ? m_hardware.getValue() : m_software.getValue());
+    }
+
+    /**
+     * Add all four bytes of the value, most significant first
+     */
+    public void updateInt(int value) {
+        final Checksum crc = m_hardware != null ? m_hardware : m_software;
+        crc.update(value >>> 24);
+        crc.update(value >>> 16);
+        crc.update(value >>> 8);
+        crc.update(value);
+    }
+
+    /**
+     * Add the bytes from the buffer's position to its limit, leaving the position at the limit
+     */
+    public void update(ByteBuffer b) {
+        if (m_hardware != null) {
+            try {
+                s_updateBuffer.invokeExact(m_hardware, b);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        } else {
+            m_software.update(b);
+        }
+    }
+
+    /**
+     * Add the bytes between off and the buffer's position, like HybridCrc32.updateFromPosition
+     */
+    public void updateFromPosition(int off, ByteBuffer b) {
+        b.limit(b.position());
+        b.position(off);
+        update(b);
+        assert(b.remaining() == 0);
+        b.limit(b.capacity());
+    }
+
+    private static class SoftwareCrc32c extends PureJavaCrc32C {
+        // public so that it is the override of Checksum.update(ByteBuffer) on JDKs that have it
+        public void update(ByteBuffer b) {
+            if (b.hasArray()) {
+                update(b.array(), b.arrayOffset() + b.position(), b.remaining());
+                b.position(b.limit());
+                return;
+            }
+            int len = b.remaining();
+            int localCrc = crc;
+            while (len > 7) {
+                int c0 = b.get() ^ localCrc;
+                int c1 = b.get() ^ (localCrc >>>= 8);
+                int c2 = b.get() ^ (localCrc >>>= 8);
+                int c3 = b.get() ^ (localCrc >>>= 8);
+                localCrc = (T8_7[c0 & 0xff] ^ T8_6[c1 & 0xff])
+                        ^ (T8_5[c2 & 0xff] ^ T8_4[c3 & 0xff]);
+
+                localCrc ^= (T8_3[b.get() & 0xff] ^ T8_2[b.get() & 0xff])
+                        ^ (T8_1[b.get() & 0xff] ^ T8_0[b.get() & 0xff]);
+
+                len -= 8;
+            }
+            while (len > 0) {
+                localCrc = (localCrc >>> 8) ^ T8_0[(localCrc ^ b.get()) & 0xff];
+                len--;
+            }
+            crc = localCrc;
+        }
+    }
+}
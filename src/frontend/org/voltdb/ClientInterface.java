@@ -811,18 +811,62 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         @Override
         public void handleMessage(ByteBuffer message, Connection c) {
             try {
-                final ClientResponseImpl error = handleRead(message, this, c);
-                if (error != null) {
-                    ByteBuffer buf = ByteBuffer.allocate(error.getSerializedSize() + 4);
-                    buf.putInt(buf.capacity() - 4);
-                    error.flattenToBuffer(buf).flip();
-                    c.writeStream().enqueue(buf);
+                if (message.get(message.position()) == Constants.INVOCATION_BATCH_FRAME) {
+                    handleInvocationBatch(message, c);
+                } else {
+                    handleInvocation(message, c);
                 }
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         }
 
+        /*
+         * A batch frame from a client that coalesces invocations is the marker byte, the number
+         * of invocations, and then each invocation with its usual length prefix. Every invocation
+         * is dispatched and answered on its own, exactly as if it had arrived in its own frame.
+         * The frame is checked end to end first so that a malformed batch dispatches nothing.
+         */
+        private void handleInvocationBatch(ByteBuffer message, Connection c) throws IOException {
+            message.get();
+            final int count = message.getInt();
+            if (count < 1) {
+                throw new IOException("Invocation batch has a count of " + count);
+            }
+            int position = message.position();
+            for (int i = 0; i < count; i++) {
+                final int remaining = message.limit() - position;
+                final int length = remaining < 4 ? -1 : message.getInt(position);
+                if (length < 1 || length > remaining - 4) {
+                    throw new IOException("Invocation " + i + " of a batch of " + count +
+                            " has length " + length + " but only " + remaining + " bytes remain");
+                }
+                position += 4 + length;
+            }
+            if (position != message.limit()) {
+                throw new IOException("Invocation batch of " + count + " has " +
+                        (message.limit() - position) + " trailing bytes");
+            }
+
+            for (int i = 0; i < count; i++) {
+                final int length = message.getInt();
+                final ByteBuffer invocation = message.slice();
+                invocation.limit(length);
+                message.position(message.position() + length);
+                handleInvocation(invocation, c);
+            }
+        }
+
+        private void handleInvocation(ByteBuffer message, Connection c) throws IOException {
+            final ClientResponseImpl error = handleRead(message, this, c);
+            if (error != null) {
+                ByteBuffer buf = ByteBuffer.allocate(error.getSerializedSize() + 4);
+                buf.putInt(buf.capacity() - 4);
+                error.flattenToBuffer(buf).flip();
+                c.writeStream().enqueue(buf);
+            }
+        }
+
         @Override
         public void started(final Connection c) {
             m_connection = c;
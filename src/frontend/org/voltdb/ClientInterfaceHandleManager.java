@@ -18,14 +18,11 @@
 package org.voltdb;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.Connection;
+import org.voltcore.utils.LongObjectHashMap;
 import com.google_voltpatches.common.collect.ImmutableMap;
 import com.google_voltpatches.common.collect.ImmutableMap.Builder;
 
@@ -102,7 +99,7 @@ public class ClientInterfaceHandleManager
 
     static class PartitionInFlightTracker {
         private final HandleGenerator m_generator;
-        private final Map<Long, Iv2InFlight> m_inFlights = new HashMap<Long, Iv2InFlight>();
+        private final LongObjectHashMap<Iv2InFlight> m_inFlights = new LongObjectHashMap<Iv2InFlight>();
 
         private PartitionInFlightTracker(int partitionId) {
             m_generator = new HandleGenerator(partitionId);
@@ -296,14 +293,13 @@ public class ClientInterfaceHandleManager
          * Clear pending responses
          */
         PartitionInFlightTracker partitionStuff = m_trackerMap.get(partitionId);
-        Iterator<Entry<Long, Iv2InFlight>> iter = partitionStuff.m_inFlights.entrySet().iterator();
-        while (iter.hasNext()) {
-            Entry<Long, Iv2InFlight> entry = iter.next();
-            if (entry.getValue().m_initiatorHSId != initiatorHSId) {
-                iter.remove();
-                retval.add(entry.getValue());
+        for (long ciHandle : partitionStuff.m_inFlights.keys()) {
+            Iv2InFlight inFlight = partitionStuff.m_inFlights.get(ciHandle);
+            if (inFlight.m_initiatorHSId != initiatorHSId) {
+                partitionStuff.m_inFlights.remove(ciHandle);
+                retval.add(inFlight);
                 m_outstandingTxns--;
-                m_acg.reduceBackpressure(entry.getValue().m_messageSize);
+                m_acg.reduceBackpressure(inFlight.m_messageSize);
             }
         }
         return retval;
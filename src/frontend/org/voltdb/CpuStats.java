@@ -22,8 +22,13 @@ import java.lang.management.OperatingSystemMXBean;
 import java.util.ArrayList;
 import java.util.Iterator;
 
+import org.voltcore.utils.QueueWaiter;
 import org.voltdb.VoltTable.ColumnInfo;
 
+/**
+ * Process CPU load, plus for each class of thread that waits on a queue how many waits
+ * ended while spinning and how many had to park, see QueueWaiter.
+ */
 public class CpuStats extends StatsSource {
 
     //Note com.sun here
@@ -65,11 +70,19 @@ public class CpuStats extends StatsSource {
     protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
         super.populateColumnSchema(columns);
         columns.add(new VoltTable.ColumnInfo("PERCENT_USED", VoltType.BIGINT));
+        for (QueueWaiter.Component component : QueueWaiter.Component.values()) {
+            columns.add(new VoltTable.ColumnInfo(component.name() + "_SPINS", VoltType.BIGINT));
+            columns.add(new VoltTable.ColumnInfo(component.name() + "_PARKS", VoltType.BIGINT));
+        }
     }
 
     @Override
     protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
         rowValues[columnNameToIndex.get("PERCENT_USED")] = Math.round(m_osBean.getProcessCpuLoad() * 100);
+        for (QueueWaiter.Component component : QueueWaiter.Component.values()) {
+            rowValues[columnNameToIndex.get(component.name() + "_SPINS")] = component.getSpinWakeups();
+            rowValues[columnNameToIndex.get(component.name() + "_PARKS")] = component.getParks();
+        }
         super.updateStatsRow(rowKey, rowValues);
     }
 
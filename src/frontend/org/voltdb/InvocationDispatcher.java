@@ -62,6 +62,7 @@ import org.voltdb.common.Permission;
 import org.voltdb.iv2.Cartographer;
 import org.voltdb.iv2.Iv2Trace;
 import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.ReplicaReadConsistency;
 import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.MultiPartitionParticipantMessage;
@@ -1183,12 +1184,21 @@ public final class InvocationDispatcher {
 
         Long initiatorHSId = null;
         boolean isShortCircuitRead = false;
+        boolean isReplicaRead = false;
         /*
-         * Send the read to the partition leader only
+         * Send the read to the partition leader unless replica reads are enabled
+         * and this host has a replica of the partition.
          * @MigratePartitionLeader always goes to partition leader
          */
         if (isSinglePartition && !isEveryPartition) {
             initiatorHSId = m_cartographer.getHSIdForSinglePartitionMaster(partitions[0]);
+            if (isReadOnly && !isForReplay && ReplicaReadConsistency.DEFAULT != ReplicaReadConsistency.OFF) {
+                Long localReplica = m_localReplicas.get().get(partitions[0]);
+                if (localReplica != null && localReplica.longValue() != initiatorHSId.longValue()) {
+                    initiatorHSId = localReplica;
+                    isReplicaRead = true;
+                }
+            }
         } else {
             // Multi-part transactions go to the multi-part coordinator
             initiatorHSId = m_cartographer.getHSIdForMultiPartitionInitiator();
@@ -1216,6 +1226,7 @@ public final class InvocationDispatcher {
                     handle,
                     connectionId,
                     isForReplay);
+        workRequest.setReplicaRead(isReplicaRead);
 
         Long finalInitiatorHSId = initiatorHSId;
         final VoltTrace.TraceEventBatch traceLog = VoltTrace.log(VoltTrace.Category.CI);
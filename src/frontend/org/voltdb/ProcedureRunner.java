@@ -332,7 +332,14 @@ public class ProcedureRunner {
         Object[] paramList = paramListIn;
 
         // catalog version and statement count are part of the CRC, reset them for a new call
-        m_determinismHash.reset(m_site.getSystemProcedureExecutionContext().getCatalogVersion());
+        // the transaction id picks whether this call is sampled for determinism checks
+        final int catalogVersion = m_site.getSystemProcedureExecutionContext().getCatalogVersion();
+        if (m_txnState != null) {
+            m_determinismHash.reset(catalogVersion, m_txnState.txnId);
+        }
+        else {
+            m_determinismHash.reset(catalogVersion);
+        }
 
         ClientResponseImpl retval = null;
         // assert no sql is queued
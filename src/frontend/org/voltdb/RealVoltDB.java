@@ -120,6 +120,7 @@ import org.voltdb.compiler.deploymentfile.ClusterType;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.compiler.deploymentfile.DrRoleType;
 import org.voltdb.compiler.deploymentfile.HeartbeatType;
+import org.voltdb.compiler.deploymentfile.NetworkTransportType;
 import org.voltdb.compiler.deploymentfile.PartitionDetectionType;
 import org.voltdb.compiler.deploymentfile.PathsType;
 import org.voltdb.compiler.deploymentfile.SecurityType;
@@ -130,9 +131,12 @@ import org.voltdb.dtxn.LatencyStats;
 import org.voltdb.dtxn.LatencyUncompressedHistogramStats;
 import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.export.ExportManager;
+import org.voltdb.export.ExportStats;
+import org.voltdb.export.ExportWorkerPool;
 import org.voltdb.importer.ImportManager;
 import org.voltdb.iv2.BaseInitiator;
 import org.voltdb.iv2.Cartographer;
+import org.voltdb.iv2.DeterminismStats;
 import org.voltdb.iv2.Initiator;
 import org.voltdb.iv2.KSafetyStats;
 import org.voltdb.iv2.LeaderAppointer;
@@ -1300,6 +1304,10 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
             m_gcStats = new GcStats();
             getStatsAgent().registerStatsSource(StatsSelector.GC,
                     0, m_gcStats);
+            getStatsAgent().registerStatsSource(StatsSelector.DETERMINISM,
+                    0, new DeterminismStats());
+            getStatsAgent().registerStatsSource(StatsSelector.EXPORT,
+                    0, new ExportStats(ExportWorkerPool.instance()));
             // ENG-6321
             m_commandLogStats = new CommandLogStats(m_commandLog);
             getStatsAgent().registerStatsSource(StatsSelector.COMMANDLOG, 0, m_commandLogStats);
@@ -2870,6 +2878,14 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
         hmconfig.acceptor = criteria;
         hmconfig.localSitesCount = m_config.m_sitesperhost;
 
+        SystemSettingsType sysSettings = readDepl.deployment.getSystemsettings();
+        if (sysSettings != null && sysSettings.getNetwork() != null
+                && sysSettings.getNetwork().getTransport() == NetworkTransportType.EPOLL) {
+            // The epoll natives are part of the shared library
+            EELibraryLoader.loadExecutionEngineLibrary(false);
+            hmconfig.epollTransport = true;
+        }
+
         m_messenger = new org.voltcore.messaging.HostMessenger(hmconfig, this);
 
         hostLog.info(String.format("Beginning inter-node communication on port %d.", m_config.m_internalPort));
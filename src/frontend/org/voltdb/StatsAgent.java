@@ -566,6 +566,18 @@ public class StatsAgent extends OpsAgent
         case GC:
             stats = collectStats(StatsSelector.GC, interval);
             break;
+        case MPREADPOOL:
+            stats = collectStats(StatsSelector.MPREADPOOL, interval);
+            break;
+        case DETERMINISM:
+            stats = collectStats(StatsSelector.DETERMINISM, interval);
+            break;
+        case STAGELATENCY:
+            stats = collectStats(StatsSelector.STAGELATENCY, interval);
+            break;
+        case EXPORT:
+            stats = collectStats(StatsSelector.EXPORT, interval);
+            break;
         default:
             // Should have been successfully groomed in collectStatsImpl().  Log something
             // for our information but let the null check below return harmlessly
@@ -60,5 +60,9 @@ public enum StatsSelector {
     GC,             // return GC Stats
 
     COMMANDLOG,     // return number of outstanding bytes and txns on this node
-    IMPORTER
+    IMPORTER,
+    MPREADPOOL,     // return MP read-only site pool utilization
+    DETERMINISM,    // return replica determinism hash comparisons
+    STAGELATENCY,   // return per partition latency of each transaction stage
+    EXPORT          // return work queued for each export source on the export worker pool
 }
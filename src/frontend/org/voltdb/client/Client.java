@@ -28,6 +28,8 @@ import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderSuccessCallback;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /**
  *  <p>
  *  A <code>Client</code> that connects to one or more nodes in a volt cluster
@@ -111,6 +113,27 @@ public interface Client {
     public boolean callProcedure(ProcedureCallback callback, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * <p>Asynchronously invoke a procedure, returning a future that will be completed with the
+     * response. Backpressure is handled the same way as for
+     * {@link #callProcedure(ProcedureCallback, String, Object...)}: this call blocks until the invocation
+     * is queued, or if configureBlocking(false) is invoked the returned future is completed immediately with a
+     * {@link ClientResponse#GRACEFUL_FAILURE} response when the invocation can't be queued.</p>
+     *
+     * <p>The future is completed on the executor provided with
+     * {@link ClientConfig#setCompletionExecutor(java.util.concurrent.Executor)}, so listeners attached to it
+     * don't hold up the thread reading responses from the network. If no executor was configured the future
+     * is completed on the network thread and the same caveats as for callbacks apply.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return A future that will be completed with the {@link ClientResponse} for the invocation.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters)
+    throws IOException, NoConnectionsException;
+
     /**
      * <p>Synchronously invoke a procedure with timeout. Blocks until a result is available. A {@link ProcCallException}
      * is thrown if the response is anything other then success.</p>
@@ -153,6 +176,35 @@ public interface Client {
     public boolean callProcedureWithTimeout(ProcedureCallback callback, int queryTimeout, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * <p>Asynchronously invoke a procedure with timeout, returning a future that will be completed with the
+     * response. See {@link #callProcedureAsync(String, Object...)} for how backpressure and completion are
+     * handled.</p>
+     *
+     * <p>WARNING: Use of a queryTimeout value that is greater than the global timeout value for your VoltDB configuration
+     * will temporarily override that safeguard. Currently, non-privileged users (requiring only SQLREAD permissions)
+     * can invoke this method, potentially degrading system performance with an uncontrolled long-running procedure.</p>
+     *
+     * @param queryTimeout query batch timeout setting in milliseconds of queries in a batch for read only procedures.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return A future that will be completed with the {@link ClientResponse} for the invocation.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public ListenableFuture<ClientResponse> callProcedureAsyncWithTimeout(int queryTimeout, String procName, Object... parameters)
+    throws IOException, NoConnectionsException;
+
+    /**
+     * <p>Create a reusable invocation of a procedure with typed parameter setters. Calling a procedure
+     * through an {@link InvocationBuilder} writes the parameters straight into a pooled direct buffer
+     * without boxing them, which keeps garbage down for clients making many small calls.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @return An {@link InvocationBuilder} for the procedure. It is not thread safe.
+     */
+    public InvocationBuilder prepare(String procName);
+
     /**
      * <p>Asynchronously invoke a replicated procedure. If there is backpressure
      * this call will block until the invocation is queued. If configureBlocking(false) is invoked
@@ -17,6 +17,8 @@
 
 package org.voltdb.client;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Collect the client's opinion of the operation of client affinity.  For the
  * given partition ID, affinityWrites tracks write transactions that the client
@@ -28,19 +30,20 @@ package org.voltdb.client;
 public class ClientAffinityStats {
 
     private int m_partitionId;
-    private long m_affinityWrites;
-    private long m_rrWrites;
-    private long m_affinityReads;
-    private long m_rrReads;
+    // Updated concurrently by every thread routing invocations through the Distributer
+    private final AtomicLong m_affinityWrites;
+    private final AtomicLong m_rrWrites;
+    private final AtomicLong m_affinityReads;
+    private final AtomicLong m_rrReads;
 
     ClientAffinityStats(int partitionId, long affinityWrites, long rrWrites,
             long affinityReads, long rrReads)
     {
         m_partitionId = partitionId;
-        m_affinityWrites = affinityWrites;
-        m_rrWrites = rrWrites;
-        m_affinityReads = affinityReads;
-        m_rrReads = rrReads;
+        m_affinityWrites = new AtomicLong(affinityWrites);
+        m_rrWrites = new AtomicLong(rrWrites);
+        m_affinityReads = new AtomicLong(affinityReads);
+        m_rrReads = new AtomicLong(rrReads);
     }
 
     /**
@@ -56,10 +59,10 @@ public class ClientAffinityStats {
         }
 
         ClientAffinityStats retval = new ClientAffinityStats(older.m_partitionId,
-                newer.m_affinityWrites - older.m_affinityWrites,
-                newer.m_rrWrites - older.m_rrWrites,
-                newer.m_affinityReads - older.m_affinityReads,
-                newer.m_rrReads - older.m_rrReads);
+                newer.getAffinityWrites() - older.getAffinityWrites(),
+                newer.getRrWrites() - older.getRrWrites(),
+                newer.getAffinityReads() - older.getAffinityReads(),
+                newer.getRrReads() - older.getRrReads());
         return retval;
     }
 
@@ -68,13 +71,13 @@ public class ClientAffinityStats {
      */
     @Override
     protected Object clone() {
-        return new ClientAffinityStats(m_partitionId, m_affinityWrites, m_rrWrites, m_affinityReads,
-               m_rrReads);
+        return new ClientAffinityStats(m_partitionId, getAffinityWrites(), getRrWrites(), getAffinityReads(),
+               getRrReads());
     }
 
     void addAffinityWrite()
     {
-        m_affinityWrites++;
+        m_affinityWrites.incrementAndGet();
     }
 
     /**
@@ -84,12 +87,12 @@ public class ClientAffinityStats {
      */
     public long getAffinityWrites()
     {
-        return m_affinityWrites;
+        return m_affinityWrites.get();
     }
 
     void addRrWrite()
     {
-        m_rrWrites++;
+        m_rrWrites.incrementAndGet();
     }
 
     /**
@@ -100,12 +103,12 @@ public class ClientAffinityStats {
      */
     public long getRrWrites()
     {
-        return m_rrWrites;
+        return m_rrWrites.get();
     }
 
     void addAffinityRead()
     {
-        m_affinityReads++;
+        m_affinityReads.incrementAndGet();
     }
 
     /**
@@ -115,12 +118,12 @@ public class ClientAffinityStats {
      */
     public long getAffinityReads()
     {
-        return m_affinityReads;
+        return m_affinityReads.get();
     }
 
     void addRrRead()
     {
-        m_rrReads++;
+        m_rrReads.incrementAndGet();
     }
 
     /**
@@ -131,7 +134,7 @@ public class ClientAffinityStats {
      */
     public long getRrReads()
     {
-        return m_rrReads;
+        return m_rrReads.get();
     }
 
     @Override
@@ -139,7 +142,7 @@ public class ClientAffinityStats {
     {
         String afdisplay = "Partition ID %d:  %d affinity writes, %d affinity reads, " +
             "%d round-robin writes, %d round-robin reads";
-        return String.format(afdisplay, m_partitionId, m_affinityWrites, m_affinityReads,
-                m_rrWrites, m_rrReads);
+        return String.format(afdisplay, m_partitionId, getAffinityWrites(), getAffinityReads(),
+                getRrWrites(), getRrReads());
     }
 }
@@ -25,12 +25,14 @@ import java.math.RoundingMode;
 import java.security.Principal;
 import java.util.Iterator;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.Subject;
 import javax.security.auth.login.LoginContext;
 import javax.security.auth.login.LoginException;
 
+import org.voltcore.network.VoltPort;
 import org.voltcore.utils.ssl.SSLConfiguration;
 import org.voltcore.utils.ssl.SSLConfiguration.SslConfig;
 import org.voltdb.types.VoltDecimalHelper;
@@ -47,6 +49,39 @@ public class ClientConfig {
     static final long DEFAULT_INITIAL_CONNECTION_RETRY_INTERVAL_MS = 1000; // default initial connection retry interval is 1 second
     static final long DEFAULT_MAX_CONNECTION_RETRY_INTERVAL_MS = 8000; // default max connection retry interval is 8 seconds
 
+    /**
+     * How procedure calls that client affinity doesn't route to a particular partition, such as
+     * multi-partition procedures, are spread across the connections.
+     */
+    public enum ConnectionSelectionPolicy {
+        /** Cycle through the connections. */
+        ROUND_ROBIN,
+        /** Pick the connection with the fewest procedure calls awaiting a response. */
+        LEAST_OUTSTANDING,
+        /**
+         * Pick the connection with the lowest expected latency: a moving average of its recent
+         * round trip times, scaled by its outstanding calls. A connection that stops responding
+         * is charged the time since its last response.
+         */
+        LATENCY_EWMA,
+        /** Pick two connections at random and use the one with fewer outstanding calls. */
+        POWER_OF_TWO_CHOICES
+    }
+
+    /**
+     * How read-only single-partition procedures are spread across the connections to the hosts
+     * holding a replica of their partition when {@link #setSendReadsToReplicasByDefault(boolean)}
+     * is enabled.
+     */
+    public enum ReplicaReadBalancing {
+        /** Pick a replica at random for each read. */
+        RANDOM,
+        /** Cycle through the replicas of the partition. */
+        ROUND_ROBIN,
+        /** Pick the replica whose connection has the fewest procedure calls awaiting a response. */
+        LEAST_OUTSTANDING
+    }
+
     final ClientAuthScheme m_hashScheme;
     final String m_username;
     final String m_password;
@@ -65,10 +100,14 @@ public class ClientConfig {
     long m_initialConnectionRetryIntervalMS = DEFAULT_INITIAL_CONNECTION_RETRY_INTERVAL_MS;
     long m_maxConnectionRetryIntervalMS = DEFAULT_MAX_CONNECTION_RETRY_INTERVAL_MS;
     boolean m_sendReadsToReplicasBytDefaultIfCAEnabled = false;
+    ReplicaReadBalancing m_replicaReadBalancing = ReplicaReadBalancing.RANDOM;
+    ConnectionSelectionPolicy m_connectionSelectionPolicy = ConnectionSelectionPolicy.ROUND_ROBIN;
     SslConfig m_sslConfig;
     boolean m_topologyChangeAware = false;
     boolean m_enableSSL = false;
     String m_sslPropsFile = null;
+    Executor m_completionExecutor = null;
+    int m_invocationBatchBytes = 0;
 
     //For unit testing. This should really be in Environment class we should assemble all such there.
     public static final boolean ENABLE_SSL_FOR_TEST = Boolean.valueOf(
@@ -363,6 +402,24 @@ public class ClientConfig {
         m_topologyChangeAware = enabled;
     }
 
+    /**
+     * <p>Coalesce invocations queued on the same connection into multi-invocation frames
+     * of up to the given number of bytes. Invocations are gathered while the network
+     * thread is busy writing, so no latency is added when the client is idle. Useful
+     * for high rates of small invocations. Requires a server that understands
+     * multi-invocation frames.</p>
+     * <p>Defaults to 0, which sends each invocation in its own frame.</p>
+     *
+     * @param maxBytes Maximum size of a multi-invocation frame in bytes, or 0 to disable.
+     */
+    public void setInvocationBatchBytes(int maxBytes) {
+        if (maxBytes < 0 || maxBytes > VoltPort.MAX_MESSAGE_LENGTH / 2) {
+            throw new IllegalArgumentException("Invocation batch size must be between 0 and " +
+                    VoltPort.MAX_MESSAGE_LENGTH / 2 + " bytes.");
+        }
+        m_invocationBatchBytes = maxBytes;
+    }
+
     /**
      * <p>By default, reads are sent to the leader replica for each partition. This
      * is usually optimal for the default read consistency value, SAFE. If you are
@@ -372,14 +429,67 @@ public class ClientConfig {
      * <p>See section <a href="https://docs.voltdb.com/AdminGuide/HostConfigDBOpts.php">
      * A.3.4 of the Administrators Guide</a> for info on SAFE vs. FAST.</p>
      *
+     * <p>The servers only execute such a read at the replica local to the receiving host
+     * when they are started with the REPLICA_READ_CONSISTENCY system property set to SAFE or
+     * FAST; otherwise the read is forwarded to the partition leader.</p>
+     *
      * <p>Defaults to FALSE. Has no effect if Client Affinity is disabled.</p>
      *
      * @param on Enable or disable sending reads to replicas.
+     * @see #setReplicaReadBalancing(ReplicaReadBalancing)
      */
     public void setSendReadsToReplicasByDefault(boolean on) {
         m_sendReadsToReplicasBytDefaultIfCAEnabled = on;
     }
 
+    /**
+     * <p>Choose how reads sent to replicas are spread across the replicas of their partition.
+     * Only used when {@link #setSendReadsToReplicasByDefault(boolean)} is enabled.</p>
+     *
+     * <p>Defaults to {@link ReplicaReadBalancing#RANDOM}.</p>
+     *
+     * @param balancing The balancing policy to use
+     */
+    public void setReplicaReadBalancing(ReplicaReadBalancing balancing) {
+        if (balancing == null) {
+            throw new IllegalArgumentException("Replica read balancing policy must not be null");
+        }
+        m_replicaReadBalancing = balancing;
+    }
+
+    /**
+     * <p>Choose how procedure calls that are not routed to a partition by client affinity are
+     * spread across the connections of the client. This covers multi-partition procedures,
+     * system procedures and, when client affinity is disabled or the cluster topology is not
+     * known yet, every call. A load aware policy keeps a server that is slow to respond, for
+     * example while it is paused for garbage collection, from being handed an equal share of
+     * the calls.</p>
+     *
+     * <p>Defaults to {@link ConnectionSelectionPolicy#ROUND_ROBIN}.</p>
+     *
+     * @param policy The connection selection policy to use
+     */
+    public void setConnectionSelectionPolicy(ConnectionSelectionPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Connection selection policy must not be null");
+        }
+        m_connectionSelectionPolicy = policy;
+    }
+
+    /**
+     * <p>Set the executor used to complete the futures returned by
+     * {@link Client#callProcedureAsync(String, Object...)}. Listeners attached to those futures then
+     * run on the executor instead of on the thread reading responses from the network, so a slow
+     * listener doesn't delay every other response on the connection.</p>
+     *
+     * <p>Defaults to null, which completes the futures on the network thread.</p>
+     *
+     * @param executor Executor to complete futures on, or null to complete them on the network thread.
+     */
+    public void setCompletionExecutor(Executor executor) {
+        m_completionExecutor = executor;
+    }
+
     /**
      * <p>Attempts to reconnect to a node with retry after connection loss. See the {@link ReconnectStatusListener}.</p>
      *
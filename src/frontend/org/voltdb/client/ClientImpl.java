@@ -28,7 +28,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -51,6 +53,8 @@ import org.voltdb.common.Constants;
 import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.collect.ImmutableSet;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
 
 /**
  *  A client that connects to one or more nodes in a VoltCluster
@@ -91,6 +95,8 @@ public final class ClientImpl implements Client {
     private final ClientAuthScheme m_hashScheme;
     private final SSLContext m_sslContext;
 
+    // executor that completes futures returned by callProcedureAsync, null to complete them on the network thread
+    private final Executor m_completionExecutor;
 
     /**
      * These threads belong to the network thread pool
@@ -145,6 +151,9 @@ public final class ClientImpl implements Client {
         }
         m_username = username;
         m_distributer.setTopologyChangeAware(config.m_topologyChangeAware);
+        m_distributer.setInvocationBatchBytes(config.m_invocationBatchBytes);
+        m_distributer.setReplicaReadBalancing(config.m_replicaReadBalancing);
+        m_distributer.setConnectionSelectionPolicy(config.m_connectionSelectionPolicy);
         if (config.m_topologyChangeAware) {
             m_ex = Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Topoaware thread"));
         }
@@ -157,6 +166,7 @@ public final class ClientImpl implements Client {
             m_reconnectStatusListener = null;
         }
 
+        m_completionExecutor = config.m_completionExecutor;
         m_hashScheme = config.m_hashScheme;
         if (config.m_cleartext) {
             m_passwordHash = ConnectionUtil.getHashedPassword(m_hashScheme, config.m_password);
@@ -256,6 +266,70 @@ public final class ClientImpl implements Client {
                 procName, Distributer.USE_DEFAULT_CLIENT_TIMEOUT, TimeUnit.SECONDS, parameters);
     }
 
+    /**
+     * Asynchronously invoke a procedure call returning a future for the response.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future that will be completed with the response.
+     */
+    @Override
+    public final ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters)
+            throws IOException, NoConnectionsException
+    {
+        return callProcedureAsyncWithClientTimeout(BatchTimeoutOverrideType.NO_TIMEOUT, procName,
+                Distributer.USE_DEFAULT_CLIENT_TIMEOUT, TimeUnit.NANOSECONDS, parameters);
+    }
+
+    /**
+     * Asynchronously invoke a procedure call with timeout returning a future for the response.
+     * @param batchTimeout procedure invocation batch timeout.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future that will be completed with the response.
+     */
+    @Override
+    public final ListenableFuture<ClientResponse> callProcedureAsyncWithTimeout(
+            int batchTimeout,
+            String procName,
+            Object... parameters)
+                    throws IOException, NoConnectionsException
+    {
+        return callProcedureAsyncWithClientTimeout(batchTimeout, procName,
+                Distributer.USE_DEFAULT_CLIENT_TIMEOUT, TimeUnit.NANOSECONDS, parameters);
+    }
+
+    /**
+     * Asynchronously invoke a procedure call returning a future for the response.
+     *
+     * @param batchTimeout procedure invocation batch timeout.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param clientTimeout timeout for the procedure
+     * @param clientTimeoutUnit TimeUnit of procedure timeout
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future that will be completed with the response, or with a
+     * GRACEFUL_FAILURE response if the invocation could not be queued.
+     */
+    public ListenableFuture<ClientResponse> callProcedureAsyncWithClientTimeout(
+            int batchTimeout,
+            String procName,
+            long clientTimeout,
+            TimeUnit clientTimeoutUnit,
+            Object... parameters)
+                    throws IOException, NoConnectionsException
+    {
+        final FutureCallback cb = new FutureCallback(m_completionExecutor);
+        if (!callProcedureWithClientTimeout(cb, batchTimeout, false, procName,
+                clientTimeout, clientTimeoutUnit, parameters)) {
+            cb.m_future.set(new ClientResponseImpl(
+                    ClientResponse.GRACEFUL_FAILURE,
+                    ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                    "",
+                    new VoltTable[0],
+                    "Unable to queue client request."));
+        }
+        return cb.m_future;
+    }
+
     /**
      * Synchronously invoke a procedure call blocking until a result is available.
      * @param batchTimeout procedure invocation batch timeout.
@@ -422,6 +496,32 @@ public final class ClientImpl implements Client {
         return internalAsyncCallProcedure(callback, clientTimeoutUnit.toNanos(clientTimeout), invocation);
     }
 
+    @Override
+    public InvocationBuilder prepare(String procName) {
+        return new InvocationBuilder(this, procName);
+    }
+
+    ClientResponse callPrepared(InvocationBuilder builder)
+            throws IOException, NoConnectionsException, ProcCallException {
+        ProcedureInvocation invocation = builder.toInvocation(m_handle.getAndIncrement());
+        return internalSyncCallProcedure(Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation);
+    }
+
+    boolean callPrepared(ProcedureCallback callback, InvocationBuilder builder)
+            throws IOException, NoConnectionsException {
+        ProcedureInvocation invocation = builder.toInvocation(m_handle.getAndIncrement());
+
+        if (m_isShutdown) {
+            return false;
+        }
+
+        if (callback == null) {
+            callback = NULL_CALLBACK;
+        }
+
+        return internalAsyncCallProcedure(callback, Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation);
+    }
+
     @Deprecated
     @Override
     public int calculateInvocationSerializedSize(
@@ -1091,6 +1191,38 @@ public final class ClientImpl implements Client {
         return true;
     }
 
+    /*
+     * Completes the future returned by callProcedureAsync. When there is a completion
+     * executor the future is set from it so that listeners don't run on the network thread.
+     */
+    private static final class FutureCallback implements ProcedureCallback {
+        private final SettableFuture<ClientResponse> m_future = SettableFuture.create();
+        private final Executor m_executor;
+
+        FutureCallback(Executor executor) {
+            m_executor = executor;
+        }
+
+        @Override
+        public void clientCallback(final ClientResponse clientResponse) {
+            if (m_executor == null) {
+                m_future.set(clientResponse);
+                return;
+            }
+            try {
+                m_executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        m_future.set(clientResponse);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Don't leave the caller hanging if the executor has been shut down
+                m_future.set(clientResponse);
+            }
+        }
+    }
+
     /**
      * Essentially the same code as SyncCallback, but without the overhead (memory, gc)
      * of storing the parameters of every outstanding request while waiting for a response.
@@ -26,7 +26,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -34,6 +33,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
@@ -63,6 +63,7 @@ import org.voltcore.network.VoltNetworkPool;
 import org.voltcore.network.VoltNetworkPool.IOStatsIntf;
 import org.voltcore.network.VoltProtocolHandler;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.Pair;
 import org.voltcore.utils.ssl.SSLConfiguration;
 import org.voltdb.ClientResponseImpl;
@@ -73,6 +74,7 @@ import org.voltdb.common.Constants;
 
 import com.google_voltpatches.common.base.Throwables;
 import com.google_voltpatches.common.collect.ImmutableList;
+import com.google_voltpatches.common.collect.ImmutableMap;
 import com.google_voltpatches.common.collect.ImmutableSet;
 import com.google_voltpatches.common.collect.ImmutableSortedMap;
 import com.google_voltpatches.common.collect.Maps;
@@ -93,6 +95,8 @@ class Distributer {
     public static final Long ASYNC_TOPO_HANDLE = PING_HANDLE - 1;
     public static final Long ASYNC_PROC_HANDLE = PING_HANDLE - 2;
     static final long USE_DEFAULT_CLIENT_TIMEOUT = 0;
+    // Weight of a new sample in the per connection latency average is 1 / 2^LATENCY_EWMA_SHIFT
+    static final int LATENCY_EWMA_SHIFT = 3;
     static long PARTITION_KEYS_INFO_REFRESH_FREQUENCY = Long.getLong("PARTITION_KEYS_INFO_REFRESH_FREQUENCY", 1000);
 
     // handles used internally are negative and decrement for each call
@@ -110,7 +114,7 @@ class Distributer {
     private final SSLContext m_sslContext;
 
     // Temporary until a distribution/affinity algorithm is written
-    private int m_nextConnection = 0;
+    private final AtomicInteger m_nextConnection = new AtomicInteger(0);
 
     private final boolean m_useMultipleThreads;
     private final boolean m_useClientAffinity;
@@ -133,23 +137,104 @@ class Distributer {
         }
     }
 
-    private final Map<Integer, NodeConnection> m_partitionMasters = new HashMap<>();
-    private final Map<Integer, NodeConnection[]> m_partitionReplicas = new HashMap<>();
-    private final Map<Integer, NodeConnection> m_hostIdToConnection = new HashMap<>();
+    /**
+     * Immutable snapshot of everything queue() needs to pick a connection for an invocation.
+     * A new snapshot is built while holding the Distributer lock whenever connections come or
+     * go or the topology changes, and is published through m_routingTable so that routing an
+     * invocation never has to take the lock.
+     */
+    private static final class RoutingTable {
+        static final RoutingTable EMPTY = new RoutingTable(new NodeConnection[0], null,
+                ImmutableMap.<Integer, NodeConnection>of(),
+                ImmutableMap.<Integer, NodeConnection[]>of(),
+                ImmutableMap.<Integer, NodeConnection>of());
+
+        final NodeConnection[] connections;
+        //This is the instance of the Hashinator we picked from TOPO used only for client affinity.
+        final HashinatorLite hashinator;
+        final ImmutableMap<Integer, NodeConnection> partitionMasters;
+        final ImmutableMap<Integer, NodeConnection[]> partitionReplicas;
+        final ImmutableMap<Integer, NodeConnection> hostIdToConnection;
+
+        private RoutingTable(NodeConnection[] connections,
+                HashinatorLite hashinator,
+                Map<Integer, NodeConnection> partitionMasters,
+                Map<Integer, NodeConnection[]> partitionReplicas,
+                Map<Integer, NodeConnection> hostIdToConnection) {
+            this.connections = connections;
+            this.hashinator = hashinator;
+            this.partitionMasters = ImmutableMap.copyOf(partitionMasters);
+            this.partitionReplicas = ImmutableMap.copyOf(partitionReplicas);
+            this.hostIdToConnection = ImmutableMap.copyOf(hostIdToConnection);
+        }
+
+        RoutingTable withConnections(List<NodeConnection> newConnections) {
+            return new RoutingTable(newConnections.toArray(new NodeConnection[0]), hashinator,
+                    partitionMasters, partitionReplicas, hostIdToConnection);
+        }
+
+        RoutingTable withHost(Integer hostId, NodeConnection cxn) {
+            Map<Integer, NodeConnection> hostIds = new HashMap<>(hostIdToConnection);
+            hostIds.put(hostId, cxn);
+            return new RoutingTable(connections, hashinator, partitionMasters, partitionReplicas, hostIds);
+        }
+
+        RoutingTable withTopology(HashinatorLite newHashinator,
+                Map<Integer, NodeConnection> newMasters,
+                Map<Integer, NodeConnection[]> newReplicas) {
+            return new RoutingTable(connections, newHashinator, newMasters, newReplicas, hostIdToConnection);
+        }
+
+        /*
+         * Repair all cluster topology data with the node connection removed
+         */
+        RoutingTable without(NodeConnection cxn, List<NodeConnection> newConnections) {
+            Map<Integer, NodeConnection> masters = new HashMap<>();
+            for (Map.Entry<Integer, NodeConnection> entry : partitionMasters.entrySet()) {
+                if (entry.getValue() != cxn) {
+                    masters.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            Map<Integer, NodeConnection> hostIds = new HashMap<>();
+            for (Map.Entry<Integer, NodeConnection> entry : hostIdToConnection.entrySet()) {
+                if (entry.getValue() != cxn) {
+                    hostIds.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            Map<Integer, NodeConnection[]> replicas = new HashMap<>();
+            for (Map.Entry<Integer, NodeConnection[]> entry : partitionReplicas.entrySet()) {
+                List<NodeConnection> survivors = new ArrayList<>(entry.getValue().length);
+                for (NodeConnection nc : entry.getValue()) {
+                    if (nc != cxn) {
+                        survivors.add(nc);
+                    }
+                }
+                if (!survivors.isEmpty()) {
+                    replicas.put(entry.getKey(), survivors.toArray(new NodeConnection[0]));
+                }
+            }
+
+            return new RoutingTable(newConnections.toArray(new NodeConnection[0]), hashinator,
+                    masters, replicas, hostIds);
+        }
+    }
+
+    // Only replaced while holding the Distributer lock, read without it
+    private volatile RoutingTable m_routingTable = RoutingTable.EMPTY;
     private final AtomicReference<ImmutableSortedMap<String, Procedure>> m_procedureInfo =
                                 new AtomicReference<ImmutableSortedMap<String, Procedure>>();
     private final AtomicReference<ImmutableSet<Integer>> m_partitionKeys = new AtomicReference<ImmutableSet<Integer>>();
     private final AtomicLong m_lastPartitionKeyFetched = new AtomicLong(0);
     private final AtomicReference<ClientResponse> m_partitionUpdateStatus = new AtomicReference<ClientResponse>();
 
-    //This is the instance of the Hashinator we picked from TOPO used only for client affinity.
-    private HashinatorLite m_hashinator = null;
     //This is a global timeout that will be used if a per-procedure timeout is not provided with the procedure call.
     private final long m_procedureCallTimeoutNanos;
     private static final long MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS = 30 * 60 * 1000; // 30 minutes
     private final long m_connectionResponseTimeoutNanos;
-    private final Map<Integer, ClientAffinityStats> m_clientAffinityStats =
-        new HashMap<>();
+    private final ConcurrentMap<Integer, ClientAffinityStats> m_clientAffinityStats =
+        new ConcurrentHashMap<>();
 
     public final RateLimiter m_rateLimiter = new RateLimiter();
 
@@ -157,6 +242,17 @@ class Distributer {
     private AtomicBoolean m_createConnectionUponTopoChangeInProgress = new AtomicBoolean(false);
     private boolean m_topologyChangeAware;
 
+    // Largest multi-invocation frame to coalesce queued invocations into, 0 disables batching
+    private volatile int m_invocationBatchBytes = 0;
+
+    // How calls that are not routed by client affinity are spread across the connections
+    private volatile ClientConfig.ConnectionSelectionPolicy m_connectionSelectionPolicy =
+            ClientConfig.ConnectionSelectionPolicy.ROUND_ROBIN;
+
+    // How reads are spread across partition replicas when they are sent to replicas
+    private volatile ClientConfig.ReplicaReadBalancing m_replicaReadBalancing = ClientConfig.ReplicaReadBalancing.RANDOM;
+    private final AtomicInteger m_nextReplica = new AtomicInteger(0);
+
     //private final Timer m_timer;
     private final ScheduledExecutorService m_ex =
         Executors.newSingleThreadScheduledExecutor(
@@ -411,20 +507,53 @@ class Distributer {
         private final NonBlockingHashMap<String, ClientStats> m_stats = new NonBlockingHashMap<>();
         private Connection m_connection;
         private volatile boolean m_isConnected = true;
+        // Framed invocations waiting for the network thread to coalesce them into a batch frame
+        private final ConcurrentLinkedQueue<DeferredSerialization> m_pendingInvocations = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean m_batchScheduled = new AtomicBoolean(false);
 
         volatile long m_lastResponseTimeNanos = System.nanoTime();
+        // Exponentially weighted moving average of the round trip time of procedure calls,
+        // only updated from the network thread reading this connection
+        volatile long m_latencyEwmaNanos = 0;
         boolean m_outstandingPing = false;
         ClientStatusListenerExt.DisconnectCause m_closeCause = DisconnectCause.CONNECTION_CLOSED;
 
         public NodeConnection(long ids[]) {}
 
+        private void updateLatencyEwma(long latencyNanos) {
+            final long ewma = m_latencyEwmaNanos;
+            m_latencyEwmaNanos = ewma == 0 ? latencyNanos : ewma + ((latencyNanos - ewma) >> LATENCY_EWMA_SHIFT);
+        }
+
+        /**
+         * Number of procedure calls sent on this connection that are still waiting for a response
+         */
+        int getOutstandingCount() {
+            return m_callbacksToInvoke.get();
+        }
+
+        /**
+         * Expected latency of a new call on this connection. A connection that has calls outstanding
+         * but hasn't responded for longer than its average latency (e.g. the server is paused for GC)
+         * is charged the time since its last response instead, and the result is scaled by the
+         * number of calls the new one will queue behind.
+         */
+        long getExpectedLatencyNanos(long nowNanos) {
+            final int outstanding = getOutstandingCount();
+            long latency = m_latencyEwmaNanos;
+            if (outstanding > 0) {
+                latency = Math.max(latency, nowNanos - m_lastResponseTimeNanos);
+            }
+            return Math.max(1, latency) * (outstanding + 1);
+        }
+
         /*
          * NodeConnection uses ignoreBackpressure to get rate limiter to not
          * apply any permit tracking or rate limits to transactions that should
          * never be rejected such as those submitted from within a callback thread or
          * generated internally
          */
-        public void createWork(final long nowNanos, long handle, String name, ByteBuffer c,
+        public void createWork(final long nowNanos, long handle, String name, DeferredSerialization c,
                 ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos) {
             assert(callback != null);
 
@@ -451,6 +580,9 @@ class Distributer {
                  * It's possible we need to timeout because it took too long to get
                  * the transaction out on the wire due to max outstanding
                  */
+                c.cancel();
+                //The timeout response is counted against the callbacks to invoke like any other
+                m_callbacksToInvoke.incrementAndGet();
                 final long deltaNanos = Math.max(1, System.nanoTime() - nowNanos);
                     invokeCallbackWithTimeout(name, callback, deltaNanos, afterRateLimitNanos,  timeoutNanos, handle, ignoreBackpressure);
                 return;
@@ -478,6 +610,8 @@ class Distributer {
 
             //Check for disconnect
             if (!m_isConnected) {
+                //The invocation never reaches the write stream, release its buffer
+                c.cancel();
                 //Check if the disconnect or expiration already handled the callback
                 if (m_callbacks.remove(handle) == null) {
                     return;
@@ -500,7 +634,96 @@ class Distributer {
                 m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
                 return;
             } else {
-                m_connection.writeStream().enqueue(c);
+                enqueueInvocation(c);
+            }
+        }
+
+        /*
+         * Without batching every invocation is its own write. With batching the invocation is parked
+         * and at most one InvocationBatch is kept in the write stream; whatever accumulated by the time
+         * the network thread gets to it goes out as one frame, so batches grow with load and a lone
+         * invocation doesn't wait on a timer.
+         */
+        private void enqueueInvocation(DeferredSerialization invocation) {
+            if (m_invocationBatchBytes <= 0) {
+                m_connection.writeStream().enqueue(invocation);
+                return;
+            }
+            m_pendingInvocations.offer(invocation);
+            if (!m_isConnected) {
+                //Raced with stopping(), which may already have drained the pending invocations
+                cancelPendingInvocations();
+                return;
+            }
+            if (m_batchScheduled.compareAndSet(false, true)) {
+                m_connection.writeStream().enqueue(new InvocationBatch());
+            }
+        }
+
+        private void cancelPendingInvocations() {
+            DeferredSerialization pending;
+            while ((pending = m_pendingInvocations.poll()) != null) {
+                pending.cancel();
+            }
+        }
+
+        /**
+         * Drains pending invocations when the network thread asks for the size. A single invocation
+         * is written as is, several are wrapped in a frame of
+         * [length][INVOCATION_BATCH_FRAME][count][framed invocation]...
+         * Only the network thread for this connection serializes batches so draining needs no lock.
+         */
+        private class InvocationBatch implements DeferredSerialization {
+            private final ArrayList<DeferredSerialization> m_invocations = new ArrayList<>();
+            private int m_bytes = 0;
+
+            @Override
+            public int getSerializedSize() throws IOException {
+                // Clear the flag before draining, anything offered after the drain schedules the next batch
+                m_batchScheduled.set(false);
+                final int maxBytes = m_invocationBatchBytes;
+                DeferredSerialization invocation;
+                while ((invocation = m_pendingInvocations.peek()) != null) {
+                    final int size = invocation.getSerializedSize();
+                    if (!m_invocations.isEmpty() && m_bytes + size > maxBytes) {
+                        break;
+                    }
+                    m_pendingInvocations.poll();
+                    m_invocations.add(invocation);
+                    m_bytes += size;
+                }
+                // Left over invocations that didn't fit go in the next batch
+                if (!m_pendingInvocations.isEmpty() && m_batchScheduled.compareAndSet(false, true)) {
+                    m_connection.writeStream().enqueue(new InvocationBatch());
+                }
+                if (m_invocations.isEmpty()) {
+                    return DeferredSerialization.EMPTY_MESSAGE_LENGTH;
+                }
+                if (m_invocations.size() == 1) {
+                    return m_bytes;
+                }
+                return 4 + 1 + 4 + m_bytes;
+            }
+
+            @Override
+            public void serialize(ByteBuffer buf) throws IOException {
+                if (m_invocations.size() > 1) {
+                    buf.putInt(1 + 4 + m_bytes);
+                    buf.put(Constants.INVOCATION_BATCH_FRAME);
+                    buf.putInt(m_invocations.size());
+                }
+                for (DeferredSerialization invocation : m_invocations) {
+                    invocation.serialize(buf);
+                }
+            }
+
+            @Override
+            public void cancel() {
+                // Callbacks of invocations that never went out are failed when the connection goes down
+                for (DeferredSerialization invocation : m_invocations) {
+                    invocation.cancel();
+                }
+                m_invocations.clear();
             }
         }
 
@@ -696,6 +919,7 @@ class Distributer {
             else {
                 final long callTimeNanos = stuff.timestampNanos;
                 final long deltaNanos = Math.max(1, nowNanos - callTimeNanos);
+                updateLatencyEwma(deltaNanos);
                 final ProcedureCallback cb = stuff.callback;
                 assert(cb != null);
                 final byte status = response.getStatus();
@@ -746,54 +970,13 @@ class Distributer {
         public void stopping(Connection c) {
             super.stopping(c);
             m_isConnected = false;
+            //Release invocations still waiting to be batched, their callbacks are failed below
+            cancelPendingInvocations();
             //Prevent queueing of new work to this connection
             synchronized (Distributer.this) {
-                /*
-                 * Repair all cluster topology data with the node connection removed
-                 */
-                Iterator<Map.Entry<Integer, NodeConnection>> i = m_partitionMasters.entrySet().iterator();
-                while (i.hasNext()) {
-                    Map.Entry<Integer, NodeConnection> entry = i.next();
-                    if (entry.getValue() == this) {
-                        i.remove();
-                    }
-                }
-
-                i = m_hostIdToConnection.entrySet().iterator();
-                while (i.hasNext()) {
-                    Map.Entry<Integer, NodeConnection> entry = i.next();
-                    if (entry.getValue() == this) {
-                        i.remove();
-                    }
-                }
-
-                Iterator<Map.Entry<Integer, NodeConnection[]>> i2 = m_partitionReplicas.entrySet().iterator();
-                List<Pair<Integer, NodeConnection[]>> entriesToRewrite = new ArrayList<>();
-                while (i2.hasNext()) {
-                    Map.Entry<Integer, NodeConnection[]> entry = i2.next();
-                    for (NodeConnection nc : entry.getValue()) {
-                        if (nc == this) {
-                            entriesToRewrite.add(Pair.of(entry.getKey(), entry.getValue()));
-                        }
-                    }
-                }
-
-                for (Pair<Integer, NodeConnection[]> entry : entriesToRewrite) {
-                    m_partitionReplicas.remove(entry.getFirst());
-                    NodeConnection survivors[] = new NodeConnection[entry.getSecond().length - 1];
-                    if (survivors.length == 0) {
-                        break;
-                    }
-                    int zz = 0;
-                    for (int ii = 0; ii < entry.getSecond().length; ii++) {
-                        if (entry.getSecond()[ii] != this) {
-                            survivors[zz++] = entry.getSecond()[ii];
-                        }
-                    }
-                    m_partitionReplicas.put(entry.getFirst(), survivors);
-                }
-
                 m_connections.remove(this);
+                m_routingTable = m_routingTable.without(this, m_connections);
+
                 //Notify listeners that a connection has been lost
                 for (ClientStatusListenerExt s : m_listeners) {
                     s.connectionLost(
@@ -1045,11 +1228,12 @@ class Distributer {
             m_buildString = (String)socketChannelAndInstanceIdAndBuildString[2];
 
             m_connections.add(cxn);
+            m_routingTable = m_routingTable.withConnections(m_connections);
         }
 
         if (m_useClientAffinity) {
             synchronized (this) {
-                m_hostIdToConnection.put(hostId, cxn);
+                m_routingTable = m_routingTable.withHost(hostId, cxn);
             }
 
             if (m_subscribedConnection == null) {
@@ -1086,7 +1270,7 @@ class Distributer {
             cxn.createWork(System.nanoTime(),
                     spi.getHandle(),
                     spi.getProcName(),
-                    serializeSPI(spi),
+                    spi.toFramedWrite(),
                     new SubscribeCallback(),
                     true,
                     USE_DEFAULT_CLIENT_TIMEOUT);
@@ -1096,7 +1280,7 @@ class Distributer {
             cxn.createWork(System.nanoTime(),
                     spi.getHandle(),
                     spi.getProcName(),
-                    serializeSPI(spi),
+                    spi.toFramedWrite(),
                     new TopoUpdateCallback(),
                     true,
                     USE_DEFAULT_CLIENT_TIMEOUT);
@@ -1109,7 +1293,7 @@ class Distributer {
                 cxn.createWork(System.nanoTime(),
                         spi.getHandle(),
                         spi.getProcName(),
-                        serializeSPI(spi),
+                        spi.toFramedWrite(),
                         new ProcUpdateCallback(),
                         true,
                         USE_DEFAULT_CLIENT_TIMEOUT);
@@ -1141,84 +1325,231 @@ class Distributer {
         assert(invocation != null);
         assert(cb != null);
 
-        NodeConnection cxn = null;
-        boolean backpressure = true;
+        RoutingTable routing = m_routingTable;
+        if (routing.connections.length == 0) {
+            throw new NoConnectionsException("No connections.");
+        }
+
+        NodeConnection cxn = selectConnection(routing, invocation, ignoreBackpressure, true);
+        if (cxn == null) {
+            /*
+             * Synchronization is necessary to ensure that backpressure is reported correctly.
+             * offBackPressure() reports the end of backpressure while holding the lock, so check
+             * again against the latest routing table here rather than report backpressure after
+             * it has already ended and lose the wakeup.
+             */
+            synchronized (this) {
+                routing = m_routingTable;
+                if (routing.connections.length == 0) {
+                    throw new NoConnectionsException("No connections.");
+                }
+                cxn = selectConnection(routing, invocation, ignoreBackpressure, false);
+                if (cxn == null) {
+                    for (ClientStatusListenerExt s : m_listeners) {
+                        s.backpressure(true);
+                    }
+                }
+            }
+        }
 
         /*
-         * Synchronization is necessary to ensure that m_connections is not modified
-         * as well as to ensure that backpressure is reported correctly
+         * Do the heavy weight serialization outside of any lock.
+         * createWork synchronizes on an individual connection which allows for more concurrency
          */
-        synchronized (this) {
-            final int totalConnections = m_connections.size();
+        if (cxn != null) {
+            DeferredSerialization work = null;
+            try {
+                work = invocation.toFramedWrite();
+            } catch (Exception e) {
+                Throwables.propagate(e);
+            }
+            cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), work, cb, ignoreBackpressure, timeoutNanos);
+        }
+        if (m_topologyChangeAware) {
+            createConnectionsUponTopologyChange();
+        }
+        return cxn != null;
+    }
+
+    /**
+     * Pick the connection an invocation would be sent on without sending it.
+     * Only used to measure routing in isolation.
+     */
+    NodeConnection route(ProcedureInvocation invocation) {
+        return selectConnection(m_routingTable, invocation, true, true);
+    }
 
-            if (totalConnections == 0) {
-                throw new NoConnectionsException("No connections.");
+    /**
+     * Pick a connection for a call that client affinity didn't route according to the
+     * configured connection selection policy.
+     * @return The chosen connection or null if there are no connections or the policy is round-robin,
+     * which the caller implements together with its backpressure check
+     */
+    private NodeConnection selectByPolicy(NodeConnection connections[]) {
+        final int totalConnections = connections.length;
+        if (totalConnections == 0) {
+            return null;
+        }
+        switch (m_connectionSelectionPolicy) {
+        case LEAST_OUTSTANDING: {
+            // Start the scan at a rotating offset so that ties are spread round-robin
+            final int start = m_nextConnection.incrementAndGet();
+            NodeConnection least = null;
+            int leastOutstanding = Integer.MAX_VALUE;
+            for (int i = 0; i < totalConnections; ++i) {
+                final NodeConnection nc = connections[Math.abs((start + i) % totalConnections)];
+                final int outstanding = nc.getOutstandingCount();
+                if (outstanding < leastOutstanding) {
+                    least = nc;
+                    leastOutstanding = outstanding;
+                }
+            }
+            return least;
+        }
+        case LATENCY_EWMA: {
+            final long nowNanos = System.nanoTime();
+            final int start = m_nextConnection.incrementAndGet();
+            NodeConnection fastest = null;
+            long fastestLatency = Long.MAX_VALUE;
+            for (int i = 0; i < totalConnections; ++i) {
+                final NodeConnection nc = connections[Math.abs((start + i) % totalConnections)];
+                final long latency = nc.getExpectedLatencyNanos(nowNanos);
+                if (latency < fastestLatency) {
+                    fastest = nc;
+                    fastestLatency = latency;
+                }
+            }
+            return fastest;
+        }
+        case POWER_OF_TWO_CHOICES: {
+            if (totalConnections == 1) {
+                return connections[0];
             }
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final int first = random.nextInt(totalConnections);
+            // pick a second connection distinct from the first
+            final int second = (first + 1 + random.nextInt(totalConnections - 1)) % totalConnections;
+            final NodeConnection a = connections[first];
+            final NodeConnection b = connections[second];
+            return a.getOutstandingCount() <= b.getOutstandingCount() ? a : b;
+        }
+        default:
+            return null;
+        }
+    }
 
-            /*
-             * Check if the master for the partition is known. No back pressure check to ensure correct
-             * routing, but backpressure will be managed anyways. This is where we guess partition based on client
-             * affinity and known topology (hashinator initialized).
-             */
-            if (m_useClientAffinity && (m_hashinator != null)) {
-                final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
-                Procedure procedureInfo = null;
-                if (procedures != null) {
-                    procedureInfo = procedures.get(invocation.getProcName());
+    /**
+     * Pick one of the connections to the replicas of a partition for a read according
+     * to the configured replica read balancing policy.
+     */
+    private NodeConnection selectReplica(NodeConnection partitionReplicas[]) {
+        switch (m_replicaReadBalancing) {
+        case ROUND_ROBIN:
+            return partitionReplicas[Math.abs(m_nextReplica.getAndIncrement() % partitionReplicas.length)];
+        case LEAST_OUTSTANDING:
+            NodeConnection least = null;
+            int leastOutstanding = Integer.MAX_VALUE;
+            for (NodeConnection nc : partitionReplicas) {
+                final int outstanding = nc.getOutstandingCount();
+                if (nc.m_isConnected && outstanding < leastOutstanding) {
+                    least = nc;
+                    leastOutstanding = outstanding;
                 }
-                Integer hashedPartition = -1;
-
-                if (procedureInfo != null) {
-                    hashedPartition = Constants.MP_INIT_PID;
-                    if (( ! procedureInfo.multiPart) &&
-                        // User may have passed too few parameters to allow dispatching.
-                        // Avoid an indexing error here to fall through to the proper ProcCallException.
-                            (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
-                        hashedPartition = m_hashinator.getHashedPartitionForParameter(
-                                procedureInfo.partitionParameterType,
-                                invocation.getPartitionParamValue(procedureInfo.partitionParameter));
-                    }
-                    /*
-                     * If the procedure is read only and single part and the user wants it, load balance across replicas
-                     * This is probably slower for SAFE consistency.
-                     */
-                    if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
-                        NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
-                        if (partitionReplicas != null && partitionReplicas.length > 0) {
-                            cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
-                            if (cxn.hadBackPressure()) {
-                                //See if there is one without backpressure, make sure it's still connected
-                                for (NodeConnection nc : partitionReplicas) {
-                                    if (!nc.hadBackPressure() && nc.m_isConnected) {
-                                        cxn = nc;
-                                        break;
-                                    }
+            }
+            if (least != null) {
+                return least;
+            }
+            // no connected replica, fall through to a random choice
+        default:
+            return partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
+        }
+    }
+
+    /**
+     * Pick the connection to send an invocation on using the given routing table. Client affinity
+     * routes to the partition master (or a replica for reads if requested) and everything else is
+     * spread round-robin across the connections.
+     * @param routing Routing table snapshot to use
+     * @param invocation
+     * @param ignoreBackpressure If true a connection is returned even if it has backpressure
+     * @param updateAffinityStats If true account the routing decision in the client affinity stats
+     * @return The connection to use or null if the chosen connection(s) have backpressure
+     */
+    private NodeConnection selectConnection(
+            RoutingTable routing,
+            ProcedureInvocation invocation,
+            boolean ignoreBackpressure,
+            boolean updateAffinityStats) {
+        NodeConnection cxn = null;
+        boolean backpressure = true;
+
+        /*
+         * Check if the master for the partition is known. No back pressure check to ensure correct
+         * routing, but backpressure will be managed anyways. This is where we guess partition based on client
+         * affinity and known topology (hashinator initialized).
+         */
+        if (m_useClientAffinity && (routing.hashinator != null)) {
+            final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
+            Procedure procedureInfo = null;
+            if (procedures != null) {
+                procedureInfo = procedures.get(invocation.getProcName());
+            }
+            Integer hashedPartition = -1;
+
+            if (procedureInfo != null) {
+                hashedPartition = Constants.MP_INIT_PID;
+                if (( ! procedureInfo.multiPart) &&
+                    // User may have passed too few parameters to allow dispatching.
+                    // Avoid an indexing error here to fall through to the proper ProcCallException.
+                        (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
+                    hashedPartition = invocation.getHashedPartition(routing.hashinator,
+                            procedureInfo.partitionParameter, procedureInfo.partitionParameterType);
+                }
+                /*
+                 * If the procedure is read only and single part and the user wants it, load balance across replicas
+                 * This is probably slower for SAFE consistency.
+                 */
+                if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
+                    NodeConnection partitionReplicas[] = routing.partitionReplicas.get(hashedPartition);
+                    if (partitionReplicas != null && partitionReplicas.length > 0) {
+                        cxn = selectReplica(partitionReplicas);
+                        if (cxn.hadBackPressure()) {
+                            //See if there is one without backpressure, make sure it's still connected
+                            for (NodeConnection nc : partitionReplicas) {
+                                if (!nc.hadBackPressure() && nc.m_isConnected) {
+                                    cxn = nc;
+                                    break;
                                 }
                             }
-                            if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                                backpressure = false;
-                            }
                         }
-                    } else {
-                        /*
-                         * For writes or SAFE reads, this is the best way to go
-                         */
-                        cxn = m_partitionMasters.get(hashedPartition);
-                        if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        if (!cxn.hadBackPressure() || ignoreBackpressure) {
                             backpressure = false;
                         }
                     }
+                } else {
+                    /*
+                     * For writes or SAFE reads, this is the best way to go
+                     */
+                    cxn = routing.partitionMasters.get(hashedPartition);
+                    if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        backpressure = false;
+                    }
                 }
-                if (cxn != null && !cxn.m_isConnected) {
-                    // Would be nice to log something here
-                    // Client affinity picked a connection that was actually disconnected.  Reset to null
-                    // and let the round-robin choice pick a connection
-                    cxn = null;
-                }
+            }
+            if (cxn != null && !cxn.m_isConnected) {
+                // Would be nice to log something here
+                // Client affinity picked a connection that was actually disconnected.  Reset to null
+                // and let the round-robin choice pick a connection
+                cxn = null;
+            }
+            if (updateAffinityStats) {
                 ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
                 if (stats == null) {
                     stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
-                    m_clientAffinityStats.put(hashedPartition, stats);
+                    ClientAffinityStats existing = m_clientAffinityStats.putIfAbsent(hashedPartition, stats);
+                    if (existing != null) {
+                        stats = existing;
+                    }
                 }
                 if (cxn != null) {
                     if (procedureInfo != null && procedureInfo.readOnly) {
@@ -1239,42 +1570,26 @@ class Distributer {
                     }
                 }
             }
-            if (cxn == null) {
-                for (int i=0; i < totalConnections; ++i) {
-                    cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
-                    if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                        // serialize and queue the invocation
-                        backpressure = false;
-                        break;
-                    }
-                }
+        }
+        if (cxn == null) {
+            final NodeConnection connections[] = routing.connections;
+            final int totalConnections = connections.length;
+            cxn = selectByPolicy(connections);
+            if (cxn != null && (!cxn.hadBackPressure() || ignoreBackpressure)) {
+                return cxn;
             }
-
-            if (backpressure) {
-                cxn = null;
-                for (ClientStatusListenerExt s : m_listeners) {
-                    s.backpressure(true);
+            // The policy's choice has backpressure, take the next one that doesn't
+            for (int i=0; i < totalConnections; ++i) {
+                cxn = connections[Math.abs(m_nextConnection.incrementAndGet() % totalConnections)];
+                if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    // serialize and queue the invocation
+                    backpressure = false;
+                    break;
                 }
             }
         }
 
-        /*
-         * Do the heavy weight serialization outside the synchronized block.
-         * createWork synchronizes on an individual connection which allows for more concurrency
-         */
-        if (cxn != null) {
-            ByteBuffer buf = null;
-            try {
-                buf = serializeSPI(invocation);
-            } catch (Exception e) {
-                Throwables.propagate(e);
-            }
-            cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
-        }
-        if (m_topologyChangeAware) {
-            createConnectionsUponTopologyChange();
-        }
-        return !backpressure;
+        return backpressure ? null : cxn;
     }
 
     /**
@@ -1377,11 +1692,8 @@ class Distributer {
     Map<Integer, ClientAffinityStats> getAffinityStatsSnapshot()
     {
         Map<Integer, ClientAffinityStats> retval = new HashMap<>();
-        // these get modified under this lock in queue()
-        synchronized(this) {
-            for (Entry<Integer, ClientAffinityStats> e : m_clientAffinityStats.entrySet()) {
-                retval.put(e.getKey(), (ClientAffinityStats)e.getValue().clone());
-            }
+        for (Entry<Integer, ClientAffinityStats> e : m_clientAffinityStats.entrySet()) {
+            retval.put(e.getKey(), (ClientAffinityStats)e.getValue().clone());
         }
         return retval;
     }
@@ -1427,11 +1739,12 @@ class Distributer {
 
         //In future let TOPO return cooked bytes when cooked and we use correct recipe
         boolean cooked = false;
+        final HashinatorLite hashinator;
         if (tables.length == 1) {
             //Just in case the new client connects to the old version of Volt that only returns 1 topology table
             // We're going to get the MPI back in this table, so subtract it out from the number of partitions.
             int numPartitions = vt.getRowCount() - 1;
-            m_hashinator = new HashinatorLite(numPartitions); // legacy only
+            hashinator = new HashinatorLite(numPartitions); // legacy only
         } else {
             //Second table contains the hash function
             boolean advanced = tables[1].advanceRow();
@@ -1440,12 +1753,13 @@ class Distributer {
                                    "performance will be lower because transactions can't be routed at this client");
                 return;
             }
-            m_hashinator = new HashinatorLite(
+            hashinator = new HashinatorLite(
                     tables[1].getVarbinary("HASHCONFIG"),
                     cooked);
         }
-        m_partitionMasters.clear();
-        m_partitionReplicas.clear();
+        final RoutingTable routing = m_routingTable;
+        Map<Integer, NodeConnection> partitionMasters = new HashMap<>();
+        Map<Integer, NodeConnection[]> partitionReplicas = new HashMap<>();
         // The MPI's partition ID is 16383 (MpInitiator.MP_INIT_PID), so we shouldn't inadvertently
         // hash to it.  Go ahead and include it in the maps, we can use it at some point to
         // route MP transactions directly to the MPI node.
@@ -1457,19 +1771,22 @@ class Distributer {
             for (String site : vt.getString("Sites").split(",")) {
                 site = site.trim();
                 Integer hostId = Integer.valueOf(site.split(":")[0]);
-                if (m_hostIdToConnection.containsKey(hostId)) {
-                    connections.add(m_hostIdToConnection.get(hostId));
+                NodeConnection cxn = routing.hostIdToConnection.get(hostId);
+                if (cxn != null) {
+                    connections.add(cxn);
                 } else {
                     unconnected.add(hostId);
                }
             }
-            m_partitionReplicas.put(partition, connections.toArray(new NodeConnection[0]));
+            partitionReplicas.put(partition, connections.toArray(new NodeConnection[0]));
 
             Integer leaderHostId = Integer.valueOf(vt.getString("Leader").split(":")[0]);
-            if (m_hostIdToConnection.containsKey(leaderHostId)) {
-                m_partitionMasters.put(partition, m_hostIdToConnection.get(leaderHostId));
+            NodeConnection leader = routing.hostIdToConnection.get(leaderHostId);
+            if (leader != null) {
+                partitionMasters.put(partition, leader);
             }
         }
+        m_routingTable = routing.withTopology(hashinator, partitionMasters, partitionReplicas);
         if (m_topologyChangeAware) {
             m_unconnectedHosts.set(ImmutableSet.copyOf(unconnected));
         }
@@ -1524,7 +1841,7 @@ class Distributer {
      * @return
      */
     public boolean isHashinatorInitialized() {
-        return (m_hashinator != null);
+        return (m_routingTable.hashinator != null);
     }
 
     /**
@@ -1535,18 +1852,11 @@ class Distributer {
      * @return
      */
     public long getPartitionForParameter(byte typeValue, Object value) {
-        if (m_hashinator == null) {
+        final HashinatorLite hashinator = m_routingTable.hashinator;
+        if (hashinator == null) {
             return -1;
         }
-        return m_hashinator.getHashedPartitionForParameter(typeValue, value);
-    }
-
-    private ByteBuffer serializeSPI(ProcedureInvocation pi) throws IOException {
-        ByteBuffer buf = ByteBuffer.allocate(pi.getSerializedSize() + 4);
-        buf.putInt(buf.capacity() - 4);
-        pi.flattenToBuffer(buf);
-        buf.flip();
-        return buf;
+        return hashinator.getHashedPartitionForParameter(typeValue, value);
     }
 
     long getProcedureTimeoutNanos() {
@@ -1603,6 +1913,18 @@ class Distributer {
         m_topologyChangeAware = topoAware;
     }
 
+    void setInvocationBatchBytes(int maxBytes) {
+        m_invocationBatchBytes = maxBytes;
+    }
+
+    void setReplicaReadBalancing(ClientConfig.ReplicaReadBalancing balancing) {
+        m_replicaReadBalancing = balancing;
+    }
+
+    void setConnectionSelectionPolicy(ClientConfig.ConnectionSelectionPolicy policy) {
+        m_connectionSelectionPolicy = policy;
+    }
+
     void createConnectionsUponTopologyChange() {
 
         if(!m_topologyChangeAware || m_createConnectionUponTopoChangeInProgress.get()) {
@@ -1632,6 +1954,6 @@ class Distributer {
         queue(spi, new TopoUpdateCallback(), true, System.nanoTime(), USE_DEFAULT_CLIENT_TIMEOUT);
     }
     boolean isHostConnected(Integer hostId) {
-        return m_hostIdToConnection.containsKey(hostId);
+        return m_routingTable.hostIdToConnection.containsKey(hostId);
     }
 }
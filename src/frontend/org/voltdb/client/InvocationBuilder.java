@@ -0,0 +1,431 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.DeferredSerialization;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+import org.voltdb.types.TimestampType;
+
+/**
+ * <p>A reusable invocation of one procedure with typed parameter setters, obtained from
+ * {@link Client#prepare(String)}. Parameters are kept as primitives and written straight
+ * into a pooled direct buffer when the procedure is called, so unlike
+ * {@link Client#callProcedure(ProcedureCallback, String, Object...)} no boxed values,
+ * parameter array or intermediate heap buffer are created per call. Parameters keep their
+ * values between calls so only the ones that change need to be set again.</p>
+ *
+ * <pre>
+ * InvocationBuilder put = client.prepare("Put");
+ * for (long key = 0; key &lt; 1000; key++) {
+ *     put.setLong(0, key).setString(1, value).call(callback);
+ * }
+ * </pre>
+ *
+ * <p>Supports TINYINT, SMALLINT, INTEGER, BIGINT, FLOAT, TIMESTAMP, STRING and VARBINARY
+ * parameters, use {@link Client#callProcedure(String, Object...)} for other types.
+ * An instance is not thread safe, use one per thread.</p>
+ */
+public class InvocationBuilder {
+
+    private final ClientImpl m_client;
+    private final String m_procName;
+    private final byte[] m_procNameBytes;
+    private int m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
+
+    // Type of each parameter, 0 if it hasn't been set. Numbers and timestamps are kept in
+    // m_longs, doubles as their raw bits, strings and byte arrays in m_refs.
+    private byte[] m_types = new byte[4];
+    private long[] m_longs = new long[4];
+    private Object[] m_refs = new Object[4];
+    // Encoded length of each string parameter, computed when sizing the invocation
+    private int[] m_lengths = new int[4];
+    private int m_paramCount = 0;
+
+    InvocationBuilder(ClientImpl client, String procName) {
+        m_client = client;
+        m_procName = procName;
+        m_procNameBytes = procName.getBytes(Constants.UTF8ENCODING);
+    }
+
+    public String getProcName() {
+        return m_procName;
+    }
+
+    public InvocationBuilder setByte(int index, byte value) {
+        return setLong(index, VoltType.TINYINT, value);
+    }
+
+    public InvocationBuilder setShort(int index, short value) {
+        return setLong(index, VoltType.SMALLINT, value);
+    }
+
+    public InvocationBuilder setInt(int index, int value) {
+        return setLong(index, VoltType.INTEGER, value);
+    }
+
+    public InvocationBuilder setLong(int index, long value) {
+        return setLong(index, VoltType.BIGINT, value);
+    }
+
+    public InvocationBuilder setDouble(int index, double value) {
+        return setLong(index, VoltType.FLOAT, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * @param microseconds Microseconds since the epoch, as returned by {@link TimestampType#getTime()}.
+     */
+    public InvocationBuilder setTimestamp(int index, long microseconds) {
+        return setLong(index, VoltType.TIMESTAMP, microseconds);
+    }
+
+    /**
+     * The string is encoded when the procedure is called, it is not copied.
+     */
+    public InvocationBuilder setString(int index, String value) {
+        if (value == null) {
+            return setNull(index);
+        }
+        return setRef(index, VoltType.STRING, value);
+    }
+
+    /**
+     * The array is written when the procedure is called, it is not copied.
+     */
+    public InvocationBuilder setVarbinary(int index, byte[] value) {
+        if (value == null) {
+            return setNull(index);
+        }
+        return setRef(index, VoltType.VARBINARY, value);
+    }
+
+    public InvocationBuilder setNull(int index) {
+        return setRef(index, VoltType.NULL, null);
+    }
+
+    /**
+     * Query batch timeout in milliseconds, see
+     * {@link Client#callProcedureWithTimeout(int, String, Object...)}.
+     */
+    public InvocationBuilder setQueryTimeout(int queryTimeout) {
+        if ((queryTimeout < 0) && (queryTimeout != BatchTimeoutOverrideType.NO_TIMEOUT)) {
+            throw new IllegalArgumentException("Timeout value can't be negative." );
+        }
+        m_batchTimeout = queryTimeout;
+        return this;
+    }
+
+    /**
+     * Forget all the parameters set so far.
+     */
+    public InvocationBuilder clear() {
+        Arrays.fill(m_types, 0, m_paramCount, (byte) 0);
+        Arrays.fill(m_refs, 0, m_paramCount, null);
+        m_paramCount = 0;
+        return this;
+    }
+
+    /**
+     * Synchronously invoke the procedure with the current parameters.
+     * @see Client#callProcedure(String, Object...)
+     */
+    public ClientResponse call() throws IOException, NoConnectionsException, ProcCallException {
+        return m_client.callPrepared(this);
+    }
+
+    /**
+     * Asynchronously invoke the procedure with the current parameters.
+     * @see Client#callProcedure(ProcedureCallback, String, Object...)
+     */
+    public boolean call(ProcedureCallback callback) throws IOException, NoConnectionsException {
+        return m_client.callPrepared(callback, this);
+    }
+
+    /**
+     * Invocation of the current parameters. It reads the builder's parameters directly,
+     * which is safe because the invocation is routed and serialized before the call returns.
+     */
+    ProcedureInvocation toInvocation(long handle) {
+        for (int i = 0; i < m_paramCount; i++) {
+            if (m_types[i] == 0) {
+                throw new IllegalStateException("Parameter " + i + " of " + m_procName + " has not been set");
+            }
+        }
+        return new Invocation(handle);
+    }
+
+    private InvocationBuilder setLong(int index, VoltType type, long value) {
+        ensureCapacity(index);
+        m_types[index] = type.getValue();
+        m_longs[index] = value;
+        m_refs[index] = null;
+        return this;
+    }
+
+    private InvocationBuilder setRef(int index, VoltType type, Object value) {
+        ensureCapacity(index);
+        m_types[index] = type.getValue();
+        m_refs[index] = value;
+        return this;
+    }
+
+    private void ensureCapacity(int index) {
+        if (index < 0 || index >= Short.MAX_VALUE) {
+            throw new IndexOutOfBoundsException("Parameter index " + index + " is out of range");
+        }
+        if (index >= m_types.length) {
+            final int capacity = Math.max(index + 1, m_types.length * 2);
+            m_types = Arrays.copyOf(m_types, capacity);
+            m_longs = Arrays.copyOf(m_longs, capacity);
+            m_refs = Arrays.copyOf(m_refs, capacity);
+            m_lengths = Arrays.copyOf(m_lengths, capacity);
+        }
+        m_paramCount = Math.max(m_paramCount, index + 1);
+    }
+
+    private boolean isNullValue(int index) {
+        final long value = m_longs[index];
+        switch (VoltType.get(m_types[index])) {
+        case TINYINT:
+            return value == VoltType.NULL_TINYINT;
+        case SMALLINT:
+            return value == VoltType.NULL_SMALLINT;
+        case INTEGER:
+            return value == VoltType.NULL_INTEGER;
+        case BIGINT:
+            return value == VoltType.NULL_BIGINT;
+        default:
+            return false;
+        }
+    }
+
+    private final class Invocation extends ProcedureInvocation {
+
+        Invocation(long handle) {
+            super(handle, m_batchTimeout, m_procName, m_procNameBytes);
+        }
+
+        @Override
+        public int getPassedParamCount() {
+            return m_paramCount;
+        }
+
+        @Override
+        public Object getPartitionParamValue(int index) {
+            final long value = m_longs[index];
+            switch (VoltType.get(m_types[index])) {
+            case TINYINT:
+                return (byte) value;
+            case SMALLINT:
+                return (short) value;
+            case INTEGER:
+                return (int) value;
+            case BIGINT:
+                return value;
+            case FLOAT:
+                return Double.longBitsToDouble(value);
+            case TIMESTAMP:
+                return new TimestampType(value);
+            default:
+                return m_refs[index];
+            }
+        }
+
+        @Override
+        int getHashedPartition(HashinatorLite hashinator, int partitionParameter, int partitionParameterType) {
+            // Integers hash as 8 byte longs whatever their width, same as VoltType.valueToBytes()
+            if (VoltType.get(m_types[partitionParameter]).isAnyIntegerType() &&
+                    VoltType.get((byte) partitionParameterType).isAnyIntegerType()) {
+                if (isNullValue(partitionParameter)) {
+                    return 0;
+                }
+                return hashinator.hashinateLong(m_longs[partitionParameter]);
+            }
+            return super.getHashedPartition(hashinator, partitionParameter, partitionParameterType);
+        }
+
+        @Override
+        int getParametersSerializedSize() {
+            int size = 2;
+            for (int i = 0; i < m_paramCount; i++) {
+                switch (VoltType.get(m_types[i])) {
+                case TINYINT:
+                    size += 1 + 1;
+                    break;
+                case SMALLINT:
+                    size += 1 + 2;
+                    break;
+                case INTEGER:
+                    size += 1 + 4;
+                    break;
+                case BIGINT:
+                case FLOAT:
+                case TIMESTAMP:
+                    size += 1 + 8;
+                    break;
+                case STRING:
+                    m_lengths[i] = encodedLength((String) m_refs[i]);
+                    size += 1 + 4 + m_lengths[i];
+                    break;
+                case VARBINARY:
+                    size += 1 + 4 + ((byte[]) m_refs[i]).length;
+                    break;
+                default:
+                    size += 1;
+                    break;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        void flattenParametersToBuffer(ByteBuffer buf) {
+            buf.putShort((short) m_paramCount);
+            for (int i = 0; i < m_paramCount; i++) {
+                final long value = m_longs[i];
+                buf.put(m_types[i]);
+                switch (VoltType.get(m_types[i])) {
+                case TINYINT:
+                    buf.put((byte) value);
+                    break;
+                case SMALLINT:
+                    buf.putShort((short) value);
+                    break;
+                case INTEGER:
+                    buf.putInt((int) value);
+                    break;
+                case BIGINT:
+                case FLOAT:
+                case TIMESTAMP:
+                    buf.putLong(value);
+                    break;
+                case STRING:
+                    buf.putInt(m_lengths[i]);
+                    encode((String) m_refs[i], buf);
+                    break;
+                case VARBINARY:
+                    final byte[] bytes = (byte[]) m_refs[i];
+                    buf.putInt(bytes.length);
+                    buf.put(bytes);
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+
+        @Override
+        DeferredSerialization toFramedWrite() throws IOException {
+            final int size = getSerializedSize();
+            final BBContainer cont = DBBPool.allocateDirectAndPool(4 + size);
+            final ByteBuffer buf = cont.b();
+            buf.putInt(size);
+            flattenToBuffer(buf);
+            buf.flip();
+            return new PooledWrite(cont);
+        }
+    }
+
+    /**
+     * Copies the serialized invocation to the network and returns the buffer to the pool.
+     */
+    private static final class PooledWrite implements DeferredSerialization {
+        private BBContainer m_cont;
+
+        PooledWrite(BBContainer cont) {
+            m_cont = cont;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) {
+            buf.put(m_cont.b());
+            cancel();
+        }
+
+        @Override
+        public void cancel() {
+            if (m_cont != null) {
+                m_cont.discard();
+                m_cont = null;
+            }
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return m_cont.b().remaining();
+        }
+    }
+
+    /*
+     * UTF-8 length and encoding of a string matching String.getBytes(), which replaces
+     * unpaired surrogates with '?', without the intermediate byte array.
+     */
+    static int encodedLength(String value) {
+        final int chars = value.length();
+        int length = chars;
+        for (int i = 0; i < chars; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            } else if (c < 0x800) {
+                length += 1;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 2;
+                    i++;
+                }
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    static void encode(String value, ByteBuffer buf) {
+        final int chars = value.length();
+        for (int i = 0; i < chars; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte) c);
+            } else if (c < 0x800) {
+                buf.put((byte) (0xC0 | (c >> 6)));
+                buf.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int cp = Character.toCodePoint(c, value.charAt(++i));
+                    buf.put((byte) (0xF0 | (cp >> 18)));
+                    buf.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    buf.put((byte) (0x80 | (cp & 0x3F)));
+                } else {
+                    buf.put((byte) '?');
+                }
+            } else {
+                buf.put((byte) (0xE0 | (c >> 12)));
+                buf.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buf.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
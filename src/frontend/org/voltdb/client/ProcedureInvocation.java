@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
+import org.voltcore.utils.DeferredSerialization;
 import org.voltdb.ParameterSet;
 import org.voltdb.utils.SerializationHelper;
 
@@ -67,6 +68,19 @@ public class ProcedureInvocation {
         m_allPartition = allPartition;
     }
 
+    /**
+     * For invocations that serialize their own parameters by overriding
+     * the parameter methods below. The encoded name is reused as is.
+     */
+    ProcedureInvocation(long handle, int batchTimeout, String procName, byte[] procNameBytes) {
+        m_clientHandle = handle;
+        m_procName = procName;
+        m_procNameBytes = procNameBytes;
+        m_parameters = null;
+        m_batchTimeout = batchTimeout;
+        m_allPartition = false;
+    }
+
     /** return the clientHandle value */
     long getHandle() {
         return m_clientHandle;
@@ -80,6 +94,15 @@ public class ProcedureInvocation {
         return m_parameters.size();
     }
 
+    /**
+     * Partition the invocation's partitioning parameter hashes to.
+     * Overridden by invocations that can hash the value without boxing it.
+     */
+    int getHashedPartition(HashinatorLite hashinator, int partitionParameter, int partitionParameterType) {
+        return hashinator.getHashedPartitionForParameter(partitionParameterType,
+                getPartitionParamValue(partitionParameter));
+    }
+
     public Object getPartitionParamValue(int index) {
         return m_parameters.getParam(index);
     }
@@ -114,7 +137,7 @@ public class ProcedureInvocation {
             8 + // client handle
             1 + // extension count
             batchExtensionSize + allPartitionExtensionSize + // extensions
-            m_parameters.getSerializedSize(); // parameters
+            getParametersSerializedSize(); // parameters
         assert(size > 0); // sanity
         return size;
     }
@@ -145,8 +168,40 @@ public class ProcedureInvocation {
             ProcedureInvocationExtensions.writeAllPartitionWithTypeByte(buf);
         }
 
-        m_parameters.flattenToBuffer(buf);
+        flattenParametersToBuffer(buf);
 
         return buf;
     }
+
+    int getParametersSerializedSize() {
+        return m_parameters.getSerializedSize();
+    }
+
+    void flattenParametersToBuffer(ByteBuffer buf) throws IOException {
+        m_parameters.flattenToBuffer(buf);
+    }
+
+    /**
+     * Serialize the invocation with its length prefix into a buffer ready to be queued on a connection.
+     */
+    DeferredSerialization toFramedWrite() throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate(4 + getSerializedSize());
+        buf.putInt(buf.capacity() - 4);
+        flattenToBuffer(buf);
+        buf.flip();
+        return new DeferredSerialization() {
+            @Override
+            public void serialize(ByteBuffer outbuf) {
+                outbuf.put(buf);
+            }
+
+            @Override
+            public void cancel() {}
+
+            @Override
+            public int getSerializedSize() {
+                return buf.remaining();
+            }
+        };
+    }
 }
@@ -46,6 +46,10 @@ public class Constants
     public static final byte AUTHENTICATION_FAILURE_DUE_TO_REJOIN = 4;
     public static final byte EXPORT_DISABLED_REJECTION = 5;
 
+    // leading byte of a client frame carrying several length-prefixed invocations,
+    // chosen so it can't be mistaken for a ProcedureInvocationType version byte
+    public static final byte INVOCATION_BATCH_FRAME = 127;
+
     // from jdbc metadata generation
     public static final String JSON_PARTITION_PARAMETER = "partitionParameter";
     public static final String JSON_PARTITION_PARAMETER_TYPE = "partitionParameterType";
@@ -41,7 +41,6 @@ import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.BinaryPayloadMessage;
 import org.voltcore.messaging.Mailbox;
-import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
@@ -204,7 +203,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         m_isInCatalog = true;
         m_eos = false;
         m_client = null;
-        m_es = CoreUtils.getListeningExecutorService("ExportDataSource for table " + m_tableName + " partition " + m_partitionId, 1);
+        m_es = ExportWorkerPool.instance().newSourceExecutor(m_tableName, m_partitionId);
     }
 
     public ExportDataSource(Generation generation, File adFile) throws IOException {
@@ -256,7 +255,7 @@ public class ExportDataSource implements Comparable<ExportDataSource> {
         m_isInCatalog = false;
         m_eos = false;
         m_client = null;
-        m_es = CoreUtils.getListeningExecutorService("ExportDataSource for table " + m_tableName + " partition " + m_partitionId, 1);
+        m_es = ExportWorkerPool.instance().newSourceExecutor(m_tableName, m_partitionId);
     }
 
     public void markInCatalog() {
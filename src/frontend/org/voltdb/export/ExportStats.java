@@ -0,0 +1,100 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.export;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.export.ExportWorkerPool.SourceExecutor;
+
+/**
+ * Work queued for each export data source on the shared export worker pool,
+ * reported by @Statistics EXPORT. MAX_QUEUE_DEPTH and TASKS_COMPLETED cover
+ * the time since the last interval collection for interval requests.
+ */
+public class ExportStats extends StatsSource {
+
+    public enum StatName {
+        SOURCE,
+        PARTITION_ID,
+        WORKER_THREADS,
+        QUEUE_DEPTH,
+        MAX_QUEUE_DEPTH,
+        TASKS_COMPLETED
+    };
+
+    private final ExportWorkerPool m_pool;
+    private boolean m_interval = false;
+    private Map<SourceExecutor, Long> m_lastCompleted = new HashMap<>();
+    private Map<SourceExecutor, Long> m_nextCompleted = new HashMap<>();
+
+    public ExportStats(ExportWorkerPool pool) {
+        super(false);
+        m_pool = pool;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(StatName.SOURCE.name(), VoltType.STRING));
+        columns.add(new ColumnInfo(StatName.PARTITION_ID.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.WORKER_THREADS.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.QUEUE_DEPTH.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.MAX_QUEUE_DEPTH.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.TASKS_COMPLETED.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        SourceExecutor source = (SourceExecutor) rowKey;
+        long completed = source.getCompletedTasks();
+        rowValues[columnNameToIndex.get(StatName.SOURCE.name())] = source.m_tableName;
+        rowValues[columnNameToIndex.get(StatName.PARTITION_ID.name())] = source.m_partitionId;
+        rowValues[columnNameToIndex.get(StatName.WORKER_THREADS.name())] = m_pool.getThreadCount();
+        rowValues[columnNameToIndex.get(StatName.QUEUE_DEPTH.name())] = source.getQueueDepth();
+        rowValues[columnNameToIndex.get(StatName.MAX_QUEUE_DEPTH.name())] = source.getMaxQueueDepth();
+        if (m_interval) {
+            Long last = m_lastCompleted.get(source);
+            rowValues[columnNameToIndex.get(StatName.TASKS_COMPLETED.name())] = completed - (last == null ? 0 : last);
+            m_nextCompleted.put(source, completed);
+            source.resetMaxQueueDepth();
+        }
+        else {
+            rowValues[columnNameToIndex.get(StatName.TASKS_COMPLETED.name())] = completed;
+        }
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        if (interval) {
+            // Only remember the sources seen in this collection, so terminated ones are dropped
+            Map<SourceExecutor, Long> last = m_lastCompleted;
+            m_lastCompleted = m_nextCompleted;
+            m_nextCompleted = last;
+            m_nextCompleted.clear();
+        }
+        return new ArrayList<Object>(m_pool.getSourceExecutors()).iterator();
+    }
+}
@@ -0,0 +1,221 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.export;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.QueueWaiter;
+
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
+
+/**
+ * Runs the work of every export data source on the host on a shared pool of
+ * EXPORT_WORKER_THREADS threads instead of a thread per source. Each source gets
+ * its own executor that runs its tasks one at a time in submission order, and only
+ * occupies a pool thread while it has tasks queued. A source hands its thread back
+ * after a batch of tasks so busy sources can't starve the others.
+ */
+public class ExportWorkerPool {
+
+    private static final VoltLogger exportLog = new VoltLogger("EXPORT");
+
+    static final int THREADS = Integer.getInteger("EXPORT_WORKER_THREADS",
+            Math.max(2, CoreUtils.availableProcessors() / 2));
+    // Tasks a source runs before going to the back of the pool's queue
+    static final int BATCH_SIZE = 64;
+
+    private static ExportWorkerPool s_instance = null;
+
+    private final int m_threads;
+    private final ExecutorService m_workers;
+    private final Set<SourceExecutor> m_sources =
+            Collections.newSetFromMap(new ConcurrentHashMap<SourceExecutor, Boolean>());
+
+    public static synchronized ExportWorkerPool instance() {
+        if (s_instance == null) {
+            s_instance = new ExportWorkerPool(THREADS);
+        }
+        return s_instance;
+    }
+
+    ExportWorkerPool(int threads) {
+        m_threads = threads;
+        m_workers = CoreUtils.getListeningExecutorService("Export Worker", threads,
+                new QueueWaiter.SharedQueue<Runnable>(QueueWaiter.Component.EXPORT), null);
+    }
+
+    public int getThreadCount() {
+        return m_threads;
+    }
+
+    /**
+     * @return an executor that runs the tasks of one source in order on the pool
+     */
+    public ListeningExecutorService newSourceExecutor(String tableName, int partitionId) {
+        SourceExecutor executor = new SourceExecutor(tableName, partitionId);
+        m_sources.add(executor);
+        return MoreExecutors.listeningDecorator(executor);
+    }
+
+    /**
+     * @return the executors of the sources that haven't terminated, for ExportStats
+     */
+    Collection<SourceExecutor> getSourceExecutors() {
+        return new ArrayList<>(m_sources);
+    }
+
+    void shutdown() {
+        m_workers.shutdown();
+    }
+
+    class SourceExecutor extends AbstractExecutorService {
+        final String m_tableName;
+        final int m_partitionId;
+
+        private final ConcurrentLinkedQueue<Runnable> m_tasks = new ConcurrentLinkedQueue<>();
+        // Tasks queued or running, the source is on the pool while this is above zero
+        private final AtomicInteger m_pending = new AtomicInteger();
+        private final AtomicLong m_completed = new AtomicLong();
+        private final CountDownLatch m_terminated = new CountDownLatch(1);
+        private volatile boolean m_shutdown = false;
+        private volatile int m_maxPending = 0;
+
+        private final Runnable m_drain = new Runnable() {
+            @Override
+            public void run() {
+                int ran = 0;
+                while (true) {
+                    Runnable task = m_tasks.poll();
+                    if (task != null) {
+                        try {
+                            task.run();
+                        } catch (Throwable t) {
+                            exportLog.error("Unexpected error running export task for table " + m_tableName
+                                    + " partition " + m_partitionId, t);
+                        }
+                        m_completed.incrementAndGet();
+                    }
+                    if (m_pending.decrementAndGet() == 0) {
+                        if (m_shutdown) {
+                            terminate();
+                        }
+                        return;
+                    }
+                    if (++ran >= BATCH_SIZE) {
+                        m_workers.execute(this);
+                        return;
+                    }
+                }
+            }
+        };
+
+        SourceExecutor(String tableName, int partitionId) {
+            m_tableName = tableName;
+            m_partitionId = partitionId;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (m_shutdown) {
+                throw new RejectedExecutionException("Export executor for table " + m_tableName
+                        + " partition " + m_partitionId + " is shut down");
+            }
+            m_tasks.add(task);
+            final int pending = m_pending.incrementAndGet();
+            if (pending > m_maxPending) {
+                m_maxPending = pending;
+            }
+            if (pending == 1) {
+                m_workers.execute(m_drain);
+            }
+        }
+
+        private void terminate() {
+            if (m_terminated.getCount() > 0) {
+                m_sources.remove(this);
+                m_terminated.countDown();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            m_shutdown = true;
+            if (m_pending.get() == 0) {
+                terminate();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown();
+            List<Runnable> dropped = new ArrayList<>();
+            Runnable task;
+            while ((task = m_tasks.poll()) != null) {
+                dropped.add(task);
+            }
+            return dropped;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return m_shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return m_terminated.getCount() == 0;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return m_terminated.await(timeout, unit);
+        }
+
+        int getQueueDepth() {
+            return m_pending.get();
+        }
+
+        int getMaxQueueDepth() {
+            return m_maxPending;
+        }
+
+        void resetMaxQueueDepth() {
+            m_maxPending = m_pending.get();
+        }
+
+        long getCompletedTasks() {
+            return m_completed.get();
+        }
+    }
+}
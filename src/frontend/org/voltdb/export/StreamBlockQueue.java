@@ -46,6 +46,11 @@ public class StreamBlockQueue {
 
     private static final VoltLogger exportLog = new VoltLogger("EXPORT");
 
+    /**
+     * Read overflow segments through a memory mapping when catching up on a backlog
+     */
+    private static final boolean MAPPED_READS = Boolean.valueOf(System.getProperty("EXPORT_PBD_MAPPED_READS", "true"));
+
     /**
      * Deque containing reference to stream blocks that are in memory. Some of these
      * stream blocks may still be persisted to disk others are stored completely in memory
@@ -62,7 +67,9 @@ public class StreamBlockQueue {
     private final BinaryDequeReader m_reader;
 
     public StreamBlockQueue(String path, String nonce) throws java.io.IOException {
-        m_persistentDeque = new PersistentBinaryDeque( nonce, new VoltFile(path), exportLog);
+        PersistentBinaryDeque pbd = new PersistentBinaryDeque( nonce, new VoltFile(path), exportLog);
+        pbd.setMappedReads(MAPPED_READS);
+        m_persistentDeque = pbd;
         m_path = path;
         m_nonce = nonce;
         m_reader = m_persistentDeque.openForRead(m_nonce);
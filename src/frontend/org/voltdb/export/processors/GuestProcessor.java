@@ -44,6 +44,7 @@ import org.voltdb.exportclient.ExportClientBase;
 import org.voltdb.exportclient.ExportDecoderBase;
 import org.voltdb.exportclient.ExportDecoderBase.RestartBlockException;
 import org.voltdb.exportclient.ExportRow;
+import org.voltdb.exportclient.ExportRowView;
 
 import com.google_voltpatches.common.base.Preconditions;
 import com.google_voltpatches.common.base.Throwables;
@@ -356,6 +357,22 @@ public class GuestProcessor implements ExportDataProcessor {
                                 final ByteBuffer buf = cont.b();
                                 buf.position(startPosition);
                                 buf.order(ByteOrder.LITTLE_ENDIAN);
+                                if (!edb.isLegacy()) {
+                                    final ExportRowView rows = edb.getRowView();
+                                    rows.reset(buf);
+                                    boolean processed;
+                                    try {
+                                        processed = edb.processBlock(rows);
+                                    } catch (IOException ioe) {
+                                        m_logger.warn("Failed decoding row for partition" + source.getPartitionId() + ". " + ioe.getMessage());
+                                        processed = true;
+                                    }
+                                    if (processed) {
+                                        cont.discard();
+                                        cont = null;
+                                        break;
+                                    }
+                                }
                                 long generation = -1L;
                                 ExportRow row = null;
                                 while (buf.hasRemaining() && !m_shutdown) {
@@ -83,6 +83,8 @@ public abstract class ExportDecoderBase {
 
     //Used by new style connector to pickup schema information from previous record.
     ExportRow m_previousRow;
+    //Reused for every block passed to processBlock
+    private ExportRowView m_rowView = null;
     public ExportDecoderBase(AdvertisedDataSource ads) {
         m_source = ads;
         m_startTS = System.currentTimeMillis();
@@ -223,6 +225,22 @@ public abstract class ExportDecoderBase {
         throw new UnsupportedOperationException("processRow must be implemented.");
     }
 
+    /**
+     * Process a whole block of rows through a view over the block, without decoding
+     * each row into an ExportRow. Overridden by decoders that only need a few columns
+     * or the encoded rows. The hooks for row and block processing aren't called for
+     * a block this returns true for, and a RestartBlockException restarts the block
+     * from its first row, as usual.
+     *
+     * @param rows view positioned before the first row of the block
+     * @return false to have the rows of the block passed to processRow instead
+     * @throws org.voltdb.exportclient.ExportDecoderBase.RestartBlockException
+     * @throws IOException if a row can't be decoded
+     */
+    public boolean processBlock(ExportRowView rows) throws RestartBlockException, IOException {
+        return false;
+    }
+
     abstract public void sourceNoLongerAdvertised(AdvertisedDataSource source);
 
     /**
@@ -267,6 +285,13 @@ public abstract class ExportDecoderBase {
         return m_partition;
     }
 
+    public ExportRowView getRowView() {
+        if (m_rowView == null) {
+            m_rowView = new ExportRowView(m_partition);
+        }
+        return m_rowView;
+    }
+
     public void setLegacy(boolean legacy) {
         m_legacy = legacy;
     }
@@ -0,0 +1,387 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.exportclient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.voltdb.VoltType;
+import org.voltdb.compiler.DDLCompiler;
+import org.voltdb.types.GeographyPointValue;
+import org.voltdb.types.GeographyValue;
+import org.voltdb.types.TimestampType;
+
+import com.google_voltpatches.common.base.Charsets;
+
+/**
+ * A reusable view over the rows of an export block, for decoders that implement
+ * {@link ExportDecoderBase#processBlock(ExportRowView)}. Unlike
+ * {@link ExportRow#decodeRow}, moving to the next row only records where each
+ * column starts; nothing is copied out of the block or boxed unless a getter
+ * that returns an object is called.
+ *
+ * The view, and the buffers and arrays it hands out, are only valid until the
+ * next call to {@link #next()} or {@link #reset(ByteBuffer)}.
+ */
+public class ExportRowView {
+
+    private final int m_partitionId;
+
+    private ByteBuffer m_block;
+    // Shared by getBytes() and getRowBytes() so that neither allocates
+    private ByteBuffer m_slice;
+    private int m_nextRow;
+    private int m_rowStart;
+    private int m_rowEnd;
+
+    // Schema of the current row, carried over from the last row that had one
+    private String m_tableName;
+    private List<String> m_names;
+    private List<VoltType> m_types;
+    private List<Integer> m_lengths;
+
+    private long m_generation;
+    private int m_partitionColIndex;
+    private int m_columnCount;
+    // Offset of each column in the block, -1 if it is null
+    private int[] m_offsets = new int[0];
+    private Object[] m_values = null;
+
+    public ExportRowView(int partitionId) {
+        m_partitionId = partitionId;
+    }
+
+    /**
+     * Point the view at a block, before its first row. The block is read from its
+     * current position to its limit and the position is left unchanged.
+     */
+    public void reset(ByteBuffer block) {
+        m_block = block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        m_slice = block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        m_nextRow = block.position();
+        m_rowStart = m_rowEnd = m_nextRow;
+    }
+
+    /**
+     * Move to the next row of the block.
+     *
+     * @return false if there are no more rows
+     * @throws IOException if the row can't be decoded
+     */
+    public boolean next() throws IOException {
+        if (m_block == null || m_nextRow >= m_block.limit()) {
+            return false;
+        }
+        final int length = m_block.getInt(m_nextRow);
+        m_rowStart = m_nextRow + 4;
+        m_rowEnd = m_rowStart + length;
+        if (length < 0 || m_rowEnd > m_block.limit()) {
+            throw new IOException("Export row of " + length + " bytes overruns its block.");
+        }
+        m_nextRow = m_rowEnd;
+
+        final ByteBuffer bb = m_block;
+        bb.position(m_rowStart);
+        m_generation = bb.getLong();
+        m_partitionColIndex = bb.getInt();
+        final int columnCount = bb.getInt();
+        final byte hasSchema = bb.get();
+        assert(columnCount <= DDLCompiler.MAX_COLUMNS);
+        final int nullFlags = bb.position();
+        bb.position(nullFlags + ((columnCount + 7) >> 3));
+
+        if (hasSchema == 1) {
+            m_tableName = readString(bb);
+            m_names = new ArrayList<>(columnCount);
+            m_types = new ArrayList<>(columnCount);
+            m_lengths = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                m_names.add(readString(bb));
+                m_types.add(VoltType.get(bb.get()));
+                m_lengths.add(bb.getInt());
+            }
+        } else if (m_types == null) {
+            throw new IOException("Export block with no schema found without prior block with schema.");
+        }
+
+        if (m_columnCount != m_types.size() || m_values == null) {
+            m_columnCount = m_types.size();
+            m_offsets = new int[m_columnCount];
+            m_values = new Object[m_columnCount];
+        }
+        for (int i = 0; i < m_columnCount; i++) {
+            byte flags = bb.get(nullFlags + (i >> 3));
+            if ((flags & (0x80 >>> (i & 7))) != 0) {
+                m_offsets[i] = -1;
+            } else {
+                final int offset = bb.position();
+                m_offsets[i] = offset;
+                bb.position(offset + valueLength(bb, offset, m_types.get(i)));
+            }
+        }
+        if (bb.position() > m_rowEnd) {
+            throw new IOException("Export row columns overrun the row length " + length + ".");
+        }
+        return true;
+    }
+
+    private static int valueLength(ByteBuffer bb, int offset, VoltType type) throws IOException {
+        switch (type) {
+        case TINYINT:
+            return 1;
+        case SMALLINT:
+            return 2;
+        case INTEGER:
+            return 4;
+        case BIGINT:
+        case FLOAT:
+        case TIMESTAMP:
+            return 8;
+        case DECIMAL:
+            // scale, precision byte count, then the unscaled value
+            return 2 + bb.get(offset + 1);
+        case GEOGRAPHY_POINT:
+            return GeographyPointValue.getLengthInBytes();
+        case STRING:
+        case VARBINARY:
+        case GEOGRAPHY:
+            return 4 + bb.getInt(offset);
+        default:
+            throw new IOException("Invalid column type: " + type);
+        }
+    }
+
+    private static String readString(ByteBuffer bb) {
+        final byte[] bytes = new byte[bb.getInt()];
+        bb.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    public String getTableName() {
+        return m_tableName;
+    }
+
+    public List<String> getColumnNames() {
+        return m_names;
+    }
+
+    public List<VoltType> getColumnTypes() {
+        return m_types;
+    }
+
+    public List<Integer> getColumnLengths() {
+        return m_lengths;
+    }
+
+    public int getColumnCount() {
+        return m_columnCount;
+    }
+
+    public long getGeneration() {
+        return m_generation;
+    }
+
+    public int getPartitionColIndex() {
+        return m_partitionColIndex;
+    }
+
+    public int getPartitionId() {
+        return m_partitionId;
+    }
+
+    public boolean isNull(int col) {
+        return m_offsets[col] < 0;
+    }
+
+    private int offset(int col) {
+        final int offset = m_offsets[col];
+        if (offset < 0) {
+            throw new IllegalStateException("Column " + col + " is null.");
+        }
+        return offset;
+    }
+
+    private IllegalArgumentException wrongType(int col, String expected) {
+        return new IllegalArgumentException("Column " + col + " of type " + m_types.get(col) + " is not " + expected + ".");
+    }
+
+    /**
+     * @return the value of an integer or timestamp column, timestamps in microseconds
+     */
+    public long getLong(int col) {
+        final int offset = offset(col);
+        switch (m_types.get(col)) {
+        case TINYINT:
+            return m_block.get(offset);
+        case SMALLINT:
+            return m_block.getShort(offset);
+        case INTEGER:
+            return m_block.getInt(offset);
+        case BIGINT:
+        case TIMESTAMP:
+            return m_block.getLong(offset);
+        default:
+            throw wrongType(col, "an integer or a timestamp");
+        }
+    }
+
+    public double getDouble(int col) {
+        if (m_types.get(col) != VoltType.FLOAT) {
+            throw wrongType(col, "a float");
+        }
+        return m_block.getDouble(offset(col));
+    }
+
+    /**
+     * @return the bytes of a string, varbinary or geography column, in a buffer
+     *         shared with {@link #getRowBytes()} and the other calls to this method
+     */
+    public ByteBuffer getBytes(int col) {
+        switch (m_types.get(col)) {
+        case STRING:
+        case VARBINARY:
+        case GEOGRAPHY:
+            final int offset = offset(col);
+            m_slice.limit(m_block.capacity());
+            m_slice.position(offset + 4);
+            m_slice.limit(offset + 4 + m_block.getInt(offset));
+            return m_slice;
+        default:
+            throw wrongType(col, "a string, varbinary or geography");
+        }
+    }
+
+    /**
+     * @return the UTF-8 bytes of a string column, see {@link #getBytes(int)}
+     */
+    public ByteBuffer getStringBytes(int col) {
+        if (m_types.get(col) != VoltType.STRING) {
+            throw wrongType(col, "a string");
+        }
+        return getBytes(col);
+    }
+
+    /**
+     * @return the encoded row, without its length, in the format {@link ExportRow#decodeRow}
+     *         reads, in a buffer shared with {@link #getBytes(int)}
+     */
+    public ByteBuffer getRowBytes() {
+        m_slice.limit(m_block.capacity());
+        m_slice.position(m_rowStart);
+        m_slice.limit(m_rowEnd);
+        return m_slice;
+    }
+
+    public String getString(int col) {
+        if (isNull(col)) {
+            return null;
+        }
+        final ByteBuffer bytes = getStringBytes(col);
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), Charsets.UTF_8);
+        }
+        final byte[] copy = new byte[bytes.remaining()];
+        bytes.get(copy);
+        return new String(copy, Charsets.UTF_8);
+    }
+
+    /**
+     * @return the value of a column boxed the same way {@link ExportRow#decodeRow} does, or null
+     */
+    public Object getObject(int col) {
+        if (isNull(col)) {
+            return null;
+        }
+        final int offset = m_offsets[col];
+        switch (m_types.get(col)) {
+        case TINYINT:
+            return m_block.get(offset);
+        case SMALLINT:
+            return m_block.getShort(offset);
+        case INTEGER:
+            return m_block.getInt(offset);
+        case BIGINT:
+            return m_block.getLong(offset);
+        case FLOAT:
+            return m_block.getDouble(offset);
+        case TIMESTAMP:
+            return new TimestampType(m_block.getLong(offset));
+        case STRING:
+            return getString(col);
+        case VARBINARY: {
+            final ByteBuffer bytes = getBytes(col);
+            final byte[] data = new byte[bytes.remaining()];
+            bytes.get(data);
+            return data;
+        }
+        case DECIMAL: {
+            final byte[] bytes = new byte[m_block.get(offset + 1)];
+            m_slice.limit(m_block.capacity());
+            m_slice.position(offset + 2);
+            m_slice.get(bytes);
+            return new BigDecimal(new BigInteger(bytes), m_block.get(offset));
+        }
+        case GEOGRAPHY_POINT:
+            return GeographyPointValue.unflattenFromBuffer(m_block, offset);
+        case GEOGRAPHY:
+            return GeographyValue.unflattenFromBuffer(m_block, offset + 4);
+        default:
+            throw new IllegalStateException("Invalid column type: " + m_types.get(col));
+        }
+    }
+
+    /**
+     * Box every column of the row into an array reused for each row of the same schema
+     */
+    public Object[] getValues() {
+        for (int i = 0; i < m_columnCount; i++) {
+            m_values[i] = getObject(i);
+        }
+        return m_values;
+    }
+
+    /**
+     * @return the value of the partitioning column, or the partition id if it is null
+     */
+    public Object getPartitionValue() {
+        Object pval = null;
+        if (m_partitionColIndex >= 0 && m_partitionColIndex < m_columnCount) {
+            pval = getObject(m_partitionColIndex);
+        }
+        return pval == null ? m_partitionId : pval;
+    }
+
+    /**
+     * Copy the row out of the block, for decoders that need to keep it
+     */
+    public ExportRow toExportRow() {
+        final Object[] values = Arrays.copyOf(getValues(), m_columnCount);
+        Object pval = null;
+        if (m_partitionColIndex >= 0 && m_partitionColIndex < m_columnCount) {
+            pval = values[m_partitionColIndex];
+        }
+        return new ExportRow(m_tableName, m_names, m_types, m_lengths, values,
+                pval == null ? m_partitionId : pval, m_partitionColIndex, m_partitionId, m_generation);
+    }
+}
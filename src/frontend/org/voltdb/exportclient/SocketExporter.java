@@ -19,6 +19,7 @@
 
 package org.voltdb.exportclient;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.Socket;
@@ -175,6 +176,7 @@ public class SocketExporter extends ExportClientBase {
         long totalDecodeTime = 0;
         long timerStart = 0;
         final CSVStringDecoder m_decoder;
+        final ByteArrayOutputStream m_blockBuffer = new ByteArrayOutputStream();
 
         @Override
         public ListeningExecutorService getExecutor() {
@@ -240,6 +242,39 @@ public class SocketExporter extends ExportClientBase {
             return true;
         }
 
+        /**
+         * Encode the whole block and write it to each endpoint at once, instead of
+         * writing and flushing every row.
+         */
+        @Override
+        public boolean processBlock(ExportRowView rows) throws RestartBlockException, IOException {
+            m_blockBuffer.reset();
+            while (rows.next()) {
+                String decoded = m_decoder.decode(rows.getGeneration(), rows.getTableName(), rows.getColumnTypes(),
+                        rows.getColumnNames(), null, rows.getValues());
+                m_blockBuffer.write(decoded.getBytes());
+                m_blockBuffer.write('\n');
+            }
+            try {
+                if (haplist.isEmpty()) {
+                    connect();
+                }
+                if (haplist.isEmpty()) {
+                    m_logger.rateLimitedLog(120, Level.ERROR, null, "Failed to connect to export socket endpoint %s, some servers may be down.", host);
+                    throw new RestartBlockException(true);
+                }
+                for (OutputStream hap : haplist.values()) {
+                    m_blockBuffer.writeTo(hap);
+                    hap.flush();
+                }
+            } catch (Exception e) {
+                m_logger.error(e.getLocalizedMessage());
+                haplist.clear();
+                throw new RestartBlockException(true);
+            }
+            return true;
+        }
+
         @Override
         public void onBlockCompletion(ExportRow row) {
             try {
@@ -17,6 +17,7 @@
 
 package org.voltdb.exportclient.kafka;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,7 @@ import org.voltdb.exportclient.ExportClientLogger;
 import org.voltdb.exportclient.ExportDecoderBase;
 import org.voltdb.exportclient.ExportDecoderBase.BinaryEncoding;
 import org.voltdb.exportclient.ExportRow;
+import org.voltdb.exportclient.ExportRowView;
 import org.voltdb.exportclient.decode.CSVStringDecoder;
 
 import com.google_voltpatches.common.base.Splitter;
@@ -362,6 +364,19 @@ public class KafkaExportClient extends ExportClientBase {
             if (m_topic == null) populateTopic(row.tableName);
         }
 
+        @Override
+        public boolean processBlock(ExportRowView rows) throws RestartBlockException, IOException {
+            if (!m_primed) checkOnFirstRow();
+            while (rows.next()) {
+                if (m_topic == null) populateTopic(rows.getTableName());
+                String decoded = m_decoder.decode(rows.getGeneration(), rows.getTableName(), rows.getColumnTypes(),
+                        rows.getColumnNames(), null, rows.getValues());
+                send(rows.getPartitionValue().toString(), decoded);
+            }
+            onBlockCompletion(null);
+            return true;
+        }
+
         @Override
         public boolean processRow(ExportRow rd) throws RestartBlockException {
             if (!m_primed) checkOnFirstRow();
@@ -370,6 +385,11 @@ public class KafkaExportClient extends ExportClientBase {
             //Use partition value by default if its null use partition id.
             //partition value will be null only if partition column is overridden table.column and is nullable
             String pval = (rd.partitionValue == null) ? String.valueOf(rd.partitionId) : rd.partitionValue.toString();
+            send(pval, decoded);
+            return true;
+        }
+
+        private void send(String pval, String decoded) throws RestartBlockException {
             ProducerRecord<String, String> krec = new ProducerRecord<String, String>(m_topic, pval, decoded);
             try {
                 m_futures.add(m_producer.send(krec, new Callback() {
@@ -391,7 +411,6 @@ public class KafkaExportClient extends ExportClientBase {
                 m_primed = false;
                 throw new RestartBlockException("Unable to send message", e, true);
             }
-            return true;
         }
 
         @Override
@@ -59,7 +59,7 @@ public abstract class BaseInitiator implements Initiator
     protected Term m_term = null;
     protected Site m_executionSite = null;
     protected Thread m_siteThread = null;
-    protected final RepairLog m_repairLog = new RepairLog();
+    protected final RepairLog m_repairLog = new RepairLog(new RepairLogArena());
 
     public BaseInitiator(String zkMailboxNode, HostMessenger messenger, Integer partition,
             Scheduler scheduler, String whoamiPrefix, StatsAgent agent,
@@ -112,6 +112,10 @@ public abstract class BaseInitiator implements Initiator
         agent.registerStatsSource(StatsSelector.QUEUE,
                                   getInitiatorHSId(),
                                   qdt);
+        StageLatencyStats sls = m_scheduler.setupStageLatencyStats(getInitiatorHSId());
+        agent.registerStatsSource(StatsSelector.STAGELATENCY,
+                                  getInitiatorHSId(),
+                                  sls);
 
         String partitionString = " ";
         if (m_partitionId != -1) {
@@ -18,9 +18,10 @@
 package org.voltdb.iv2;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.voltcore.logging.VoltLogger;
-import org.voltdb.HybridCrc32;
+import org.voltdb.AcceleratedCrc32c;
 
 /**
  * This class expands the determinism hash with an array
@@ -44,6 +45,11 @@ import org.voltdb.HybridCrc32;
  *
  * Use the static helper function in this class to check two arrays and print
  * helpful output.
+ *
+ * Setting DETERMINISM_SAMPLE_RATE below 1.0 hashes only that fraction of
+ * transactions. The choice is made from the transaction id so every replica
+ * and every partition of a transaction agrees on it. A transaction that is not
+ * sampled reports UNSAMPLED as its hash count and compares equal to anything.
  */
 public class DeterminismHash {
 
@@ -57,17 +63,62 @@ public class DeterminismHash {
 
     public final static int MAX_HASHES_COUNT = Integer.getInteger("MAX_STATEMENTS_WITH_DETAIL", 32) * 2;
 
+    // hash count reported by a transaction whose statements were not hashed
+    public final static int UNSAMPLED = -1;
+
+    public final static double SAMPLE_RATE = sampleRate(System.getProperty("DETERMINISM_SAMPLE_RATE"));
+
+    // replica comparisons made by the schedulers on this host, see DeterminismStats
+    private final static LongAdder s_hashesChecked = new LongAdder();
+    private final static LongAdder s_hashesSkipped = new LongAdder();
+
     int m_catalogVersion = 0;
     int m_hashCount = 0;
+    boolean m_sampled = true;
 
     final int[] m_hashes = new int[MAX_HASHES_COUNT + HEADER_OFFSET];
 
-    protected final HybridCrc32 m_inputCRC = new HybridCrc32();
+    protected final AcceleratedCrc32c m_inputCRC = new AcceleratedCrc32c();
+
+    static double sampleRate(String value) {
+        if (value == null) {
+            return 1.0;
+        }
+        try {
+            return Math.max(0.0, Math.min(1.0, Double.parseDouble(value)));
+        } catch (NumberFormatException e) {
+            m_tmLog.warn("Ignoring invalid DETERMINISM_SAMPLE_RATE " + value);
+            return 1.0;
+        }
+    }
+
+    /**
+     * Whether a transaction's statements are hashed at the given sample rate.
+     * Only depends on the transaction id, so all replicas make the same choice.
+     */
+    public static boolean isSampled(long txnId, double rate) {
+        if (rate >= 1.0) {
+            return true;
+        }
+        long h = txnId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (h >>> 11) * 0x1.0p-53 < rate;
+    }
 
     public void reset(int catalogVersion) {
         m_catalogVersion = catalogVersion;
         m_inputCRC.reset();
         m_hashCount = 0;
+        m_sampled = true;
+    }
+
+    public void reset(int catalogVersion, long txnId) {
+        reset(catalogVersion);
+        m_sampled = isSampled(txnId, SAMPLE_RATE);
     }
 
     /**
@@ -75,13 +126,16 @@ public class DeterminismHash {
      * hash for the first int value in the array.
      */
     public int[] get() {
+        if (!m_sampled) {
+            return new int[] { 0, m_catalogVersion, UNSAMPLED };
+        }
         int includedHashes = Math.min(m_hashCount, MAX_HASHES_COUNT);
         int[] retval = new int[includedHashes + HEADER_OFFSET];
         System.arraycopy(m_hashes, 0, retval, HEADER_OFFSET, includedHashes);
 
-        m_inputCRC.update(m_hashCount);
-        m_inputCRC.update(m_catalogVersion);
-        retval[0] = (int) m_inputCRC.getValue();
+        m_inputCRC.updateInt(m_hashCount);
+        m_inputCRC.updateInt(m_catalogVersion);
+        retval[0] = m_inputCRC.getValue();
         retval[1] = m_catalogVersion;
         retval[2] = m_hashCount;
         return retval;
@@ -92,12 +146,15 @@ public class DeterminismHash {
      * if the size isn't too large.
      */
     public void offerStatement(int stmtHash, int offset, ByteBuffer psetBuffer) {
-        m_inputCRC.update(stmtHash);
+        if (!m_sampled) {
+            return;
+        }
+        m_inputCRC.updateInt(stmtHash);
         m_inputCRC.updateFromPosition(offset, psetBuffer);
 
         if (m_hashCount < MAX_HASHES_COUNT) {
             m_hashes[m_hashCount] = stmtHash;
-            m_hashes[m_hashCount + 1] = (int) m_inputCRC.getValue();
+            m_hashes[m_hashCount + 1] = m_inputCRC.getValue();
         }
         m_hashCount += 2;
     }
@@ -105,7 +162,8 @@ public class DeterminismHash {
     /**
      * Compare two hash arrays return true if the same.
      *
-     * For now, just compares first integer value in array.
+     * For now, just compares first integer value in array. A side that was
+     * not sampled matches anything.
      */
     public static boolean compareHashes(int[] leftHashes, int[] rightHashes) {
         assert(leftHashes != null);
@@ -113,9 +171,35 @@ public class DeterminismHash {
         assert(leftHashes.length >= 3);
         assert(rightHashes.length >= 3);
 
+        if (!isSampled(leftHashes) || !isSampled(rightHashes)) {
+            return true;
+        }
         return leftHashes[0] == rightHashes[0];
     }
 
+    public static boolean isSampled(int[] hashes) {
+        return hashes[2] != UNSAMPLED;
+    }
+
+    /**
+     * Count a comparison of replica responses for DeterminismStats
+     */
+    public static void recordComparison(int[] leftHashes, int[] rightHashes) {
+        if (!isSampled(leftHashes) || !isSampled(rightHashes)) {
+            s_hashesSkipped.increment();
+            return;
+        }
+        s_hashesChecked.increment();
+    }
+
+    public static long getHashesChecked() {
+        return s_hashesChecked.sum();
+    }
+
+    public static long getHashesSkipped() {
+        return s_hashesSkipped.sum();
+    }
+
     /**
      * Log the contents of the hash array
      */
@@ -124,6 +208,10 @@ public class DeterminismHash {
         assert(hashes.length >= 3);
         StringBuilder sb = new StringBuilder();
 
+        if (!isSampled(hashes)) {
+            sb.append("Not Sampled, Catalog Version ").append(hashes[1]);
+            return sb.toString();
+        }
         sb.append("Full Hash ").append(hashes[0]);
         sb.append(", Catalog Version ").append(hashes[1]);
         sb.append(", Statement Count ").append(hashes[2] / 2);
@@ -0,0 +1,96 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Replica determinism hash comparisons made on this host. HASHES_SKIPPED counts
+ * comparisons where a transaction was not sampled, see DETERMINISM_SAMPLE_RATE.
+ */
+public class DeterminismStats extends StatsSource {
+
+    private long m_lastChecked = 0;
+    private long m_lastSkipped = 0;
+
+    private boolean m_intervalCollection = false;
+
+    public DeterminismStats() {
+        super(false);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_intervalCollection = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("SAMPLE_RATE", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("HASHES_CHECKED", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("HASHES_SKIPPED", VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        long checked = DeterminismHash.getHashesChecked();
+        long skipped = DeterminismHash.getHashesSkipped();
+        rowValues[columnNameToIndex.get("SAMPLE_RATE")] = DeterminismHash.SAMPLE_RATE;
+        if (m_intervalCollection) {
+            rowValues[columnNameToIndex.get("HASHES_CHECKED")] = checked - m_lastChecked;
+            rowValues[columnNameToIndex.get("HASHES_SKIPPED")] = skipped - m_lastSkipped;
+            m_lastChecked = checked;
+            m_lastSkipped = skipped;
+        }
+        else {
+            rowValues[columnNameToIndex.get("HASHES_CHECKED")] = checked;
+            rowValues[columnNameToIndex.get("HASHES_SKIPPED")] = skipped;
+        }
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
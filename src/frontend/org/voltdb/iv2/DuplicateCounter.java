@@ -57,6 +57,9 @@ public class DuplicateCounter
     final List<Long> m_expectedHSIds;
     final long m_txnId;
     final VoltMessage m_openMessage;
+    // set by the SpScheduler to time the wait for the slowest replica
+    StageLatencyStats m_stageLatencyStats = null;
+    long m_firstResponseTime = 0;
 
     DuplicateCounter(
             long destinationHSId,
@@ -135,6 +138,15 @@ public class DuplicateCounter
         return "UNKNOWN_PROCEDURE_NAME";
     }
 
+    private boolean compareAndRecord(int[] hashes) {
+        boolean matched = DeterminismHash.compareHashes(m_responseHashes, hashes);
+        // fragment responses carry no hashes, don't count them
+        if (hashes != ZERO_HASHES) {
+            DeterminismHash.recordComparison(m_responseHashes, hashes);
+        }
+        return matched;
+    }
+
     protected int checkCommon(int[] hashes, boolean rejoining, VoltTable resultTables[], VoltMessage message, boolean txnSucceed)
     {
         if (!rejoining) {
@@ -142,7 +154,7 @@ public class DuplicateCounter
                 m_responseHashes = hashes;
                 m_txnSucceed = txnSucceed;
             }
-            else if (!DeterminismHash.compareHashes(m_responseHashes, hashes)) {
+            else if (!compareAndRecord(hashes)) {
                 tmLog.fatal("Stored procedure " + getStoredProcedureName()
                         + " generated different SQL queries at different partitions."
                         + " Shutting down to preserve data integrity.");
@@ -173,9 +185,15 @@ public class DuplicateCounter
 
         m_expectedHSIds.remove(message.m_sourceHSId);
         if (m_expectedHSIds.size() == 0) {
+            if (m_stageLatencyStats != null && m_firstResponseTime != 0) {
+                m_stageLatencyStats.record(StageLatencyStats.Stage.REPLICA_ACK, System.nanoTime() - m_firstResponseTime);
+            }
             return DONE;
         }
         else {
+            if (m_stageLatencyStats != null && m_firstResponseTime == 0) {
+                m_firstResponseTime = System.nanoTime();
+            }
             return WAITING;
         }
     }
@@ -419,6 +419,11 @@ public class InitiatorMailbox implements Mailbox
             return false;
         }
 
+        // Reads routed to a replica run here regardless of leadership, see ReplicaReadConsistency
+        if (message.isReplicaRead()) {
+            return false;
+        }
+
         if (m_scheduler.isLeader() && m_migratePartitionLeaderStatus != MigratePartitionLeaderStatus.TXN_RESTART) {
             //At this point, the message is sent to partition leader
             return false;
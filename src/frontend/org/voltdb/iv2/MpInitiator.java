@@ -20,6 +20,7 @@ package org.voltdb.iv2;
 import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.zookeeper_voltpatches.KeeperException;
 import org.apache.zookeeper_voltpatches.ZooKeeper;
@@ -33,6 +34,7 @@ import org.voltdb.ProducerDRGateway;
 import org.voltdb.Promotable;
 import org.voltdb.StartAction;
 import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltZK;
 import org.voltdb.iv2.RepairAlgo.RepairResult;
@@ -90,6 +92,15 @@ public class MpInitiator extends BaseInitiator implements Promotable
                 m_partitionId,
                 m_initiatorMailbox);
         sched.setMpRoSitePool(sitePool);
+        agent.registerStatsSource(StatsSelector.MPREADPOOL,
+                                  getInitiatorHSId(),
+                                  new MpRoSitePoolStats(getInitiatorHSId(), sitePool));
+        // Retire idle read sites at a fraction of the idle timeout
+        long trimInterval = Math.min(sitePool.getIdleTimeoutMillis(), 10 * 1000);
+        if (trimInterval > 0) {
+            sitePool.setTrimFuture(VoltDB.instance().scheduleWork(sched::trimIdleReadSites,
+                    trimInterval, trimInterval, TimeUnit.MILLISECONDS));
+        }
 
         // add ourselves to the ephemeral node list which BabySitters will watch for this
         // partition
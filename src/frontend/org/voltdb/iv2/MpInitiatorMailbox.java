@@ -28,6 +28,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.HostMessenger;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.QueueWaiter;
 import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 
@@ -52,9 +53,10 @@ public class MpInitiatorMailbox extends InitiatorMailbox
                         @Override
                         public void run() {
                             m_taskThreadId = Thread.currentThread().getId();
+                            final QueueWaiter waiter = new QueueWaiter(QueueWaiter.Component.MP_INITIATOR);
                             while (true) {
                                 try {
-                                    m_taskQueue.take().run();
+                                    waiter.take(m_taskQueue).run();
                                 } catch (TerminateThreadException e) {
                                     break;
                                 } catch (Exception e) {
@@ -70,9 +72,10 @@ public class MpInitiatorMailbox extends InitiatorMailbox
                     new Runnable() {
                         @Override
                         public void run() {
+                            final QueueWaiter waiter = new QueueWaiter(QueueWaiter.Component.MP_INITIATOR);
                             while (true) {
                                 try {
-                                    m_sendQueue.take().run();
+                                    waiter.take(m_sendQueue).run();
                                 } catch (TerminateThreadException e) {
                                     break;
                                 } catch (Exception e) {
@@ -359,6 +359,13 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
         m_loadedProcedures = loadedProcedure;
     }
 
+    /** Switch to a new catalog, reloading the procedures in place. Runs on the site thread. */
+    void refreshCatalog(CatalogContext context)
+    {
+        m_context = context;
+        m_loadedProcedures.loadProcedures(m_context);
+    }
+
     /** Thread specific initialization */
     void initialize()
     {
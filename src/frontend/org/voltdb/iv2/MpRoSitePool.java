@@ -22,10 +22,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.BackendTarget;
@@ -37,19 +39,26 @@ import org.voltdb.StarvationTracker;
  * Provide a pool of MP Read-only sites to do MP RO work.
  * This should be owned by the MpTransactionTaskQueue and expects all operations
  * to be done while holding its lock.
+ *
+ * The pool grows on demand, one site for each read that is ready to run while no
+ * site is idle, up to the maximum size. Sites above the minimum size that sit idle
+ * longer than the idle timeout are retired by trimIdleSites(), least recently used first.
  */
 class MpRoSitePool {
     final static VoltLogger tmLog = new VoltLogger("TM");
 
     static int DEFAULT_MAX_POOL_SIZE = 20;
     static int INITIAL_POOL_SIZE = 1;
+    static long DEFAULT_IDLE_TIMEOUT_MS = 60 * 1000;
 
     class MpRoSiteContext {
         final private SiteTaskerQueue m_queue;
         final private MpRoSite m_site;
-        final private CatalogContext m_catalogContext;
+        private CatalogContext m_catalogContext;
         final private LoadedProcedureSet m_loadedProcedures;
         final private Thread m_siteThread;
+        // When the site was last returned to the idle stack
+        long m_idleSinceMillis = System.currentTimeMillis();
 
         MpRoSiteContext(long siteId, BackendTarget backend,
                 CatalogContext context, int partitionId,
@@ -81,6 +90,20 @@ class MpRoSitePool {
             return m_catalogContext.catalogVersion;
         }
 
+        /**
+         * Keep the site and its thread across a catalog update. The procedures are
+         * reloaded on the site thread before it picks up any later work.
+         */
+        void refreshCatalog(final CatalogContext context) {
+            m_catalogContext = context;
+            m_queue.offer(new SiteTasker.SiteTaskerRunnable() {
+                @Override
+                void run() {
+                    m_site.refreshCatalog(context);
+                }
+            });
+        }
+
         void shutdown() {
             m_site.startShutdown();
             // Need to unblock the site's run() loop on the take() call on the queue
@@ -110,8 +133,19 @@ class MpRoSitePool {
     private final InitiatorMailbox m_initiatorMailbox;
     private CatalogContext m_catalogContext;
     private ThreadFactory m_poolThreadFactory;
+    private final int m_minPoolSize;
     private final int m_poolSize;
+    private final long m_idleTimeoutMillis;
     private volatile boolean m_shuttingDown = false;
+    private ScheduledFuture<?> m_trimFuture = null;
+
+    // Utilization counters, read by MpRoSitePoolStats from the stats thread
+    private volatile int m_busyCount = 0;
+    private final AtomicInteger m_busyHighWater = new AtomicInteger();
+    private volatile long m_sitesCreated = 0;
+    private volatile long m_sitesRetired = 0;
+    private volatile long m_catalogRefreshes = 0;
+    private volatile long m_saturatedCount = 0;
 
     MpRoSitePool(
             long siteId,
@@ -134,21 +168,49 @@ class MpRoSitePool {
             poolSize = DEFAULT_MAX_POOL_SIZE;
         }
         m_poolSize = poolSize;
-        tmLog.info("Setting maximum size of MPI read pool to: " + m_poolSize);
+        m_minPoolSize = Math.max(0, Math.min(m_poolSize,
+                Integer.getInteger("mpiReadPoolMinSize", INITIAL_POOL_SIZE)));
+        m_idleTimeoutMillis = Long.getLong("mpiReadPoolIdleTimeoutMs", DEFAULT_IDLE_TIMEOUT_MS);
+        tmLog.info("Setting size of MPI read pool to: " + m_minPoolSize + " - " + m_poolSize +
+                (m_idleTimeoutMillis > 0 ? ", idle sites retire after " + m_idleTimeoutMillis + " ms" : ""));
 
         // Construct the initial pool
-        for (int i = 0; i < INITIAL_POOL_SIZE; i++) {
-            MpRoSiteContext site = new MpRoSiteContext(m_siteId,
-                    m_backend,
-                    m_catalogContext,
-                    m_partitionId,
-                    m_initiatorMailbox,
-                    m_poolThreadFactory);
-            m_idleSites.push(site);
-            m_allSites.add(site);
+        for (int i = 0; i < m_minPoolSize; i++) {
+            m_idleSites.push(createSite());
         }
     }
 
+    MpRoSiteContext newSiteContext()
+    {
+        return new MpRoSiteContext(m_siteId,
+                m_backend,
+                m_catalogContext,
+                m_partitionId,
+                m_initiatorMailbox,
+                m_poolThreadFactory);
+    }
+
+    private MpRoSiteContext createSite()
+    {
+        MpRoSiteContext site = newSiteContext();
+        m_allSites.add(site);
+        m_sitesCreated++;
+        return site;
+    }
+
+    private void retireSite(MpRoSiteContext site)
+    {
+        site.shutdown();
+        m_allSites.remove(site);
+        m_sitesRetired++;
+    }
+
+    private boolean isCatalogCurrent(MpRoSiteContext site)
+    {
+        return site.getCatalogCRC() == m_catalogContext.getCatalogCRC()
+                && site.getCatalogVersion() == m_catalogContext.catalogVersion;
+    }
+
     /**
      * Update the catalog
      */
@@ -159,17 +221,13 @@ class MpRoSitePool {
         }
 
         m_catalogContext = context;
-        // Wipe out all the idle sites with stale catalogs.
-        // Non-idle sites will get killed and replaced when they finish
+        // Reload the procedures of all the idle sites with stale catalogs.
+        // Non-idle sites will get refreshed when they finish
         // whatever they started before the catalog update
-        Iterator<MpRoSiteContext> siterator = m_idleSites.iterator();
-        while (siterator.hasNext()) {
-            MpRoSiteContext site = siterator.next();
-            if (site.getCatalogCRC() != m_catalogContext.getCatalogCRC()
-                    || site.getCatalogVersion() != m_catalogContext.catalogVersion) {
-                site.shutdown();
-                m_idleSites.remove(site);
-                m_allSites.remove(site);
+        for (MpRoSiteContext site : m_idleSites) {
+            if (!isCatalogCurrent(site)) {
+                site.refreshCatalog(m_catalogContext);
+                m_catalogRefreshes++;
             }
         }
     }
@@ -208,7 +266,11 @@ class MpRoSitePool {
         if (m_shuttingDown) {
             return false;
         }
-        return (!m_idleSites.isEmpty() || m_busySites.size() < m_poolSize);
+        if (!m_idleSites.isEmpty() || m_busySites.size() < m_poolSize) {
+            return true;
+        }
+        m_saturatedCount++;
+        return false;
     }
 
     /**
@@ -228,17 +290,12 @@ class MpRoSitePool {
         }
         else {
             if (m_idleSites.isEmpty()) {
-                MpRoSiteContext newSite = new MpRoSiteContext(m_siteId,
-                        m_backend,
-                        m_catalogContext,
-                        m_partitionId,
-                        m_initiatorMailbox,
-                        m_poolThreadFactory);
-                m_idleSites.push(newSite);
-                m_allSites.add(newSite);
+                m_idleSites.push(createSite());
             }
             site = m_idleSites.pop();
             m_busySites.put(txnId, site);
+            m_busyCount = m_busySites.size();
+            m_busyHighWater.accumulateAndGet(m_busyCount, Math::max);
         }
         site.offer(task);
         return true;
@@ -257,22 +314,96 @@ class MpRoSitePool {
         if (site == null) {
             throw new RuntimeException("No busy site for txnID: " + txnId + " found, shouldn't happen.");
         }
-        // check the catalog versions, only push back onto idle if the catalog hasn't changed
-        // otherwise, just let it get garbage collected and let doWork() construct new ones for the
-        // pool with the updated catalog.
-        if (site.getCatalogCRC() == m_catalogContext.getCatalogCRC()
-                && site.getCatalogVersion() == m_catalogContext.catalogVersion) {
-            m_idleSites.push(site);
+        m_busyCount = m_busySites.size();
+        // check the catalog versions, reload the procedures if the catalog changed while
+        // the site was busy so it can stay in the pool
+        if (!isCatalogCurrent(site)) {
+            site.refreshCatalog(m_catalogContext);
+            m_catalogRefreshes++;
         }
-        else {
-            site.shutdown();
-            m_allSites.remove(site);
+        site.m_idleSinceMillis = System.currentTimeMillis();
+        m_idleSites.push(site);
+    }
+
+    /**
+     * Retire the sites above the minimum pool size that have been idle longer than the
+     * idle timeout. The idle stack is LIFO, so the longest idle sites are at its bottom.
+     */
+    void trimIdleSites(long nowMillis)
+    {
+        if (m_shuttingDown || m_idleTimeoutMillis <= 0) {
+            return;
+        }
+        while (m_allSites.size() > m_minPoolSize && !m_idleSites.isEmpty()
+                && nowMillis - m_idleSites.peekLast().m_idleSinceMillis >= m_idleTimeoutMillis) {
+            retireSite(m_idleSites.pollLast());
         }
     }
 
+    long getIdleTimeoutMillis()
+    {
+        return m_idleTimeoutMillis;
+    }
+
+    void setTrimFuture(ScheduledFuture<?> trimFuture)
+    {
+        m_trimFuture = trimFuture;
+    }
+
+    int getMinPoolSize()
+    {
+        return m_minPoolSize;
+    }
+
+    int getMaxPoolSize()
+    {
+        return m_poolSize;
+    }
+
+    int getPoolSize()
+    {
+        return m_allSites.size();
+    }
+
+    int getBusyCount()
+    {
+        return m_busyCount;
+    }
+
+    /**
+     * @param reset start a new high water mark from the current busy count
+     */
+    int getBusyHighWater(boolean reset)
+    {
+        return reset ? m_busyHighWater.getAndSet(m_busyCount) : m_busyHighWater.get();
+    }
+
+    long getSitesCreated()
+    {
+        return m_sitesCreated;
+    }
+
+    long getSitesRetired()
+    {
+        return m_sitesRetired;
+    }
+
+    long getCatalogRefreshes()
+    {
+        return m_catalogRefreshes;
+    }
+
+    long getSaturatedCount()
+    {
+        return m_saturatedCount;
+    }
+
     void shutdown()
     {
         m_shuttingDown = true;
+        if (m_trimFuture != null) {
+            m_trimFuture.cancel(false);
+        }
 
         // Shutdown all, then join all, hopefully save some shutdown time for tests.
         synchronized(m_allSites) {
@@ -0,0 +1,131 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Utilization of the MP read-only site pool, reported by @Statistics MPREADPOOL.
+ * The counters are totals since startup, or since the last interval collection
+ * for interval requests.
+ */
+public class MpRoSitePoolStats extends SiteStatsSource {
+
+    public enum StatName {
+        MIN_SIZE,
+        MAX_SIZE,
+        SIZE,
+        BUSY,
+        BUSY_HIGH_WATER,
+        SITES_CREATED,
+        SITES_RETIRED,
+        CATALOG_REFRESHES,
+        SATURATED_COUNT
+    };
+
+    private final MpRoSitePool m_pool;
+    private boolean m_interval = false;
+
+    private long m_lastSitesCreated = 0;
+    private long m_lastSitesRetired = 0;
+    private long m_lastCatalogRefreshes = 0;
+    private long m_lastSaturatedCount = 0;
+
+    public MpRoSitePoolStats(long siteId, MpRoSitePool pool) {
+        super(siteId, false);
+        m_pool = pool;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(StatName.MIN_SIZE.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.MAX_SIZE.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.SIZE.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.BUSY.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.BUSY_HIGH_WATER.name(), VoltType.INTEGER));
+        columns.add(new ColumnInfo(StatName.SITES_CREATED.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.SITES_RETIRED.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.CATALOG_REFRESHES.name(), VoltType.BIGINT));
+        columns.add(new ColumnInfo(StatName.SATURATED_COUNT.name(), VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        long created = m_pool.getSitesCreated();
+        long retired = m_pool.getSitesRetired();
+        long refreshes = m_pool.getCatalogRefreshes();
+        long saturated = m_pool.getSaturatedCount();
+
+        rowValues[columnNameToIndex.get(StatName.MIN_SIZE.name())] = m_pool.getMinPoolSize();
+        rowValues[columnNameToIndex.get(StatName.MAX_SIZE.name())] = m_pool.getMaxPoolSize();
+        rowValues[columnNameToIndex.get(StatName.SIZE.name())] = m_pool.getPoolSize();
+        rowValues[columnNameToIndex.get(StatName.BUSY.name())] = m_pool.getBusyCount();
+        rowValues[columnNameToIndex.get(StatName.BUSY_HIGH_WATER.name())] = m_pool.getBusyHighWater(m_interval);
+        if (m_interval) {
+            rowValues[columnNameToIndex.get(StatName.SITES_CREATED.name())] = created - m_lastSitesCreated;
+            rowValues[columnNameToIndex.get(StatName.SITES_RETIRED.name())] = retired - m_lastSitesRetired;
+            rowValues[columnNameToIndex.get(StatName.CATALOG_REFRESHES.name())] = refreshes - m_lastCatalogRefreshes;
+            rowValues[columnNameToIndex.get(StatName.SATURATED_COUNT.name())] = saturated - m_lastSaturatedCount;
+            m_lastSitesCreated = created;
+            m_lastSitesRetired = retired;
+            m_lastCatalogRefreshes = refreshes;
+            m_lastSaturatedCount = saturated;
+        }
+        else {
+            rowValues[columnNameToIndex.get(StatName.SITES_CREATED.name())] = created;
+            rowValues[columnNameToIndex.get(StatName.SITES_RETIRED.name())] = retired;
+            rowValues[columnNameToIndex.get(StatName.CATALOG_REFRESHES.name())] = refreshes;
+            rowValues[columnNameToIndex.get(StatName.SATURATED_COUNT.name())] = saturated;
+        }
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
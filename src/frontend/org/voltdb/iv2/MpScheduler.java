@@ -98,6 +98,11 @@ public class MpScheduler extends Scheduler
         m_pendingTasks.setMpRoSitePool(sitePool);
     }
 
+    void trimIdleReadSites()
+    {
+        m_pendingTasks.trimIdleSites();
+    }
+
     void updateCatalog(String diffCmds, CatalogContext context)
     {
         m_pendingTasks.updateCatalog(diffCmds, context);
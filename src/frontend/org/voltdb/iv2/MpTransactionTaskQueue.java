@@ -18,17 +18,21 @@
 package org.voltdb.iv2;
 
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.CatalogContext;
 import org.voltdb.exceptions.TransactionRestartException;
+import org.voltdb.iv2.SpeculativeReadPolicy.TableAccess;
 import org.voltdb.messaging.FragmentResponseMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 
@@ -36,11 +40,19 @@ import org.voltdb.messaging.FragmentTaskMessage;
  * Provide an implementation of the TransactionTaskQueue specifically for the MPI.
  * This class will manage separating the stream of reads and writes to different
  * Sites and block appropriately so that reads and writes never execute concurrently.
+ *
+ * With MP_READ_BYPASS_LIMIT set, a write waiting for the reads in progress to drain
+ * doesn't hold up the reads queued behind it that can't see any write queued ahead of
+ * them, see SpeculativeReadPolicy. Those reads keep the MP read pool busy and are
+ * serialized before the writes they pass. No more than the limit may pass each write,
+ * so a steady stream of reads can't starve it.
  */
 public class MpTransactionTaskQueue extends TransactionTaskQueue
 {
     protected static final VoltLogger tmLog = new VoltLogger("TM");
 
+    static final int READ_BYPASS_LIMIT = Integer.getInteger("MP_READ_BYPASS_LIMIT", 0);
+
     // Track the current writes and reads in progress.  If writes contains anything, reads must be empty,
     // and vice versa
     private final Map<Long, TransactionTask> m_currentWrites = new HashMap<Long, TransactionTask>();
@@ -49,16 +61,42 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
 
     private MpRoSitePool m_sitePool = null;
 
+    private int m_readBypassLimit = READ_BYPASS_LIMIT;
+    // Reads started ahead of the write at the head of the backlog
+    private int m_bypassCount = 0;
+    private long m_bypassedReads = 0;
+
     MpTransactionTaskQueue(SiteTaskerQueue queue)
     {
         super(queue);
     }
 
+    void setReadBypassLimit(int limit)
+    {
+        m_readBypassLimit = limit;
+    }
+
+    @Override
+    boolean isSpeculationEnabled()
+    {
+        return m_readBypassLimit > 0;
+    }
+
     void setMpRoSitePool(MpRoSitePool sitePool)
     {
         m_sitePool = sitePool;
     }
 
+    /**
+     * Retire the read-only sites that have been idle too long, see MpRoSitePool
+     */
+    synchronized void trimIdleSites()
+    {
+        if (m_sitePool != null) {
+            m_sitePool.trimIdleSites(System.currentTimeMillis());
+        }
+    }
+
     synchronized void updateCatalog(String diffCmds, CatalogContext context)
     {
         m_sitePool.updateCatalog(diffCmds, context);
@@ -196,6 +234,7 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         //       - pull the read from the backlog, add it to the current read set, and queue it.
         //       - bail when done
         //     - if so, bail for now
+        // - If a write is waiting on reads, see bypassQueuedWrites()
 
         boolean retval = false;
         if (!m_backlog.isEmpty()) {
@@ -205,9 +244,13 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                 if (m_currentReads.isEmpty() && m_currentWrites.isEmpty()) {
                     task = m_backlog.pollFirst();
                     m_currentWrites.put(task.getTxnId(), task);
+                    m_bypassCount = 0;
                     taskQueueOffer(task);
                     retval = true;
                 }
+                else if (m_currentWrites.isEmpty()) {
+                    retval = bypassQueuedWrites();
+                }
             }
             else if (m_currentWrites.isEmpty()) {
                 while (task != null && task.getTransactionState().isReadOnly() &&
@@ -222,6 +265,48 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                     // task will be null
                     task = m_backlog.peekFirst();
                 }
+                if (task != null && !task.getTransactionState().isReadOnly() && bypassQueuedWrites()) {
+                    retval = true;
+                }
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * Start the reads behind the write at the head of the backlog that don't read
+     * anything the writes queued ahead of them write. Only called while reads are in
+     * progress, so a read started here never runs alongside a write.
+     */
+    private boolean bypassQueuedWrites()
+    {
+        if (m_readBypassLimit <= 0 || m_bypassCount >= m_readBypassLimit) {
+            return false;
+        }
+        SpeculativeReadPolicy policy = getSpeculativeReadPolicy();
+        if (policy == null) {
+            return false;
+        }
+        boolean retval = false;
+        Set<String> queuedWrites = new HashSet<String>();
+        Iterator<TransactionTask> iter = m_backlog.iterator();
+        while (iter.hasNext() && m_bypassCount < m_readBypassLimit && m_sitePool.canAcceptWork()) {
+            TransactionTask task = iter.next();
+            TableAccess access = getTableAccess(policy, task);
+            if (!task.getTransactionState().isReadOnly()) {
+                // Nothing behind a write whose tables aren't known can pass it
+                if (access == null) {
+                    break;
+                }
+                queuedWrites.addAll(access.m_writes);
+            }
+            else if (access != null && Collections.disjoint(access.m_reads, queuedWrites)) {
+                iter.remove();
+                m_currentReads.put(task.getTxnId(), task);
+                taskQueueOffer(task);
+                ++m_bypassCount;
+                ++m_bypassedReads;
+                retval = true;
             }
         }
         return retval;
@@ -294,6 +379,9 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         StringBuilder sb = new StringBuilder();
         sb.append("MpTransactionTaskQueue:").append("\n");
         sb.append("\tSIZE: ").append(m_backlog.size()).append("\n");
+        if (m_bypassedReads > 0) {
+            sb.append("\tBYPASSED READS: ").append(m_bypassedReads).append("\n");
+        }
         if (!m_backlog.isEmpty()) {
             sb.append("\tHEAD: ").append(m_backlog.getFirst()).append("\n");
         }
@@ -50,6 +50,11 @@ abstract public class ProcedureTask extends TransactionTask
         m_procName = procName;
     }
 
+    String getProcName()
+    {
+        return m_procName;
+    }
+
     /** Run is invoked by a run-loop to execute this transaction. */
     @Override
     abstract public void run(SiteProcedureConnection siteConnection);
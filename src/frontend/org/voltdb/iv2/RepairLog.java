@@ -17,6 +17,7 @@
 
 package org.voltdb.iv2;
 
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,6 +31,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.TheHashinator;
+import org.voltdb.VoltDB;
 import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.DumpMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
@@ -43,6 +45,10 @@ import org.voltdb.messaging.RepairLogTruncationMessage;
  * initiator (leader) shed its mortal coil.  This includes recording and sharing messages
  * starting and completing multipartition transactions so that a new MPI can repair the
  * cluster state on promotion.
+ *
+ * When given a RepairLogArena, messages of at least REPAIR_LOG_OFF_HEAP_THRESHOLD bytes
+ * are kept serialized off heap rather than as objects, and only deserialized when the
+ * contents are produced for a repair.
  */
 public class RepairLog
 {
@@ -67,17 +73,25 @@ public class RepairLog
     long m_HSId = Long.MIN_VALUE;
 
     // want voltmessage as payload with message-independent metadata.
+    // The message is either held directly or serialized in the arena.
     static class Item
     {
         final VoltMessage m_msg;
+        final RepairLogArena.Slot m_slot;
         final long m_handle;
         final long m_txnId;
         final boolean m_type;
 
         Item(boolean type, VoltMessage msg, long handle, long txnId)
+        {
+            this(type, msg, null, handle, txnId);
+        }
+
+        Item(boolean type, VoltMessage msg, RepairLogArena.Slot slot, long handle, long txnId)
         {
             m_type = type;
             m_msg = msg;
+            m_slot = slot;
             m_handle = handle;
             m_txnId = txnId;
         }
@@ -91,9 +105,17 @@ public class RepairLog
             return m_txnId;
         }
 
-        VoltMessage getMessage()
+        VoltMessage getMessage(RepairLogArena arena)
         {
-            return m_msg;
+            if (m_slot == null) {
+                return m_msg;
+            }
+            try {
+                return arena.read(m_slot);
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to read a message back from the repair log", true, e);
+                return null;
+            }
         }
 
         boolean isSP()
@@ -121,11 +143,33 @@ public class RepairLog
     // log storage.
     final Deque<Item> m_logSP;
     final Deque<Item> m_logMP;
+    final RepairLogArena m_arena;
 
+    // keeps every message on the heap
     RepairLog()
+    {
+        this(null);
+    }
+
+    RepairLog(RepairLogArena arena)
     {
         m_logSP = new ArrayDeque<Item>();
         m_logMP = new ArrayDeque<Item>();
+        m_arena = arena;
+    }
+
+    // serialize large messages off heap, keeping the rest as they are
+    private Item newItem(boolean type, VoltMessage msg, long handle, long txnId)
+    {
+        RepairLogArena.Slot slot = null;
+        if (m_arena != null) {
+            try {
+                slot = m_arena.write(msg);
+            } catch (IOException e) {
+                tmLog.warn("Unable to store a repair log message off heap, keeping it on the heap", e);
+            }
+        }
+        return new Item(type, slot == null ? msg : null, slot, handle, txnId);
     }
 
     // get the HSID for dump logging
@@ -167,7 +211,7 @@ public class RepairLog
                 return;
             }
 
-            m_logSP.add(new Item(IS_SP, m, m.getSpHandle(), m.getTxnId()));
+            m_logSP.add(newItem(IS_SP, m, m.getSpHandle(), m.getTxnId()));
         } else if (msg instanceof FragmentTaskMessage) {
             final FragmentTaskMessage m = (FragmentTaskMessage) msg;
 
@@ -179,7 +223,7 @@ public class RepairLog
             truncate(m.getTruncationHandle(), IS_MP);
             // only log the first fragment of a procedure (and handle 1st case)
             if (m.getTxnId() > m_lastMpHandle || m_lastMpHandle == Long.MAX_VALUE) {
-                m_logMP.add(new Item(IS_MP, m, m.getSpHandle(), m.getTxnId()));
+                m_logMP.add(newItem(IS_MP, m, m.getSpHandle(), m.getTxnId()));
                 m_lastMpHandle = m.getTxnId();
                 m_lastSpHandle = m.getSpHandle();
             }
@@ -195,7 +239,7 @@ public class RepairLog
             }
 
             truncate(ctm.getTruncationHandle(), IS_MP);
-            m_logMP.add(new Item(IS_MP, ctm, ctm.getSpHandle(), ctm.getTxnId()));
+            m_logMP.add(newItem(IS_MP, ctm, ctm.getSpHandle(), ctm.getTxnId()));
             //Restore will send a complete transaction message with a lower mp transaction id because
             //the restore transaction precedes the loading of the right mp transaction id from the snapshot
             //Hence Math.max
@@ -205,7 +249,9 @@ public class RepairLog
         else if (msg instanceof DumpMessage) {
             String who = CoreUtils.hsIdToString(m_HSId);
             tmLog.warn("Repair log dump for site: " + who + ", isLeader: " + m_isLeader
-                    + ", " + who + ": lastSpHandle: " + m_lastSpHandle + ", lastMpHandle: " + m_lastMpHandle);
+                    + ", " + who + ": lastSpHandle: " + m_lastSpHandle + ", lastMpHandle: " + m_lastMpHandle
+                    + (m_arena == null ? "" :
+                       ", offHeapBytes: " + m_arena.getLiveBytes() + " in " + m_arena.getChunkCount() + " chunks"));
             for (Iv2RepairLogResponseMessage il : contents(0l, false)) {
                tmLog.warn("[Repair log contents]" + who + ": msg: " + il);
             }
@@ -242,6 +288,9 @@ public class RepairLog
         while ((item = deq.peek()) != null) {
             if (item.canTruncate(handle)) {
                 deq.poll();
+                if (item.m_slot != null) {
+                    m_arena.release(item.m_slot);
+                }
             } else {
                 break;
             }
@@ -313,12 +362,18 @@ public class RepairLog
                         ofTotal,
                         item.getHandle(),
                         item.getTxnId(),
-                        item.getMessage());
+                        item.getMessage(m_arena));
             responses.add(response);
         }
         return responses;
     }
 
+    // true if every logged transaction has been truncated
+    boolean isEmpty()
+    {
+        return m_logSP.isEmpty() && m_logMP.isEmpty();
+    }
+
     public void registerTransactionCommitInterest(TransactionCommitInterest interest)
     {
         m_txnCommitInterests.add(interest);
@@ -0,0 +1,179 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltcore.messaging.VoltMessage;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.messaging.VoltDbMessageFactory;
+
+/**
+ * Append only off-heap storage for the serialized messages held by the RepairLog.
+ * Messages are written back to back into pooled direct chunks and only deserialized
+ * when the repair log contents are requested. A chunk is returned to the pool once
+ * every entry written to it has been released by truncation.
+ *
+ * Only touched from the initiator mailbox's thread, like the RepairLog itself.
+ */
+class RepairLogArena
+{
+    static final int CHUNK_SIZE = Integer.getInteger("REPAIR_LOG_CHUNK_SIZE", 1024 * 1024);
+
+    // messages smaller than this stay on the heap, set it to Integer.MAX_VALUE to keep them all there
+    static final int OFF_HEAP_THRESHOLD = Integer.getInteger("REPAIR_LOG_OFF_HEAP_THRESHOLD", 1024);
+
+    static final class Chunk
+    {
+        final BBContainer m_container;
+        int m_used = 0;
+        int m_liveEntries = 0;
+
+        Chunk(BBContainer container)
+        {
+            m_container = container;
+        }
+    }
+
+    // location of one serialized message
+    static final class Slot
+    {
+        final Chunk m_chunk;
+        final int m_offset;
+        final int m_length;
+        final long m_sourceHSId;
+
+        Slot(Chunk chunk, int offset, int length, long sourceHSId)
+        {
+            m_chunk = chunk;
+            m_offset = offset;
+            m_length = length;
+            m_sourceHSId = sourceHSId;
+        }
+    }
+
+    private final VoltDbMessageFactory m_messageFactory = new VoltDbMessageFactory();
+    private final int m_chunkSize;
+    private final int m_threshold;
+
+    // the chunk being appended to
+    private Chunk m_current = null;
+    private int m_chunkCount = 0;
+    private long m_liveBytes = 0;
+
+    RepairLogArena()
+    {
+        this(CHUNK_SIZE, OFF_HEAP_THRESHOLD);
+    }
+
+    RepairLogArena(int chunkSize, int threshold)
+    {
+        m_chunkSize = chunkSize;
+        m_threshold = threshold;
+    }
+
+    /**
+     * Serialize the message into the arena if it is large enough to be worth it.
+     * @return where the message was written, or null if it should stay on the heap
+     */
+    Slot write(VoltMessage msg) throws IOException
+    {
+        final int size = msg.getSerializedSize();
+        if (size <= 0 || size < m_threshold) {
+            return null;
+        }
+
+        Chunk chunk;
+        if (size > m_chunkSize) {
+            // give oversized messages a chunk of their own and keep appending to the current one
+            chunk = new Chunk(DBBPool.allocateDirect(size));
+            m_chunkCount++;
+        }
+        else {
+            if (m_current == null || m_chunkSize - m_current.m_used < size) {
+                retireCurrent();
+                m_current = new Chunk(DBBPool.allocateDirectAndPool(m_chunkSize));
+                m_chunkCount++;
+            }
+            chunk = m_current;
+        }
+
+        final int offset = chunk.m_used;
+        ByteBuffer buf = chunk.m_container.b().duplicate();
+        buf.limit(offset + size);
+        buf.position(offset);
+        msg.flattenToBuffer(buf.slice());
+        chunk.m_used += size;
+        chunk.m_liveEntries++;
+        m_liveBytes += size;
+        return new Slot(chunk, offset, size, msg.m_sourceHSId);
+    }
+
+    /**
+     * Deserialize a copy of the message. The copy is made on the heap so that
+     * it stays valid after the slot is released.
+     */
+    VoltMessage read(Slot slot) throws IOException
+    {
+        ByteBuffer src = slot.m_chunk.m_container.b().duplicate();
+        src.limit(slot.m_offset + slot.m_length);
+        src.position(slot.m_offset);
+        ByteBuffer copy = ByteBuffer.allocate(slot.m_length);
+        copy.put(src);
+        copy.flip();
+        return m_messageFactory.createMessageFromBuffer(copy, slot.m_sourceHSId);
+    }
+
+    void release(Slot slot)
+    {
+        final Chunk chunk = slot.m_chunk;
+        assert(chunk.m_liveEntries > 0);
+        m_liveBytes -= slot.m_length;
+        if (--chunk.m_liveEntries == 0 && chunk != m_current) {
+            discard(chunk);
+        }
+    }
+
+    private void retireCurrent()
+    {
+        if (m_current != null && m_current.m_liveEntries == 0) {
+            discard(m_current);
+        }
+        m_current = null;
+    }
+
+    private void discard(Chunk chunk)
+    {
+        chunk.m_container.discard();
+        m_chunkCount--;
+    }
+
+    // number of direct chunks held, including a partly filled current one
+    int getChunkCount()
+    {
+        return m_chunkCount;
+    }
+
+    // serialized bytes of messages not yet released
+    long getLiveBytes()
+    {
+        return m_liveBytes;
+    }
+}
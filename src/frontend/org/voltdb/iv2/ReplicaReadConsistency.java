@@ -0,0 +1,56 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+/**
+ * Controls whether read-only single-partition procedures may be executed at a
+ * replica of the partition that is local to the receiving client interface,
+ * instead of always being routed to the partition leader, and what such a
+ * replica read is allowed to observe.
+ *
+ * The level is read from the REPLICA_READ_CONSISTENCY system property and
+ * should be set to the same value on every node of the cluster.
+ */
+public enum ReplicaReadConsistency {
+    /**
+     * All single-partition reads are routed to the partition leader. This is
+     * the default.
+     */
+    OFF,
+
+    /**
+     * Reads may execute at a local replica. The replica holds the response
+     * until every write the read could have observed has been acknowledged by
+     * all replicas of the partition, so a replica read never returns data
+     * that may be lost on failure and always sees every write that was
+     * acknowledged to a client before the read was sent. This is the same
+     * guarantee a read gets from the partition leader.
+     */
+    SAFE,
+
+    /**
+     * Reads may execute at a local replica and respond as soon as they have
+     * run. A replica read sees every write acknowledged to a client before it
+     * was sent, but it may also observe writes that have not yet been
+     * acknowledged and could be rolled back if the partition loses replicas.
+     */
+    FAST;
+
+    public static final ReplicaReadConsistency DEFAULT =
+            valueOf(System.getProperty("REPLICA_READ_CONSISTENCY", OFF.name()).toUpperCase());
+}
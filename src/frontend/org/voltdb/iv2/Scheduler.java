@@ -163,6 +163,10 @@ abstract public class Scheduler implements InitiatorMessageHandler
         return m_tasks.setupQueueDepthTracker(siteId);
     }
 
+    public StageLatencyStats setupStageLatencyStats(long siteId) {
+        return m_tasks.setupStageLatencyStats(siteId);
+    }
+
     public void setLock(Object o) {
         m_lock = o;
     }
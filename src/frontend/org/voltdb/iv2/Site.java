@@ -810,11 +810,19 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 if (m_rejoinState == kStateRunning) {
                     // Normal operation blocks the site thread on the sitetasker queue.
                     SiteTasker task = m_scheduler.take();
+                    final StageLatencyStats stats = m_scheduler.getStageLatencyStats();
                     if (task instanceof TransactionTask) {
                         m_currentTxnId = ((TransactionTask)task).getTxnId();
                         m_lastTxnTime = EstTime.currentTimeMillis();
                     }
-                    task.run(getSiteProcedureConnection());
+                    if (stats != null && task instanceof TransactionTask) {
+                        final long start = System.nanoTime();
+                        stats.record(StageLatencyStats.Stage.SITE_QUEUE, start - task.getQueueOfferTime());
+                        task.run(getSiteProcedureConnection());
+                        stats.record(StageLatencyStats.Stage.EXECUTION, System.nanoTime() - start);
+                    } else {
+                        task.run(getSiteProcedureConnection());
+                    }
                 } else if (m_rejoinState == kStateReplayingRejoin) {
                     // Rejoin operation poll and try to do some catchup work. Tasks
                     // are responsible for logging any rejoin work they might have.
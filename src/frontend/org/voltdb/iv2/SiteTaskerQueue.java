@@ -17,22 +17,73 @@
 
 package org.voltdb.iv2;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
-import org.voltcore.utils.CoreUtils;
+import org.voltcore.logging.Level;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.MpscRingBuffer;
+import org.voltcore.utils.QueueWaitStrategy;
+import org.voltcore.utils.QueueWaiter;
+import org.voltcore.utils.RateLimitedLogger;
 import org.voltdb.QueueDepthTracker;
 import org.voltdb.StarvationTracker;
 
-/** SiteTaskerScheduler orders SiteTaskers for execution. */
+/**
+ * SiteTaskerScheduler orders SiteTaskers for execution.
+ *
+ * By default tasks are kept in a {@link LinkedTransferQueue}. Setting SITE_TASKER_RING_SIZE
+ * to a positive value keeps them in a {@link MpscRingBuffer} of that capacity instead, which
+ * doesn't allocate per task. Either way the site waits on an empty queue as the SITE
+ * component's QueueWaiter is configured, see QUEUE_WAIT_SITE (or SITE_TASKER_WAIT).
+ */
 public class SiteTaskerQueue
 {
-    private final LinkedTransferQueue<SiteTasker> m_tasks = new LinkedTransferQueue<SiteTasker>();
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    static final int RING_SIZE = Integer.getInteger("SITE_TASKER_RING_SIZE", 0);
+    static final QueueWaitStrategy WAIT_STRATEGY = QueueWaiter.Component.SITE.getStrategy();
+
+    private final LinkedTransferQueue<SiteTasker> m_tasks;
+
+    private final MpscRingBuffer<SiteTasker> m_ring;
+    // only used by the site thread
+    private final QueueWaiter m_waiter;
+    /*
+     * Tasks offered while the ring is full, or while earlier tasks are still in here, so a
+     * producer's tasks stay in order and producers never block. The site drains the ring
+     * before looking here.
+     */
+    private final ConcurrentLinkedQueue<SiteTasker> m_overflow;
+    private final AtomicInteger m_overflowed;
+    private volatile Thread m_waitingConsumer;
+
     private StarvationTracker m_starvationTracker;
     private QueueDepthTracker m_queueDepthTracker;
+    private StageLatencyStats m_stageLatencyStats;
     private int m_partitionId;
 
     public SiteTaskerQueue(int partitionId) {
+        this(partitionId, RING_SIZE, WAIT_STRATEGY);
+    }
+
+    SiteTaskerQueue(int partitionId, int ringSize, QueueWaitStrategy waitStrategy) {
         m_partitionId = partitionId;
+        m_waiter = new QueueWaiter(QueueWaiter.Component.SITE, waitStrategy);
+        if (ringSize > 0) {
+            m_tasks = null;
+            m_ring = new MpscRingBuffer<SiteTasker>(ringSize);
+            m_overflow = new ConcurrentLinkedQueue<SiteTasker>();
+            m_overflowed = new AtomicInteger();
+        } else {
+            m_tasks = new LinkedTransferQueue<SiteTasker>();
+            m_ring = null;
+            m_overflow = null;
+            m_overflowed = null;
+        }
     }
 
     public int getPartitionId() {
@@ -47,13 +98,42 @@ public class SiteTaskerQueue
         // the queue depth before it is incremented
         // i.e. avoid queueDepth < 0
         m_queueDepthTracker.offerUpdate();
-        return m_tasks.offer(task);
+        if (m_ring == null) {
+            return m_tasks.offer(task);
+        }
+
+        if (m_overflowed.get() > 0 || !m_ring.offer(task)) {
+            m_overflowed.incrementAndGet();
+            m_overflow.offer(task);
+            RateLimitedLogger.tryLogForMessage(System.currentTimeMillis(), 1, TimeUnit.MINUTES, hostLog,
+                    Level.WARN, "Site task ring of partition %d is full, queueing tasks to an overflow list. " +
+                    "Consider raising SITE_TASKER_RING_SIZE from %d", m_partitionId, m_ring.capacity());
+        }
+        final Thread waiting = m_waitingConsumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        return true;
+    }
+
+    private SiteTasker pollTask() {
+        if (m_ring == null) {
+            return m_tasks.poll();
+        }
+        SiteTasker task = m_ring.poll();
+        if (task == null && m_overflowed.get() > 0) {
+            task = m_overflow.poll();
+            if (task != null) {
+                m_overflowed.decrementAndGet();
+            }
+        }
+        return task;
     }
 
     // Block on the site tasker queue.
     public SiteTasker take() throws InterruptedException
     {
-        SiteTasker task = m_tasks.poll();
+        SiteTasker task = pollTask();
 
         if (task == null) {
             m_starvationTracker.beginStarvation();
@@ -62,7 +142,7 @@ public class SiteTaskerQueue
             return task;
         }
         try {
-            task = CoreUtils.queueSpinTake(m_tasks);
+            task = m_ring == null ? m_waiter.take(m_tasks) : waitForTask();
             // task is never null
             m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
             return task;
@@ -71,10 +151,38 @@ public class SiteTaskerQueue
         }
     }
 
+    private SiteTasker waitForTask() throws InterruptedException {
+        final long spinStart = m_waiter.beginWait();
+        boolean parked = false;
+        SiteTasker task;
+        while ((task = pollTask()) == null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (m_waiter.spin(spinStart)) {
+                continue;
+            }
+            // Publish that we are about to park before checking once more, producers
+            // check it after queueing so a task can't slip in unnoticed
+            m_waitingConsumer = Thread.currentThread();
+            try {
+                if ((task = pollTask()) != null) {
+                    break;
+                }
+                parked = true;
+                LockSupport.park(this);
+            } finally {
+                m_waitingConsumer = null;
+            }
+        }
+        m_waiter.endWait(spinStart, parked);
+        return task;
+    }
+
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
-        SiteTasker task = m_tasks.poll();
+        SiteTasker task = pollTask();
         if (task != null) {
             m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
         }
@@ -84,11 +192,28 @@ public class SiteTaskerQueue
     // Non-blocking peek on the site tasker queue.
     public SiteTasker peek()
     {
-        return m_tasks.peek();
+        if (m_ring == null) {
+            return m_tasks.peek();
+        }
+        SiteTasker task = m_ring.peek();
+        if (task == null && m_overflowed.get() > 0) {
+            task = m_overflow.peek();
+        }
+        return task;
     }
 
     public boolean isEmpty() {
-        return m_tasks.isEmpty();
+        if (m_ring == null) {
+            return m_tasks.isEmpty();
+        }
+        return m_ring.isEmpty() && m_overflowed.get() == 0;
+    }
+
+    public int size() {
+        if (m_ring == null) {
+            return m_tasks.size();
+        }
+        return m_ring.size() + m_overflowed.get();
     }
 
     public void setStarvationTracker(StarvationTracker tracker) {
@@ -96,7 +221,17 @@ public class SiteTaskerQueue
     }
 
     public QueueDepthTracker setupQueueDepthTracker(long siteId) {
-        m_queueDepthTracker = new QueueDepthTracker(siteId, m_tasks);
+        m_queueDepthTracker = new QueueDepthTracker(siteId, this);
         return m_queueDepthTracker;
     }
+
+    public StageLatencyStats setupStageLatencyStats(long siteId) {
+        m_stageLatencyStats = new StageLatencyStats(siteId, m_partitionId);
+        return m_stageLatencyStats;
+    }
+
+    // null unless setupStageLatencyStats was called and the stats are enabled
+    public StageLatencyStats getStageLatencyStats() {
+        return StageLatencyStats.ENABLED ? m_stageLatencyStats : null;
+    }
 }
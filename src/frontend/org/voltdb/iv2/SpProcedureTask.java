@@ -111,7 +111,8 @@ public class SpProcedureTask extends ProcedureTask
         }
         completeInitiateTask(siteConnection);
         response.m_sourceHSId = m_initiator.getHSId();
-        if (txnState.m_initiationMsg != null && !(txnState.m_initiationMsg.isForReplica())) {
+        if (txnState.m_initiationMsg != null && !(txnState.m_initiationMsg.isForReplica())
+                && !txnState.m_initiationMsg.isReplicaRead()) {
             response.setForOldLeader(true);
         }
         m_initiator.deliver(response);
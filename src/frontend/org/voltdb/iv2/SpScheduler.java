@@ -20,23 +20,21 @@ package org.voltdb.iv2;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Queue;
-import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.HostMessenger;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.LongObjectHashMap;
+import org.voltcore.utils.SortedLongPairMap;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.CommandLog;
 import org.voltdb.CommandLog.DurabilityListener;
@@ -72,7 +70,7 @@ import com.google_voltpatches.common.primitives.Longs;
 import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 import com.google_voltpatches.common.util.concurrent.SettableFuture;
 
-public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
+public class SpScheduler extends Scheduler implements SnapshotCompletionInterest, TransactionCommitInterest
 {
     static final VoltLogger tmLog = new VoltLogger("TM");
     static final VoltLogger hostLog = new VoltLogger("HOST");
@@ -143,16 +141,23 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     List<Long> m_replicaHSIds = new ArrayList<Long>();
     long m_sendToHSIds[] = new long[0];
     private final TransactionTaskQueue m_pendingTasks;
-    private final Map<Long, TransactionState> m_outstandingTxns =
-        new HashMap<Long, TransactionState>();
-    private final Map<DuplicateCounterKey, DuplicateCounter> m_duplicateCounters =
-        new TreeMap<DuplicateCounterKey, DuplicateCounter>();
+    // Primitive keyed so the per transaction lookups don't box txn ids or allocate entries
+    private final LongObjectHashMap<TransactionState> m_outstandingTxns =
+        new LongObjectHashMap<TransactionState>();
+    // Keyed by (txnId, spHandle), in the same order DuplicateCounterKey sorts
+    private final SortedLongPairMap<DuplicateCounter> m_duplicateCounters =
+        new SortedLongPairMap<DuplicateCounter>();
     // MP fragment tasks or completion tasks pending durability
-    private final Map<Long, Queue<TransactionTask>> m_mpsPendingDurability =
-        new HashMap<Long, Queue<TransactionTask>>();
+    private final LongObjectHashMap<Queue<TransactionTask>> m_mpsPendingDurability =
+        new LongObjectHashMap<Queue<TransactionTask>>();
     private CommandLog m_cl;
     private final SnapshotCompletionMonitor m_snapMonitor;
     private BufferedReadLog m_bufferedReadLog = null;
+    // Responses of reads routed to this site while it is a replica, see ReplicaReadConsistency
+    private final BufferedReadLog m_replicaReadLog = new BufferedReadLog();
+    ReplicaReadConsistency m_replicaReadConsistency = ReplicaReadConsistency.DEFAULT;
+    // the highest spHandle known to be committed on all replicas, as reported by the repair log
+    long m_replicaReadSafeHandle = Long.MIN_VALUE;
 
     // Need to track when command log replay is complete (even if not performed) so that
     // we know when we can start writing viable replay sets to the fault log.
@@ -188,6 +193,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         m_repairLogTruncationHandle = getCurrentTxnId();
         // initialized as current txn id in order to release the initial reads into the system
         m_maxScheduledTxnSpHandle = getCurrentTxnId();
+        m_replicaReadSafeHandle = getCurrentTxnId();
     }
 
     @Override
@@ -195,6 +201,25 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     {
         super.setLeaderState(isLeader);
         m_snapMonitor.addInterest(this);
+        if (isLeader) {
+            // Repair has brought every survivor up to date with this site, nothing
+            // a pending replica read has observed can be rolled back any more.
+            m_replicaReadLog.releaseBufferedReads(m_mailbox, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Called from the repair log whenever the partition's truncation point
+     * advances, on the leader as well as on the replicas. Releases the SAFE
+     * replica reads whose observed writes are now committed on all replicas.
+     */
+    @Override
+    public void transactionCommitted(long spHandle)
+    {
+        if (spHandle > m_replicaReadSafeHandle) {
+            m_replicaReadSafeHandle = spHandle;
+            m_replicaReadLog.releaseBufferedReads(m_mailbox, m_replicaReadSafeHandle);
+        }
     }
 
     @Override
@@ -247,11 +272,12 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         // Cleanup duplicate counters and collect DONE counters
         // in this list for further processing.
         List<DuplicateCounterKey> doneCounters = new LinkedList<DuplicateCounterKey>();
-        for (Entry<DuplicateCounterKey, DuplicateCounter> entry : m_duplicateCounters.entrySet()) {
-            DuplicateCounter counter = entry.getValue();
+        for (int i = 0; i < m_duplicateCounters.size(); i++) {
+            DuplicateCounter counter = m_duplicateCounters.valueAt(i);
             int result = counter.updateReplicas(m_replicaHSIds);
             if (result == DuplicateCounter.DONE) {
-                doneCounters.add(entry.getKey());
+                doneCounters.add(new DuplicateCounterKey(m_duplicateCounters.firstKeyAt(i),
+                                                         m_duplicateCounters.secondKeyAt(i)));
             }
         }
 
@@ -265,7 +291,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         // Maintain the CI invariant that responses arrive in txnid order.
         Collections.sort(doneCounters);
         for (DuplicateCounterKey key : doneCounters) {
-            DuplicateCounter counter = m_duplicateCounters.remove(key);
+            DuplicateCounter counter = m_duplicateCounters.remove(key.m_txnId, key.m_spHandle);
 
             final TransactionState txn = m_outstandingTxns.get(key.m_txnId);
             if (txn == null || txn.isDone()) {
@@ -490,7 +516,13 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         0,
                         m_uniqueIdGenerator.partitionId);
 
-                newSpHandle = getMaxScheduledTxnSpHandle();
+                if (m_isLeader) {
+                    newSpHandle = getMaxScheduledTxnSpHandle();
+                } else {
+                    // A read routed to a replica. The replica doesn't schedule the writes it
+                    // receives itself, the last replicated txn it has seen bounds what the read observes.
+                    newSpHandle = getCurrentTxnId();
+                }
             }
 
             // Need to set the SP handle on the received message
@@ -511,6 +543,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                     message.getClientInterfaceHandle(),
                     message.getConnectionId(),
                     message.isForReplay());
+            msg.setReplicaRead(message.isReplicaRead());
 
             msg.setSpHandle(newSpHandle);
             logRepair(msg);
@@ -560,7 +593,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         m_replicaHSIds,
                         msg);
 
-                safeAddToDuplicateCounterMap(new DuplicateCounterKey(msg.getTxnId(), newSpHandle), counter);
+                safeAddToDuplicateCounterMap(msg.getTxnId(), newSpHandle, counter);
             }
         }
         else {
@@ -664,7 +697,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 message.getTxnId(),
                 expectedHSIds,
                 message);
-        safeAddToDuplicateCounterMap(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()), counter);
+        safeAddToDuplicateCounterMap(message.getTxnId(), message.getSpHandle(), counter);
 
         m_uniqueIdGenerator.updateMostRecentlyGeneratedUniqueId(message.getUniqueId());
         // is local repair necessary?
@@ -697,7 +730,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 message.getTxnId(),
                 expectedHSIds,
                 message);
-        safeAddToDuplicateCounterMap(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()), counter);
+        safeAddToDuplicateCounterMap(message.getTxnId(), message.getSpHandle(), counter);
 
         // is local repair necessary?
         if (needsRepair.contains(m_mailbox.getHSId())) {
@@ -740,8 +773,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
          * possible to read an unconfirmed transaction's writes that will be lost.
          */
         final long spHandle = message.getSpHandle();
-        final DuplicateCounterKey dcKey = new DuplicateCounterKey(message.getTxnId(), spHandle);
-        DuplicateCounter counter = m_duplicateCounters.get(dcKey);
+        DuplicateCounter counter = m_duplicateCounters.get(message.getTxnId(), spHandle);
         final VoltTrace.TraceEventBatch traceLog = VoltTrace.log(VoltTrace.Category.SPI);
 
         // All reads will have no duplicate counter.
@@ -752,6 +784,13 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 traceLog.add(() -> VoltTrace.endAsync("initsp", MiscUtils.hsIdPairTxnIdToString(m_mailbox.getHSId(), message.m_sourceHSId, message.getSpHandle(), message.getClientInterfaceHandle())));
             }
 
+            // Reads initiated while this site was the leader are marked for the (old) leader,
+            // the rest were routed to this site as a replica by the InvocationDispatcher.
+            if (!m_isLeader && !message.isForOldLeader()) {
+                handleReplicaReadResponse(message);
+                return;
+            }
+
             // InvocationDispatcher routes SAFE reads to SPI only
             assert(m_bufferedReadLog != null);
             m_bufferedReadLog.offer(m_mailbox, message, m_repairLogTruncationHandle);
@@ -771,7 +810,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
 
             int result = counter.offer(message);
             if (result == DuplicateCounter.DONE) {
-                m_duplicateCounters.remove(dcKey);
+                m_duplicateCounters.remove(message.getTxnId(), spHandle);
                 setRepairLogTruncationHandle(spHandle, message.isForOldLeader());
                 m_mailbox.send(counter.m_destinationId, counter.getLastResponse());
             }
@@ -825,6 +864,24 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         }
     }
 
+    /**
+     * A FAST replica read responds right away. A SAFE replica read waits until the
+     * leader has reported every write the read may have seen as committed on all
+     * replicas, or there is nothing left in the repair log that could be rolled back.
+     */
+    private void handleReplicaReadResponse(InitiateResponseMessage message)
+    {
+        if (m_replicaReadConsistency == ReplicaReadConsistency.FAST) {
+            m_mailbox.send(message.getInitiatorHSId(), message);
+            return;
+        }
+        long safeHandle = m_replicaReadSafeHandle;
+        if (m_repairLog != null && m_repairLog.isEmpty()) {
+            safeHandle = Long.MAX_VALUE;
+        }
+        m_replicaReadLog.offer(m_mailbox, message, safeHandle);
+    }
+
     // BorrowTaskMessages encapsulate a FragmentTaskMessage along with
     // input dependency tables. The MPI issues borrows to a local site
     // to perform replicated reads or aggregation fragment work.
@@ -961,7 +1018,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                             m_replicaHSIds,
                             message);
                 }
-                safeAddToDuplicateCounterMap(new DuplicateCounterKey(message.getTxnId(), newSpHandle), counter);
+                safeAddToDuplicateCounterMap(message.getTxnId(), newSpHandle, counter);
             }
         } else {
             // message processed on replica
@@ -1136,7 +1193,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
 
         // Send the message to the duplicate counter, if any
         DuplicateCounter counter =
-            m_duplicateCounters.get(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()));
+            m_duplicateCounters.get(message.getTxnId(), message.getSpHandle());
         final TransactionState txn = m_outstandingTxns.get(message.getTxnId());
         if (counter != null) {
             String traceName = "recvfragment";
@@ -1155,7 +1212,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                     setRepairLogTruncationHandle(txn.m_spHandle, message.isForOldLeader());
                 }
 
-                m_duplicateCounters.remove(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()));
+                m_duplicateCounters.remove(message.getTxnId(), message.getSpHandle());
                 FragmentResponseMessage resp = (FragmentResponseMessage)counter.getLastResponse();
                 // MPI is tracking deps per partition HSID.  We need to make
                 // sure we write ours into the message getting sent to the MPI
@@ -1241,7 +1298,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                                                msg.getTxnId(),
                                                m_replicaHSIds,
                                                msg);
-                safeAddToDuplicateCounterMap(new DuplicateCounterKey(msg.getTxnId(), msg.getSpHandle()), counter);
+                safeAddToDuplicateCounterMap(msg.getTxnId(), msg.getSpHandle(), counter);
             }
 
             Iv2Trace.logCompleteTransactionMessage(msg, m_mailbox.getHSId());
@@ -1261,8 +1318,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
 
     private void handleCompleteTransactionResponseMessage(CompleteTransactionResponseMessage msg)
     {
-        final DuplicateCounterKey duplicateCounterKey = new DuplicateCounterKey(msg.getTxnId(), msg.getSpHandle());
-        DuplicateCounter counter = m_duplicateCounters.get(duplicateCounterKey);
+        DuplicateCounter counter = m_duplicateCounters.get(msg.getTxnId(), msg.getSpHandle());
         boolean txnDone = true;
 
         if (msg.isRestart()) {
@@ -1277,7 +1333,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (txnDone) {
             assert !msg.isRestart();
             final TransactionState txn = m_outstandingTxns.remove(msg.getTxnId());
-            m_duplicateCounters.remove(duplicateCounterKey);
+            m_duplicateCounters.remove(msg.getTxnId(), msg.getSpHandle());
 
             if (txn != null) {
                 // Set the truncation handle here instead of when processing
@@ -1351,13 +1407,16 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             }
         }
         hostLog.warn(who + ": most recent SP handle: " + TxnEgo.txnIdToString(getCurrentTxnId()));
-        hostLog.warn(who + ": outstanding txns: " + m_outstandingTxns.keySet() + " " +
-                TxnEgo.txnIdCollectionToString(m_outstandingTxns.keySet()));
+        List<Long> outstandingTxnIds = Longs.asList(m_outstandingTxns.keys());
+        hostLog.warn(who + ": outstanding txns: " + outstandingTxnIds + " " +
+                TxnEgo.txnIdCollectionToString(outstandingTxnIds));
         hostLog.warn(who + ": TransactionTaskQueue: " + m_pendingTasks.toString());
         if (m_duplicateCounters.size() > 0) {
             hostLog.warn(who + ": duplicate counters: ");
-            for (Entry<DuplicateCounterKey, DuplicateCounter> e : m_duplicateCounters.entrySet()) {
-                hostLog.warn("\t" + who + ": " + e.getKey().toString() + ": " + e.getValue().toString());
+            for (int i = 0; i < m_duplicateCounters.size(); i++) {
+                DuplicateCounterKey key = new DuplicateCounterKey(m_duplicateCounters.firstKeyAt(i),
+                                                                  m_duplicateCounters.secondKeyAt(i));
+                hostLog.warn("\t" + who + ": " + key.toString() + ": " + m_duplicateCounters.valueAt(i).toString());
             }
         }
     }
@@ -1383,7 +1442,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         msg.getTxnId(),
                         m_replicaHSIds,
                         msg);
-                safeAddToDuplicateCounterMap(new DuplicateCounterKey(msg.getTxnId(), newSpHandle), counter);
+                safeAddToDuplicateCounterMap(msg.getTxnId(), newSpHandle, counter);
             }
         } else {
             setMaxSeenTxnId(msg.getSpHandle());
@@ -1406,8 +1465,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
 
     private void handleDummyTransactionResponseMessage(DummyTransactionResponseMessage message) {
         final long spHandle = message.getSpHandle();
-        final DuplicateCounterKey dcKey = new DuplicateCounterKey(message.getTxnId(), spHandle);
-        DuplicateCounter counter = m_duplicateCounters.get(dcKey);
+        DuplicateCounter counter = m_duplicateCounters.get(message.getTxnId(), spHandle);
         if (counter == null) {
             // this will be on SPI without k-safety or replica only with k-safety
             setRepairLogTruncationHandle(spHandle, message.isForOldLeader());
@@ -1420,7 +1478,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         int result = counter.offer(message);
         if (result == DuplicateCounter.DONE) {
             // DummyTransactionResponseMessage ends on SPI
-            m_duplicateCounters.remove(dcKey);
+            m_duplicateCounters.remove(message.getTxnId(), spHandle);
             setRepairLogTruncationHandle(spHandle, message.isForOldLeader());
         }
     }
@@ -1522,10 +1580,11 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
      * Just using "put" on the dup counter map is unsafe.
      * It won't detect the case where keys collide from two different transactions.
      */
-    void safeAddToDuplicateCounterMap(DuplicateCounterKey dpKey, DuplicateCounter counter) {
-        DuplicateCounter existingDC = m_duplicateCounters.get(dpKey);
+    void safeAddToDuplicateCounterMap(long txnId, long spHandle, DuplicateCounter counter) {
+        DuplicateCounter existingDC = m_duplicateCounters.get(txnId, spHandle);
         if (existingDC == null) {
-            m_duplicateCounters.put(dpKey, counter);
+            counter.m_stageLatencyStats = m_tasks.getStageLatencyStats();
+            m_duplicateCounters.put(txnId, spHandle, counter);
         } else {
             existingDC.logWithCollidingDuplicateCounters(counter);
             VoltDB.crashGlobalVoltDB("DUPLICATE COUNTER MISMATCH: two duplicate counter keys collided.", true, null);
@@ -1540,6 +1599,8 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         tmLog.info(String.format("%s: %s", CoreUtils.hsIdToString(m_mailbox.getHSId()), m_pendingTasks));
         tmLog.info("[dump] current truncation handle: " + TxnEgo.txnIdToString(m_repairLogTruncationHandle) + " "
                 + m_bufferedReadLog.toString());
+        tmLog.info("[dump] replica read safe handle: " + TxnEgo.txnIdToString(m_replicaReadSafeHandle) + " "
+                + m_replicaReadLog.toString());
     }
 
     private void updateMaxScheduledTransactionSpHandle(long newSpHandle) {
@@ -1643,14 +1704,20 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (m_migratePartitionLeaderCheckPoint < 0) {
             return false;
         }
-        List<DuplicateCounterKey> keys = m_duplicateCounters.keySet().stream()
-                .filter(k->k.m_spHandle < m_migratePartitionLeaderCheckPoint && k.isSpTransaction()).collect(Collectors.toList());
+        List<DuplicateCounterKey> keys = new ArrayList<DuplicateCounterKey>();
+        for (int i = 0; i < m_duplicateCounters.size(); i++) {
+            DuplicateCounterKey k = new DuplicateCounterKey(m_duplicateCounters.firstKeyAt(i),
+                                                            m_duplicateCounters.secondKeyAt(i));
+            if (k.m_spHandle < m_migratePartitionLeaderCheckPoint && k.isSpTransaction()) {
+                keys.add(k);
+            }
+        }
         if (!keys.isEmpty()) {
             if (tmLog.isDebugEnabled()) {
                 StringBuilder builder = new StringBuilder();
                 for (DuplicateCounterKey dc : keys) {
                     builder.append(TxnEgo.txnIdToString(dc.m_txnId) + "(" + dc.m_spHandle + "),");
-                    DuplicateCounter counter = m_duplicateCounters.get(dc);
+                    DuplicateCounter counter = m_duplicateCounters.get(dc.m_txnId, dc.m_spHandle);
                     builder.append(counter.m_openMessage + "\n");
                 }
                 tmLog.debug("Duplicate counters on " + CoreUtils.hsIdToString(m_mailbox.getHSId()) + " have keys smaller than the sphandle:" + m_migratePartitionLeaderCheckPoint + "\n" + builder.toString());
@@ -0,0 +1,155 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.MaterializedViewHandlerInfo;
+import org.voltdb.catalog.MaterializedViewInfo;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.Table;
+import org.voltdb.catalog.TableRef;
+
+/**
+ * Decides which single partition reads may run ahead of the multi-partition transaction
+ * holding a partition, see TransactionTaskQueue. A read may run early if no table it reads
+ * can be written by the multi-partition transaction or by a write queued ahead of it.
+ *
+ * Table access comes from the statements of each catalog procedure. Writes also cover the
+ * materialized views maintained from the written tables. Procedures that aren't in the
+ * catalog, like sysprocs and ad hoc, never run early, and block the reads behind them if
+ * they can write.
+ */
+class SpeculativeReadPolicy
+{
+    static final boolean ENABLED = Boolean.getBoolean("SP_SPECULATIVE_READS");
+
+    static class TableAccess
+    {
+        final Set<String> m_reads;
+        final Set<String> m_writes;
+
+        TableAccess(Set<String> reads, Set<String> writes)
+        {
+            m_reads = Collections.unmodifiableSet(reads);
+            m_writes = Collections.unmodifiableSet(writes);
+        }
+    }
+
+    // Policy of the catalog most recently asked for, shared by all the sites
+    private static volatile SpeculativeReadPolicy s_current = null;
+
+    private final CatalogContext m_context;
+    private final Map<String, TableAccess> m_procedures;
+
+    SpeculativeReadPolicy(CatalogContext context, Map<String, TableAccess> procedures)
+    {
+        m_context = context;
+        m_procedures = procedures;
+    }
+
+    /**
+     * @return the policy for the given catalog, building it if the catalog changed
+     */
+    static SpeculativeReadPolicy forCatalog(CatalogContext context)
+    {
+        SpeculativeReadPolicy policy = s_current;
+        if (policy == null || policy.m_context != context) {
+            policy = new SpeculativeReadPolicy(context, buildTableAccess(context.database));
+            s_current = policy;
+        }
+        return policy;
+    }
+
+    /**
+     * @return the tables the procedure reads and writes, or null if they aren't known
+     */
+    TableAccess getTableAccess(String procName)
+    {
+        return procName == null ? null : m_procedures.get(procName);
+    }
+
+    static Map<String, TableAccess> buildTableAccess(Database db)
+    {
+        Map<String, TableAccess> procedures = new HashMap<>();
+        for (Procedure proc : db.getProcedures()) {
+            if (proc.getTypeName().startsWith("@") || !proc.getTransactional()) {
+                continue;
+            }
+            Set<String> reads = new HashSet<>();
+            Set<String> writes = new HashSet<>();
+            for (Statement stmt : proc.getStatements()) {
+                addTableNames(stmt.getTablesread(), reads);
+                addTableNames(stmt.getTablesupdated(), writes);
+            }
+            addMaintainedViews(db, writes);
+            procedures.put(proc.getTypeName(), new TableAccess(reads, writes));
+        }
+        return procedures;
+    }
+
+    private static void addTableNames(String csv, Set<String> names)
+    {
+        if (csv == null) {
+            return;
+        }
+        for (String name : csv.split(",")) {
+            name = name.trim();
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+    }
+
+    /**
+     * Add the views that writing to any of the given tables updates
+     */
+    private static void addMaintainedViews(Database db, Set<String> writes)
+    {
+        Deque<String> pending = new ArrayDeque<>(writes);
+        while (!pending.isEmpty()) {
+            Table table = db.getTables().getIgnoreCase(pending.poll());
+            if (table == null) {
+                continue;
+            }
+            for (MaterializedViewInfo view : table.getViews()) {
+                if (view.getDest() != null && writes.add(view.getDest().getTypeName())) {
+                    pending.add(view.getDest().getTypeName());
+                }
+            }
+            for (Table candidate : db.getTables()) {
+                for (MaterializedViewHandlerInfo handler : candidate.getMvhandlerinfo()) {
+                    for (TableRef source : handler.getSourcetables()) {
+                        if (source.getTable() == table && writes.add(candidate.getTypeName())) {
+                            pending.add(candidate.getTypeName());
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.dtxn.LatencyHistogramStats;
+
+/**
+ * Where a partition's transactions spend their time, reported by @Statistics STAGELATENCY
+ * with one row per stage. Percentiles are in microseconds and cover everything since
+ * startup, or since the last interval collection for interval requests.
+ *
+ *   TXN_QUEUE    time held in the TransactionTaskQueue backlog behind a multi-part,
+ *                only transactions that were held are counted
+ *   SITE_QUEUE   time from being offered to the SiteTaskerQueue until the site runs it
+ *   EXECUTION    time the site spent running the transaction task, procedure and EE
+ *   REPLICA_ACK  time from the first to the last response of a replicated transaction,
+ *                i.e. how long the leader waited on the slowest replica
+ *
+ * Disable the recording with -DSTAGE_LATENCY_STATS=false.
+ */
+public class StageLatencyStats extends SiteStatsSource {
+
+    public static final boolean ENABLED = Boolean.valueOf(System.getProperty("STAGE_LATENCY_STATS", "true"));
+
+    public enum Stage {
+        TXN_QUEUE,
+        SITE_QUEUE,
+        EXECUTION,
+        REPLICA_ACK
+    };
+
+    private final int m_partitionId;
+    // recorded from the scheduler and site threads
+    private final AbstractHistogram[] m_histograms;
+    // totals as of the last interval collection
+    private final AbstractHistogram[] m_lastHistograms;
+    private boolean m_interval = false;
+
+    public StageLatencyStats(long siteId, int partitionId) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+        final int stages = Stage.values().length;
+        m_histograms = new AbstractHistogram[stages];
+        m_lastHistograms = new AbstractHistogram[stages];
+        for (int i = 0; i < stages; i++) {
+            m_histograms[i] = LatencyHistogramStats.constructHistogram(true);
+            m_lastHistograms[i] = LatencyHistogramStats.constructHistogram(false);
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        final AbstractHistogram hist = m_histograms[stage.ordinal()];
+        hist.recordValue(Math.max(0, Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), hist.getHighestTrackableValue())));
+    }
+
+    // Copy of the stage's histogram since startup
+    AbstractHistogram getHistogram(Stage stage) {
+        return m_histograms[stage.ordinal()].copy();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("PARTITION_ID", VoltType.INTEGER));
+        columns.add(new ColumnInfo("STAGE", VoltType.STRING));
+        columns.add(new ColumnInfo("COUNT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("AVG", VoltType.BIGINT));      // microseconds
+        columns.add(new ColumnInfo("P50", VoltType.BIGINT));      // microseconds
+        columns.add(new ColumnInfo("P95", VoltType.BIGINT));      // microseconds
+        columns.add(new ColumnInfo("P99", VoltType.BIGINT));      // microseconds
+        columns.add(new ColumnInfo("P99.9", VoltType.BIGINT));    // microseconds
+        columns.add(new ColumnInfo("MAX", VoltType.BIGINT));      // microseconds
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final Stage stage = (Stage) rowKey;
+        final AbstractHistogram current = m_histograms[stage.ordinal()].copy();
+        AbstractHistogram hist = current;
+        if (m_interval) {
+            hist = current.copy();
+            hist.subtract(m_lastHistograms[stage.ordinal()]);
+            m_lastHistograms[stage.ordinal()] = current;
+        }
+
+        rowValues[columnNameToIndex.get("PARTITION_ID")] = m_partitionId;
+        rowValues[columnNameToIndex.get("STAGE")] = stage.name();
+        rowValues[columnNameToIndex.get("COUNT")] = hist.getTotalCount();
+        rowValues[columnNameToIndex.get("AVG")] = (long) hist.getMean();
+        rowValues[columnNameToIndex.get("P50")] = hist.getValueAtPercentile(50D);
+        rowValues[columnNameToIndex.get("P95")] = hist.getValueAtPercentile(95D);
+        rowValues[columnNameToIndex.get("P99")] = hist.getValueAtPercentile(99D);
+        rowValues[columnNameToIndex.get("P99.9")] = hist.getValueAtPercentile(99.9D);
+        rowValues[columnNameToIndex.get("MAX")] = hist.getMaxValue();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_interval = interval;
+        return new ArrayList<Object>(Arrays.asList(Stage.values())).iterator();
+    }
+}
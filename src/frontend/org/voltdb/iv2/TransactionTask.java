@@ -41,6 +41,8 @@ public abstract class TransactionTask extends SiteTasker
     final protected TransactionState m_txnState;
     final protected TransactionTaskQueue m_queue;
     protected ListenableFuture<Object> m_durabilityBackpressureFuture = null;
+    // when the TransactionTaskQueue put this task in its backlog, for StageLatencyStats
+    long m_backlogTime = 0;
 
     public TransactionTask(TransactionState txnState, TransactionTaskQueue queue)
     {
@@ -18,11 +18,16 @@
 package org.voltdb.iv2;
 
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltdb.VoltDB;
 import org.voltdb.dtxn.TransactionState;
+import org.voltdb.iv2.SpeculativeReadPolicy.TableAccess;
 
 public class TransactionTaskQueue
 {
@@ -37,6 +42,17 @@ public class TransactionTaskQueue
      */
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
 
+    /*
+     * With SP_SPECULATIVE_READS, single part reads that can't see any write of the backlog
+     * run ahead of it instead of waiting for the multi-part to finish, see SpeculativeReadPolicy.
+     * Reads don't need undo, so nothing has to be rolled back if the multi-part aborts, and
+     * SAFE read responses are still held until the writes before them are replicated.
+     * m_backlogWrites holds the tables the backlog may write, null if that isn't known.
+     */
+    private SpeculativeReadPolicy m_speculationPolicy = null;
+    private Set<String> m_backlogWrites = null;
+    private long m_speculatedCount = 0;
+
     TransactionTaskQueue(SiteTaskerQueue queue)
     {
         m_taskQueue = queue;
@@ -63,8 +79,18 @@ public class TransactionTaskQueue
              */
             if (task.getTxnId() != m_backlog.getFirst().getTxnId())
             {
-                m_backlog.addLast(task);
-                retval = true;
+                if (canSpeculate(task)) {
+                    m_speculatedCount++;
+                    taskQueueOffer(task);
+                }
+                else {
+                    m_backlog.addLast(task);
+                    addBacklogWrites(task);
+                    if (StageLatencyStats.ENABLED) {
+                        task.m_backlogTime = System.nanoTime();
+                    }
+                    retval = true;
+                }
             }
             else {
                 taskQueueOffer(task);
@@ -79,6 +105,7 @@ public class TransactionTaskQueue
              */
             if (!txnState.isSinglePartition()) {
                 m_backlog.addLast(task);
+                resetBacklogWrites();
                 retval = true;
             }
             taskQueueOffer(task);
@@ -86,11 +113,110 @@ public class TransactionTaskQueue
         return retval;
     }
 
+    void setSpeculativeReadPolicy(SpeculativeReadPolicy policy)
+    {
+        m_speculationPolicy = policy;
+    }
+
+    /**
+     * @return whether tasks may run ahead of the backlog without a policy set for the queue
+     */
+    boolean isSpeculationEnabled()
+    {
+        return SpeculativeReadPolicy.ENABLED;
+    }
+
+    SpeculativeReadPolicy getSpeculativeReadPolicy()
+    {
+        if (m_speculationPolicy != null) {
+            return m_speculationPolicy;
+        }
+        return isSpeculationEnabled() ?
+                SpeculativeReadPolicy.forCatalog(VoltDB.instance().getCatalogContext()) : null;
+    }
+
+    static TableAccess getTableAccess(SpeculativeReadPolicy policy, TransactionTask task)
+    {
+        if (task instanceof ProcedureTask) {
+            return policy.getTableAccess(((ProcedureTask)task).getProcName());
+        }
+        if (task instanceof FragmentTask) {
+            return policy.getTableAccess(((FragmentTask)task).m_fragmentMsg.getProcedureName());
+        }
+        return null;
+    }
+
+    /**
+     * Can this single part read run ahead of the tasks in the backlog?
+     */
+    private boolean canSpeculate(TransactionTask task)
+    {
+        if (m_backlogWrites == null
+                || !(task instanceof SpProcedureTask)
+                || !task.getTransactionState().isReadOnly()) {
+            return false;
+        }
+        SpeculativeReadPolicy policy = getSpeculativeReadPolicy();
+        if (policy == null) {
+            return false;
+        }
+        TableAccess access = getTableAccess(policy, task);
+        return access != null && Collections.disjoint(access.m_reads, m_backlogWrites);
+    }
+
+    private void addBacklogWrites(TransactionTask task)
+    {
+        if (m_backlogWrites == null) {
+            return;
+        }
+        // Reads left in the backlog don't stop later reads
+        if (task instanceof SpProcedureTask && task.getTransactionState().isReadOnly()) {
+            return;
+        }
+        SpeculativeReadPolicy policy = getSpeculativeReadPolicy();
+        TableAccess access = policy == null ? null : getTableAccess(policy, task);
+        if (access == null) {
+            m_backlogWrites = null;
+        }
+        else {
+            m_backlogWrites.addAll(access.m_writes);
+        }
+    }
+
+    /**
+     * Work out the tables the backlog may write, after its head changed
+     */
+    private void resetBacklogWrites()
+    {
+        if (m_backlog.isEmpty() || getSpeculativeReadPolicy() == null) {
+            m_backlogWrites = null;
+            return;
+        }
+        m_backlogWrites = new HashSet<>();
+        for (TransactionTask task : m_backlog) {
+            // Other tasks of the multi-part at the head write the same tables
+            if (task != m_backlog.getFirst() && task.getTxnId() == m_backlog.getFirst().getTxnId()) {
+                continue;
+            }
+            addBacklogWrites(task);
+            if (m_backlogWrites == null) {
+                break;
+            }
+        }
+    }
+
     // Add a local method to offer to the SiteTaskerQueue so we have
     // a single point we can log through.
     private void taskQueueOffer(TransactionTask task)
     {
         Iv2Trace.logSiteTaskerQueueOffer(task);
+        if (task.m_backlogTime != 0) {
+            final StageLatencyStats stats = m_taskQueue.getStageLatencyStats();
+            if (stats != null) {
+                stats.record(StageLatencyStats.Stage.TXN_QUEUE, System.nanoTime() - task.m_backlogTime);
+            }
+            task.m_backlogTime = 0;
+        }
         m_taskQueue.offer(task);
     }
 
@@ -145,6 +271,7 @@ public class TransactionTaskQueue
                 break;
             }
         }
+        resetBacklogWrites();
         return offered;
     }
 
@@ -173,6 +300,9 @@ public class TransactionTaskQueue
         StringBuilder sb = new StringBuilder();
         sb.append("TransactionTaskQueue:").append("\n");
         sb.append("\tSIZE: ").append(size());
+        if (m_speculatedCount > 0) {
+            sb.append("\tSPECULATED READS: ").append(m_speculatedCount);
+        }
         if (!m_backlog.isEmpty()) {
             sb.append("\tHEAD: ").append(m_backlog.getFirst());
         }
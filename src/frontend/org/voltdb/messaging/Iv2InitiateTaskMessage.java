@@ -44,6 +44,7 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
     public static int SINGLE_PARTITION_MASK = 1;
     public static int N_PARTITION_MASK = 2;
     public static int SHOULD_RETURN_TABLES_MASK = 2;
+    public static int REPLICA_READ_MASK = 4;
 
     long m_clientInterfaceHandle;
     long m_connectionId;
@@ -52,6 +53,9 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
     //Flag to indicate the the replica applying the write transaction
     //doesn't need to send back the result tables
     boolean m_shouldReturnResultTables = true;
+    //Flag to indicate that the read-only invocation was routed by the client interface
+    //to a replica of the partition rather than to the partition leader
+    boolean m_isReplicaRead = false;
     StoredProcedureInvocation m_invocation;
 
     // not serialized.
@@ -212,6 +216,15 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
         return m_nPartitions;
     }
 
+    public void setReplicaRead(boolean isReplicaRead) {
+        assert(!isReplicaRead || (m_isReadOnly && m_isSinglePartition));
+        m_isReplicaRead = isReplicaRead;
+    }
+
+    public boolean isReplicaRead() {
+        return m_isReplicaRead;
+    }
+
     @Override
     public int getSerializedSize()
     {
@@ -234,6 +247,7 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
         byte flags = 0;
         if (m_isSinglePartition) flags |= SINGLE_PARTITION_MASK;
         if (m_nPartitions != null) flags |= N_PARTITION_MASK;
+        if (m_isReplicaRead) flags |= REPLICA_READ_MASK;
 
         //Should never generate a response if we have to forward to a replica
         //if (m_shouldReturnResultTables) flags |= SHOULD_RETURN_TABLES_MASK;
@@ -267,6 +281,7 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
         byte flags = buf.get();
         m_isSinglePartition = (flags & SINGLE_PARTITION_MASK) != 0;
         m_shouldReturnResultTables = (flags & SHOULD_RETURN_TABLES_MASK) != 0;
+        m_isReplicaRead = (flags & REPLICA_READ_MASK) != 0;
         if ((flags & N_PARTITION_MASK) != 0) {
             int partitionCount = buf.getShort();
             m_nPartitions = new int[partitionCount];
@@ -307,6 +322,8 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
             sb.append("FOR REPLAY, ");
         else
             sb.append("NOT REPLAY, ");
+        if (m_isReplicaRead)
+            sb.append("REPLICA READ, ");
         sb.append("COORD ");
         sb.append(CoreUtils.hsIdToString(getCoordinatorHSId()));
 
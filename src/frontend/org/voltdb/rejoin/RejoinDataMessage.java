@@ -23,12 +23,15 @@ import java.nio.ByteBuffer;
 import org.voltcore.messaging.Subject;
 import org.voltcore.messaging.VoltMessage;
 import org.voltdb.messaging.VoltDbMessageFactory;
+import org.voltdb.utils.CompressionCodec;
 
 /**
  *
  */
 public class RejoinDataMessage extends VoltMessage {
     private long m_targetId = -1;
+    // codec the snapshot data was compressed with
+    private CompressionCodec m_codec = CompressionCodec.SNAPPY;
     // compressed snapshot data
     private byte[] m_data = null;
 
@@ -36,9 +39,10 @@ public class RejoinDataMessage extends VoltMessage {
         m_subject = Subject.DEFAULT.getId();
     }
 
-    public RejoinDataMessage(long targetId, byte[] data) {
+    public RejoinDataMessage(long targetId, CompressionCodec codec, byte[] data) {
         m_subject = Subject.DEFAULT.getId();
         m_targetId = targetId;
+        m_codec = codec;
         m_data = data;
     }
 
@@ -46,6 +50,10 @@ public class RejoinDataMessage extends VoltMessage {
         return m_targetId;
     }
 
+    public CompressionCodec getCompressionCodec() {
+        return m_codec;
+    }
+
     public byte[] getData() {
         return m_data;
     }
@@ -55,6 +63,7 @@ public class RejoinDataMessage extends VoltMessage {
         int msgsize = super.getSerializedSize();
         msgsize +=
                 8 + // m_targetId
+                1 + // m_codec
                 4 + // data length
                 m_data.length;
         return msgsize;
@@ -63,6 +72,7 @@ public class RejoinDataMessage extends VoltMessage {
     @Override
     protected void initFromBuffer(ByteBuffer buf) throws IOException {
         m_targetId = buf.getLong();
+        m_codec = CompressionCodec.fromId(buf.get());
         int len = buf.getInt();
         m_data = new byte[len];
         buf.get(m_data);
@@ -72,6 +82,7 @@ public class RejoinDataMessage extends VoltMessage {
     public void flattenToBuffer(ByteBuffer buf) throws IOException {
         buf.put(VoltDbMessageFactory.REJOIN_DATA_ID);
         buf.putLong(m_targetId);
+        buf.put((byte) m_codec.id());
         buf.putInt(m_data.length);
         buf.put(m_data);
         buf.limit(buf.position());
@@ -40,6 +40,7 @@ import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.SnapshotDataTarget;
 import org.voltdb.SnapshotFormat;
 import org.voltdb.VoltDB;
+import org.voltdb.utils.CompressionCodec;
 import org.voltdb.utils.CompressionService;
 
 import com.google_voltpatches.common.base.Preconditions;
@@ -55,6 +56,9 @@ public class StreamSnapshotDataTarget extends StreamSnapshotBase
 implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     private static final VoltLogger rejoinLog = new VoltLogger("REJOIN");
 
+    // Codec for snapshot blocks sent to the rejoining site, carried in each data message
+    private static final CompressionCodec REJOIN_CODEC = CompressionCodec.forUse("REJOIN");
+
     // triggers specific test code for TestMidRejoinDeath
     static boolean m_rejoinDeathTestMode = System.getProperties().containsKey("rejoindeathtest");
 
@@ -179,8 +183,8 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         protected int send(Mailbox mb, MessageFactory msgFactory, BBContainer message) throws IOException {
             final ByteBuffer messageBuffer = message.b();
             if (messageBuffer.isDirect()) {
-                byte[] data = CompressionService.compressBuffer(messageBuffer);
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, data));
+                byte[] data = CompressionService.compressBuffer(REJOIN_CODEC, messageBuffer);
+                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, REJOIN_CODEC, data));
 
                 if (rejoinLog.isTraceEnabled()) {
                     rejoinLog.trace("Sending direct buffer");
@@ -189,11 +193,11 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 return data.length;
             } else {
                 byte compressedBytes[] =
-                    CompressionService.compressBytes(
+                    CompressionService.compressBytes(REJOIN_CODEC,
                             messageBuffer.array(), messageBuffer.position(),
                             messageBuffer.remaining());
 
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, compressedBytes));
+                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, REJOIN_CODEC, compressedBytes));
 
                 if (rejoinLog.isTraceEnabled()) {
                     rejoinLog.trace("Sending heap buffer");
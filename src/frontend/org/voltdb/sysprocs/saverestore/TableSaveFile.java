@@ -45,7 +45,7 @@ import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.EELibraryLoader;
 import org.voltdb.messaging.FastDeserializer;
-import org.voltdb.utils.CompressionService;
+import org.voltdb.utils.CompressionCodec;
 import org.voltdb.utils.PosixAdvise;
 
 /**
@@ -243,6 +243,7 @@ public class TableSaveFile
                 m_tableName = fd.readString();
                 m_isReplicated = fd.readBoolean();
                 m_isCompressed = false;
+                m_compressionCodec = CompressionCodec.SNAPPY;
                 m_checksumType = ChecksumType.CRC32;
                 if (!m_isReplicated) {
                     m_partitionIds = (int[])fd.readArray(int.class);
@@ -288,6 +289,8 @@ public class TableSaveFile
                 m_tableName = obj.getString("tableName");
                 m_isReplicated = obj.getBoolean("isReplicated");
                 m_isCompressed = obj.optBoolean("isCompressed", false);
+                //Codec recorded since codecs became pluggable, older snapshots are Snappy
+                m_compressionCodec = CompressionCodec.valueOf(obj.optString("compressionCodec", "SNAPPY"));
                 m_checksumType = ChecksumType.valueOf(obj.optString("checksumType", "CRC32"));
                 if (!m_isReplicated) {
                     JSONArray partitionIds = obj.getJSONArray("partitionIds");
@@ -368,6 +371,10 @@ public class TableSaveFile
         return m_isCompressed;
     }
 
+    public CompressionCodec getCompressionCodec() {
+        return m_compressionCodec;
+    }
+
     public int getTotalPartitions() {
         return m_totalPartitions;
     }
@@ -483,6 +490,7 @@ public class TableSaveFile
     private final String m_tableName;
     private final boolean m_isReplicated;
     private final boolean m_isCompressed;
+    private final CompressionCodec m_compressionCodec;
     private final int m_partitionIds[];
     private final int m_totalPartitions;
     private final long m_txnId;
@@ -532,7 +540,7 @@ public class TableSaveFile
         private void readChunksV2() {
             //For reading the compressed input.
             final BBContainer fileInputBufferC =
-                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
+                    DBBPool.allocateDirect(m_compressionCodec.maxCompressedLength(DEFAULT_CHUNKSIZE));
             final ByteBuffer fileInputBuffer = fileInputBufferC.b();
             long sinceLastFAdvise = Long.MAX_VALUE;
             long positionAtLastFAdvise = 0;
@@ -658,7 +666,7 @@ public class TableSaveFile
                         sinceLastFAdvise += read;
                     }
                     fileInputBuffer.flip();
-                    nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
+                    nextChunkLength = m_compressionCodec.uncompressedLength(fileInputBuffer);
 
                     /*
                      * Validate the rest of the chunk. This can fail if the data is corrupted
@@ -704,7 +712,7 @@ public class TableSaveFile
                         m_tableHeader.position(0);
                         buf.put(m_tableHeader);
                         //Doesn't move buffer position, does change the limit
-                        CompressionService.decompressBuffer(fileInputBuffer, buf);
+                        m_compressionCodec.decompress(fileInputBuffer, buf);
                         completedRead = true;
                     } finally {
                         if (!completedRead) {
@@ -785,7 +793,7 @@ public class TableSaveFile
         private void readChunks() {
             //For reading the compressed input.
             BBContainer fileInputBufferC =
-                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
+                    DBBPool.allocateDirect(m_compressionCodec.maxCompressedLength(DEFAULT_CHUNKSIZE));
             ByteBuffer fileInputBuffer = fileInputBufferC.b();
             while (m_hasMoreChunks.get()) {
                 /*
@@ -880,7 +888,7 @@ public class TableSaveFile
                             }
                         }
                         fileInputBuffer.flip();
-                        nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
+                        nextChunkLength = m_compressionCodec.uncompressedLength(fileInputBuffer);
                     }
 
                     /*
@@ -926,7 +934,7 @@ public class TableSaveFile
                         c.b().position(c.b().position() + 4);//Leave space for row count to be moved into
                         checksumStartPosition = c.b().position();
                         if (isCompressed()) {
-                            CompressionService.decompressBuffer(fileInputBuffer, c.b());
+                            m_compressionCodec.decompress(fileInputBuffer, c.b());
                             c.b().position(c.b().limit());
                         } else {
                             while (c.b().hasRemaining()) {
@@ -0,0 +1,281 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltcore.logging.VoltLogger;
+import org.xerial.snappy.Snappy;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Block compression codecs for data VoltDB writes to disk or streams between hosts.
+ * Every codec works on a single self describing block: the uncompressed length can
+ * be read back from the compressed bytes. Like Snappy's ByteBuffer API, the data between
+ * position and limit of the input is consumed without moving its position, the output is
+ * written starting at its position and its limit is set to the end of what was written.
+ *
+ * The id of a codec is persisted (PBD entry flags, snapshot headers, rejoin messages) and
+ * must never change. Snappy is id 0 so data written before codecs were pluggable decodes as Snappy.
+ */
+public enum CompressionCodec {
+    SNAPPY(0) {
+        @Override
+        public int maxCompressedLength(int uncompressedLength) {
+            return Snappy.maxCompressedLength(uncompressedLength);
+        }
+
+        @Override
+        public int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException {
+            assert(uncompressed.isDirect());
+            assert(compressed.isDirect());
+            return Snappy.compress(uncompressed, compressed);
+        }
+
+        @Override
+        public int uncompressedLength(ByteBuffer compressed) throws IOException {
+            assert(compressed.isDirect());
+            return Snappy.uncompressedLength(compressed);
+        }
+
+        @Override
+        public int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+            assert(compressed.isDirect());
+            assert(uncompressed.isDirect());
+            return Snappy.uncompress(compressed, uncompressed);
+        }
+    },
+
+    /**
+     * LZ4 block format prefixed with the big endian uncompressed length. Decompresses
+     * considerably faster than Snappy, which is what matters for replay and catch up.
+     * The bundled lz4 only has array based APIs so direct buffers go through per thread
+     * scratch arrays.
+     */
+    LZ4(1) {
+        private final LZ4Compressor m_compressor = LZ4Factory.fastestInstance().fastCompressor();
+        private final LZ4FastDecompressor m_decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+        @Override
+        public int maxCompressedLength(int uncompressedLength) {
+            return LENGTH_PREFIX_BYTES + m_compressor.maxCompressedLength(uncompressedLength);
+        }
+
+        @Override
+        public int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException {
+            final int length = uncompressed.remaining();
+            final byte[] src;
+            final int srcOffset;
+            if (uncompressed.hasArray()) {
+                src = uncompressed.array();
+                srcOffset = uncompressed.arrayOffset() + uncompressed.position();
+            } else {
+                src = scratch(0, length);
+                srcOffset = 0;
+                uncompressed.duplicate().get(src, 0, length);
+            }
+
+            final int available = compressed.remaining() - LENGTH_PREFIX_BYTES;
+            final int start = compressed.position();
+            final int compressedLength;
+            try {
+                if (compressed.hasArray()) {
+                    compressedLength = m_compressor.compress(src, srcOffset, length, compressed.array(),
+                            compressed.arrayOffset() + start + LENGTH_PREFIX_BYTES, available);
+                } else {
+                    final int maxLength = m_compressor.maxCompressedLength(length);
+                    final byte[] dest = scratch(1, maxLength);
+                    compressedLength = m_compressor.compress(src, srcOffset, length, dest, 0, maxLength);
+                    if (compressedLength > available) {
+                        throw new IOException("Output buffer too small for LZ4 compression");
+                    }
+                    final ByteBuffer out = compressed.duplicate();
+                    out.position(start + LENGTH_PREFIX_BYTES);
+                    out.put(dest, 0, compressedLength);
+                }
+            } catch (LZ4Exception e) {
+                throw new IOException(e);
+            }
+            putLength(compressed, start, length);
+            compressed.limit(start + LENGTH_PREFIX_BYTES + compressedLength);
+            return LENGTH_PREFIX_BYTES + compressedLength;
+        }
+
+        @Override
+        public int uncompressedLength(ByteBuffer compressed) throws IOException {
+            if (compressed.remaining() < LENGTH_PREFIX_BYTES) {
+                throw new IOException("Truncated LZ4 block");
+            }
+            return getLength(compressed, compressed.position());
+        }
+
+        @Override
+        public int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+            final int length = uncompressedLength(compressed);
+            final int compressedLength = compressed.remaining() - LENGTH_PREFIX_BYTES;
+            if (uncompressed.remaining() < length) {
+                throw new IOException("Output buffer too small for LZ4 decompression");
+            }
+
+            final byte[] src;
+            final int srcOffset;
+            if (compressed.hasArray()) {
+                src = compressed.array();
+                srcOffset = compressed.arrayOffset() + compressed.position() + LENGTH_PREFIX_BYTES;
+            } else {
+                src = scratch(0, compressedLength);
+                srcOffset = 0;
+                final ByteBuffer in = compressed.duplicate();
+                in.position(in.position() + LENGTH_PREFIX_BYTES);
+                in.get(src, 0, compressedLength);
+            }
+
+            final int start = uncompressed.position();
+            try {
+                final int read;
+                if (uncompressed.hasArray()) {
+                    read = m_decompressor.decompress(src, srcOffset, uncompressed.array(),
+                            uncompressed.arrayOffset() + start, length);
+                } else {
+                    final byte[] dest = scratch(1, length);
+                    read = m_decompressor.decompress(src, srcOffset, dest, 0, length);
+                    final ByteBuffer out = uncompressed.duplicate();
+                    out.put(dest, 0, length);
+                }
+                if (read != compressedLength) {
+                    throw new IOException("Corrupt LZ4 block, consumed " + read + " of " + compressedLength + " bytes");
+                }
+            } catch (LZ4Exception e) {
+                throw new IOException(e);
+            }
+            uncompressed.limit(start + length);
+            return length;
+        }
+    };
+
+    private static final VoltLogger LOG = new VoltLogger("HOST");
+    private static final int LENGTH_PREFIX_BYTES = 4;
+
+    // Input and output scratch arrays for codecs without a direct buffer API
+    private static final ThreadLocal<byte[][]> m_scratch = new ThreadLocal<byte[][]>() {
+        @Override
+        protected byte[][] initialValue() {
+            return new byte[][] { new byte[1024 * 32], new byte[1024 * 32] };
+        }
+    };
+
+    private final int m_id;
+
+    private CompressionCodec(int id) {
+        m_id = id;
+    }
+
+    /**
+     * Persistent id of this codec
+     */
+    public int id() {
+        return m_id;
+    }
+
+    /**
+     * Largest number of bytes compressing the given number of bytes can produce
+     */
+    public abstract int maxCompressedLength(int uncompressedLength);
+
+    /**
+     * Compress the remaining bytes of uncompressed into compressed.
+     * @return number of compressed bytes written
+     */
+    public abstract int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException;
+
+    /**
+     * Uncompressed length of the compressed block between position and limit
+     */
+    public abstract int uncompressedLength(ByteBuffer compressed) throws IOException;
+
+    /**
+     * Decompress the block between position and limit of compressed into uncompressed.
+     * @return number of uncompressed bytes written
+     */
+    public abstract int decompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException;
+
+    public static CompressionCodec fromId(int id) throws IOException {
+        for (CompressionCodec codec : values()) {
+            if (codec.m_id == id) {
+                return codec;
+            }
+        }
+        throw new IOException("Unknown compression codec id " + id);
+    }
+
+    /**
+     * Largest compressed length of any codec, for sizing buffers shared by all codecs
+     */
+    public static int maxCompressedLengthOfAny(int uncompressedLength) {
+        int max = 0;
+        for (CompressionCodec codec : values()) {
+            max = Math.max(max, codec.maxCompressedLength(uncompressedLength));
+        }
+        return max;
+    }
+
+    /**
+     * Codec configured for one use of compression, e.g. PBD, SNAPSHOT or REJOIN,
+     * through the system property {@code <use>_COMPRESSION_CODEC}. Defaults to Snappy.
+     */
+    public static CompressionCodec forUse(String use) {
+        final String property = use + "_COMPRESSION_CODEC";
+        final String name = System.getProperty(property);
+        if (name == null) {
+            return SNAPPY;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Unknown compression codec " + name + " for " + property + ", using " + SNAPPY);
+            return SNAPPY;
+        }
+    }
+
+    private static byte[] scratch(int index, int length) {
+        byte[][] scratch = m_scratch.get();
+        if (scratch[index].length < length) {
+            scratch[index] = new byte[Math.max(scratch[index].length * 2, length)];
+        }
+        return scratch[index];
+    }
+
+    private static void putLength(ByteBuffer buf, int offset, int length) {
+        buf.put(offset, (byte) (length >>> 24));
+        buf.put(offset + 1, (byte) (length >>> 16));
+        buf.put(offset + 2, (byte) (length >>> 8));
+        buf.put(offset + 3, (byte) length);
+    }
+
+    private static int getLength(ByteBuffer buf, int offset) {
+        return ((buf.get(offset) & 0xff) << 24) |
+               ((buf.get(offset + 1) & 0xff) << 16) |
+               ((buf.get(offset + 2) & 0xff) << 8) |
+               (buf.get(offset + 3) & 0xff);
+    }
+}
@@ -80,12 +80,12 @@ public final class CompressionService {
                                          CoreUtils.getThreadFactory("Compression service thread"))
             );
 
-    private static IOBuffers getBuffersForCompression(int length, boolean inputNotUsed) {
+    private static IOBuffers getBuffersForCompression(CompressionCodec codec, int length, boolean inputNotUsed) {
         IOBuffers buffers = m_buffers.get();
         BBContainer input = buffers.input;
         BBContainer output = buffers.output;
 
-        final int maxCompressedLength = Snappy.maxCompressedLength(length);
+        final int maxCompressedLength = codec.maxCompressedLength(length);
 
         final int inputCapacity = input.b().capacity();
         final int outputCapacity = output.b().capacity();
@@ -129,6 +129,11 @@ public final class CompressionService {
     }
 
     public static Future<BBContainer> compressAndCRC32cBufferAsync(final ByteBuffer inBuffer, final BBContainer outBufferC) {
+        return compressAndCRC32cBufferAsync(CompressionCodec.SNAPPY, inBuffer, outBufferC);
+    }
+
+    public static Future<BBContainer> compressAndCRC32cBufferAsync(final CompressionCodec codec,
+            final ByteBuffer inBuffer, final BBContainer outBufferC) {
         assert(inBuffer.isDirect());
         assert(outBufferC.b().isDirect());
         return submitCompressionTask(new Callable<BBContainer>() {
@@ -140,7 +145,7 @@ public final class CompressionService {
                 final int crcPosition = outBuffer.position();
                 outBuffer.position(outBuffer.position() + 4);
                 final int crcCalcStart = outBuffer.position();
-                compressBuffer(inBuffer, outBuffer);
+                codec.compress(inBuffer, outBuffer);
                 final int crc32c =
                         DBBPool.getCRC32C( outBufferC.address(), crcCalcStart, outBuffer.limit() - crcCalcStart);
                 outBuffer.putInt(crcPosition, crc32c);
@@ -157,23 +162,31 @@ public final class CompressionService {
     }
 
     public static byte[] compressBuffer(ByteBuffer buffer) throws IOException {
+        return compressBuffer(CompressionCodec.SNAPPY, buffer);
+    }
+
+    public static byte[] compressBuffer(CompressionCodec codec, ByteBuffer buffer) throws IOException {
         assert(buffer.isDirect());
-        IOBuffers buffers = getBuffersForCompression(buffer.remaining(), true);
+        IOBuffers buffers = getBuffersForCompression(codec, buffer.remaining(), true);
         ByteBuffer output = buffers.output.b();
 
-        final int compressedSize = Snappy.compress(buffer, output);
+        final int compressedSize = codec.compress(buffer, output);
         byte result[] = new byte[compressedSize];
         output.get(result);
         return result;
     }
 
     public static byte[] compressBytes(byte bytes[], int offset, int length) throws IOException {
-        final IOBuffers buffers = getBuffersForCompression(bytes.length, false);
+        return compressBytes(CompressionCodec.SNAPPY, bytes, offset, length);
+    }
+
+    public static byte[] compressBytes(CompressionCodec codec, byte bytes[], int offset, int length) throws IOException {
+        final IOBuffers buffers = getBuffersForCompression(codec, bytes.length, false);
         final ByteBuffer input = buffers.input.b();
         final ByteBuffer output = buffers.output.b();
         input.put(bytes, offset, length);
         input.flip();
-        final int compressedSize = Snappy.compress(input, output);
+        final int compressedSize = codec.compress(input, output);
         final byte compressed[] = new byte[compressedSize];
         output.get(compressed);
         return compressed;
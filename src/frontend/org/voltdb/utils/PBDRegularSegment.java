@@ -30,8 +30,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Objects placed in the deque are stored in file segments that are up to 64 megabytes.
@@ -53,6 +57,9 @@ public class PBDRegularSegment extends PBDSegment {
 
     private DBBPool.BBContainer m_tmpHeaderBuf = null;
 
+    // Read only mapping of the segment, only created once the segment is sealed
+    private MappedRegion m_mapped = null;
+
     public PBDRegularSegment(Long index, File file) {
         super(file);
         m_index = index;
@@ -224,10 +231,14 @@ public class PBDRegularSegment extends PBDSegment {
     private void closeReadersAndFile() throws IOException {
         m_readCursors.clear();
         try {
+            if (m_mapped != null) {
+                m_mapped.release();
+            }
             if (m_ras != null) {
                 m_ras.close();
             }
         } finally {
+            m_mapped = null;
             m_ras = null;
             m_fc = null;
             m_closed = true;
@@ -235,6 +246,19 @@ public class PBDRegularSegment extends PBDSegment {
         }
     }
 
+    @Override
+    public void mapForRead() throws IOException {
+        if (m_closed) throw new IOException("Segment closed");
+        if (m_mapped == null) {
+            m_mapped = new MappedRegion(m_fc.map(MapMode.READ_ONLY, 0, m_fc.size()));
+        }
+    }
+
+    @Override
+    public boolean isMapped() {
+        return m_mapped != null;
+    }
+
     @Override
     public void sync() throws IOException {
         if (m_closed) throw new IOException("Segment closed");
@@ -244,6 +268,21 @@ public class PBDRegularSegment extends PBDSegment {
         m_syncedSinceLastEdit = true;
     }
 
+    @Override
+    public FileChannel claimSync() throws IOException {
+        if (m_closed) throw new IOException("Segment closed");
+        if (m_syncedSinceLastEdit) {
+            return null;
+        }
+        m_syncedSinceLastEdit = true;
+        return m_fc;
+    }
+
+    @Override
+    public void unclaimSync() {
+        m_syncedSinceLastEdit = false;
+    }
+
     @Override
     public boolean hasAllFinishedReading() throws IOException {
         if (m_closed) throw new IOException("Segment closed");
@@ -260,13 +299,14 @@ public class PBDRegularSegment extends PBDSegment {
     }
 
     @Override
-    public boolean offer(DBBPool.BBContainer cont, boolean compress) throws IOException
+    public boolean offer(DBBPool.BBContainer cont, CompressionCodec codec) throws IOException
     {
         if (m_closed) throw new IOException("Segment closed");
         final ByteBuffer buf = cont.b();
         final int remaining = buf.remaining();
-        if (remaining < 32 || !buf.isDirect()) compress = false;
-        final int maxCompressedSize = (compress ? CompressionService.maxCompressedLength(remaining) : remaining) + OBJECT_HEADER_BYTES;
+        if (remaining < 32 || !buf.isDirect()) codec = null;
+        final boolean compress = codec != null;
+        final int maxCompressedSize = (compress ? codec.maxCompressedLength(remaining) : remaining) + OBJECT_HEADER_BYTES;
         if (remaining() < maxCompressedSize) return false;
 
         m_syncedSinceLastEdit = false;
@@ -277,11 +317,11 @@ public class PBDRegularSegment extends PBDSegment {
 
             if (compress) {
                 destBuf = DBBPool.allocateDirectAndPool(maxCompressedSize);
-                final int compressedSize = CompressionService.compressBuffer(buf, destBuf.b());
+                final int compressedSize = codec.compress(buf, destBuf.b());
                 destBuf.b().limit(compressedSize);
 
                 m_tmpHeaderBuf.b().putInt(compressedSize);
-                m_tmpHeaderBuf.b().putInt(FLAG_COMPRESSED);
+                m_tmpHeaderBuf.b().putInt(flagsForCodec(codec));
             } else {
                 destBuf = cont;
                 m_tmpHeaderBuf.b().putInt(remaining);
@@ -395,6 +435,10 @@ public class PBDRegularSegment extends PBDSegment {
                 return null;
             }
 
+            if (m_mapped != null) {
+                return pollMapped(factory);
+            }
+
             final long writePos = m_fc.position();
             m_fc.position(m_readOffset);
 
@@ -410,7 +454,7 @@ public class PBDRegularSegment extends PBDSegment {
                 m_tmpHeaderBuf.b().flip();
                 final int length = m_tmpHeaderBuf.b().getInt();
                 final int flags = m_tmpHeaderBuf.b().getInt();
-                final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+                final CompressionCodec codec = codecForFlags(flags);
                 final int uncompressedLen;
 
                 if (length < 1) {
@@ -418,7 +462,7 @@ public class PBDRegularSegment extends PBDSegment {
                 }
 
                 final DBBPool.BBContainer retcont;
-                if (compressed) {
+                if (codec != null) {
                     final DBBPool.BBContainer compressedBuf = DBBPool.allocateDirectAndPool(length);
                     try {
                         while (compressedBuf.b().hasRemaining()) {
@@ -429,10 +473,10 @@ public class PBDRegularSegment extends PBDSegment {
                         }
                         compressedBuf.b().flip();
 
-                        uncompressedLen = CompressionService.uncompressedLength(compressedBuf.bDR());
+                        uncompressedLen = codec.uncompressedLength(compressedBuf.bDR());
                         retcont = factory.getContainer(uncompressedLen);
                         retcont.b().limit(uncompressedLen);
-                        CompressionService.decompressBuffer(compressedBuf.bDR(), retcont.b());
+                        codec.decompress(compressedBuf.bDR(), retcont.b());
                     } finally {
                         compressedBuf.discard();
                     }
@@ -474,6 +518,67 @@ public class PBDRegularSegment extends PBDSegment {
             }
         }
 
+        /**
+         * Read the next entry straight out of the segment mapping. Compressed entries are
+         * decompressed from the mapping into a container from the factory, uncompressed
+         * entries are handed out as read only slices of the mapping without a copy.
+         */
+        private BBContainer pollMapped(OutputContainerFactory factory) throws IOException {
+            final MappedByteBuffer mapped = m_mapped.m_buf;
+            if (m_readOffset + OBJECT_HEADER_BYTES > mapped.limit()) {
+                throw new EOFException();
+            }
+            final int length = mapped.getInt((int) m_readOffset);
+            final int flags = mapped.getInt((int) m_readOffset + 4);
+            final CompressionCodec codec = codecForFlags(flags);
+
+            if (length < 1) {
+                throw new IOException("Read an invalid length");
+            }
+            final int entryOffset = (int) m_readOffset + OBJECT_HEADER_BYTES;
+            if (entryOffset + length > mapped.limit()) {
+                throw new EOFException();
+            }
+
+            final ByteBuffer entry = mapped.duplicate();
+            entry.limit(entryOffset + length);
+            entry.position(entryOffset);
+
+            final int uncompressedLen;
+            final DBBPool.BBContainer retcont;
+            if (codec != null) {
+                final ByteBuffer compressedBuf = entry.slice();
+                uncompressedLen = codec.uncompressedLength(compressedBuf);
+                retcont = factory.getContainer(uncompressedLen);
+                retcont.b().limit(uncompressedLen);
+                codec.decompress(compressedBuf, retcont.b());
+            } else {
+                uncompressedLen = length;
+                retcont = m_mapped.slice(entry);
+            }
+
+            m_readOffset = entryOffset + length;
+            m_bytesRead += uncompressedLen;
+            m_objectReadIndex++;
+
+            return new DBBPool.BBContainer(retcont.b()) {
+                private boolean m_discarded = false;
+
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    if (m_discarded) {
+                        LOG.error("PBD Container discarded more than once");
+                        return;
+                    }
+
+                    m_discarded = true;
+                    retcont.discard();
+                    m_discardCount++;
+                }
+            };
+        }
+
         @Override
         public int uncompressedBytesToRead() {
             if (m_closed) throw new RuntimeException("Reader closed");
@@ -511,4 +616,35 @@ public class PBDRegularSegment extends PBDSegment {
             return m_closed;
         }
     }
+
+    /**
+     * A read only mapping of a segment. The segment holds one reference while it is open
+     * and every slice handed out holds another, so the mapping is only unmapped once the
+     * segment is closed and all slices have been discarded.
+     */
+    private static class MappedRegion {
+        private final MappedByteBuffer m_buf;
+        private final AtomicInteger m_refCount = new AtomicInteger(1);
+
+        MappedRegion(MappedByteBuffer buf) {
+            m_buf = buf;
+        }
+
+        DBBPool.BBContainer slice(ByteBuffer entry) {
+            m_refCount.incrementAndGet();
+            return new DBBPool.BBContainer(entry.slice().asReadOnlyBuffer()) {
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    release();
+                }
+            };
+        }
+
+        void release() {
+            if (m_refCount.decrementAndGet() == 0) {
+                DBBPool.wrapMBB(m_buf).discard();
+            }
+        }
+    }
 }
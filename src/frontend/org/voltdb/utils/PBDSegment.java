@@ -99,6 +99,10 @@ public abstract class PBDSegment {
     private static final String TRUNCATOR_CURSOR = "__truncator__";
     static final int NO_FLAGS = 0;
     static final int FLAG_COMPRESSED = 1;
+    // Bits 8-15 of the flags of a compressed entry hold the CompressionCodec id. Entries written
+    // before the codec was recorded have 0 there, which is Snappy.
+    static final int CODEC_SHIFT = 8;
+    static final int CODEC_MASK = 0xff;
 
     static final int COUNT_OFFSET = 0;
     static final int SIZE_OFFSET = 4;
@@ -156,9 +160,33 @@ public abstract class PBDSegment {
 
     abstract void sync() throws IOException;
 
+    /**
+     * Claim the pending fsync of this segment so it can be performed without holding
+     * the deque lock. Returns the channel to force, or null if nothing was written since
+     * the last sync. Writes made after the claim mark the segment dirty again.
+     */
+    abstract FileChannel claimSync() throws IOException;
+
+    /**
+     * Give back a claimed fsync that could not be completed.
+     */
+    abstract void unclaimSync();
+
+    /**
+     * Map the segment read only and serve all subsequent reads from the mapping.
+     * Must only be called once the segment is sealed, nothing may be appended afterwards.
+     */
+    abstract void mapForRead() throws IOException;
+
+    abstract boolean isMapped();
+
     abstract boolean hasAllFinishedReading() throws IOException;
 
-    abstract boolean offer(DBBPool.BBContainer cont, boolean compress) throws IOException;
+    /**
+     * Append an entry, compressed with the given codec or stored as is if codec is null.
+     * @return false if the entry does not fit in the remaining space of the segment
+     */
+    abstract boolean offer(DBBPool.BBContainer cont, CompressionCodec codec) throws IOException;
 
     abstract int offer(DeferredSerialization ds) throws IOException;
 
@@ -167,6 +195,23 @@ public abstract class PBDSegment {
 
     abstract protected int writeTruncatedEntry(BinaryDeque.TruncatorResponse entry, int length) throws IOException;
 
+    /**
+     * Codec of an entry with the given flags, or null if the entry is not compressed
+     */
+    static CompressionCodec codecForFlags(int flags) throws IOException {
+        if ((flags & FLAG_COMPRESSED) == 0) {
+            return null;
+        }
+        return CompressionCodec.fromId((flags >>> CODEC_SHIFT) & CODEC_MASK);
+    }
+
+    static int flagsForCodec(CompressionCodec codec) {
+        if (codec == null) {
+            return NO_FLAGS;
+        }
+        return FLAG_COMPRESSED | (codec.id() << CODEC_SHIFT);
+    }
+
     /**
      * Parse the segment and truncate the file if necessary.
      * @param truncator    A caller-supplied truncator that decides where in the segment to truncate
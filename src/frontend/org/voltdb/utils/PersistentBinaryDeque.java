@@ -20,13 +20,19 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DBBPool;
@@ -117,6 +123,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
                     segmentReader = m_segment.getReader(m_cursorId);
                     if (segmentReader == null) segmentReader = m_segment.openForRead(m_cursorId);
                 }
+                // Only segments behind the tail are sealed and safe to map
+                if (m_mappedReads && m_segment.segmentId() != lastSegmentId && !m_segment.isMapped()) {
+                    m_segment.mapForRead();
+                }
                 BBContainer retcont = segmentReader.poll(ocf);
 
                 m_numRead++;
@@ -237,6 +247,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     public static final OutputContainerFactory UNSAFE_CONTAINER_FACTORY = new UnsafeOutputContainerFactory();
 
+    private static final CompressionCodec DEFAULT_CODEC = CompressionCodec.forUse("PBD");
+
     /**
      * Processors also log using this facility.
      */
@@ -254,6 +266,14 @@ public class PersistentBinaryDeque implements BinaryDeque {
     private final HashMap<String, ReadCursor> m_readCursors = new HashMap<>();
     private int m_numObjects;
     private int m_numDeleted;
+    private boolean m_mappedReads = false;
+    // Codec for new entries, entries record their own codec so this can change at any time
+    private CompressionCodec m_compressionCodec = DEFAULT_CODEC;
+
+    // Group commit state for sync(), m_syncCompleted is guarded by m_syncLock
+    private final Object m_syncLock = new Object();
+    private final AtomicLong m_syncRequested = new AtomicLong();
+    private long m_syncCompleted = 0;
 
     /**
      * Create a persistent binary deque with the specified nonce and storage
@@ -545,10 +565,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
         }
 
         PBDSegment tail = peekLastSegment();
-        final boolean compress = object.b().isDirect() && allowCompression;
-        if (!tail.offer(object, compress)) {
+        final CompressionCodec codec = object.b().isDirect() && allowCompression ? m_compressionCodec : null;
+        if (!tail.offer(object, codec)) {
             tail = addSegment(tail);
-            final boolean success = tail.offer(object, compress);
+            final boolean success = tail.offer(object, codec);
             if (!success) {
                 throw new IOException("Failed to offer object in PBD");
             }
@@ -655,7 +675,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
             }
 
             while (currentSegmentContents.peek() != null) {
-                writeSegment.offer(currentSegmentContents.pollFirst(), false);
+                writeSegment.offer(currentSegmentContents.pollFirst(), null);
                 m_numObjects++;
             }
 
@@ -755,15 +775,59 @@ public class PersistentBinaryDeque implements BinaryDeque {
         return true;
     }
 
+    /**
+     * Force all dirty segments to disk. The fsyncs are done without holding the deque lock so
+     * producers and readers are not stalled behind the disk, and concurrent callers are group
+     * committed: whoever holds the sync lock forces the segments on behalf of every caller that
+     * asked before it started, and those callers return without doing any IO of their own.
+     */
     @Override
-    public synchronized void sync() throws IOException {
+    public void sync() throws IOException {
         if (m_closed) {
             throw new IOException("Cannot sync(): PBD has been Closed");
         }
-        for (PBDSegment segment : m_segments.values()) {
-            if (!segment.isClosed()) {
-                segment.sync();
+        final long ticket = m_syncRequested.incrementAndGet();
+        synchronized (m_syncLock) {
+            if (m_syncCompleted >= ticket) {
+                return;
+            }
+            // Everything written before this point by callers up to covered is claimed below
+            final long covered = m_syncRequested.get();
+            final List<PBDSegment> segments = new ArrayList<>();
+            final List<FileChannel> channels = new ArrayList<>();
+            synchronized (this) {
+                if (m_closed) {
+                    throw new IOException("Cannot sync(): PBD has been Closed");
+                }
+                for (PBDSegment segment : m_segments.values()) {
+                    if (!segment.isClosed()) {
+                        FileChannel fc = segment.claimSync();
+                        if (fc != null) {
+                            segments.add(segment);
+                            channels.add(fc);
+                        }
+                    }
+                }
             }
+
+            for (int i = 0; i < channels.size(); i++) {
+                try {
+                    channels.get(i).force(true);
+                } catch (IOException e) {
+                    if (e instanceof ClosedChannelException && !(e instanceof ClosedByInterruptException)) {
+                        // Segment was closed or deleted since it was claimed, closed segments
+                        // are not synced by the deque
+                        continue;
+                    }
+                    synchronized (this) {
+                        for (int j = i; j < segments.size(); j++) {
+                            segments.get(j).unclaimSync();
+                        }
+                    }
+                    throw e;
+                }
+            }
+            m_syncCompleted = covered;
         }
     }
 
@@ -900,6 +964,19 @@ public class PersistentBinaryDeque implements BinaryDeque {
         return m_awaitingTruncation;
     }
 
+    /**
+     * Serve reads of sealed segments from a read only memory mapping instead of copying
+     * each entry out of the file. Uncompressed entries are returned as read only slices
+     * of the mapping, so the returned containers must not be written to.
+     */
+    public synchronized void setMappedReads(boolean mappedReads) {
+        m_mappedReads = mappedReads;
+    }
+
+    public synchronized void setCompressionCodec(CompressionCodec codec) {
+        m_compressionCodec = codec;
+    }
+
     public synchronized void setAwaitingTruncation(boolean m_awaitingTruncation)
     {
         this.m_awaitingTruncation = m_awaitingTruncation;
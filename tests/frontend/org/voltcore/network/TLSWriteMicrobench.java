@@ -0,0 +1,228 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+
+import org.voltcore.utils.ssl.SSLConfiguration;
+
+/**
+ * Compares how fast one connection's write stream can push 1MB messages through plaintext
+ * and TLS. Messages are written to a channel that discards them, so the numbers are the
+ * serialization and encryption cost alone. Try different -DTLS_ENCRYPT_BATCH_FRAMES values
+ * to see the effect of batching frames per cipher task.
+ *
+ * Usage: TLSWriteMicrobench [seconds per run] [message size] [keystore path]
+ */
+public class TLSWriteMicrobench {
+
+    static final String KEYSTORE_PASSWD = "password";
+
+    public static void main(String[] args) throws Exception {
+        int seconds = 10;
+        int messageSize = 1024 * 1024;
+        String keystore = null;
+        if (args.length >= 1) {
+            seconds = Integer.parseInt(args[0]);
+        }
+        if (args.length >= 2) {
+            messageSize = Integer.parseInt(args[1]);
+        }
+        if (args.length >= 3) {
+            keystore = args[2];
+        } else {
+            keystore = TLSWriteMicrobench.class.getResource("/org/voltdb/keystore").getPath();
+        }
+
+        final ByteBuffer message = ByteBuffer.allocate(messageSize);
+        while (message.hasRemaining()) {
+            message.put((byte)message.position());
+        }
+        message.flip();
+
+        SSLContext context = SSLConfiguration.createSslContext(
+                new SSLConfiguration.SslConfig(keystore, KEYSTORE_PASSWD, keystore, KEYSTORE_PASSWD));
+        CipherExecutor.SERVER.startup();
+        try {
+            NetworkDBBPool pool = new NetworkDBBPool();
+            NullConnection connection = new NullConnection();
+            long plain = run(new VoltNIOWriteStream(connection), connection, pool, message, seconds);
+            report("plaintext", plain, seconds);
+
+            SSLEngine engine = handshake(context);
+            connection = new NullConnection();
+            TLSNIOWriteStream tls = new TLSNIOWriteStream(connection, null, null, null,
+                    engine, CipherExecutor.SERVER);
+            long encrypted = run(tls, connection, pool, message, seconds);
+            report("tls", encrypted, seconds);
+
+            System.out.printf("tls throughput is %.1f%% of plaintext (%d frames per cipher task)%n",
+                    encrypted * 100.0 / plain, TLSEncryptionAdapter.ENCRYPT_BATCH_FRAMES);
+            pool.clear();
+        } finally {
+            CipherExecutor.SERVER.shutdown();
+        }
+        System.exit(0);
+    }
+
+    static void report(String mode, long bytes, int seconds) {
+        System.out.printf("%-10s %,10.1f MB/sec%n", mode, bytes / (1024.0 * 1024.0) / seconds);
+    }
+
+    /*
+     * Keep a few messages queued the way a busy connection would, and write out whatever
+     * the stream has ready. For TLS that is whatever the cipher threads have encrypted so far.
+     * Like a network thread, wait for write selection instead of spinning when nothing is ready.
+     */
+    static long run(VoltNIOWriteStream stream, NullConnection connection, NetworkDBBPool pool,
+            ByteBuffer message, int seconds) throws Exception {
+        final NullChannel channel = new NullChannel();
+        final long end = System.nanoTime() + seconds * 1000L * 1000L * 1000L;
+        long enqueued = 0;
+        while (System.nanoTime() < end) {
+            while (enqueued - channel.m_written < 4L * message.remaining()) {
+                stream.enqueue(message.duplicate());
+                enqueued += message.remaining();
+            }
+            stream.serializeQueuedWrites(pool);
+            if (stream.drainTo(channel) == 0) {
+                connection.m_writeSelected.tryAcquire(1, TimeUnit.MILLISECONDS);
+            }
+        }
+        final long written = channel.m_written;
+        // let the cipher threads finish so the stream shuts down without waiting on them
+        while (!stream.isEmpty()) {
+            stream.serializeQueuedWrites(pool);
+            if (stream.drainTo(channel) == 0) {
+                connection.m_writeSelected.tryAcquire(1, TimeUnit.MILLISECONDS);
+            }
+        }
+        stream.shutdown();
+        return written;
+    }
+
+    /*
+     * Handshake a server engine with a client engine in memory so the server engine is
+     * ready to wrap application data
+     */
+    static SSLEngine handshake(SSLContext context) throws IOException {
+        // TLS 1.3 servers send a session ticket with their first wrap after the handshake,
+        // stick to 1.2 so every wrap of the write stream carries application data
+        final String protocols[] = new String[] { "TLSv1.2" };
+        SSLEngine server = context.createSSLEngine();
+        server.setUseClientMode(false);
+        server.setEnabledProtocols(protocols);
+        SSLEngine client = context.createSSLEngine();
+        client.setUseClientMode(true);
+        client.setEnabledProtocols(protocols);
+
+        final int packetSize = server.getSession().getPacketBufferSize();
+        final int appSize = server.getSession().getApplicationBufferSize();
+        ByteBuffer empty = ByteBuffer.allocate(0);
+        ByteBuffer clientToServer = ByteBuffer.allocate(packetSize);
+        ByteBuffer serverToClient = ByteBuffer.allocate(packetSize);
+        ByteBuffer app = ByteBuffer.allocate(appSize);
+
+        server.beginHandshake();
+        client.beginHandshake();
+        while (!isDone(server) || !isDone(client)) {
+            client.wrap(empty, clientToServer);
+            clientToServer.flip();
+            server.unwrap(clientToServer, app);
+            clientToServer.compact();
+            runTasks(server);
+
+            server.wrap(empty, serverToClient);
+            serverToClient.flip();
+            client.unwrap(serverToClient, app);
+            serverToClient.compact();
+            runTasks(client);
+        }
+        return server;
+    }
+
+    static boolean isDone(SSLEngine engine) {
+        HandshakeStatus status = engine.getHandshakeStatus();
+        return status == HandshakeStatus.NOT_HANDSHAKING || status == HandshakeStatus.FINISHED;
+    }
+
+    static void runTasks(SSLEngine engine) {
+        Runnable task = null;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    static class NullConnection extends MockConnection {
+        final Semaphore m_writeSelected = new Semaphore(0);
+
+        @Override
+        public void enableWriteSelection() {
+            m_writeSelected.release();
+        }
+    }
+
+    static class NullChannel implements GatheringByteChannel {
+        long m_written = 0;
+
+        @Override
+        public int write(ByteBuffer src) {
+            final int written = src.remaining();
+            src.position(src.limit());
+            m_written += written;
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long written = 0;
+            for (int i = offset; i < offset + length; i++) {
+                written += write(srcs[i]);
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -307,6 +307,53 @@ public class TestNIOReadStream extends TestCase {
         assertEquals(-1, stream.read(channel, 42, pool));
     }
 
+    public void testBufferHighWater() throws IOException {
+        channel.nextRead = new byte[4];
+        assertEquals(4, stream.read(channel, 4, pool));
+        assertEquals(1024 * 32, stream.getBufferHighWater(false));
+
+        channel.nextRead = new byte[1024 * 32];
+        assertEquals(1024 * 32, stream.read(channel, 1024 * 32, pool));
+        assertEquals(1024 * 64, stream.getBufferHighWater(true));
+
+        stream.getBytes(new byte[1024 * 32 + 4]);
+        assertEquals(1024 * 64, stream.getBufferHighWater(true));
+        assertEquals(0, stream.getBufferHighWater(false));
+    }
+
+    public void testReclaimIdleBuffer() throws IOException {
+        // size classes of 2k, 8k and 32k
+        NetworkDBBPool sizedPool = new NetworkDBBPool(4, 1024 * 32);
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte)i;
+        }
+        channel.nextRead = data;
+        assertEquals(100, stream.read(channel, 100, sizedPool));
+
+        final long now = System.currentTimeMillis();
+        assertEquals(0, stream.reclaim(sizedPool, now, 60 * 1000));
+        assertEquals(1024 * 32, stream.getBufferedCapacity());
+
+        assertEquals(1024 * 30, stream.reclaim(sizedPool, now + 120 * 1000, 60 * 1000));
+        assertEquals(1024 * 2, stream.getBufferedCapacity());
+        assertEquals(100, stream.dataAvailable());
+
+        // Already compacted as far as it goes
+        assertEquals(0, stream.reclaim(sizedPool, now + 120 * 1000, 60 * 1000));
+
+        channel.nextRead = new byte[]{100, 101};
+        assertEquals(2, stream.read(channel, 2, sizedPool));
+        byte[] output = new byte[102];
+        stream.getBytes(output);
+        for (int i = 0; i < output.length; ++i) {
+            assertEquals(i, output[i]);
+        }
+        assertStreamIsEmpty();
+        stream.shutdown();
+        sizedPool.clear();
+    }
+
    /* public void testEndReadIncomplete() throws IOException {
         channel.nextRead = new byte[]{1, 2, 3,4 };
         channel.end = true;
@@ -120,6 +120,7 @@ public class TestNIOWriteStream extends TestCase {
         private final int closeAfter;
         private boolean didOversizeWrite = false;
         private boolean wrotePartial = false;
+        private int gatheringWrites = 0;
         public boolean m_open = true;
 
         public int m_behavior;
@@ -163,14 +164,34 @@ public class TestNIOWriteStream extends TestCase {
 
         @Override
         public long write(ByteBuffer src[]) throws IOException {
+            return write(src, 0, src.length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // TODO Auto-generated method stub
+        }
+
+        @Override
+        public boolean isOpen() {
+            return m_open;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length)
+                throws IOException {
             if (!m_open) throw new IOException();
             if (closeAfter > 0 && ++writeCount >= closeAfter) {
                 m_open = false;
             }
+            gatheringWrites++;
 
             if (m_behavior == SINK) {
-                int remaining = src[0].remaining();
-                src[0].position(src[0].limit());
+                long remaining = 0;
+                for (int ii = offset; ii < offset + length; ii++) {
+                    remaining += srcs[ii].remaining();
+                    srcs[ii].position(srcs[ii].limit());
+                }
                 return remaining;
             }
             else if (m_behavior == FULL) {
@@ -182,30 +203,14 @@ public class TestNIOWriteStream extends TestCase {
                 } else {
                     wrotePartial = true;
                 }
-                ByteBuffer copy = ByteBuffer.allocate(src[0].remaining());
-                src[0].get(copy.array(), 0, src[0].remaining()/2);
-                return src[0].remaining();
+                ByteBuffer src = srcs[offset];
+                ByteBuffer copy = ByteBuffer.allocate(src.remaining());
+                src.get(copy.array(), 0, src.remaining()/2);
+                return src.remaining();
             }
             assert(false);
             return -1;
         }
-
-        @Override
-        public void close() throws IOException {
-            // TODO Auto-generated method stub
-        }
-
-        @Override
-        public boolean isOpen() {
-            return m_open;
-        }
-
-        @Override
-        public long write(ByteBuffer[] srcs, int offset, int length)
-                throws IOException {
-            // TODO Auto-generated method stub
-            return 0;
-        }
     }
 
 
@@ -389,6 +394,37 @@ public class TestNIOWriteStream extends TestCase {
         wstream.shutdown();
     }
 
+    public void testGatheringWrite() throws IOException {
+        MockChannel channel = new MockChannel(MockChannel.SINK, 0);
+        MockPort port = new MockPort();
+        VoltNIOWriteStream wstream = new VoltNIOWriteStream(port);
+
+        // 4 byte pool buffers, so this is serialized into 16 buffers
+        wstream.enqueue(ByteBuffer.allocate(64));
+        wstream.serializeQueuedWrites(pool);
+        assertEquals(64, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+
+        // the gather width grows 1, 2, 4, 8 so the rest are written together
+        long[] stats = wstream.getBytesAndMessagesWritten(false);
+        assertEquals(64, stats[0]);
+        assertEquals(16, stats[1]);
+        assertEquals(5, stats[2]);
+        assertEquals(3, channel.gatheringWrites);
+
+        // a partial write narrows the gather and leaves the rest queued
+        channel.m_behavior = MockChannel.PARTIAL;
+        wstream.enqueue(ByteBuffer.allocate(16));
+        wstream.serializeQueuedWrites(pool);
+        assertEquals(2, wstream.drainTo(channel));
+        assertFalse(wstream.isEmpty());
+
+        channel.m_behavior = MockChannel.SINK;
+        assertEquals(14, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+        wstream.shutdown();
+    }
+
     public void testLastWriteDelta() throws Exception {
         EstTimeUpdater.pause = true;
         Thread.sleep(10);
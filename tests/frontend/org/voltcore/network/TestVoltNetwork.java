@@ -31,10 +31,14 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.voltdb.EELibraryLoader;
+
 import io.netty_voltpatches.buffer.CompositeByteBuf;
 import jsr166y.ThreadLocalRandom;
 import junit.framework.TestCase;
@@ -308,4 +312,86 @@ public class TestVoltNetwork extends TestCase {
         runInvokeCallbacks(selector, vn, vp);
     }
 
+    private static class EchoHandler extends VoltProtocolHandler {
+        @Override
+        public int getMaxRead() {
+            // Smaller than what the client sends at once so epoll has to be re-armed
+            return 16;
+        }
+
+        @Override
+        public void handleMessage(ByteBuffer message, Connection c) {
+            ByteBuffer echo = ByteBuffer.allocate(4 + message.remaining());
+            echo.putInt(message.remaining());
+            echo.put(message);
+            echo.flip();
+            c.writeStream().enqueue(echo);
+        }
+
+        @Override
+        public Runnable offBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public Runnable onBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public QueueMonitor writestreamMonitor() {
+            return null;
+        }
+    }
+
+    public void testEpollEcho() throws Exception {
+        EELibraryLoader.loadExecutionEngineLibrary(false);
+        if (!Epoll.isAvailable()) {
+            // no native library or not linux
+            return;
+        }
+        VoltNetworkPool pool = new VoltNetworkPool(1, 0, null, "Test", true);
+        pool.start();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        try {
+            server.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            SocketChannel client = SocketChannel.open(server.socket().getLocalSocketAddress());
+            SocketChannel accepted = server.accept();
+            Connection c = pool.registerChannel(accepted, new EchoHandler(), null, null);
+
+            final int messages = 100;
+            ByteBuffer out = ByteBuffer.allocate(messages * 12);
+            for (int ii = 0; ii < messages; ii++) {
+                out.putInt(8);
+                out.putLong(ii);
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                client.write(out);
+            }
+
+            ByteBuffer in = ByteBuffer.allocate(messages * 12);
+            while (in.hasRemaining()) {
+                assertTrue(client.read(in) >= 0);
+            }
+            in.flip();
+            for (int ii = 0; ii < messages; ii++) {
+                assertEquals(8, in.getInt());
+                assertEquals(ii, in.getLong());
+            }
+
+            c.unregister().get();
+            client.close();
+        } finally {
+            server.close();
+            pool.shutdown();
+        }
+    }
+
 }
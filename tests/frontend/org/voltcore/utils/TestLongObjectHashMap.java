@@ -0,0 +1,106 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestLongObjectHashMap extends TestCase {
+
+    public void testPutGetRemove() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<String>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(5, "five"));
+        assertNull(map.put(-1, "minus one"));
+        assertNull(map.put(0, "zero"));
+        assertEquals("five", map.put(5, "FIVE"));
+        assertEquals(3, map.size());
+        assertEquals("FIVE", map.get(5));
+        assertEquals("zero", map.get(0));
+        assertTrue(map.containsKey(-1));
+        assertNull(map.get(6));
+
+        assertEquals("minus one", map.remove(-1));
+        assertNull(map.remove(-1));
+        assertFalse(map.containsKey(-1));
+        assertEquals(2, map.size());
+
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertTrue(Arrays.equals(new long[] {0, 5}, keys));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(5));
+    }
+
+    public void testNullValueRejected() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<String>();
+        try {
+            map.put(1, null);
+            fail();
+        } catch (NullPointerException expected) {}
+    }
+
+    public void testValues() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<Long>();
+        long sum = 0;
+        for (long i = 0; i < 100; i++) {
+            map.put(i << 40, i);
+            sum += i;
+        }
+        for (Long value : map.values()) {
+            sum -= value;
+        }
+        assertEquals(0, sum);
+    }
+
+    /**
+     * Random puts and removes over a small key range, so probe chains collide and removes
+     * have to shift entries back, checked against a HashMap.
+     */
+    public void testAgainstHashMap() {
+        Random r = new Random(42);
+        LongObjectHashMap<Long> map = new LongObjectHashMap<Long>();
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        for (int i = 0; i < 200000; i++) {
+            long key = r.nextInt(512) * 1024L;
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                long value = r.nextLong();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, Long> e : expected.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        }
+        assertEquals(expected.size(), map.keys().length);
+    }
+}
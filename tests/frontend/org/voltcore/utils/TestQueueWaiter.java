@@ -0,0 +1,124 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class TestQueueWaiter extends TestCase
+{
+    public void testTakeCountsSpinsAndParks() throws Exception
+    {
+        final QueueWaiter.Component component = QueueWaiter.Component.EXPORT;
+        final LinkedBlockingQueue<Integer> queue = new LinkedBlockingQueue<Integer>();
+
+        // an item already queued isn't a wait at all
+        QueueWaiter parker = new QueueWaiter(component, QueueWaitStrategy.PARK, 0);
+        long spins = component.getSpinWakeups();
+        long parks = component.getParks();
+        queue.offer(1);
+        assertEquals(Integer.valueOf(1), parker.take(queue));
+        assertEquals(spins, component.getSpinWakeups());
+        assertEquals(parks, component.getParks());
+
+        // without spin time a park waiter blocks straight away
+        Thread producer = offerLater(queue, 2, 20);
+        assertEquals(Integer.valueOf(2), parker.take(queue));
+        producer.join();
+        assertEquals(parks + 1, component.getParks());
+
+        // a spinning waiter never blocks
+        QueueWaiter spinner = new QueueWaiter(component, QueueWaitStrategy.SPIN, 0);
+        producer = offerLater(queue, 3, 20);
+        assertEquals(Integer.valueOf(3), spinner.take(queue));
+        producer.join();
+        assertEquals(spins + 1, component.getSpinWakeups());
+        assertEquals(parks + 1, component.getParks());
+    }
+
+    public void testComponentSpinDefaults()
+    {
+        // nothing sets QUEUE_SPIN_MICROS* in the test JVM, so everything parks straight away
+        for (QueueWaiter.Component component : QueueWaiter.Component.values()) {
+            assertFalse(component.name(), new QueueWaiter(component).spins());
+        }
+
+        final long global = TimeUnit.MICROSECONDS.toNanos(50);
+        assertEquals(global, QueueWaiter.spinNanos(QueueWaitStrategy.PARK, null, global));
+        assertEquals(0, QueueWaiter.spinNanos(QueueWaitStrategy.PARK, null, 0));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(7), QueueWaiter.spinNanos(QueueWaitStrategy.PARK, 7, global));
+        assertEquals(QueueWaiter.DEFAULT_ADAPTIVE_SPIN_NANOS, QueueWaiter.spinNanos(QueueWaitStrategy.ADAPTIVE, null, 0));
+    }
+
+    public void testAdaptiveSpinFollowsArrivals()
+    {
+        final long max = TimeUnit.MICROSECONDS.toNanos(100);
+        QueueWaiter waiter = new QueueWaiter(QueueWaiter.Component.EXPORT, QueueWaitStrategy.ADAPTIVE, max);
+        assertEquals(max, waiter.getSpinNanos());
+
+        // long waits turn spinning off
+        for (int i = 0; i < 50; i++) {
+            waiter.endWait(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(10), true);
+        }
+        assertEquals(0, waiter.getSpinNanos());
+        assertFalse(waiter.spin(System.nanoTime()));
+
+        // and quick arrivals turn it back on, within the limit
+        for (int i = 0; i < 200; i++) {
+            waiter.endWait(System.nanoTime() - TimeUnit.MICROSECONDS.toNanos(5), false);
+        }
+        assertTrue(waiter.getSpinNanos() > 0);
+        assertTrue(waiter.getSpinNanos() <= max);
+        assertTrue(waiter.spin(System.nanoTime()));
+    }
+
+    public void testSingleConsumerQueue() throws Exception
+    {
+        QueueWaiter.SingleConsumerQueue<Integer> queue =
+                new QueueWaiter.SingleConsumerQueue<Integer>(QueueWaiter.Component.EXPORT);
+        Thread producer = offerLater(queue, 7, 20);
+        assertEquals(Integer.valueOf(7), queue.take());
+        producer.join();
+        queue.offer(8);
+        assertEquals(Integer.valueOf(8), queue.take());
+    }
+
+    private static Thread offerLater(final java.util.Queue<Integer> queue, final int value, final long delayMs)
+    {
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                }
+                queue.offer(value);
+            }
+        };
+        t.start();
+        return t;
+    }
+}
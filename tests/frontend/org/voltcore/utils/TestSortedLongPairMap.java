@@ -0,0 +1,93 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+public class TestSortedLongPairMap extends TestCase {
+
+    public void testOrdering() {
+        SortedLongPairMap<String> map = new SortedLongPairMap<String>(2);
+        assertNull(map.put(10, 2, "10/2"));
+        assertNull(map.put(10, 1, "10/1"));
+        assertNull(map.put(5, 100, "5/100"));
+        assertNull(map.put(20, -1, "20/-1"));
+        assertEquals("10/1", map.put(10, 1, "10/1b"));
+        assertEquals(4, map.size());
+
+        long[][] order = new long[][] { {5, 100}, {10, 1}, {10, 2}, {20, -1} };
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(order[i][0], map.firstKeyAt(i));
+            assertEquals(order[i][1], map.secondKeyAt(i));
+        }
+        assertEquals("10/1b", map.valueAt(1));
+        assertEquals("10/2", map.get(10, 2));
+        assertNull(map.get(10, 3));
+        assertNull(map.get(30, 0));
+
+        assertEquals("10/1b", map.remove(10, 1));
+        assertNull(map.remove(10, 1));
+        assertEquals(3, map.size());
+        assertEquals("10/2", map.valueAt(1));
+        assertEquals("5/100", map.removeAt(0));
+        assertFalse(map.containsKey(5, 100));
+
+        try {
+            map.valueAt(2);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {}
+
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    public void testAgainstTreeMap() {
+        Random r = new Random(7);
+        SortedLongPairMap<Long> map = new SortedLongPairMap<Long>();
+        TreeMap<Long, Long> expected = new TreeMap<Long, Long>();
+        for (int i = 0; i < 50000; i++) {
+            // mostly increasing first keys like txn ids, with a few out of order
+            long first = i / 4 - (r.nextInt(8) == 0 ? r.nextInt(100) : 0);
+            long second = r.nextInt(4);
+            Long key = first * 4 + second;
+            if (r.nextInt(2) == 0) {
+                assertEquals(expected.remove(key), map.remove(first, second));
+            } else {
+                assertEquals(expected.put(key, (long)i), map.put(first, second, (long)i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        int index = 0;
+        for (Map.Entry<Long, Long> e : expected.entrySet()) {
+            assertEquals(Math.floorDiv(e.getKey(), 4L), map.firstKeyAt(index));
+            assertEquals(Math.floorMod(e.getKey(), 4L), map.secondKeyAt(index));
+            assertEquals(e.getValue(), map.valueAt(index));
+            index++;
+        }
+    }
+}
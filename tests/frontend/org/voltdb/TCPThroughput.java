@@ -34,9 +34,18 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.HashSet;
 import java.util.ArrayList;
 
+import org.voltcore.network.Connection;
+import org.voltcore.network.QueueMonitor;
+import org.voltcore.network.ReverseDNSPolicy;
+import org.voltcore.network.VoltNetworkPool;
+import org.voltcore.network.VoltProtocolHandler;
+
 /**
  * A class implementing a throughput test across several TCP sockets. This class implements both the client and the server
  *
+ * With transport=nio or transport=epoll the server registers the connections it accepts with a VoltNetworkPool
+ * using that transport and echoes length prefixed packets. Clients given the same argument open connections=N
+ * connections (default one per server port) and keep one packet outstanding on each of them.
  */
 public class TCPThroughput {
 
@@ -70,6 +79,38 @@ public class TCPThroughput {
 
         //protected int m_readyOps = 0;
 
+        /*
+         * Request/response mode used against a VoltNetwork server, handled on the selector thread.
+         * Writes one length prefixed packet and waits for its echo before writing the next.
+         */
+        private final ByteBuffer m_request = ByteBuffer.allocateDirect(expectedPacketSize);
+        private int m_responseRemaining = expectedPacketSize;
+        {
+            m_request.putInt(expectedPacketSize - 4);
+            m_request.clear();
+        }
+
+        public void handleRoundTrip() throws IOException {
+            if (m_selectionKey.isReadable()) {
+                m_buffer.clear();
+                int read = m_channel.read(m_buffer);
+                if (read < 0) {
+                    throw new IOException("Connection closed by the server");
+                }
+                bytesReceived.addAndGet(read);
+                m_responseRemaining -= read;
+                if (m_responseRemaining == 0) {
+                    roundTrips.incrementAndGet();
+                    m_request.clear();
+                    m_responseRemaining = expectedPacketSize;
+                }
+            }
+            if (m_request.hasRemaining()) {
+                bytesSent.addAndGet(m_channel.write(m_request));
+            }
+            m_selectionKey.interestOps(m_request.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
         public void handleWork() {
             try {
                 m_buffer.clear();
@@ -100,11 +141,12 @@ public class TCPThroughput {
     /*
      * Various fields containing statistical information and keeping track of the last time a message was received.
      */
-    public static boolean messageReceived = false;
-    public static long firstMessageReceived = 0;
-    public static long lastMessageReceived = 0;
+    public static volatile boolean messageReceived = false;
+    public static volatile long firstMessageReceived = 0;
+    public static volatile long lastMessageReceived = 0;
     public static final AtomicLong bytesReceived = new AtomicLong(0);
     public static final AtomicLong bytesSent = new AtomicLong(0);
+    public static final AtomicLong roundTrips = new AtomicLong(0);
 
     /*
      * Structures for the change list
@@ -134,6 +176,63 @@ public class TCPThroughput {
     private static String addressString = "localhost";
     private static InetAddress address;
 
+    /*
+     * VoltNetwork transport used by the server and number of connections opened by the client
+     */
+    private static String transport = null;
+    private static int connections = numPorts;
+    private static VoltNetworkPool pool;
+    private static int accepted = 0;
+
+    /**
+     * Echoes every packet back on the connection it came from
+     */
+    private static class EchoHandler extends VoltProtocolHandler {
+        @Override
+        public int getMaxRead() {
+            return Math.max(8192, getNextMessageLength());
+        }
+
+        @Override
+        public void handleMessage(ByteBuffer message, Connection c) {
+            final long now = System.currentTimeMillis();
+            if (!messageReceived) {
+                messageReceived = true;
+                System.out.println("First message received");
+                firstMessageReceived = now;
+            }
+            lastMessageReceived = now;
+            bytesReceived.addAndGet(4 + message.remaining());
+            ByteBuffer echo = ByteBuffer.allocate(4 + message.remaining());
+            echo.putInt(message.remaining());
+            echo.put(message);
+            echo.flip();
+            bytesSent.addAndGet(echo.remaining());
+            c.writeStream().enqueue(echo);
+        }
+
+        @Override
+        public Runnable offBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public Runnable onBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public QueueMonitor writestreamMonitor() {
+            return null;
+        }
+    }
+
     /**
      * Called by the selection thread to process any ports added to the changelist. Closes ports that have died due to an IOException
      * and sets the interest ops for ports that have finished handling work.
@@ -208,6 +307,10 @@ public class TCPThroughput {
                 addressString = parts[1];
             } else if (parts[0].equals("seconds")) {
                 seconds = Integer.parseInt(parts[1]);
+            } else if (parts[0].equals("transport")) {
+                transport = parts[1];
+            } else if (parts[0].equals("connections")) {
+                connections = Integer.parseInt(parts[1]);
             }
         }
 
@@ -225,13 +328,23 @@ public class TCPThroughput {
             System.exit(-1);
         }
 
+        if (runServer && transport != null) {
+            boolean useEpoll = transport.equals("epoll");
+            if (useEpoll) {
+                // The epoll natives are part of the shared library
+                EELibraryLoader.loadExecutionEngineLibrary(false);
+            }
+            pool = new VoltNetworkPool(1, 0, null, "TCPThroughput", useEpoll);
+            pool.start();
+        }
+
         if (runServer) {
             servers = new ServerSocketChannel[numPorts];
             for (int ii = 0; ii < numPorts; ii++) {
                 try {
                     servers[ii] = ServerSocketChannel.open();
                     servers[ii].configureBlocking(false);
-                    servers[ii].socket().bind(new InetSocketAddress(port + ii));
+                    servers[ii].socket().bind(new InetSocketAddress(port + ii), 1024);
                     SelectionKey serverKey = servers[ii].register(selector,
                             SelectionKey.OP_ACCEPT);
                     serverKey.attach(servers[ii]);
@@ -240,6 +353,22 @@ public class TCPThroughput {
                     System.exit(-1);
                 }
             }
+        } else if (transport != null) {
+            for (int ii = 0; ii < connections; ii++) {
+                try {
+                    SocketChannel channel = SocketChannel.open(new InetSocketAddress(address, port + ii % numPorts));
+                    channel.socket().setTcpNoDelay(true);
+                    channel.configureBlocking(false);
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_WRITE);
+                    Port p = new Port(channel, key, ii % numPorts);
+                    key.attach(p);
+                    m_ports.add(p);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    System.exit(-1);
+                }
+            }
+            System.out.println("Opened " + connections + " connections");
         } else {
             for (int ii = 0; ii < numPorts; ii++) {
                 Socket tempsocket = null;
@@ -284,6 +413,11 @@ public class TCPThroughput {
             }.start();
         }
 
+        if (transport != null) {
+            runVoltNetworkLoop(runServer);
+            return;
+        }
+
         /*
          * Watchdog thread that checks that each port is selected at least once every 60 seconds. Also checks to make sure
          * that at least one port has been selected every 60 seconds.
@@ -412,4 +546,61 @@ public class TCPThroughput {
             }
         }
     }
+
+    /**
+     * Selector loop used with transport=nio|epoll. The server only accepts here and hands the connections
+     * to the VoltNetworkPool, the client drives its connections on this thread.
+     */
+    private static void runVoltNetworkLoop(boolean runServer) {
+        final long start = System.currentTimeMillis();
+        while (shouldContinue) {
+            if (runServer && messageReceived && System.currentTimeMillis() - lastMessageReceived > 5000) {
+                long deltaMillis = Math.max(1, lastMessageReceived - firstMessageReceived);
+                long messages = bytesReceived.get() / expectedPacketSize;
+                System.out.println("TCPThroughputReceiver " + transport + " result:\n\tconnections == " + accepted
+                        + "\n\tmessagesReceived == " + messages
+                        + "\n\tbytesReceived == " + bytesReceived.get()
+                        + "\n\tbytesSent == " + bytesSent.get()
+                        + "\nmessages/sec == " + (messages * 1000 / deltaMillis)
+                        + "\nmegabytes/sec == " + ((bytesReceived.get() + bytesSent.get()) * 1000 / deltaMillis / 1024 / 1024));
+                System.exit(0);
+            }
+
+            try {
+                selector.select(1000);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(-1);
+            }
+
+            for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+                SelectionKey key = it.next();
+                it.remove();
+                try {
+                    if (key.isAcceptable()) {
+                        SocketChannel client = ((ServerSocketChannel)key.attachment()).accept();
+                        if (client == null) {
+                            continue;
+                        }
+                        client.socket().setTcpNoDelay(true);
+                        client.configureBlocking(false);
+                        pool.registerChannel(client, new EchoHandler(), SelectionKey.OP_READ,
+                                ReverseDNSPolicy.NONE, null, null);
+                        accepted++;
+                    } else {
+                        ((Port)key.attachment()).handleRoundTrip();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    System.exit(-1);
+                }
+            }
+        }
+
+        long deltaMillis = Math.max(1, System.currentTimeMillis() - start);
+        System.out.println("TCPThroughputSender result:\n\tconnections == " + m_ports.size()
+                + "\n\troundTrips == " + roundTrips.get()
+                + "\nroundTrips/sec == " + (roundTrips.get() * 1000 / deltaMillis));
+        System.exit(0);
+    }
 }
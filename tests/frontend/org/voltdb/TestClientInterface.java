@@ -27,6 +27,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
@@ -39,6 +40,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -79,6 +81,7 @@ import org.voltdb.VoltDB.Configuration;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.catalog.Catalog;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.common.Constants;
 import org.voltdb.compiler.VoltProjectBuilder;
 import org.voltdb.iv2.Cartographer;
 import org.voltdb.messaging.InitiateResponseMessage;
@@ -312,6 +315,86 @@ public class TestClientInterface {
         assertEquals(1, invocation.getParameterAtIndex(0));
     }
 
+    /**
+     * Wrap the invocations in a client batch frame that claims the given count.
+     */
+    private static ByteBuffer createBatch(int count, ByteBuffer... invocations) {
+        int size = 5;
+        for (ByteBuffer invocation : invocations) {
+            size += 4 + invocation.remaining();
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put(Constants.INVOCATION_BATCH_FRAME);
+        buf.putInt(count);
+        for (ByteBuffer invocation : invocations) {
+            buf.putInt(invocation.remaining());
+            buf.put(invocation);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Bind an adapter under the connection id of a real input handler so that its
+     * invocations can be dispatched.
+     */
+    private Connection bindAdapterFor(ClientInputHandler handler) {
+        SimpleClientResponseAdapter cxn = new SimpleClientResponseAdapter(handler.connectionId(), "batch") {
+            @Override
+            public void enqueue(ByteBuffer buf) {responses.offer(buf);}
+            @Override
+            public void queueTask(Runnable r) {}
+        };
+        m_ci.bindAdapter(cxn, null);
+        return cxn;
+    }
+
+    @Test
+    public void testInvocationBatch() throws Exception {
+        ClientInputHandler handler = m_ci.new ClientInputHandler("", false);
+        Connection cxn = bindAdapterFor(handler);
+        handler.handleMessage(createBatch(3, createMsg("hello", 1), createMsg("hello", 2), createMsg("hello", 3)),
+                cxn);
+
+        // every invocation in the frame is dispatched on its own, in order
+        ArgumentCaptor<Iv2InitiateTaskMessage> messageCaptor =
+                ArgumentCaptor.forClass(Iv2InitiateTaskMessage.class);
+        verify(m_messenger, times(3)).send(anyLong(), messageCaptor.capture());
+        for (int i = 0; i < 3; i++) {
+            Iv2InitiateTaskMessage message = messageCaptor.getAllValues().get(i);
+            assertEquals("hello", message.getStoredProcedureName());
+            assertEquals(i + 1, message.getStoredProcedureInvocation().getParameterAtIndex(0));
+        }
+    }
+
+    @Test
+    public void testMalformedInvocationBatch() throws Exception {
+        ClientInputHandler handler = m_ci.new ClientInputHandler("", false);
+        Connection cxn = bindAdapterFor(handler);
+
+        // truncated after the first invocation
+        ByteBuffer truncated = createBatch(2, createMsg("hello", 1), createMsg("hello", 2));
+        truncated.limit(truncated.limit() - 8);
+        // claims fewer invocations than the frame holds
+        ByteBuffer shortCount = createBatch(1, createMsg("hello", 1), createMsg("hello", 2));
+        // claims more invocations than the frame holds
+        ByteBuffer longCount = createBatch(3, createMsg("hello", 1), createMsg("hello", 2));
+        // empty
+        ByteBuffer empty = createBatch(0);
+
+        for (ByteBuffer batch : Arrays.asList(truncated, shortCount, longCount, empty)) {
+            try {
+                handler.handleMessage(batch, cxn);
+                fail("Malformed batch was accepted");
+            } catch (RuntimeException expected) {
+                assertTrue(expected.getCause() instanceof IOException);
+            }
+        }
+
+        // a malformed frame is rejected as a whole, nothing in it is dispatched
+        verify(m_messenger, never()).send(anyLong(), any(VoltMessage.class));
+    }
+
     @Test
     public void testGC() throws Exception {
         ByteBuffer msg = createMsg("@GC");
@@ -0,0 +1,190 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json_voltpatches.JSONObject;
+import org.voltcore.network.ReverseDNSCache;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+
+/**
+ * Measures how many invocations per second the Distributer can route as the number
+ * of calling threads grows. Connections go to TestDistributer's mock servers and the
+ * routing table is populated with a fake topology so both the partitioned (client affinity)
+ * and the round-robin paths are exercised. Nothing is sent on the wire.
+ *
+ * Usage: DistributerRoutingMicrobench [seconds per run] [thread counts...]
+ */
+public class DistributerRoutingMicrobench {
+
+    static final int BASE_PORT = 21212 + 100;
+    static final int SERVER_COUNT = 3;
+    static final int PARTITION_COUNT = 24;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = 5;
+        int threadCounts[] = new int[] { 1, 2, 4, 8, 16, 32, 64 };
+        if (args.length >= 1) {
+            seconds = Integer.parseInt(args[0]);
+        }
+        if (args.length >= 2) {
+            threadCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                threadCounts[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        ReverseDNSCache.start();
+        TestDistributer outer = new TestDistributer();
+        List<TestDistributer.MockVolt> servers = new ArrayList<>();
+        final Distributer dist = new Distributer(false,
+                ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                true, false, null, null);
+        try {
+            for (int i = 0; i < SERVER_COUNT; i++) {
+                TestDistributer.MockVolt volt = outer.new MockVolt(BASE_PORT + i);
+                volt.start();
+                servers.add(volt);
+                dist.createConnection("localhost", "", "", BASE_PORT + i, ClientAuthScheme.HASH_SHA1);
+            }
+            loadFakeTopology(dist);
+
+            for (int threadCount : threadCounts) {
+                long calls = run(dist, threadCount, seconds);
+                System.out.printf("%2d threads: %,12d routed calls/sec%n", threadCount, calls / seconds);
+            }
+        }
+        finally {
+            dist.shutdown();
+            for (TestDistributer.MockVolt volt : servers) {
+                volt.shutdown();
+            }
+        }
+        System.exit(0);
+    }
+
+    /*
+     * Hand the Distributer the same responses it would get from @Statistics TOPO and
+     * @SystemCatalog PROCEDURES. The mock servers all report host id 0.
+     */
+    static void loadFakeTopology(Distributer dist) throws Exception {
+        VoltTable topo = new VoltTable(
+                new VoltTable.ColumnInfo("Partition", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("Sites", VoltType.STRING),
+                new VoltTable.ColumnInfo("Leader", VoltType.STRING));
+        for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+            topo.addRow(partition, "0:" + partition, "0:" + partition);
+        }
+        topo.addRow(Constants.MP_INIT_PID, "0:" + PARTITION_COUNT, "0:" + PARTITION_COUNT);
+        VoltTable hashConfig = new VoltTable(
+                new VoltTable.ColumnInfo("HASHTYPE", VoltType.STRING),
+                new VoltTable.ColumnInfo("HASHCONFIG", VoltType.VARBINARY));
+        // Raw elastic config, evenly spaced tokens one per partition
+        ByteBuffer tokens = ByteBuffer.allocate(4 + 8 * PARTITION_COUNT);
+        tokens.putInt(PARTITION_COUNT);
+        long tokenInterval = (1L << 32) / PARTITION_COUNT;
+        for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+            tokens.putInt((int)(Integer.MIN_VALUE + partition * tokenInterval));
+            tokens.putInt(partition);
+        }
+        hashConfig.addRow("ELASTIC", tokens.array());
+        dist.new TopoUpdateCallback().clientCallback(
+                new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { topo, hashConfig }, null));
+
+        VoltTable procs = new VoltTable(
+                new VoltTable.ColumnInfo("PROCEDURE_CAT", VoltType.STRING),
+                new VoltTable.ColumnInfo("PROCEDURE_SCHEM", VoltType.STRING),
+                new VoltTable.ColumnInfo("PROCEDURE_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("NUM_INPUT_PARAMS", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("NUM_OUTPUT_PARAMS", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("NUM_RESULT_SETS", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("REMARKS", VoltType.STRING));
+        JSONObject sp = new JSONObject();
+        sp.put(Constants.JSON_READ_ONLY, false);
+        sp.put(Constants.JSON_SINGLE_PARTITION, true);
+        sp.put(Constants.JSON_PARTITION_PARAMETER, 0);
+        sp.put(Constants.JSON_PARTITION_PARAMETER_TYPE, VoltType.BIGINT.getValue());
+        procs.addRow(null, null, "Put", 2, 0, 1, sp.toString());
+        JSONObject mp = new JSONObject();
+        mp.put(Constants.JSON_READ_ONLY, true);
+        mp.put(Constants.JSON_SINGLE_PARTITION, false);
+        procs.addRow(null, null, "Scan", 0, 0, 1, mp.toString());
+        dist.new ProcUpdateCallback().clientCallback(
+                new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { procs }, null));
+
+        if (!dist.isHashinatorInitialized()) {
+            throw new IllegalStateException("Fake topology was not applied");
+        }
+    }
+
+    static long run(final Distributer dist, int threadCount, int seconds) throws Exception {
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicLong total = new AtomicLong();
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    ProcedureInvocation put = new ProcedureInvocation(1, "Put", 0L, "value");
+                    ProcedureInvocation scan = new ProcedureInvocation(2, "Scan");
+                    long count = 0;
+                    try {
+                        barrier.await();
+                        while (!stop.get()) {
+                            for (int j = 0; j < 100; j++) {
+                                if (dist.route((j & 7) == 0 ? scan : put) == null) {
+                                    throw new IllegalStateException("No connection routed");
+                                }
+                            }
+                            count += 100;
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    total.addAndGet(count);
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        barrier.await();
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread t : threads) {
+            t.join();
+        }
+        return total.get();
+    }
+}
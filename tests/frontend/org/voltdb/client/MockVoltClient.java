@@ -68,6 +68,8 @@ import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderSuccessCallback;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /** Hack subclass of VoltClient that fakes callProcedure. */
 public class MockVoltClient implements Client {
     public MockVoltClient() {
@@ -348,6 +350,26 @@ public class MockVoltClient implements Client {
         return null;
     }
 
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters)
+        throws IOException, NoConnectionsException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsyncWithTimeout(int batchTimeout, String procName,
+            Object... parameters) throws IOException, NoConnectionsException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    @Override
+    public InvocationBuilder prepare(String procName) {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
     @Override
     public boolean callProcedureWithTimeout(ProcedureCallback callback,
             int batchTimeout, String procName, Object... parameters)
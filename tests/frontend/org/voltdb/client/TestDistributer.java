@@ -24,6 +24,7 @@
 package org.voltdb.client;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
@@ -31,11 +32,15 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 import org.voltcore.network.Connection;
@@ -43,10 +48,17 @@ import org.voltcore.network.QueueMonitor;
 import org.voltcore.network.ReverseDNSCache;
 import org.voltcore.network.VoltNetworkPool;
 import org.voltcore.network.VoltProtocolHandler;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.DeferredSerialization;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
 
 import junit.framework.TestCase;
 
@@ -60,6 +72,9 @@ public class TestDistributer extends TestCase {
         volatile Semaphore invokedSubscribe = new Semaphore(0);
         volatile Semaphore invokedTopology = new Semaphore(0);
         volatile Semaphore invokedSystemInformation = new Semaphore(0);
+        AtomicInteger frames = new AtomicInteger();
+        AtomicInteger batchFrames = new AtomicInteger();
+        AtomicInteger invocations = new AtomicInteger();
 
         @Override
         public int getMaxRead() {
@@ -68,11 +83,30 @@ public class TestDistributer extends TestCase {
 
         @Override
         public void handleMessage(ByteBuffer message, Connection c) {
+            frames.incrementAndGet();
+            if (message.get(message.position()) == Constants.INVOCATION_BATCH_FRAME) {
+                batchFrames.incrementAndGet();
+                message.get();
+                final int count = message.getInt();
+                for (int i = 0; i < count; i++) {
+                    final int length = message.getInt();
+                    final ByteBuffer invocation = message.slice();
+                    invocation.limit(length);
+                    message.position(message.position() + length);
+                    handleInvocation(invocation, c);
+                }
+            } else {
+                handleInvocation(message, c);
+            }
+        }
+
+        private void handleInvocation(ByteBuffer message, Connection c) {
             try {
                 StoredProcedureInvocation spi = new StoredProcedureInvocation();
                 spi.initFromBuffer(message);
 
                 final String proc = spi.getProcName();
+                invocations.incrementAndGet();
 
                 // record if we got a ping
                 if (proc.equals("@Ping"))
@@ -307,6 +341,52 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    /**
+     * Serializes into a pooled direct buffer like InvocationBuilder and counts the
+     * buffers that have not been returned to the pool yet.
+     */
+    private static class PooledInvocation extends ProcedureInvocation {
+        private final AtomicInteger m_outstanding;
+
+        PooledInvocation(long handle, AtomicInteger outstanding) {
+            super(handle, "Foo", 1);
+            m_outstanding = outstanding;
+        }
+
+        @Override
+        DeferredSerialization toFramedWrite() throws IOException {
+            final int size = getSerializedSize();
+            final BBContainer cont = DBBPool.allocateDirectAndPool(4 + size);
+            cont.b().putInt(size);
+            flattenToBuffer(cont.b());
+            cont.b().flip();
+            m_outstanding.incrementAndGet();
+            return new DeferredSerialization() {
+                private boolean m_released = false;
+
+                @Override
+                public void serialize(ByteBuffer buf) {
+                    buf.put(cont.b());
+                    cancel();
+                }
+
+                @Override
+                public void cancel() {
+                    if (!m_released) {
+                        m_released = true;
+                        cont.discard();
+                        m_outstanding.decrementAndGet();
+                    }
+                }
+
+                @Override
+                public int getSerializedSize() {
+                    return cont.b().remaining();
+                }
+            };
+        }
+    }
+
     @Override
     public void setUp()
     {
@@ -528,6 +608,70 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    @Test
+    public void testLeastOutstandingSkipsStalledConnection() throws Exception {
+        // TODO: write a mock server that can grock ssl
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+
+        // A connection that stops responding keeps its outstanding call and gets no more work
+        MockVolt volt0, volt1, volt2;
+        volt0 = volt1 = volt2 = null;
+        Distributer dist = null;
+        try {
+            volt0 = new MockVolt(20000);
+            volt0.start();
+            volt1 = new MockVolt(20001);
+            volt1.start();
+            volt2 = new MockVolt(20002);
+            volt2.start();
+
+            dist = new Distributer(false,
+                    ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                    ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                    false, false, null /* subject */, null);
+            dist.setConnectionSelectionPolicy(ClientConfig.ConnectionSelectionPolicy.LEAST_OUTSTANDING);
+            dist.createConnection("localhost", "", "", 20000, ClientAuthScheme.HASH_SHA1);
+            dist.createConnection("localhost", "", "", 20001, ClientAuthScheme.HASH_SHA1);
+            dist.createConnection("localhost", "", "", 20002, ClientAuthScheme.HASH_SHA1);
+            volt1.handler.sendResponses.set(false);
+
+            final AtomicInteger completed = new AtomicInteger();
+            final int calls = 30;
+            for (int i = 1; i <= calls; i++) {
+                dist.queue(new ProcedureInvocation(i, "i1", new Integer(1)), new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        completed.incrementAndGet();
+                    }
+                }, true, System.nanoTime(), 0);
+                // wait for the call to either complete or reach the stalled server
+                final long deadline = System.currentTimeMillis() + 10000;
+                while (completed.get() + volt1.handler.invocations.get() < i) {
+                    assertTrue(System.currentTimeMillis() < deadline);
+                    Thread.sleep(1);
+                }
+            }
+
+            assertTrue(volt1.handler.invocations.get() <= 1);
+            assertEquals(calls, volt0.handler.invocations.get() + volt1.handler.invocations.get() +
+                    volt2.handler.invocations.get());
+        }
+        finally {
+            if (dist != null) {
+                dist.shutdown();
+            }
+            if (volt0 != null) {
+                volt0.shutdown();
+            }
+            if (volt1 != null) {
+                volt1.shutdown();
+            }
+            if (volt2 != null) {
+                volt2.shutdown();
+            }
+        }
+    }
+
     @Test
     public void testQueueMixed() throws Exception {
         // TODO: write a mock server that can grock ssl
@@ -861,6 +1005,81 @@ public class TestDistributer extends TestCase {
         volt.shutdown();
     }
 
+    /**
+     * Invocations that time out in the rate limiter or race with a disconnect never
+     * reach the write stream and must still hand their pooled buffer back.
+     */
+    @Test
+    public void testPooledInvocationReleasedOnTimeoutAndDisconnect() throws Exception {
+        // TODO: write a mock server that can grock ssl
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+
+        final AtomicInteger outstanding = new AtomicInteger();
+        final CountDownLatch connectionLost = new CountDownLatch(1);
+
+        // create a fake server and connect to it.
+        MockVolt volt = new MockVolt(20000);
+        volt.start();
+
+        Distributer dist = new Distributer(false,
+                ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                2000 /* Two second connection timeout */,
+                false, false, null /* subject */, null);
+        dist.addClientStatusListener(new ClientStatusListenerExt() {
+            @Override
+            public void connectionLost(String hostname, int port, int connectionsLeft,
+                    ClientStatusListenerExt.DisconnectCause cause) {
+                connectionLost.countDown();
+            }
+        });
+        dist.createConnection("localhost", "", "", 20000, ClientAuthScheme.HASH_SHA1);
+
+        try {
+            // the connection is drained from the distributer when it goes down, hold on to it
+            Field connectionsField = Distributer.class.getDeclaredField("m_connections");
+            connectionsField.setAccessible(true);
+            @SuppressWarnings("unchecked")
+            List<Distributer.NodeConnection> connections =
+                    (List<Distributer.NodeConnection>) connectionsField.get(dist);
+            final Distributer.NodeConnection cxn = connections.get(0);
+
+            // one unanswered transaction holds the only permit
+            volt.handler.sendResponses.set(false);
+            dist.m_rateLimiter.setLimits(Integer.MAX_VALUE, 1);
+            SyncCallback unanswered = new SyncCallback();
+            assertTrue(dist.queue(new PooledInvocation(1, outstanding), unanswered, false, System.nanoTime(), 0));
+            while (volt.handler.invocations.get() == 0) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, outstanding.get());
+
+            // the next one times out waiting for a permit
+            SyncCallback timedOut = new SyncCallback();
+            assertTrue(dist.queue(new PooledInvocation(2, outstanding), timedOut, false, System.nanoTime(),
+                    TimeUnit.MILLISECONDS.toNanos(50)));
+            timedOut.waitForResponse();
+            assertEquals(ClientResponse.CONNECTION_TIMEOUT, timedOut.getResponse().getStatus());
+            assertEquals(0, outstanding.get());
+
+            // the unanswered pings close the connection
+            assertTrue(connectionLost.await(10, TimeUnit.SECONDS));
+            unanswered.waitForResponse();
+            assertEquals(ClientResponse.CONNECTION_LOST, unanswered.getResponse().getStatus());
+
+            // work created on the closed connection is failed and its buffer released
+            SyncCallback lost = new SyncCallback();
+            cxn.createWork(System.nanoTime(), 3, "Foo", new PooledInvocation(3, outstanding).toFramedWrite(),
+                    lost, true, Distributer.USE_DEFAULT_CLIENT_TIMEOUT);
+            lost.waitForResponse();
+            assertEquals(ClientResponse.CONNECTION_LOST, lost.getResponse().getStatus());
+            assertEquals(0, outstanding.get());
+        }
+        finally {
+            dist.shutdown();
+            volt.shutdown();
+        }
+    }
+
     public void testClient() throws Exception {
        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
        // TODO: write a mock server that can grock ssl
@@ -890,6 +1109,167 @@ public class TestDistributer extends TestCase {
        }
     }
 
+    public void testClientAsyncFuture() throws Exception {
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+        // TODO: write a mock server that can grock ssl
+        MockVolt volt = null;
+        ExecutorService completionExecutor = Executors.newSingleThreadExecutor();
+        Client clt = null;
+
+        try {
+            // create a fake server and connect to it.
+            volt = new MockVolt(21212);
+            volt.start();
+
+            ClientConfig config = new ClientConfig();
+            config.setCompletionExecutor(completionExecutor);
+            clt = ClientFactory.createClient(config);
+            clt.createConnection("localhost");
+
+            final Thread completionThread = completionExecutor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+
+            // listeners run on the completion executor, not the network thread
+            final AtomicReference<Thread> listenerThread = new AtomicReference<>();
+            final CountDownLatch listenerRan = new CountDownLatch(1);
+            ListenableFuture<ClientResponse> future = clt.callProcedureAsync("Foo", new Integer(1));
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    listenerThread.set(Thread.currentThread());
+                    listenerRan.countDown();
+                }
+            }, MoreExecutors.directExecutor());
+
+            ClientResponse response = future.get(10, TimeUnit.SECONDS);
+            assertEquals(ClientResponse.SUCCESS, response.getStatus());
+            assertTrue(listenerRan.await(10, TimeUnit.SECONDS));
+            assertSame(completionThread, listenerThread.get());
+
+            response = clt.callProcedureAsyncWithTimeout(1000, "Bar", new Integer(2)).get(10, TimeUnit.SECONDS);
+            assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        }
+        finally {
+            if (clt != null) {
+                clt.close();
+            }
+            completionExecutor.shutdown();
+            if (volt != null) {
+                volt.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testClientInvocationBatching() throws Exception {
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+        // TODO: write a mock server that can grock ssl
+        MockVolt volt = null;
+        Client clt = null;
+
+        try {
+            // create a fake server and connect to it.
+            volt = new MockVolt(21212);
+            volt.start();
+
+            ClientConfig config = new ClientConfig();
+            config.setInvocationBatchBytes(4096);
+            clt = ClientFactory.createClient(config);
+            clt.createConnection("localhost");
+
+            // however the invocations end up coalesced, each one gets its own response
+            final int invocations = 500;
+            final CountDownLatch responses = new CountDownLatch(invocations);
+            final AtomicInteger failures = new AtomicInteger();
+            for (int i = 0; i < invocations; i++) {
+                clt.callProcedure(new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        if (clientResponse.getStatus() != ClientResponse.SUCCESS) {
+                            failures.incrementAndGet();
+                        }
+                        responses.countDown();
+                    }
+                }, "Foo", i);
+            }
+            assertTrue(responses.await(10, TimeUnit.SECONDS));
+            assertEquals(0, failures.get());
+            assertTrue(volt.handler.roundTrips.get() >= invocations);
+            // the invocations went out coalesced, in fewer frames than there were invocations
+            assertTrue(volt.handler.batchFrames.get() > 0);
+            assertTrue(volt.handler.frames.get() < invocations);
+
+            ClientResponse response = clt.callProcedure("Bar", new Integer(2));
+            assertEquals(ClientResponse.SUCCESS, response.getStatus());
+
+            try {
+                config.setInvocationBatchBytes(-1);
+                fail();
+            } catch (IllegalArgumentException expected) {}
+        }
+        finally {
+            if (clt != null) {
+                clt.close();
+            }
+            if (volt != null) {
+                volt.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testInvocationBuilder() throws Exception {
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+        // TODO: write a mock server that can grock ssl
+        MockVolt volt = null;
+        Client clt = null;
+
+        try {
+            // create a fake server and connect to it.
+            volt = new MockVolt(21212);
+            volt.start();
+
+            ClientConfig config = new ClientConfig();
+            config.setInvocationBatchBytes(4096);
+            clt = ClientFactory.createClient(config);
+            clt.createConnection("localhost");
+
+            InvocationBuilder put = clt.prepare("Put");
+            put.setLong(0, 1).setString(1, "value");
+            assertEquals(ClientResponse.SUCCESS, put.call().getStatus());
+
+            final int invocations = 200;
+            final CountDownLatch responses = new CountDownLatch(invocations);
+            final AtomicInteger failures = new AtomicInteger();
+            ProcedureCallback callback = new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse clientResponse) {
+                    if (clientResponse.getStatus() != ClientResponse.SUCCESS) {
+                        failures.incrementAndGet();
+                    }
+                    responses.countDown();
+                }
+            };
+            for (long key = 0; key < invocations; key++) {
+                assertTrue(put.setLong(0, key).call(callback));
+            }
+            assertTrue(responses.await(10, TimeUnit.SECONDS));
+            assertEquals(0, failures.get());
+        }
+        finally {
+            if (clt != null) {
+                clt.close();
+            }
+            if (volt != null) {
+                volt.shutdown();
+            }
+        }
+    }
+
     @Test
     public void testClientBlockedOnMaxOutstanding() throws Exception {
         // TODO: write a mock server that can grock ssl
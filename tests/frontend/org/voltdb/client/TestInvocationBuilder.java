@@ -0,0 +1,153 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DeferredSerialization;
+import org.voltdb.ElasticHashinator;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Checks that invocations written by an InvocationBuilder are byte for byte the same
+ * as the equivalent ProcedureInvocation, and route to the same partitions.
+ */
+public class TestInvocationBuilder extends TestCase {
+
+    private static byte[] flatten(ProcedureInvocation invocation) throws Exception {
+        ByteBuffer buf = ByteBuffer.allocate(invocation.getSerializedSize());
+        invocation.flattenToBuffer(buf);
+        assertFalse(buf.hasRemaining());
+        return buf.array();
+    }
+
+    private static byte[] framed(ProcedureInvocation invocation) throws Exception {
+        DeferredSerialization ds = invocation.toFramedWrite();
+        ByteBuffer buf = ByteBuffer.allocate(ds.getSerializedSize());
+        ds.serialize(buf);
+        assertFalse(buf.hasRemaining());
+        return buf.array();
+    }
+
+    public void testMatchesProcedureInvocation() throws Exception {
+        final String unicode = "kéy-中文-😀-\ud800-end";
+        final byte[] bytes = new byte[] { 1, 2, 3 };
+        final TimestampType timestamp = new TimestampType(1234567890123L);
+
+        InvocationBuilder builder = new InvocationBuilder(null, "Proc");
+        builder.setByte(0, (byte) 7)
+               .setShort(1, (short) -300)
+               .setInt(2, 1 << 20)
+               .setLong(3, Long.MAX_VALUE - 1)
+               .setDouble(4, 2.5)
+               .setString(5, unicode)
+               .setVarbinary(6, bytes)
+               .setTimestamp(7, timestamp.getTime())
+               .setNull(8);
+
+        ProcedureInvocation expected = new ProcedureInvocation(42, "Proc",
+                (byte) 7, (short) -300, 1 << 20, Long.MAX_VALUE - 1, 2.5, unicode, bytes, timestamp, null);
+        ProcedureInvocation actual = builder.toInvocation(42);
+
+        assertEquals(expected.getSerializedSize(), actual.getSerializedSize());
+        assertTrue(Arrays.equals(flatten(expected), flatten(actual)));
+        assertTrue(Arrays.equals(framed(expected), framed(actual)));
+
+        // and the server reads the parameters back as set
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.initFromBuffer(ByteBuffer.wrap(flatten(actual)));
+        assertEquals("Proc", spi.getProcName());
+        assertEquals(42, spi.getClientHandle());
+        Object[] params = spi.getParams().toArray();
+        assertEquals(9, params.length);
+        assertEquals(Long.MAX_VALUE - 1, params[3]);
+        assertEquals(unicode.replace("\ud800", "?"), params[5]);
+        assertEquals(timestamp, params[7]);
+    }
+
+    public void testReuseAndTimeout() throws Exception {
+        InvocationBuilder builder = new InvocationBuilder(null, "Put");
+        builder.setLong(0, 1).setString(1, "one");
+        byte[] first = flatten(builder.toInvocation(1));
+        assertTrue(Arrays.equals(flatten(new ProcedureInvocation(1, "Put", 1L, "one")), first));
+
+        // only the changed parameter needs to be set again
+        builder.setLong(0, 2).setQueryTimeout(100);
+        assertTrue(Arrays.equals(
+                flatten(new ProcedureInvocation(2, 100, "Put", 2L, "one")),
+                flatten(builder.toInvocation(2))));
+
+        builder.clear().setQueryTimeout(BatchTimeoutOverrideType.NO_TIMEOUT);
+        assertEquals(0, builder.toInvocation(3).getPassedParamCount());
+
+        // gaps are an error rather than a silent null
+        builder.setLong(1, 5);
+        try {
+            builder.toInvocation(4);
+            fail();
+        } catch (IllegalStateException expected) {}
+    }
+
+    public void testPartitioning() throws Exception {
+        HashinatorLite hashinator = new HashinatorLite(
+                ElasticHashinator.getConfigureBytes(16, ElasticHashinator.DEFAULT_TOTAL_TOKENS), false);
+        InvocationBuilder builder = new InvocationBuilder(null, "Get");
+        long values[] = { 0, 1, -1, 42, Integer.MAX_VALUE, Long.MAX_VALUE, VoltType.NULL_BIGINT };
+        for (long value : values) {
+            builder.setLong(0, value);
+            assertEquals(new ProcedureInvocation(0, "Get", value).getHashedPartition(
+                            hashinator, 0, VoltType.BIGINT.getValue()),
+                    builder.toInvocation(0).getHashedPartition(hashinator, 0, VoltType.BIGINT.getValue()));
+        }
+
+        // narrower integers hash like the equivalent BIGINT, nulls go to partition 0
+        builder.setInt(0, 1234);
+        assertEquals(hashinator.getHashedPartitionForParameter(VoltType.BIGINT.getValue(), 1234L),
+                builder.toInvocation(0).getHashedPartition(hashinator, 0, VoltType.BIGINT.getValue()));
+        builder.setInt(0, VoltType.NULL_INTEGER);
+        assertEquals(hashinator.getHashedPartitionForParameter(VoltType.INTEGER.getValue(), VoltType.NULL_INTEGER),
+                builder.toInvocation(0).getHashedPartition(hashinator, 0, VoltType.INTEGER.getValue()));
+
+        builder.setString(0, "key");
+        assertEquals(hashinator.getHashedPartitionForParameter(VoltType.STRING.getValue(), "key"),
+                builder.toInvocation(0).getHashedPartition(hashinator, 0, VoltType.STRING.getValue()));
+    }
+
+    public void testEncoding() {
+        String[] strings = { "", "ascii", "ÿ߿ࠀ￿", "😀", "\udc00x\ud800" };
+        for (String s : strings) {
+            byte[] expected = s.getBytes(Constants.UTF8ENCODING);
+            assertEquals(expected.length, InvocationBuilder.encodedLength(s));
+            ByteBuffer buf = ByteBuffer.allocate(expected.length);
+            InvocationBuilder.encode(s, buf);
+            assertTrue(s, Arrays.equals(expected, buf.array()));
+        }
+    }
+}
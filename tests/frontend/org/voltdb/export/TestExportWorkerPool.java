@@ -0,0 +1,181 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.export;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.voltdb.VoltTable;
+
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
+
+public class TestExportWorkerPool extends TestCase {
+
+    private ExportWorkerPool m_pool;
+
+    @Override
+    public void setUp() {
+        m_pool = new ExportWorkerPool(2);
+    }
+
+    @Override
+    public void tearDown() {
+        m_pool.shutdown();
+    }
+
+    public void testTasksOfASourceRunInOrder() throws Exception {
+        final int sources = 8;
+        final int tasks = ExportWorkerPool.BATCH_SIZE * 3;
+        List<ListeningExecutorService> executors = new ArrayList<>();
+        final List<List<Integer>> runs = new ArrayList<>();
+        for (int s = 0; s < sources; s++) {
+            executors.add(m_pool.newSourceExecutor("T", s));
+            runs.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for (int i = 0; i < tasks; i++) {
+            for (int s = 0; s < sources; s++) {
+                final List<Integer> run = runs.get(s);
+                final int task = i;
+                executors.get(s).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        run.add(task);
+                    }
+                });
+            }
+        }
+        for (ListeningExecutorService es : executors) {
+            es.shutdown();
+            assertTrue(es.awaitTermination(30, TimeUnit.SECONDS));
+        }
+        for (List<Integer> run : runs) {
+            assertEquals(tasks, run.size());
+            for (int i = 0; i < tasks; i++) {
+                assertEquals(i, run.get(i).intValue());
+            }
+        }
+        assertTrue(m_pool.getSourceExecutors().isEmpty());
+    }
+
+    public void testShutdownRunsQueuedTasks() throws Exception {
+        ListeningExecutorService es = m_pool.newSourceExecutor("T", 0);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+        es.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {}
+                ran.incrementAndGet();
+            }
+        });
+        es.submit(new Runnable() {
+            @Override
+            public void run() {
+                ran.incrementAndGet();
+            }
+        });
+        es.shutdown();
+        assertTrue(es.isShutdown());
+        assertFalse(es.isTerminated());
+        try {
+            es.execute(new Runnable() {
+                @Override
+                public void run() {}
+            });
+            fail();
+        } catch (RejectedExecutionException expected) {}
+        release.countDown();
+        assertTrue(es.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(2, ran.get());
+    }
+
+    public void testStats() throws Exception {
+        ListeningExecutorService es = m_pool.newSourceExecutor("T", 3);
+        final CountDownLatch release = new CountDownLatch(1);
+        es.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {}
+            }
+        });
+        for (int i = 0; i < 4; i++) {
+            es.execute(new Runnable() {
+                @Override
+                public void run() {}
+            });
+        }
+
+        ExportStats stats = new ExportStats(m_pool);
+        VoltTable table = getStats(stats, true);
+        assertEquals(1, table.getRowCount());
+        assertTrue(table.advanceRow());
+        assertEquals("T", table.getString("SOURCE"));
+        assertEquals(3, table.getLong("PARTITION_ID"));
+        assertEquals(2, table.getLong("WORKER_THREADS"));
+        assertEquals(5, table.getLong("QUEUE_DEPTH"));
+        assertEquals(5, table.getLong("MAX_QUEUE_DEPTH"));
+        assertEquals(0, table.getLong("TASKS_COMPLETED"));
+
+        release.countDown();
+        es.execute(new Runnable() {
+            @Override
+            public void run() {}
+        });
+        ExportWorkerPool.SourceExecutor source = m_pool.getSourceExecutors().iterator().next();
+        while (source.getQueueDepth() > 0) {
+            Thread.sleep(1);
+        }
+        table = getStats(stats, true);
+        assertTrue(table.advanceRow());
+        assertEquals(0, table.getLong("QUEUE_DEPTH"));
+        assertEquals(6, table.getLong("TASKS_COMPLETED"));
+        table = getStats(stats, true);
+        assertTrue(table.advanceRow());
+        assertEquals(0, table.getLong("MAX_QUEUE_DEPTH"));
+        assertEquals(0, table.getLong("TASKS_COMPLETED"));
+
+        es.shutdown();
+        assertTrue(es.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(0, getStats(stats, false).getRowCount());
+    }
+
+    private static VoltTable getStats(ExportStats stats, boolean interval) {
+        VoltTable table = new VoltTable(stats.getColumnSchema().toArray(new VoltTable.ColumnInfo[0]));
+        for (Object[] row : stats.getStatsRows(interval, System.currentTimeMillis())) {
+            table.addRow(row);
+        }
+        return table;
+    }
+}
@@ -385,4 +385,72 @@ public class TestExportDecoderBase extends TestCase
         }
     }
 
+    public void testRowView() throws IOException {
+        long l = System.currentTimeMillis();
+        vtable.clearRowData();
+        vtable.addRow(l, l, l, 0, l, l, (byte) 1, (short) 2, 3, 4, 5.5, 6, "xx", new BigDecimal(88), GEOG_POINT, GEOG);
+        vtable.addRow(l, l, l, 0, l, l, (byte) 1, (short) 2, 3, 4, 5.5, 6, null, null, GEOG_POINT, GEOG);
+        vtable.addRow(l, l, l, 0, l, l, (byte) 7, (short) 8, 9, 10, 11.5, 12, "yyy", new BigDecimal(-3), GEOG_POINT, GEOG);
+        byte[] rows = ExportEncoder.encodeTable(vtable, "mytable", 7, 1L);
+
+        // Find the rows with the decoder and lay them out as a block, with row lengths
+        List<ExportRow> expected = new ArrayList<>();
+        ByteBuffer encoded = ByteBuffer.wrap(rows).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer block = ByteBuffer.allocateDirect(rows.length + 4 * vtable.getRowCount() + 5)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        block.position(5);
+        ExportRow previous = null;
+        while (encoded.hasRemaining()) {
+            int start = encoded.position();
+            previous = ExportRow.decodeRow(previous, 0, 0L, encoded);
+            expected.add(previous);
+            block.putInt(encoded.position() - start);
+            block.put(rows, start, encoded.position() - start);
+        }
+        block.flip();
+        block.position(5);
+
+        ExportRowView view = new StubExportDecoder(constructTestSource()).getRowView();
+        view.reset(block);
+        for (ExportRow row : expected) {
+            assertTrue(view.next());
+            assertEquals("mytable", view.getTableName());
+            assertEquals(COLUMN_TYPES.length, view.getColumnCount());
+            assertEquals(row.generation, view.getGeneration());
+            assertEquals(row.partitionValue, view.getPartitionValue());
+            assertEquals(l, view.getLong(0));
+            assertEquals(((Byte) row.values[6]).longValue(), view.getLong(6));
+            assertEquals(((Short) row.values[7]).longValue(), view.getLong(7));
+            assertEquals(row.values[10], view.getDouble(10));
+            assertEquals(((TimestampType) row.values[11]).getTime(), view.getLong(11));
+            for (int i = 0; i < COLUMN_TYPES.length; i++) {
+                assertEquals(row.values[i] == null, view.isNull(i));
+                if (row.values[i] != null) {
+                    assertEquals(row.values[i].toString(), view.getObject(i).toString());
+                }
+            }
+            if (row.values[12] != null) {
+                ByteBuffer bytes = view.getStringBytes(12);
+                byte[] copy = new byte[bytes.remaining()];
+                bytes.get(copy);
+                assertEquals(row.values[12], new String(copy, "UTF-8"));
+            }
+            ExportRow copied = view.toExportRow();
+            assertEquals(Arrays.asList(row.values).toString(), Arrays.asList(copied.values).toString());
+            ByteBuffer rowBytes = view.getRowBytes();
+            byte[] rowCopy = new byte[rowBytes.remaining()];
+            rowBytes.get(rowCopy);
+            assertEquals(Arrays.asList(row.values).toString(),
+                    Arrays.asList(ExportRow.decodeRow(row, 0, 0L, rowCopy).values).toString());
+        }
+        assertFalse(view.next());
+        assertEquals(5, block.position());
+
+        try {
+            view.reset(block);
+            assertTrue(view.next());
+            view.getLong(12);
+            fail();
+        } catch (IllegalArgumentException expectedException) {}
+    }
 }
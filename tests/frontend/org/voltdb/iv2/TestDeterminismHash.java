@@ -0,0 +1,131 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.hadoop_voltpatches.util.PureJavaCrc32C;
+import org.voltdb.AcceleratedCrc32c;
+
+import junit.framework.TestCase;
+
+public class TestDeterminismHash extends TestCase
+{
+    private static int pureCrc(byte[] bytes, int off, int len)
+    {
+        PureJavaCrc32C crc = new PureJavaCrc32C();
+        crc.update(bytes, off, len);
+        return (int) crc.getValue();
+    }
+
+    public void testChecksumMatchesCrc32c()
+    {
+        Random r = new Random(42);
+        AcceleratedCrc32c crc = new AcceleratedCrc32c();
+        for (int len : new int[] { 0, 1, 7, 8, 9, 149, 150, 151, 4096 }) {
+            byte[] bytes = new byte[len + 5];
+            r.nextBytes(bytes);
+            int expected = pureCrc(bytes, 5, len);
+
+            ByteBuffer heap = ByteBuffer.wrap(bytes);
+            heap.position(5);
+            crc.reset();
+            crc.update(heap);
+            assertEquals(expected, crc.getValue());
+            assertEquals(bytes.length, heap.position());
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes);
+            crc.reset();
+            crc.updateFromPosition(5, direct);
+            assertEquals(expected, crc.getValue());
+            assertEquals(direct.capacity(), direct.limit());
+        }
+    }
+
+    public void testLargeBuffersHashEveryByte()
+    {
+        byte[] bytes = new byte[1024];
+        DeterminismHash left = new DeterminismHash();
+        DeterminismHash right = new DeterminismHash();
+        left.reset(1, 100);
+        right.reset(1, 100);
+        ByteBuffer buf = ByteBuffer.allocate(bytes.length);
+        buf.put(bytes);
+        left.offerStatement(7, 0, buf);
+        bytes[500] = 1;
+        buf.clear();
+        buf.put(bytes);
+        right.offerStatement(7, 0, buf);
+        assertFalse(DeterminismHash.compareHashes(left.get(), right.get()));
+    }
+
+    public void testSamplingDependsOnTxnId()
+    {
+        int sampled = 0;
+        for (long txnId = 0; txnId < 10000; txnId++) {
+            boolean first = DeterminismHash.isSampled(txnId, 0.25);
+            assertEquals(first, DeterminismHash.isSampled(txnId, 0.25));
+            assertTrue(DeterminismHash.isSampled(txnId, 1.0));
+            assertFalse(DeterminismHash.isSampled(txnId, 0.0));
+            if (first) {
+                sampled++;
+            }
+        }
+        assertTrue(sampled > 2000 && sampled < 3000);
+
+        assertEquals(0.5, DeterminismHash.sampleRate("0.5"));
+        assertEquals(1.0, DeterminismHash.sampleRate("2"));
+        assertEquals(1.0, DeterminismHash.sampleRate("bogus"));
+        assertEquals(1.0, DeterminismHash.sampleRate(null));
+    }
+
+    public void testUnsampledHashesCompareEqual()
+    {
+        DeterminismHash hash = new DeterminismHash();
+        hash.reset(3);
+        ByteBuffer buf = ByteBuffer.allocate(16);
+        buf.putLong(12345L);
+        hash.offerStatement(9, 0, buf);
+        int[] sampled = hash.get();
+        assertTrue(DeterminismHash.isSampled(sampled));
+
+        hash.reset(3);
+        hash.m_sampled = false;
+        hash.offerStatement(9, 0, buf);
+        int[] unsampled = hash.get();
+        assertFalse(DeterminismHash.isSampled(unsampled));
+        assertEquals(3, unsampled[1]);
+        assertTrue(DeterminismHash.compareHashes(sampled, unsampled));
+        assertTrue(DeterminismHash.compareHashes(unsampled, sampled));
+
+        long skipped = DeterminismHash.getHashesSkipped();
+        long checked = DeterminismHash.getHashesChecked();
+        DeterminismHash.recordComparison(sampled, unsampled);
+        DeterminismHash.recordComparison(sampled, new int[] { sampled[0] + 1, 3, 2 });
+        assertEquals(skipped + 1, DeterminismHash.getHashesSkipped());
+        assertEquals(checked + 1, DeterminismHash.getHashesChecked());
+    }
+}
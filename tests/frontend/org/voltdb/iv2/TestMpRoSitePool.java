@@ -0,0 +1,186 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.iv2.MpRoSitePool.MpRoSiteContext;
+
+public class TestMpRoSitePool extends TestCase
+{
+    static final long IDLE_TIMEOUT = 1000;
+
+    // Pool whose sites are mocks, so no threads or procedures are set up
+    static class MockSitePool extends MpRoSitePool
+    {
+        // No initializer, the super constructor creates the first sites before it would run
+        List<MpRoSiteContext> m_created;
+
+        MockSitePool(CatalogContext context)
+        {
+            super(0, null, context, MpInitiator.MP_INIT_PID, null);
+        }
+
+        @Override
+        MpRoSiteContext newSiteContext()
+        {
+            if (m_created == null) {
+                m_created = new ArrayList<>();
+            }
+            MpRoSiteContext site = mock(MpRoSiteContext.class);
+            m_created.add(site);
+            return site;
+        }
+    }
+
+    CatalogContext m_context;
+    MockSitePool m_pool;
+
+    @Override
+    public void setUp()
+    {
+        System.setProperty("mpiReadPoolSize", "3");
+        System.setProperty("mpiReadPoolMinSize", "1");
+        System.setProperty("mpiReadPoolIdleTimeoutMs", Long.toString(IDLE_TIMEOUT));
+        m_context = mock(CatalogContext.class);
+        when(m_context.getCatalogCRC()).thenReturn(1L);
+        m_pool = new MockSitePool(m_context);
+    }
+
+    @Override
+    public void tearDown()
+    {
+        System.clearProperty("mpiReadPoolSize");
+        System.clearProperty("mpiReadPoolMinSize");
+        System.clearProperty("mpiReadPoolIdleTimeoutMs");
+    }
+
+    private void startAndComplete(long... txnIds)
+    {
+        for (long txnId : txnIds) {
+            assertTrue(m_pool.doWork(txnId, mock(TransactionTask.class)));
+        }
+        for (long txnId : txnIds) {
+            m_pool.completeWork(txnId);
+        }
+    }
+
+    public void testGrowsOnDemandUpToMax()
+    {
+        assertEquals(1, m_pool.getPoolSize());
+        for (long txnId = 0; txnId < 3; txnId++) {
+            assertTrue(m_pool.canAcceptWork());
+            assertTrue(m_pool.doWork(txnId, mock(TransactionTask.class)));
+        }
+        assertEquals(3, m_pool.getPoolSize());
+        assertEquals(3, m_pool.getBusyCount());
+        assertFalse(m_pool.canAcceptWork());
+        assertEquals(1, m_pool.getSaturatedCount());
+
+        m_pool.completeWork(1);
+        assertTrue(m_pool.canAcceptWork());
+        assertEquals(3, m_pool.getBusyHighWater(true));
+        assertEquals(2, m_pool.getBusyHighWater(false));
+        assertEquals(3, m_pool.getSitesCreated());
+    }
+
+    public void testIdleSitesRetireDownToMin()
+    {
+        startAndComplete(0, 1, 2);
+        assertEquals(3, m_pool.getPoolSize());
+        long now = System.currentTimeMillis();
+
+        // Nothing has been idle long enough yet
+        m_pool.trimIdleSites(now);
+        assertEquals(3, m_pool.getPoolSize());
+
+        m_pool.trimIdleSites(now + IDLE_TIMEOUT * 2);
+        assertEquals(1, m_pool.getPoolSize());
+        assertEquals(2, m_pool.getSitesRetired());
+        int shutdown = 0;
+        for (MpRoSiteContext site : m_pool.m_created) {
+            try {
+                verify(site).shutdown();
+                shutdown++;
+            } catch (AssertionError e) {}
+        }
+        assertEquals(2, shutdown);
+
+        // The remaining site still takes work
+        startAndComplete(3);
+        assertEquals(1, m_pool.getPoolSize());
+    }
+
+    public void testLeastRecentlyUsedSiteRetiresFirst()
+    {
+        // Completing 0 then 1 leaves site 0 at the bottom of the idle stack
+        startAndComplete(0, 1);
+        MpRoSiteContext stale = m_pool.m_created.get(0);
+        MpRoSiteContext recent = m_pool.m_created.get(1);
+        long now = System.currentTimeMillis();
+        stale.m_idleSinceMillis = now - IDLE_TIMEOUT * 2;
+        recent.m_idleSinceMillis = now;
+
+        m_pool.trimIdleSites(now);
+        assertEquals(1, m_pool.getPoolSize());
+        verify(stale).shutdown();
+        verify(recent, never()).shutdown();
+    }
+
+    public void testCatalogUpdateRefreshesSites()
+    {
+        assertTrue(m_pool.doWork(0, mock(TransactionTask.class)));
+        assertTrue(m_pool.doWork(1, mock(TransactionTask.class)));
+        MpRoSiteContext busy = m_pool.m_created.get(0);
+        MpRoSiteContext idle = m_pool.m_created.get(1);
+        when(busy.getCatalogCRC()).thenReturn(1L);
+        when(idle.getCatalogCRC()).thenReturn(1L);
+        m_pool.completeWork(1);
+
+        CatalogContext newContext = mock(CatalogContext.class);
+        when(newContext.getCatalogCRC()).thenReturn(2L);
+        m_pool.updateCatalog("", newContext);
+        verify(idle).refreshCatalog(newContext);
+        verify(busy, never()).refreshCatalog(any(CatalogContext.class));
+
+        // The busy site picks up the new catalog when it finishes, and stays in the pool
+        m_pool.completeWork(0);
+        verify(busy, times(1)).refreshCatalog(newContext);
+        verify(busy, never()).shutdown();
+        assertEquals(2, m_pool.getPoolSize());
+        assertEquals(2, m_pool.getCatalogRefreshes());
+        assertEquals(0, m_pool.getSitesRetired());
+    }
+}
@@ -35,11 +35,16 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
 import org.junit.Test;
+import org.voltdb.iv2.SpeculativeReadPolicy.TableAccess;
+
+import com.google_voltpatches.common.collect.ImmutableSet;
 
 public class TestMpTransactionTaskQueue extends TestCase
 {
@@ -53,6 +58,13 @@ public class TestMpTransactionTaskQueue extends TestCase
         return task;
     }
 
+    MpProcedureTask makeTransactionTask(long txnid, String procName, boolean readOnly)
+    {
+        MpProcedureTask task = makeTransactionTask(txnid, readOnly);
+        when(task.getProcName()).thenReturn(procName);
+        return task;
+    }
+
     SiteTaskerQueue m_writeQueue;
     MpRoSitePool m_MPpool;
     MpTransactionTaskQueue m_dut;
@@ -150,4 +162,62 @@ public class TestMpTransactionTaskQueue extends TestCase
         verify(m_MPpool).doWork(eq(readtxnid), any(TransactionTask.class));
         verify(m_MPpool).doWork(eq(readtxnid2), any(TransactionTask.class));
     }
+
+    // Reads behind a write waiting on the reads in progress start early if they
+    // can't see anything queued ahead of them
+    @Test
+    public void testReadsBypassQueuedWrite()
+    {
+        Map<String, TableAccess> procs = new HashMap<String, TableAccess>();
+        procs.put("WriteA", new TableAccess(ImmutableSet.of("A"), ImmutableSet.of("A")));
+        procs.put("ReadA", new TableAccess(ImmutableSet.of("A"), ImmutableSet.<String>of()));
+        procs.put("ReadB", new TableAccess(ImmutableSet.of("B"), ImmutableSet.<String>of()));
+        m_dut.setSpeculativeReadPolicy(new SpeculativeReadPolicy(null, procs));
+        m_dut.setReadBypassLimit(2);
+
+        TxnEgo txnId = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        txnId = txnId.makeNext();
+        long firstRead = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(firstRead, "ReadA", true));
+        verify(m_MPpool).doWork(eq(firstRead), any(TransactionTask.class));
+
+        txnId = txnId.makeNext();
+        long write = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(write, "WriteA", false));
+        // Reads what the write writes, so it waits
+        txnId = txnId.makeNext();
+        long blockedRead = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(blockedRead, "ReadA", true));
+        // Unknown tables, so it waits
+        txnId = txnId.makeNext();
+        long adHocRead = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(adHocRead, null, true));
+        // These two pass the write, the third is over the limit
+        List<Long> bypassed = new ArrayList<Long>();
+        for (int i = 0; i < 3; i++) {
+            txnId = txnId.makeNext();
+            bypassed.add(txnId.getTxnId());
+            m_dut.offer(makeTransactionTask(txnId.getTxnId(), "ReadB", true));
+        }
+        verify(m_MPpool).doWork(eq(bypassed.get(0)), any(TransactionTask.class));
+        verify(m_MPpool).doWork(eq(bypassed.get(1)), any(TransactionTask.class));
+        verify(m_MPpool, never()).doWork(eq(bypassed.get(2)), any(TransactionTask.class));
+        verify(m_MPpool, never()).doWork(eq(blockedRead), any(TransactionTask.class));
+        verify(m_MPpool, never()).doWork(eq(adHocRead), any(TransactionTask.class));
+        assertEquals(4, m_dut.size());
+
+        // The write still waits for all the reads in progress, including the early ones
+        m_dut.flush(firstRead);
+        m_dut.flush(bypassed.get(0));
+        verify(m_writeQueue, never()).offer(any(TransactionTask.class));
+        m_dut.flush(bypassed.get(1));
+        verify(m_writeQueue).offer(any(TransactionTask.class));
+
+        // And everything left runs after it
+        m_dut.flush(write);
+        verify(m_MPpool).doWork(eq(blockedRead), any(TransactionTask.class));
+        verify(m_MPpool).doWork(eq(adHocRead), any(TransactionTask.class));
+        verify(m_MPpool).doWork(eq(bypassed.get(2)), any(TransactionTask.class));
+        assertEquals(0, m_dut.size());
+    }
 }
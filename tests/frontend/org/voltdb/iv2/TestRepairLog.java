@@ -32,6 +32,7 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -388,4 +389,57 @@ public class TestRepairLog
             assertEquals(i, lastCommitted.get());
         }
     }
+
+    private Iv2InitiateTaskMessage largeInitMsg(long spHandle, int payloadSize)
+    {
+        byte[] payload = new byte[payloadSize];
+        Arrays.fill(payload, (byte) spHandle);
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName("Insert");
+        spi.setParams(spHandle, payload);
+        Iv2InitiateTaskMessage msg =
+                new Iv2InitiateTaskMessage(0l, 0l, Long.MIN_VALUE, spHandle, spHandle, false, true,
+                        spi, 0l, 0l, false);
+        msg.setSpHandle(spHandle);
+        return msg;
+    }
+
+    @Test
+    public void testOffHeapContents() throws Exception
+    {
+        RepairLogArena arena = new RepairLogArena(4096, 512);
+        RepairLog rl = new RepairLog(arena);
+
+        // small messages stay on the heap, the oversized one gets its own chunk
+        int[] sizes = new int[] { 10, 1500, 1500, 1500, 10000, 1500 };
+        List<Iv2InitiateTaskMessage> sent = new ArrayList<Iv2InitiateTaskMessage>();
+        for (int i = 0; i < sizes.length; i++) {
+            Iv2InitiateTaskMessage msg = largeInitMsg(i + 1, sizes[i]);
+            sent.add(msg);
+            rl.deliver(msg);
+        }
+        assertEquals(3, arena.getChunkCount());
+        assertTrue(arena.getLiveBytes() > 15000);
+
+        List<Iv2RepairLogResponseMessage> contents = rl.contents(1l, false);
+        assertEquals(sizes.length + 1, contents.size());
+        assertTrue(sent.get(0) == contents.get(1).getPayload());
+        for (int i = 0; i < sizes.length; i++) {
+            Iv2InitiateTaskMessage payload = (Iv2InitiateTaskMessage) contents.get(i + 1).getPayload();
+            assertEquals(i + 1, payload.getSpHandle());
+            assertEquals("Insert", payload.getStoredProcedureName());
+            Object[] params = payload.getStoredProcedureInvocation().getParams().toArray();
+            assertTrue(Arrays.equals((byte[]) sent.get(i).getStoredProcedureInvocation().getParams().toArray()[1],
+                                     (byte[]) params[1]));
+        }
+
+        // truncating part of the log frees the chunks it no longer uses
+        rl.deliver(truncMsg(4));
+        assertEquals(2, arena.getChunkCount());
+        assertEquals(2, rl.contents(1l, false).size() - 1);
+        rl.deliver(truncMsg(6));
+        assertEquals(1, arena.getChunkCount());
+        assertEquals(0, arena.getLiveBytes());
+        assertEquals(1, rl.contents(1l, false).size());
+    }
 }
@@ -0,0 +1,159 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.voltcore.utils.QueueWaitStrategy;
+import org.voltdb.SiteProcedureConnection;
+import org.voltdb.StarvationTracker;
+import org.voltdb.rejoin.TaskLog;
+
+import junit.framework.TestCase;
+
+public class TestSiteTaskerQueue extends TestCase {
+
+    static class NumberedTask extends SiteTasker {
+        final int m_producer;
+        final int m_number;
+
+        NumberedTask(int producer, int number) {
+            m_producer = producer;
+            m_number = number;
+        }
+
+        @Override
+        public void run(SiteProcedureConnection siteConnection) {
+        }
+
+        @Override
+        public void runForRejoin(SiteProcedureConnection siteConnection, TaskLog taskLog) {
+        }
+    }
+
+    private static SiteTaskerQueue getRingQueue(int size, QueueWaitStrategy strategy) {
+        SiteTaskerQueue queue = new SiteTaskerQueue(0, size, strategy);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        queue.setupQueueDepthTracker(0);
+        return queue;
+    }
+
+    public void testOverflowKeepsOrder() throws Exception {
+        SiteTaskerQueue queue = getRingQueue(4, QueueWaitStrategy.PARK);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer(new NumberedTask(0, i)));
+        }
+        assertEquals(10, queue.size());
+        assertEquals(0, ((NumberedTask)queue.peek()).m_number);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, ((NumberedTask)queue.poll()).m_number);
+        }
+        // the ring has room again but earlier tasks are still in the overflow
+        queue.offer(new NumberedTask(0, 10));
+        for (int i = 3; i <= 10; i++) {
+            assertEquals(i, ((NumberedTask)queue.take()).m_number);
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        // back to the ring once the overflow is drained
+        queue.offer(new NumberedTask(0, 11));
+        assertEquals(11, ((NumberedTask)queue.poll()).m_number);
+    }
+
+    public void testParkedSiteIsWoken() throws Exception {
+        checkProducers(QueueWaitStrategy.PARK);
+    }
+
+    public void testYieldingSite() throws Exception {
+        checkProducers(QueueWaitStrategy.YIELD);
+    }
+
+    /*
+     * Producers offer bursts with pauses in between so the site runs dry and has to be woken
+     */
+    private void checkProducers(QueueWaitStrategy strategy) throws Exception {
+        final int producers = 3;
+        final int perProducer = 20000;
+        final SiteTaskerQueue queue = getRingQueue(16, strategy);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perProducer; i++) {
+                            queue.offer(new NumberedTask(producer, i));
+                            if (i % 1000 == 0) {
+                                Thread.sleep(1);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+
+        int expected[] = new int[producers];
+        for (int i = 0; i < producers * perProducer; i++) {
+            NumberedTask task = (NumberedTask)queue.take();
+            assertEquals(expected[task.m_producer]++, task.m_number);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testInterruptedTake() throws Exception {
+        final SiteTaskerQueue queue = getRingQueue(16, QueueWaitStrategy.PARK);
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        Thread site = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.take();
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            }
+        };
+        site.start();
+        Thread.sleep(100);
+        site.interrupt();
+        site.join(10000);
+        assertFalse(site.isAlive());
+        assertTrue(thrown.get() instanceof InterruptedException);
+    }
+}
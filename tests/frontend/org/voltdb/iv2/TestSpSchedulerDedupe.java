@@ -288,4 +288,43 @@ public class TestSpSchedulerDedupe extends TestCase
         dut.deliver(replresp);
         verify(mbox, times(1)).send(eq(primary_hsid), eq(resp));
     }
+
+    @Test
+    public void testReplicaReadSafeWaitsForCommit() throws Exception
+    {
+        long writeTxnId = TxnEgo.makeZero(0).makeNext().getTxnId();
+        long primary_hsid = 1111l;
+        long ci_hsid = 2222l;
+
+        createObjs();
+        // a replicated write this replica has seen but which isn't committed everywhere yet
+        dut.deliver(createMsg(writeTxnId, false, true, primary_hsid));
+        Iv2InitiateTaskMessage read = createMsg(writeTxnId, true, true, ci_hsid);
+        read.setReplicaRead(true);
+        dut.deliver(read);
+        InitiateResponseMessage resp = new InitiateResponseMessage(read);
+        dut.deliver(resp);
+        verify(mbox, times(0)).send(anyLong(), (VoltMessage)anyObject());
+
+        ((SpScheduler)dut).transactionCommitted(writeTxnId);
+        verify(mbox, times(1)).send(eq(ci_hsid), eq(resp));
+    }
+
+    @Test
+    public void testReplicaReadFastRespondsImmediately() throws Exception
+    {
+        long writeTxnId = TxnEgo.makeZero(0).makeNext().getTxnId();
+        long primary_hsid = 1111l;
+        long ci_hsid = 2222l;
+
+        createObjs();
+        ((SpScheduler)dut).m_replicaReadConsistency = ReplicaReadConsistency.FAST;
+        dut.deliver(createMsg(writeTxnId, false, true, primary_hsid));
+        Iv2InitiateTaskMessage read = createMsg(writeTxnId, true, true, ci_hsid);
+        read.setReplicaRead(true);
+        dut.deliver(read);
+        InitiateResponseMessage resp = new InitiateResponseMessage(read);
+        dut.deliver(resp);
+        verify(mbox, times(1)).send(eq(ci_hsid), eq(resp));
+    }
 }
@@ -0,0 +1,103 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.iv2.StageLatencyStats.Stage;
+
+import junit.framework.TestCase;
+
+public class TestStageLatencyStats extends TestCase
+{
+    private static VoltTable collect(StageLatencyStats stats, boolean interval)
+    {
+        VoltTable table = new VoltTable(stats.getColumnSchema().toArray(new ColumnInfo[0]));
+        for (Object[] row : stats.getStatsRows(interval, System.currentTimeMillis())) {
+            table.addRow(row);
+        }
+        return table;
+    }
+
+    private static long value(VoltTable table, Stage stage, String column)
+    {
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            if (stage.name().equals(table.getString("STAGE"))) {
+                return table.getLong(column);
+            }
+        }
+        fail("No row for " + stage);
+        return -1;
+    }
+
+    public void testRowPerStage()
+    {
+        StageLatencyStats stats = new StageLatencyStats(0, 3);
+        for (int i = 1; i <= 100; i++) {
+            stats.record(Stage.EXECUTION, TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        stats.record(Stage.SITE_QUEUE, TimeUnit.MILLISECONDS.toNanos(5));
+
+        VoltTable table = collect(stats, false);
+        assertEquals(Stage.values().length, table.getRowCount());
+
+        assertEquals(3, value(table, Stage.EXECUTION, "PARTITION_ID"));
+        assertEquals(100, value(table, Stage.EXECUTION, "COUNT"));
+        assertEquals(50, value(table, Stage.EXECUTION, "P50"));
+        assertEquals(99, value(table, Stage.EXECUTION, "P99"));
+        assertEquals(100, value(table, Stage.EXECUTION, "MAX"));
+
+        assertEquals(1, value(table, Stage.SITE_QUEUE, "COUNT"));
+        assertTrue(Math.abs(5000 - value(table, Stage.SITE_QUEUE, "MAX")) < 10);
+
+        assertEquals(0, value(table, Stage.REPLICA_ACK, "COUNT"));
+    }
+
+    public void testIntervalCollection()
+    {
+        StageLatencyStats stats = new StageLatencyStats(0, 0);
+        stats.record(Stage.REPLICA_ACK, TimeUnit.MICROSECONDS.toNanos(10));
+        assertEquals(1, value(collect(stats, true), Stage.REPLICA_ACK, "COUNT"));
+
+        stats.record(Stage.REPLICA_ACK, TimeUnit.MICROSECONDS.toNanos(20));
+        stats.record(Stage.REPLICA_ACK, TimeUnit.MICROSECONDS.toNanos(30));
+        assertEquals(2, value(collect(stats, true), Stage.REPLICA_ACK, "COUNT"));
+
+        assertEquals(0, value(collect(stats, true), Stage.REPLICA_ACK, "COUNT"));
+
+        // totals are unaffected by interval collections
+        assertEquals(3, value(collect(stats, false), Stage.REPLICA_ACK, "COUNT"));
+    }
+
+    public void testQueueSetup()
+    {
+        SiteTaskerQueue queue = new SiteTaskerQueue(1);
+        assertNull(queue.getStageLatencyStats());
+        StageLatencyStats stats = queue.setupStageLatencyStats(0);
+        assertSame(stats, queue.getStageLatencyStats());
+    }
+}
@@ -28,14 +28,19 @@ import static org.mockito.Mockito.when;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.Test;
 import org.voltdb.StarvationTracker;
 import org.voltdb.dtxn.TransactionState;
+import org.voltdb.iv2.SpeculativeReadPolicy.TableAccess;
 import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 
+import com.google_voltpatches.common.collect.ImmutableSet;
+
 import junit.framework.TestCase;
 
 public class TestTransactionTaskQueue extends TestCase
@@ -68,6 +73,22 @@ public class TestTransactionTaskQueue extends TestCase
         return task;
     }
 
+    private SpProcedureTask createSpProc(long localTxnId,
+                                         TransactionTaskQueue queue,
+                                         String procName,
+                                         boolean readOnly)
+    {
+        Iv2InitiateTaskMessage init = mock(Iv2InitiateTaskMessage.class);
+        when(init.getTxnId()).thenReturn(Iv2InitiateTaskMessage.UNUSED_MP_TXNID);
+        when(init.getSpHandle()).thenReturn(localTxnId);
+        when(init.isReadOnly()).thenReturn(readOnly);
+
+        InitiatorMailbox mbox = mock(InitiatorMailbox.class);
+        when(mbox.getHSId()).thenReturn(1337l);
+
+        return new SpProcedureTask(mbox, procName, queue, init);
+    }
+
     private FragmentTask createFrag(long localTxnId, long mpTxnId,
             TransactionTaskQueue queue) {
         return createFrag(localTxnId, mpTxnId, queue, false);
@@ -197,4 +218,72 @@ public class TestTransactionTaskQueue extends TestCase
             assertEquals(expected.getTxnId(), next_poll.getTxnId());
         }
     }
+
+    private static TableAccess access(String[] reads, String[] writes)
+    {
+        return new TableAccess(ImmutableSet.copyOf(reads), ImmutableSet.copyOf(writes));
+    }
+
+    @Test
+    public void testSpeculativeReads() throws InterruptedException
+    {
+        Map<String, TableAccess> procs = new HashMap<>();
+        procs.put("MpWriteA", access(new String[] {"A", "B"}, new String[] {"A"}));
+        procs.put("ReadA", access(new String[] {"A"}, new String[] {}));
+        procs.put("ReadB", access(new String[] {"B"}, new String[] {}));
+        procs.put("WriteB", access(new String[] {}, new String[] {"B"}));
+
+        long localTxnId = 0;
+        SiteTaskerQueue task_queue = getSiteTaskerQueue();
+        TransactionTaskQueue dut = new TransactionTaskQueue(task_queue);
+        dut.setSpeculativeReadPolicy(new SpeculativeReadPolicy(null, procs));
+        Deque<TransactionTask> expected_order = new ArrayDeque<TransactionTask>();
+        ArrayDeque<TransactionTask> blocked = new ArrayDeque<TransactionTask>();
+
+        FragmentTask block = createFrag(localTxnId++, 100, dut);
+        when(block.m_fragmentMsg.getProcedureName()).thenReturn("MpWriteA");
+        addTask(block, dut, expected_order);
+
+        // Reads B, which the MP doesn't write, so it runs ahead
+        addTask(createSpProc(localTxnId++, dut, "ReadB", true), dut, expected_order);
+        // Reads A, which the MP writes
+        addTask(createSpProc(localTxnId++, dut, "ReadA", true), dut, blocked);
+        // Writes are never run ahead, and they stop reads of B behind them
+        addTask(createSpProc(localTxnId++, dut, "WriteB", false), dut, blocked);
+        addTask(createSpProc(localTxnId++, dut, "ReadB", true), dut, blocked);
+        assertEquals(blocked.size() + 1, dut.size());
+
+        block.getTransactionState().setDone();
+        assertEquals(blocked.size(), dut.flush(block.getTxnId()));
+        assertEquals(0, dut.size());
+        expected_order.addAll(blocked);
+
+        // A procedure with unknown table access stops reads behind it
+        block = createFrag(localTxnId++, 101, dut);
+        when(block.m_fragmentMsg.getProcedureName()).thenReturn("MpWriteA");
+        addTask(block, dut, expected_order);
+        addTask(createSpProc(localTxnId++, dut, "Unknown", false), dut, null);
+        addTask(createSpProc(localTxnId++, dut, "ReadB", true), dut, null);
+        assertEquals(3, dut.size());
+
+        while (!expected_order.isEmpty())
+        {
+            TransactionTask next_poll = (TransactionTask)task_queue.take();
+            TransactionTask expected = expected_order.removeFirst();
+            assertEquals(expected.getSpHandle(), next_poll.getSpHandle());
+            assertEquals(expected.getTxnId(), next_poll.getTxnId());
+        }
+        assertEquals(0, task_queue.size());
+    }
+
+    @Test
+    public void testNoSpeculationWithoutPolicy()
+    {
+        TransactionTaskQueue dut = new TransactionTaskQueue(getSiteTaskerQueue());
+        FragmentTask block = createFrag(0, 100, dut);
+        when(block.m_fragmentMsg.getProcedureName()).thenReturn("MpWriteA");
+        addTask(block, dut, null);
+        addTask(createSpProc(1, dut, "ReadB", true), dut, null);
+        assertEquals(2, dut.size());
+    }
 }
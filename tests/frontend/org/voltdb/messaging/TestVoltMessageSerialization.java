@@ -25,6 +25,7 @@ package org.voltdb.messaging;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 
@@ -40,6 +41,8 @@ import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.exceptions.EEException;
+import org.voltdb.rejoin.RejoinDataMessage;
+import org.voltdb.utils.CompressionCodec;
 
 import com.google_voltpatches.common.collect.Sets;
 
@@ -107,6 +110,23 @@ public class TestVoltMessageSerialization extends TestCase {
         assertEquals(itask.getSpHandle(), itask2.getSpHandle());
         assertEquals(31337, itask.getSpHandle());
         assertTrue(itask.isForReplay());
+        assertFalse(itask2.isReplicaRead());
+    }
+
+    public void testIv2InitiateTaskReplicaRead() throws IOException {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setClientHandle(25);
+        spi.setProcName("johnisgreat");
+        spi.setParams(57, "gooniestoo");
+
+        Iv2InitiateTaskMessage itask = new Iv2InitiateTaskMessage(23, 8, 10L, 100045, 99, true, true, spi, 2101, 3101, false);
+        itask.setReplicaRead(true);
+        Iv2InitiateTaskMessage itask2 = (Iv2InitiateTaskMessage) checkVoltMessage(itask);
+
+        assertTrue(itask2.isReplicaRead());
+        assertTrue(itask2.isReadOnly());
+        assertTrue(itask2.isSinglePartition());
+        assertEquals(itask.getStoredProcedureName(), itask2.getStoredProcedureName());
     }
 
     public void testInitiateResponse() throws IOException {
@@ -367,6 +387,16 @@ public class TestVoltMessageSerialization extends TestCase {
         assertEquals(mn.isBlocked(), mn2.isBlocked());
     }
 
+    public void testRejoinDataMessage() throws IOException {
+        RejoinDataMessage rdm = new RejoinDataMessage(1234L, CompressionCodec.LZ4, new byte[] { 1, 2, 3, 4, 5 });
+
+        RejoinDataMessage rdm2 = (RejoinDataMessage) checkVoltMessage(rdm);
+
+        assertEquals(rdm.getTargetId(), rdm2.getTargetId());
+        assertEquals(CompressionCodec.LZ4, rdm2.getCompressionCodec());
+        assertTrue(Arrays.equals(rdm.getData(), rdm2.getData()));
+    }
+
     public void testCompleteTransactionMessage() throws IOException
     {
         CompleteTransactionMessage ctm =
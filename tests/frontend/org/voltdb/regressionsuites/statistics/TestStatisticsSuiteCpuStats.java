@@ -44,11 +44,19 @@ public class TestStatisticsSuiteCpuStats extends StatisticsTestSuiteBase {
         System.out.println("\n\nTESTING CPU STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[4];
+        ColumnInfo[] expectedSchema = new ColumnInfo[12];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
         expectedSchema[3] = new ColumnInfo("PERCENT_USED", VoltType.BIGINT);
+        expectedSchema[4] = new ColumnInfo("SITE_SPINS", VoltType.BIGINT);
+        expectedSchema[5] = new ColumnInfo("SITE_PARKS", VoltType.BIGINT);
+        expectedSchema[6] = new ColumnInfo("NETWORK_SPINS", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("NETWORK_PARKS", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("MP_INITIATOR_SPINS", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("MP_INITIATOR_PARKS", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("EXPORT_SPINS", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("EXPORT_PARKS", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -0,0 +1,165 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Compares compression ratio and compress/decompress throughput of every CompressionCodec
+ * on serialized table data, in chunks the size of a snapshot buffer. By default the data is
+ * a generated table shaped like typical OLTP rows (ids, counters, timestamps, low cardinality
+ * strings); pass a file, e.g. a table from a snapshot or a PBD segment, to use real data instead.
+ *
+ * Usage: CompressionCodecMicrobench [seconds per codec] [data file]
+ */
+public class CompressionCodecMicrobench {
+
+    static final int CHUNK_SIZE = 2 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = 5;
+        if (args.length >= 1) {
+            seconds = Integer.parseInt(args[0]);
+        }
+        final ByteBuffer data;
+        if (args.length >= 2) {
+            byte bytes[] = Files.readAllBytes(new File(args[1]).toPath());
+            data = ByteBuffer.allocateDirect(bytes.length);
+            data.put(bytes);
+            data.flip();
+        } else {
+            data = generateTableData(CHUNK_SIZE * 8);
+        }
+        System.out.printf("%d bytes of input in %d byte chunks%n", data.remaining(), CHUNK_SIZE);
+        System.out.printf("%-8s %8s %14s %16s%n", "codec", "ratio", "compress MB/s", "decompress MB/s");
+
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            run(codec, data, seconds);
+        }
+    }
+
+    static void run(CompressionCodec codec, ByteBuffer data, int seconds) throws Exception {
+        final int chunks = (data.remaining() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final ByteBuffer compressed[] = new ByteBuffer[chunks];
+        final ByteBuffer output = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        long compressedBytes = 0;
+        for (int i = 0; i < chunks; i++) {
+            ByteBuffer chunk = chunk(data, i);
+            compressed[i] = ByteBuffer.allocateDirect(codec.maxCompressedLength(chunk.remaining()));
+            compressedBytes += codec.compress(chunk, compressed[i]);
+        }
+
+        // Warm up both directions before measuring
+        final long warmupEnd = System.nanoTime() + 1000000000L;
+        while (System.nanoTime() < warmupEnd) {
+            compressAll(codec, data, compressed);
+            decompressAll(codec, compressed, output);
+        }
+
+        long bytes = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1000000000L;
+        while (System.nanoTime() < end) {
+            bytes += compressAll(codec, data, compressed);
+        }
+        final double compressRate = bytes / ((System.nanoTime() - start) / 1e9) / (1024 * 1024);
+
+        bytes = 0;
+        start = System.nanoTime();
+        end = start + seconds * 1000000000L;
+        while (System.nanoTime() < end) {
+            bytes += decompressAll(codec, compressed, output);
+        }
+        final double decompressRate = bytes / ((System.nanoTime() - start) / 1e9) / (1024 * 1024);
+
+        System.out.printf("%-8s %8.2f %14.1f %16.1f%n", codec,
+                data.remaining() / (double) compressedBytes, compressRate, decompressRate);
+    }
+
+    static ByteBuffer chunk(ByteBuffer data, int index) {
+        ByteBuffer chunk = data.duplicate();
+        chunk.position(index * CHUNK_SIZE);
+        chunk.limit(Math.min(data.limit(), chunk.position() + CHUNK_SIZE));
+        return chunk;
+    }
+
+    static long compressAll(CompressionCodec codec, ByteBuffer data, ByteBuffer compressed[]) throws Exception {
+        long bytes = 0;
+        for (int i = 0; i < compressed.length; i++) {
+            ByteBuffer chunk = chunk(data, i);
+            compressed[i].clear();
+            codec.compress(chunk, compressed[i]);
+            bytes += chunk.remaining();
+        }
+        return bytes;
+    }
+
+    static long decompressAll(CompressionCodec codec, ByteBuffer compressed[], ByteBuffer output) throws Exception {
+        long bytes = 0;
+        for (ByteBuffer chunk : compressed) {
+            output.clear();
+            bytes += codec.decompress(chunk, output);
+        }
+        return bytes;
+    }
+
+    static ByteBuffer generateTableData(int size) {
+        final String cities[] = { "Boston", "Chicago", "Denver", "Houston", "Los Angeles",
+                                  "Miami", "New York", "Portland", "Seattle", "Toronto" };
+        final String statuses[] = { "NEW", "PENDING", "SHIPPED", "DELIVERED", "CANCELLED" };
+        final Random r = new Random(42);
+        final ByteBuffer data = ByteBuffer.allocateDirect(size);
+        long id = 0;
+        long timestamp = System.currentTimeMillis() * 1000;
+        while (data.hasRemaining()) {
+            VoltTable t = new VoltTable(
+                    new ColumnInfo("ORDER_ID", VoltType.BIGINT),
+                    new ColumnInfo("CUSTOMER_ID", VoltType.INTEGER),
+                    new ColumnInfo("CITY", VoltType.STRING),
+                    new ColumnInfo("STATUS", VoltType.STRING),
+                    new ColumnInfo("QUANTITY", VoltType.SMALLINT),
+                    new ColumnInfo("PRICE", VoltType.FLOAT),
+                    new ColumnInfo("CREATED", VoltType.TIMESTAMP));
+            for (int i = 0; i < 1000; i++) {
+                timestamp += r.nextInt(5000);
+                t.addRow(id++, r.nextInt(100000), cities[r.nextInt(cities.length)],
+                        statuses[r.nextInt(statuses.length)], (short) (1 + r.nextInt(20)),
+                        Math.round(r.nextDouble() * 10000) / 100.0, new TimestampType(timestamp));
+            }
+            ByteBuffer serialized = t.getBuffer();
+            serialized.limit(Math.min(serialized.limit(), serialized.position() + data.remaining()));
+            data.put(serialized);
+        }
+        data.flip();
+        return data;
+    }
+}
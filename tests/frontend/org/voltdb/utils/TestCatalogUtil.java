@@ -49,6 +49,7 @@ import org.voltdb.catalog.User;
 import org.voltdb.compiler.VoltCompiler;
 import org.voltdb.compiler.VoltProjectBuilder;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
+import org.voltdb.compiler.deploymentfile.NetworkTransportType;
 import org.voltdb.compilereport.ProcedureAnnotation;
 import org.voltdb.types.ConstraintType;
 
@@ -508,6 +509,45 @@ public class TestCatalogUtil extends TestCase {
     }
 
 
+    public void testSystemSettingsNetworkTransport() throws Exception
+    {
+        final String depDefault =
+            "<?xml version='1.0' encoding='UTF-8' standalone='no'?>" +
+            "<deployment>" +
+            "   <cluster hostcount='3' kfactor='1' sitesperhost='2'/>" +
+            "   <systemsettings>" +
+            "      <network/>" +
+            "   </systemsettings>" +
+            "</deployment>";
+
+        final String depEpoll =
+            "<?xml version='1.0' encoding='UTF-8' standalone='no'?>" +
+            "<deployment>" +
+            "   <cluster hostcount='3' kfactor='1' sitesperhost='2'/>" +
+            "   <systemsettings>" +
+            "      <network transport=\"epoll\"/>" +
+            "   </systemsettings>" +
+            "</deployment>";
+
+        final String depBad =
+            "<?xml version='1.0' encoding='UTF-8' standalone='no'?>" +
+            "<deployment>" +
+            "   <cluster hostcount='3' kfactor='1' sitesperhost='2'/>" +
+            "   <systemsettings>" +
+            "      <network transport=\"rdma\"/>" +
+            "   </systemsettings>" +
+            "</deployment>";
+
+        DeploymentType dep = CatalogUtil.getDeployment(new FileInputStream(VoltProjectBuilder.writeStringToTempFile(depDefault)));
+        assertEquals(NetworkTransportType.NIO, dep.getSystemsettings().getNetwork().getTransport());
+
+        dep = CatalogUtil.getDeployment(new FileInputStream(VoltProjectBuilder.writeStringToTempFile(depEpoll)));
+        assertEquals(NetworkTransportType.EPOLL, dep.getSystemsettings().getNetwork().getTransport());
+
+        dep = CatalogUtil.getDeployment(new FileInputStream(VoltProjectBuilder.writeStringToTempFile(depBad)));
+        assertNull(dep);
+    }
+
     // XXX Need to add command log paths here when command logging
     // gets tweaked to create directories if they don't exist
     public void testRelativePathsToVoltDBRoot() throws Exception
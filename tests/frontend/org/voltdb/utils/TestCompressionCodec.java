@@ -0,0 +1,113 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2018 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestCompressionCodec extends TestCase {
+
+    private static ByteBuffer makeData(ByteBuffer buf) {
+        // Compressible but not trivially so, a mix of repeating and random bytes
+        Random r = new Random(42);
+        while (buf.remaining() >= 16) {
+            buf.putLong(buf.position() / 1024);
+            buf.putLong(r.nextInt(64));
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static void checkRoundTrip(CompressionCodec codec, ByteBuffer input,
+            ByteBuffer compressed, ByteBuffer output) throws IOException {
+        final int inputPosition = input.position();
+        final int compressedLength = codec.compress(input, compressed);
+        assertEquals(inputPosition, input.position());
+        assertEquals(compressedLength, compressed.remaining());
+        assertTrue(compressedLength < input.remaining());
+        assertEquals(input.remaining(), codec.uncompressedLength(compressed));
+
+        final int uncompressedLength = codec.decompress(compressed, output);
+        assertEquals(input.remaining(), uncompressedLength);
+        assertEquals(uncompressedLength, output.remaining());
+        assertEquals(input, output);
+    }
+
+    public void testDirectRoundTrip() throws IOException {
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            ByteBuffer input = makeData(ByteBuffer.allocateDirect(64 * 1024));
+            ByteBuffer compressed = ByteBuffer.allocateDirect(codec.maxCompressedLength(input.remaining()));
+            ByteBuffer output = ByteBuffer.allocateDirect(input.remaining());
+            checkRoundTrip(codec, input, compressed, output);
+        }
+    }
+
+    public void testLZ4HeapAndOffsets() throws IOException {
+        ByteBuffer input = makeData(ByteBuffer.allocate(64 * 1024));
+        input.position(100);
+        ByteBuffer compressed = ByteBuffer.allocate(CompressionCodec.LZ4.maxCompressedLength(input.remaining()) + 12);
+        compressed.position(12);
+        ByteBuffer output = ByteBuffer.allocateDirect(input.remaining() + 8);
+        output.position(8);
+        checkRoundTrip(CompressionCodec.LZ4, input, compressed, output);
+    }
+
+    public void testCodecIds() throws IOException {
+        // Ids are persisted and must never change
+        assertEquals(0, CompressionCodec.SNAPPY.id());
+        assertEquals(1, CompressionCodec.LZ4.id());
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            assertEquals(codec, CompressionCodec.fromId(codec.id()));
+        }
+        try {
+            CompressionCodec.fromId(200);
+            fail();
+        } catch (IOException expected) {}
+    }
+
+    public void testPBDEntryFlags() throws IOException {
+        // Entries written before codecs were recorded only have the compressed bit set
+        assertEquals(CompressionCodec.SNAPPY, PBDSegment.codecForFlags(PBDSegment.FLAG_COMPRESSED));
+        assertNull(PBDSegment.codecForFlags(PBDSegment.NO_FLAGS));
+        assertEquals(PBDSegment.FLAG_COMPRESSED, PBDSegment.flagsForCodec(CompressionCodec.SNAPPY));
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            assertEquals(codec, PBDSegment.codecForFlags(PBDSegment.flagsForCodec(codec)));
+        }
+    }
+
+    public void testForUse() {
+        assertEquals(CompressionCodec.SNAPPY, CompressionCodec.forUse("TEST_UNSET"));
+        System.setProperty("TEST_CODEC_COMPRESSION_CODEC", "lz4");
+        try {
+            assertEquals(CompressionCodec.LZ4, CompressionCodec.forUse("TEST_CODEC"));
+            System.setProperty("TEST_CODEC_COMPRESSION_CODEC", "bogus");
+            assertEquals(CompressionCodec.SNAPPY, CompressionCodec.forUse("TEST_CODEC"));
+        } finally {
+            System.clearProperty("TEST_CODEC_COMPRESSION_CODEC");
+        }
+    }
+}
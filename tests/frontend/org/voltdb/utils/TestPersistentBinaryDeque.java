@@ -32,9 +32,13 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import junit.framework.Assert;
 
@@ -541,6 +545,95 @@ public class TestPersistentBinaryDeque {
         }
     }
 
+    @Test
+    public void testMappedReads() throws Exception {
+        System.out.println("Running testMappedReads");
+        m_pbd.setMappedReads(true);
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+
+        // Alternate compressed and uncompressed entries across several segments
+        final int total = 96;
+        for (int i = 0; i < total; i++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledBuffer(i)), i % 2 == 0);
+        }
+        assertTrue(TEST_DIR.listFiles().length > 2);
+
+        // Hold on to the first segment's buffers while reading past it, the slices
+        // must stay valid until they are discarded
+        List<BBContainer> held = new ArrayList<>();
+        int mappedSlices = 0;
+        for (long i = 0; i < total; i++) {
+            BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertNotNull(cont);
+            assertEquals(1024 * 1024 * 2, cont.b().remaining());
+            assertEquals(i, cont.b().getLong(0));
+            if (cont.b().isReadOnly()) {
+                // Only uncompressed entries are handed out as slices of the mapping
+                assertEquals(1, i % 2);
+                mappedSlices++;
+            }
+            held.add(cont);
+        }
+        assertTrue(mappedSlices > 0);
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+
+        for (int i = 0; i < total; i++) {
+            BBContainer cont = held.get(i);
+            ByteBuffer expected = getFilledBuffer(i);
+            assertTrue(expected.equals(cont.b()));
+            cont.discard();
+        }
+        assertTrue(reader.isEmpty());
+        assertEquals(1, TEST_DIR.listFiles().length);
+    }
+
+    @Test
+    public void testConcurrentSync() throws Exception {
+        System.out.println("Running testConcurrentSync");
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        final int total = 64;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // Producers and syncers race, every sync must return without error and nothing is lost
+        Thread syncers[] = new Thread[4];
+        final CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < syncers.length; i++) {
+            syncers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (done.getCount() > 0) {
+                            m_pbd.sync();
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            syncers[i].start();
+        }
+        for (int i = 0; i < total; i++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledBuffer(i)), false);
+        }
+        done.countDown();
+        for (Thread syncer : syncers) {
+            syncer.join();
+        }
+        assertNull(failure.get());
+        m_pbd.sync();
+
+        for (long i = 0; i < total; i++) {
+            BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            try {
+                assertNotNull(cont);
+                assertEquals(i, cont.b().getLong(0));
+            } finally {
+                cont.discard();
+            }
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
     @Test
     public void testOfferThenPushThenPoll() throws Exception {
         System.out.println("Running testOfferThenPushThenPoll");
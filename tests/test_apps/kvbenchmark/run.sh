@@ -40,7 +40,7 @@ HOST="localhost"
 
 # remove build artifacts
 function clean() {
-    rm -rf obj debugoutput $APPNAME.jar voltdbroot statement-plans catalog-report.html log
+    rm -rf obj debugoutput $APPNAME.jar voltdbroot statement-plans catalog-report.html log batching-*.txt
 }
 
 # compile the source code for procedures and the client
@@ -138,6 +138,32 @@ function sync-benchmark() {
         --csvfile=periodic.csv.gz
 }
 
+# Runs the sync benchmark with small values twice, without and then with
+# invocation batching, and reports the throughput of each run
+function batching-benchmark() {
+    jars-ifneeded
+    for BATCHBYTES in 0 16384; do
+        java -classpath kvbenchmark.jar:$APPCLASSPATH:obj -Dlog4j.configuration=file://$LOG4J \
+            kvbench.SyncBenchmark \
+            --displayinterval=5 \
+            --duration=60 \
+            --servers=localhost \
+            --poolsize=100000 \
+            --preload=true \
+            --getputratio=0.90 \
+            --keysize=32 \
+            --minvaluesize=32 \
+            --maxvaluesize=32 \
+            --usecompression=false \
+            --threads=200 \
+            --batchbytes=$BATCHBYTES | tee batching-$BATCHBYTES.txt
+    done
+    echo
+    for BATCHBYTES in 0 16384; do
+        echo "batchbytes=$BATCHBYTES $(grep 'Average throughput' batching-$BATCHBYTES.txt)"
+    done
+}
+
 function http-benchmark() {
     jars-ifneeded
     java -classpath obj:$APPCLASSPATH:obj -Dlog4j.configuration=file://$LOG4J \
@@ -162,7 +188,7 @@ function init() {
 }
 
 function help() {
-    echo "Usage: ./run.sh {clean|catalog|server|sync-benchmark|sync-benchmark-help|...}"
+    echo "Usage: ./run.sh {clean|catalog|server|sync-benchmark|sync-benchmark-help|batching-benchmark|...}"
 }
 
 # Run the target passed as the first arg on the command line
@@ -168,6 +168,9 @@ public class SyncBenchmark {
         @Option(desc = "Number of get/puts to perform")
         long maxops = -1L;
 
+        @Option(desc = "Coalesce invocations into frames of up to this many bytes, 0 disables batching.")
+        int batchbytes = 0;
+
         @Override
         public void validate() {
             if (duration <= 0) exitWithMessageAndUsage("duration must be > 0");
@@ -185,6 +188,7 @@ public class SyncBenchmark {
             if (entropy > 127) exitWithMessageAndUsage("entropy must be <= 127");
 
             if (threads <= 0) exitWithMessageAndUsage("threads must be > 0");
+            if (batchbytes < 0) exitWithMessageAndUsage("batchbytes must be >= 0");
         }
     }
 
@@ -297,6 +301,7 @@ public class SyncBenchmark {
 
         clientConfig.setReconnectOnConnectionLoss(true);
         clientConfig.setClientAffinity(true);
+        clientConfig.setInvocationBatchBytes(config.batchbytes);
         client = ClientFactory.createClient(clientConfig);
 
         periodicStatsContext = client.createStatsContext();
@@ -455,6 +460,8 @@ public class SyncBenchmark {
         System.out.println(" Client Workload Statistics");
         System.out.println(HORIZONTAL_RULE);
 
+        System.out.printf("Invocation batching:           %s\n",
+                config.batchbytes > 0 ? String.format("%,9d bytes", config.batchbytes) : "disabled");
         System.out.printf("Average throughput:            %,9d txns/sec\n", stats.getTxnThroughput());
         System.out.printf("Average latency:               %,9.2f ms\n", stats.getAverageLatency());
         System.out.printf("10th percentile latency:       %,9.2f ms\n", stats.kPercentileLatencyAsDouble(.1));
@@ -17,6 +17,7 @@ prunelist = ('hsqldb19b3',
              'org_voltcore_utils_DBBPool.h',
              'org_voltcore_utils_DBBPool_DBBContainer.h',
              'org_voltdb_utils_PosixAdvise.h',
+             'org_voltcore_network_Epoll.h',
              'simplejson',
              'projectfile',
              'deploymentfile',